@@ -0,0 +1,175 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The data searched by the benchmarks, and the patterns searched for.
+ * <p>
+ * There are three kinds of corpus:
+ * <ul>
+ *     <li>random - uniformly random bytes generated from a fixed seed.</li>
+ *     <li>text - English text (the text used by the byteseek unit tests), repeated to fill the corpus.</li>
+ *     <li>binary - a native executable: the JVM library of the JVM running the benchmark.</li>
+ * </ul>
+ * Any corpus can be replaced by a file of your own by setting the system property
+ * <code>byteseek.corpus.&lt;name&gt;</code> to the path of the file, e.g.
+ * <code>-Dbyteseek.corpus.binary=/path/to/disk.img</code>.
+ * <p>
+ * Patterns are taken from the corpus itself at positions chosen from a fixed seed,
+ * so the same patterns are used on every run and each of them occurs at least once.
+ *
+ * @author Matt Palmer
+ */
+public final class Corpus {
+
+    /**
+     * The size of each corpus in bytes.  A corpus read from a larger file is truncated to this size.
+     */
+    public static final int CORPUS_SIZE = 8 * 1024 * 1024;
+
+    private static final long SEED = 0x6279746573656B6CL;
+
+    private static final String[] JVM_LIBRARIES = { "lib/server/libjvm.so", "lib/amd64/server/libjvm.so",
+                                                    "jre/lib/amd64/server/libjvm.so", "lib/server/libjvm.dylib",
+                                                    "bin/server/jvm.dll", "jre/bin/server/jvm.dll",
+                                                    "bin/java", "bin/java.exe" };
+
+    private Corpus() {
+    }
+
+    /**
+     * Returns the corpus with the name given.
+     *
+     * @param name The name of the corpus: random, text or binary.
+     * @return The bytes of the corpus.
+     * @throws IOException If the corpus could not be read.
+     * @throws IllegalArgumentException If the name is not a known corpus.
+     */
+    public static byte[] load(final String name) throws IOException {
+        final String path = System.getProperty("byteseek.corpus." + name);
+        if (path != null) {
+            return truncate(readFile(new File(path)));
+        }
+        switch (name) {
+            case "random": return random();
+            case "text":   return fill(readResource("/TestASCII.txt"));
+            case "binary": return fill(readFile(findJvmLibrary()));
+            default: throw new IllegalArgumentException("Unknown corpus: " + name);
+        }
+    }
+
+    /**
+     * Returns patterns taken from the corpus at positions chosen from a fixed seed.
+     *
+     * @param corpus The corpus to take the patterns from.
+     * @param numPatterns The number of patterns to return.
+     * @param patternLength The length of each pattern.
+     * @return An array of patterns taken from the corpus.
+     */
+    public static byte[][] patterns(final byte[] corpus, final int numPatterns, final int patternLength) {
+        final Random random = new Random(SEED + numPatterns * 31 + patternLength);
+        final byte[][] patterns = new byte[numPatterns][];
+        for (int patternIndex = 0; patternIndex < numPatterns; patternIndex++) {
+            final int position = random.nextInt(corpus.length - patternLength);
+            patterns[patternIndex] = Arrays.copyOfRange(corpus, position, position + patternLength);
+        }
+        return patterns;
+    }
+
+    private static byte[] random() {
+        final byte[] bytes = new byte[CORPUS_SIZE];
+        new Random(SEED).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static File findJvmLibrary() throws IOException {
+        final File javaHome = new File(System.getProperty("java.home"));
+        for (final String library : JVM_LIBRARIES) {
+            final File file = new File(javaHome, library);
+            if (file.isFile()) {
+                return file;
+            }
+        }
+        throw new IOException("Could not find a JVM binary under " + javaHome +
+                              " - set byteseek.corpus.binary to the path of an executable file.");
+    }
+
+    private static byte[] fill(final byte[] source) {
+        if (source.length >= CORPUS_SIZE) {
+            return truncate(source);
+        }
+        final byte[] bytes = new byte[CORPUS_SIZE];
+        for (int position = 0; position < CORPUS_SIZE; position += source.length) {
+            System.arraycopy(source, 0, bytes, position, Math.min(source.length, CORPUS_SIZE - position));
+        }
+        return bytes;
+    }
+
+    private static byte[] truncate(final byte[] source) {
+        return source.length > CORPUS_SIZE ? Arrays.copyOf(source, CORPUS_SIZE) : source;
+    }
+
+    private static byte[] readResource(final String resourceName) throws IOException {
+        final InputStream input = Corpus.class.getResourceAsStream(resourceName);
+        if (input == null) {
+            throw new IOException("Could not find resource " + resourceName);
+        }
+        return readStream(input);
+    }
+
+    private static byte[] readFile(final File file) throws IOException {
+        return readStream(new FileInputStream(file));
+    }
+
+    private static byte[] readStream(final InputStream input) throws IOException {
+        try {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[65536];
+            int read;
+            while ((read = input.read(buffer)) >= 0 && output.size() < CORPUS_SIZE) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        } finally {
+            input.close();
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.byteseek.matcher.multisequence.MultiSequenceMatcher;
+import net.byteseek.matcher.multisequence.TrieMultiSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.BackwardSearchIterator;
+import net.byteseek.searcher.ForwardSearchIterator;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.multisequence.aho_corasick.AhoCorasickSearcher;
+import net.byteseek.searcher.multisequence.set_horspool.SetHorspoolFinalFlagSearcher;
+import net.byteseek.searcher.multisequence.set_horspool.SetHorspoolSearcher;
+import net.byteseek.searcher.multisequence.wu_manber.WuManberMultiByteSearcher;
+import net.byteseek.searcher.multisequence.wu_manber.WuManberOneByteFinalFlagSearcher;
+import net.byteseek.searcher.multisequence.wu_manber.WuManberOneByteSearcher;
+import net.byteseek.searcher.multisequence.wu_manber.WuManberOneByteTunedSearcher;
+import net.byteseek.searcher.multisequence.wu_manber.WuManberTwoByteSearcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time taken by the multi-sequence searchers to find all matches of a set of
+ * patterns in a corpus, across corpora, pattern lengths and pattern set sizes.
+ * <p>
+ * All the searchers use the same {@link TrieMultiSequenceMatcher} to verify matches,
+ * so the differences measured are due to the search algorithms.
+ *
+ * @author Matt Palmer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class MultiSequenceSearcherBenchmark {
+
+    @Param({"random", "text", "binary"})
+    public String corpus;
+
+    @Param({"4", "8", "16", "32"})
+    public int patternLength;
+
+    @Param({"1", "10", "100", "1000"})
+    public int numPatterns;
+
+    // WuManberMultiByte does not yet search backwards, so it is not run by default.  It can be
+    // benchmarked forwards with: -p searcher=WuManberMultiByte .*MultiSequence.*searchAllForwards
+    @Param({"SetHorspool", "SetHorspoolFinalFlag", "WuManberOneByte", "WuManberOneByteTuned",
+            "WuManberOneByteFinalFlag", "WuManberTwoByte", "AhoCorasick"})
+    public String searcher;
+
+    private byte[] data;
+    private Searcher<SequenceMatcher> multiSearcher;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        data = Corpus.load(corpus);
+        final List<SequenceMatcher> sequences = new ArrayList<SequenceMatcher>(numPatterns);
+        for (final byte[] pattern : Corpus.patterns(data, numPatterns, patternLength)) {
+            sequences.add(new ByteSequenceMatcher(pattern));
+        }
+        multiSearcher = createSearcher(searcher, new TrieMultiSequenceMatcher(sequences));
+    }
+
+    @Benchmark
+    public int searchAllForwards() {
+        return SequenceSearcherBenchmark.countMatches(new ForwardSearchIterator<SequenceMatcher>(multiSearcher, data));
+    }
+
+    @Benchmark
+    public int searchAllBackwards() {
+        return SequenceSearcherBenchmark.countMatches(new BackwardSearchIterator<SequenceMatcher>(multiSearcher, data));
+    }
+
+    private static Searcher<SequenceMatcher> createSearcher(final String name, final MultiSequenceMatcher sequences) {
+        switch (name) {
+            case "SetHorspool":              return new SetHorspoolSearcher(sequences);
+            case "SetHorspoolFinalFlag":     return new SetHorspoolFinalFlagSearcher(sequences);
+            case "WuManberOneByte":          return new WuManberOneByteSearcher(sequences);
+            case "WuManberOneByteTuned":     return new WuManberOneByteTunedSearcher(sequences);
+            case "WuManberOneByteFinalFlag": return new WuManberOneByteFinalFlagSearcher.OneByteBlockSearcher(sequences);
+            case "WuManberTwoByte":          return new WuManberTwoByteSearcher(sequences);
+            case "WuManberMultiByte":        return new WuManberMultiByteSearcher(sequences, 3);
+            case "AhoCorasick":              return new AhoCorasickSearcher(sequences);
+            default: throw new IllegalArgumentException("Unknown searcher: " + name);
+        }
+    }
+
+}
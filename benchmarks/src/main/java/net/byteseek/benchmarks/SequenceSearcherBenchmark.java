@@ -0,0 +1,130 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.benchmarks;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.BackwardSearchIterator;
+import net.byteseek.searcher.ForwardSearchIterator;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.sequence.SequenceMatcherSearcher;
+import net.byteseek.searcher.sequence.bndm.BndmSearcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+import net.byteseek.searcher.sequence.horspool.HorspoolFinalFlagSearcher;
+import net.byteseek.searcher.sequence.packed.PackedStringSearcher;
+import net.byteseek.searcher.sequence.sunday.SundayQuickSearcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time taken by the single sequence searchers to find all matches of a
+ * pattern in a corpus, across corpora and pattern lengths.
+ * <p>
+ * Searcher construction is excluded from the measurement, but the search tables are
+ * built lazily on the first search, so the first (warmup) iteration includes building them.
+ *
+ * @author Matt Palmer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class SequenceSearcherBenchmark {
+
+    @Param({"random", "text", "binary"})
+    public String corpus;
+
+    @Param({"2", "4", "8", "16", "32", "64", "256"})
+    public int patternLength;
+
+    @Param({"BoyerMooreHorspool", "HorspoolFinalFlag", "SundayQuick", "Bndm", "PackedString", "SequenceMatcher"})
+    public String searcher;
+
+    private byte[] data;
+    private Searcher<SequenceMatcher> sequenceSearcher;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        data = Corpus.load(corpus);
+        final SequenceMatcher sequence = new ByteSequenceMatcher(Corpus.patterns(data, 1, patternLength)[0]);
+        sequenceSearcher = createSearcher(searcher, sequence);
+    }
+
+    @Benchmark
+    public int searchAllForwards() {
+        return countMatches(new ForwardSearchIterator<SequenceMatcher>(sequenceSearcher, data));
+    }
+
+    @Benchmark
+    public int searchAllBackwards() {
+        return countMatches(new BackwardSearchIterator<SequenceMatcher>(sequenceSearcher, data));
+    }
+
+    static int countMatches(final Iterator<? extends List<?>> iterator) {
+        int matches = 0;
+        while (iterator.hasNext()) {
+            matches += iterator.next().size();
+        }
+        return matches;
+    }
+
+    private static Searcher<SequenceMatcher> createSearcher(final String name, final SequenceMatcher sequence) {
+        switch (name) {
+            case "BoyerMooreHorspool": return new BoyerMooreHorspoolSearcher(sequence);
+            case "HorspoolFinalFlag":  return new HorspoolFinalFlagSearcher(sequence);
+            case "SundayQuick":        return new SundayQuickSearcher(sequence);
+            case "Bndm":               return new BndmSearcher(sequence);
+            case "PackedString":       return new PackedStringSearcher(sequence);
+            case "SequenceMatcher":    return new SequenceMatcherSearcher(sequence);
+            default: throw new IllegalArgumentException("Unknown searcher: " + name);
+        }
+    }
+
+}
@@ -422,9 +422,12 @@ public class MutableState<T> implements State<T> {
 		if (stateCopy == null) {
 			stateCopy = new MutableState<T>(this.isFinal);
 			oldToNewObjects.put(this, stateCopy);
+			if (!associations.isEmpty()) {
+				stateCopy.addAllAssociations(associations);
+			}
 			for (Transition<T> transition : transitions) {
 				final Transition<T> transitionCopy = transition.deepCopy(oldToNewObjects);
-				stateCopy.transitions.add(transitionCopy);
+				stateCopy.addTransition(transitionCopy);
 			}
 		}
 		return stateCopy;
@@ -0,0 +1,333 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.automata.bitparallel;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.byteseek.automata.Automata;
+import net.byteseek.automata.State;
+import net.byteseek.automata.Transition;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * A compiled, immutable form of a Glushkov automata, as built by the
+ * {@link net.byteseek.automata.regex.GlushkovRegexBuilder}, which lets a set of active
+ * states be simulated in parallel using bit operations (the Shift-And algorithm).
+ * <p>
+ * Each state of the automata is given a bit, with the initial state as bit zero.
+ * In a Glushkov automata, every transition into a state is on the same bytes, so the
+ * next set of active states for a byte is just the states which follow the active
+ * states, masked by the states which can be entered on that byte:
+ * <pre>
+ *     nextStates = follow(states) &amp; byteMask[value]
+ * </pre>
+ * Automata with up to 64 states keep their state set in a single long, which can be
+ * stepped using {@link #nextStates(long, byte)}.  The states which follow a state set
+ * are looked up eight states at a time in pre-computed tables, so stepping takes one
+ * lookup for every eight states.  Larger automata keep their state set in a long array,
+ * stepped using {@link #nextStates(long[], long[], byte)}.
+ * <p>
+ * Automata which are not Glushkov automata can still be compiled, as long as every
+ * transition into a state is on the same bytes.  If they are not, an
+ * IllegalArgumentException is thrown.
+ *
+ * @author Matt Palmer
+ */
+public final class ShiftAndTable {
+
+	/**
+	 * The state set containing only the initial state, for automata which fit in a single long.
+	 */
+	public static final long INITIAL_STATES = 1L;
+
+	private static final int BITS_PER_WORD = 64;
+	private static final int BITS_PER_CHUNK = 8;
+	private static final int CHUNK_VALUES = 256;
+
+	private final int numberOfStates;
+	private final int numberOfWords;
+	private final long[] byteMasks;     // the states entered on each byte value: [value * words + word].
+	private final long[] followMasks;   // the states which follow each state:    [state * words + word].
+	private final long[] followTable;   // single word only - the states following each chunk of 8 states.
+	private final long[] finalMask;     // the final states.
+
+	/**
+	 * Constructs a ShiftAndTable from an automata in which every transition into a state
+	 * is on the same bytes, such as a Glushkov automata.
+	 *
+	 * @param <T>      The type of object associated with states in the automata.
+	 * @param automata The automata to compile.
+	 * @throws IllegalArgumentException if the automata is null, has no initial state,
+	 *                                  or has a state entered on different bytes.
+	 */
+	public <T> ShiftAndTable(final Automata<T> automata) {
+		ArgUtils.checkNullObject(automata, "automata");
+		final State<T> initialState = automata.getInitialState();
+		ArgUtils.checkNullObject(initialState, "initial state");
+
+		// Give each state a bit, with the initial state as bit zero:
+		final Map<State<T>, Integer> stateIndexes = new IdentityHashMap<State<T>, Integer>();
+		final List<State<T>> states = new ArrayList<State<T>>();
+		stateIndexes.put(initialState, 0);
+		states.add(initialState);
+		for (int stateIndex = 0; stateIndex < states.size(); stateIndex++) {
+			for (final Transition<T> transition : states.get(stateIndex)) {
+				final State<T> toState = transition.getToState();
+				if (!stateIndexes.containsKey(toState)) {
+					stateIndexes.put(toState, states.size());
+					states.add(toState);
+				}
+			}
+		}
+		numberOfStates = states.size();
+		numberOfWords = (numberOfStates + BITS_PER_WORD - 1) / BITS_PER_WORD;
+
+		// Build the follow, byte and final masks, checking each state is only entered on one set of bytes:
+		final int words = numberOfWords;
+		byteMasks = new long[CHUNK_VALUES * words];
+		followMasks = new long[numberOfStates * words];
+		finalMask = new long[words];
+		final long[][] entryBytes = new long[numberOfStates][];
+		for (int stateIndex = 0; stateIndex < numberOfStates; stateIndex++) {
+			final State<T> state = states.get(stateIndex);
+			if (state.isFinal()) {
+				setBit(finalMask, 0, stateIndex);
+			}
+			for (final Transition<T> transition : state) {
+				final int toIndex = stateIndexes.get(transition.getToState());
+				setBit(followMasks, stateIndex * words, toIndex);
+				final long[] transitionBytes = getByteSet(transition);
+				final long[] existingBytes = entryBytes[toIndex];
+				if (existingBytes == null) {
+					entryBytes[toIndex] = transitionBytes;
+					for (int value = 0; value < CHUNK_VALUES; value++) {
+						if ((transitionBytes[value >>> 6] & (1L << value)) != 0) {
+							setBit(byteMasks, value * words, toIndex);
+						}
+					}
+				} else if (!sameBytes(existingBytes, transitionBytes)) {
+					throw new IllegalArgumentException("The automata has a state entered on different bytes; " +
+							"only Glushkov automata can be simulated in parallel.");
+				}
+			}
+		}
+		followTable = words == 1 ? buildFollowTable() : null;
+	}
+
+	/**
+	 * Returns the number of states in the automata.
+	 *
+	 * @return The number of states in the automata.
+	 */
+	public int getNumberOfStates() {
+		return numberOfStates;
+	}
+
+	/**
+	 * Returns the number of longs needed to hold a set of states.  If this is one,
+	 * the state set can be held in a single long, and the single long methods can be used.
+	 *
+	 * @return The number of longs needed to hold a set of states.
+	 */
+	public int getNumberOfWords() {
+		return numberOfWords;
+	}
+
+	/**
+	 * Returns the final states, for automata which fit in a single long.
+	 *
+	 * @return The final states of the automata.
+	 */
+	public long getFinalStates() {
+		return finalMask[0];
+	}
+
+	/**
+	 * Returns the states which follow a set of states on a byte, for automata which
+	 * fit in a single long.
+	 *
+	 * @param states The current set of states.
+	 * @param value  The byte to transition on.
+	 * @return The next set of states, which is zero if there are no next states.
+	 */
+	public long nextStates(final long states, final byte value) {
+		final long[] localTable = followTable;
+		long follow = 0;
+		long remaining = states;
+		int chunkOffset = 0;
+		while (remaining != 0) {
+			follow |= localTable[chunkOffset + ((int) remaining & 0xFF)];
+			remaining >>>= BITS_PER_CHUNK;
+			chunkOffset += CHUNK_VALUES;
+		}
+		return follow & byteMasks[value & 0xFF];
+	}
+
+	/**
+	 * Sets a state set to contain only the initial state.
+	 *
+	 * @param states The state set to set, which must have at least {@link #getNumberOfWords()} longs.
+	 */
+	public void setInitialStates(final long[] states) {
+		states[0] = INITIAL_STATES;
+		for (int word = 1; word < numberOfWords; word++) {
+			states[word] = 0;
+		}
+	}
+
+	/**
+	 * Calculates the states which follow a set of states on a byte, for automata of any size.
+	 *
+	 * @param states     The current set of states.
+	 * @param nextStates The state set to write the next set of states into.
+	 *                   It must not be the same array as the current set of states.
+	 * @param value      The byte to transition on.
+	 * @return true if there are any next states.
+	 */
+	public boolean nextStates(final long[] states, final long[] nextStates, final byte value) {
+		final int words = numberOfWords;
+		final long[] follow = followMasks;
+		for (int word = 0; word < words; word++) {
+			nextStates[word] = 0;
+		}
+
+		// Add the states which follow each active state:
+		for (int word = 0; word < words; word++) {
+			long remaining = states[word];
+			while (remaining != 0) {
+				final int followOffset = ((word << 6) + Long.numberOfTrailingZeros(remaining)) * words;
+				for (int nextWord = 0; nextWord < words; nextWord++) {
+					nextStates[nextWord] |= follow[followOffset + nextWord];
+				}
+				remaining &= remaining - 1;
+			}
+		}
+
+		// Keep only the states which can be entered on the byte:
+		final int byteOffset = (value & 0xFF) * words;
+		long anyStates = 0;
+		for (int word = 0; word < words; word++) {
+			anyStates |= (nextStates[word] &= byteMasks[byteOffset + word]);
+		}
+		return anyStates != 0;
+	}
+
+	/**
+	 * Returns true if any of a set of states are final, for automata of any size.
+	 *
+	 * @param states The set of states to test.
+	 * @return true if any of the states are final.
+	 */
+	public boolean isFinal(final long[] states) {
+		for (int word = 0; word < numberOfWords; word++) {
+			if ((states[word] & finalMask[word]) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns true if the initial state is final, in which case the automata matches
+	 * without reading any bytes.
+	 *
+	 * @return true if the initial state is final.
+	 */
+	public boolean isInitialFinal() {
+		return (finalMask[0] & INITIAL_STATES) != 0;
+	}
+
+	/**
+	 * Returns true if a match can start with a byte - that is, if the initial state has
+	 * a transition on it, or the initial state is final.
+	 *
+	 * @param value The byte to test.
+	 * @return true if a match can start with the byte.
+	 */
+	public boolean canStartWith(final byte value) {
+		if (isInitialFinal()) {
+			return true;
+		}
+		final int byteOffset = (value & 0xFF) * numberOfWords;
+		for (int word = 0; word < numberOfWords; word++) {
+			if ((followMasks[word] & byteMasks[byteOffset + word]) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[states:" + numberOfStates + " words:" + numberOfWords + ']';
+	}
+
+	/*
+	 * For each chunk of 8 states, pre-computes the states which follow every combination of them.
+	 */
+	private long[] buildFollowTable() {
+		final int numberOfChunks = (numberOfStates + BITS_PER_CHUNK - 1) / BITS_PER_CHUNK;
+		final long[] table = new long[numberOfChunks * CHUNK_VALUES];
+		for (int chunk = 0; chunk < numberOfChunks; chunk++) {
+			final int chunkOffset = chunk * CHUNK_VALUES;
+			for (int chunkBits = 1; chunkBits < CHUNK_VALUES; chunkBits++) {
+				final int lowestBit = Integer.numberOfTrailingZeros(chunkBits);
+				final int state = chunk * BITS_PER_CHUNK + lowestBit;
+				final long stateFollows = state < numberOfStates ? followMasks[state] : 0;
+				table[chunkOffset + chunkBits] = table[chunkOffset + (chunkBits & (chunkBits - 1))] | stateFollows;
+			}
+		}
+		return table;
+	}
+
+	private static void setBit(final long[] bits, final int offset, final int bit) {
+		bits[offset + (bit >>> 6)] |= 1L << bit;
+	}
+
+	private static long[] getByteSet(final Transition<?> transition) {
+		final long[] byteSet = new long[4];
+		for (final byte value : transition.getBytes()) {
+			final int index = value & 0xFF;
+			byteSet[index >>> 6] |= 1L << index;
+		}
+		return byteSet;
+	}
+
+	private static boolean sameBytes(final long[] first, final long[] second) {
+		return first[0] == second[0] && first[1] == second[1] &&
+			   first[2] == second[2] && first[3] == second[3];
+	}
+
+}
@@ -32,6 +32,7 @@
 package net.byteseek.automata.deterministic;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -131,7 +132,9 @@ public final class DfaBuilder<T> {
 	  //TODO: build from and to an automata...
 		final Set<State<T>> stateSet = new IdentityHashSet<State<T>>();
 		stateSet.add(initialState);
-		final Map<Set<State<T>>, State<T>> nfaToDfa = new IdentityHashMap<Set<State<T>>, State<T>>();
+		// State sets must be compared by their contents, so the same DFA state is found again
+		// when a set of NFA states is reached by a different path (e.g. round a loop):
+		final Map<Set<State<T>>, State<T>> nfaToDfa = new HashMap<Set<State<T>>, State<T>>();
 		return getState(stateSet, nfaToDfa);
 	}
 
@@ -0,0 +1,217 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.automata.deterministic;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.byteseek.automata.Automata;
+import net.byteseek.automata.State;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * A compiled, immutable form of a deterministic finite state automata, which flattens
+ * the graph of {@link State} objects into a dense table of transitions.
+ * <p>
+ * Each state is given a row of 256 entries in a single int array, one for each byte value.
+ * A state is identified by the offset of its row in the table, so the next state for a byte
+ * is found with a single array lookup:
+ * <pre>
+ *     nextState = table.getNextState(state, value); // transitions[state + (value &amp; 0xFF)]
+ * </pre>
+ * There is no transition for a byte if the next state is {@link #NO_STATE}.  Whether a state
+ * is final is recorded in a bitset, and the objects associated with each state are available
+ * from {@link #getAssociations(int)}.
+ * <p>
+ * The table uses 1Kb of memory per state, so it is best suited to automata with up to a few
+ * thousand states.  The automata must be deterministic - only the first state reachable on
+ * each byte is recorded.
+ *
+ * @param <T> The type of object associated with states in the automata.
+ * @author Matt Palmer
+ */
+public final class DfaTable<T> {
+
+	/**
+	 * The value of a transition to no state.
+	 */
+	public static final int NO_STATE = -1;
+
+	/**
+	 * The initial state of every DfaTable.
+	 */
+	public static final int INITIAL_STATE = 0;
+
+	private static final int ROW_SIZE = 256;
+	private static final int MAX_STATES = Integer.MAX_VALUE / ROW_SIZE;
+
+	private final int[] transitions;
+	private final long[] finalStates;
+	private final Collection<T>[] associations;
+
+	/**
+	 * Compiles a DfaTable from a deterministic automata.
+	 *
+	 * @param automata The deterministic automata to compile.
+	 * @throws IllegalArgumentException if the automata is null, not deterministic,
+	 *                                  or has too many states to fit in a table.
+	 */
+	public DfaTable(final Automata<T> automata) {
+		this(getDeterministicInitialState(automata));
+	}
+
+	/**
+	 * Compiles a DfaTable from the initial state of a deterministic automata,
+	 * for example a state returned by {@link DfaBuilder#build(State)}.
+	 *
+	 * @param initialState The initial state of the deterministic automata to compile.
+	 * @throws IllegalArgumentException if the initial state is null,
+	 *                                  or there are too many states to fit in a table.
+	 */
+	public DfaTable(final State<T> initialState) {
+		ArgUtils.checkNullObject(initialState, "initialState");
+		final List<State<T>> states = numberStates(initialState);
+		final int numStates = states.size();
+		final Map<State<T>, Integer> stateOffsets = new IdentityHashMap<State<T>, Integer>(numStates * 2);
+		for (int stateIndex = 0; stateIndex < numStates; stateIndex++) {
+			stateOffsets.put(states.get(stateIndex), stateIndex * ROW_SIZE);
+		}
+		transitions = new int[numStates * ROW_SIZE];
+		finalStates = new long[(numStates + 63) >>> 6];
+		associations = newAssociations(numStates);
+		for (int stateIndex = 0; stateIndex < numStates; stateIndex++) {
+			final State<T> state = states.get(stateIndex);
+			final int rowOffset = stateIndex * ROW_SIZE;
+			for (int value = 0; value < ROW_SIZE; value++) {
+				final State<T> nextState = state.getNextState((byte) value);
+				transitions[rowOffset + value] = nextState == null ? NO_STATE : stateOffsets.get(nextState);
+			}
+			if (state.isFinal()) {
+				finalStates[stateIndex >>> 6] |= 1L << stateIndex;
+			}
+			final Collection<T> stateAssociations = state.getAssociations();
+			associations[stateIndex] = stateAssociations.isEmpty() ? Collections.<T>emptyList()
+					: Collections.unmodifiableList(new ArrayList<T>(stateAssociations));
+		}
+	}
+
+	/**
+	 * Returns the state to transition to from a state on a byte value, or {@link #NO_STATE}
+	 * if there is no transition.
+	 *
+	 * @param state The state to transition from.
+	 * @param value The byte value to transition on.
+	 * @return The next state, or {@link #NO_STATE} if there is no transition for the byte.
+	 */
+	public int getNextState(final int state, final byte value) {
+		return transitions[state + (value & 0xFF)];
+	}
+
+	/**
+	 * Returns true if the state is final.
+	 *
+	 * @param state The state to test.
+	 * @return true if the state is final.
+	 */
+	public boolean isFinal(final int state) {
+		final int stateIndex = state >>> 8;
+		return (finalStates[stateIndex >>> 6] & (1L << stateIndex)) != 0;
+	}
+
+	/**
+	 * Returns an unmodifiable collection of the objects associated with a state.
+	 *
+	 * @param state The state to get the associations of.
+	 * @return A collection of the objects associated with the state, which may be empty.
+	 */
+	public Collection<T> getAssociations(final int state) {
+		return associations[state >>> 8];
+	}
+
+	/**
+	 * Returns the number of states in the table.
+	 *
+	 * @return The number of states in the table.
+	 */
+	public int getNumberOfStates() {
+		return associations.length;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[states: " + getNumberOfStates() + ']';
+	}
+
+	private static <T> State<T> getDeterministicInitialState(final Automata<T> automata) {
+		ArgUtils.checkNullObject(automata, "automata");
+		if (!automata.isDeterministic()) {
+			throw new IllegalArgumentException("The automata must be deterministic to compile into a DfaTable.");
+		}
+		return automata.getInitialState();
+	}
+
+	// Generic arrays cannot be created directly; the array only ever holds Collection<T>.
+	@SuppressWarnings("unchecked")
+	private static <T> Collection<T>[] newAssociations(final int numStates) {
+		return (Collection<T>[]) new Collection<?>[numStates];
+	}
+
+	/**
+	 * Returns all the states reachable from the initial state, in breadth-first order
+	 * with the initial state first.
+	 */
+	private static <T> List<State<T>> numberStates(final State<T> initialState) {
+		final Map<State<T>, State<T>> seen = new IdentityHashMap<State<T>, State<T>>();
+		final List<State<T>> states = new ArrayList<State<T>>();
+		states.add(initialState);
+		seen.put(initialState, initialState);
+		for (int stateIndex = 0; stateIndex < states.size(); stateIndex++) {
+			final State<T> state = states.get(stateIndex);
+			for (int value = 0; value < ROW_SIZE; value++) {
+				final State<T> nextState = state.getNextState((byte) value);
+				if (nextState != null && !seen.containsKey(nextState)) {
+					if (states.size() == MAX_STATES) {
+						throw new IllegalArgumentException("The automata has too many states to compile into a DfaTable.");
+					}
+					seen.put(nextState, nextState);
+					states.add(nextState);
+				}
+			}
+		}
+		return states;
+	}
+
+}
@@ -273,11 +273,13 @@ public abstract class AbstractTrie<T> extends MutableAutomata<T> implements Trie
 				} else if (numberOfBytesInCommon > 0) {
 					// Only some bytes are in common - the new transition is not a subset of the original
 					// transition. We will have to split the existing transition to two states.
+					// Only the copy for the bytes in common must become final, as
+					// the original state still only matches the bytes not in common.
 					final State<T> originalToState = transition.getToState();
+					final State<T> newToState = originalToState.deepCopy();
 					if (isFinal) {
-						originalToState.setIsFinal(true);
+						newToState.setIsFinal(true);
 					}
-					final State<T> newToState = originalToState.deepCopy();
 
 					// Add a transition to the bytes which are not in common:
 					currentState.addTransition(
@@ -0,0 +1,278 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.automata.trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.byteseek.automata.State;
+import net.byteseek.automata.Transition;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * A compact, immutable encoding of a {@link Trie}, which flattens the graph of {@link State}
+ * and {@link Transition} objects into a few arrays indexed by state number.
+ * <p>
+ * The transitions of each state are stored in one of two forms:
+ * <ul>
+ * <li>Sparse states, with few transitions, store their byte values in ascending order,
+ *     with the state each byte transitions to, and are searched with a binary search.</li>
+ * <li>Dense states, with many transitions, store a state for all 256 byte values,
+ *     so the next state is found with a single array lookup.</li>
+ * </ul>
+ * The initial state is always dense, as every match begins with it.  The transitions of
+ * state <code>s</code> lie between <code>stateStarts[s]</code> and <code>stateStarts[s + 1]</code>,
+ * and a state is dense if it has exactly 256 entries.  A sparse state uses five bytes per
+ * transition, rather than the several objects each transition of a Trie uses.
+ * <p>
+ * There is no transition for a byte if the next state is {@link #NO_STATE}.  Whether a state
+ * is final is recorded in a bitset, and the objects associated with each state are available
+ * from {@link #getAssociations(int)}.  Only the first state reachable on each byte is recorded,
+ * which is always the case for a Trie, as it is deterministic.
+ *
+ * @param <T> The type of object associated with states in the trie.
+ * @author Matt Palmer
+ */
+public final class TrieTable<T> {
+
+	/**
+	 * The value of a transition to no state.
+	 */
+	public static final int NO_STATE = -1;
+
+	/**
+	 * The initial state of every TrieTable.
+	 */
+	public static final int INITIAL_STATE = 0;
+
+	/**
+	 * States with more transitions than this are stored densely.
+	 */
+	private static final int MAX_SPARSE_TRANSITIONS = 32;
+
+	private static final int DENSE_SIZE = 256;
+
+	private final int[] stateStarts;
+	private final byte[] values;
+	private final int[] nextStates;
+	private final long[] finalStates;
+	private final Collection<T>[] associations;
+
+	/**
+	 * Compiles a TrieTable from a Trie.
+	 *
+	 * @param trie The Trie to compile.
+	 * @throws IllegalArgumentException if the trie is null.
+	 */
+	public TrieTable(final Trie<T> trie) {
+		this(getInitialState(trie));
+	}
+
+	/**
+	 * Compiles a TrieTable from the initial state of a deterministic automata,
+	 * normally the initial state of a {@link Trie}.
+	 *
+	 * @param initialState The initial state of the automata to compile.
+	 * @throws IllegalArgumentException if the initial state is null.
+	 */
+	public TrieTable(final State<T> initialState) {
+		ArgUtils.checkNullObject(initialState, "initialState");
+
+		// Number the states breadth first, counting the transition entries of each state:
+		final State<T>[] transitions = newStates(DENSE_SIZE);
+		final List<State<T>> states = new ArrayList<State<T>>();
+		final Map<State<T>, Integer> stateNumbers = new IdentityHashMap<State<T>, Integer>();
+		states.add(initialState);
+		stateNumbers.put(initialState, INITIAL_STATE);
+		int totalEntries = 0;
+		for (int stateIndex = 0; stateIndex < states.size(); stateIndex++) {
+			final int count = getTransitions(states.get(stateIndex), transitions);
+			for (final State<T> nextState : transitions) {
+				if (nextState != null && !stateNumbers.containsKey(nextState)) {
+					stateNumbers.put(nextState, states.size());
+					states.add(nextState);
+				}
+			}
+			totalEntries += isDense(stateIndex, count) ? DENSE_SIZE : count;
+		}
+
+		// Encode the transitions of each state as sparse or dense entries:
+		final int numStates = states.size();
+		stateStarts = new int[numStates + 1];
+		values = new byte[totalEntries];
+		nextStates = new int[totalEntries];
+		finalStates = new long[(numStates + 63) >>> 6];
+		associations = newAssociations(numStates);
+		int entry = 0;
+		for (int stateIndex = 0; stateIndex < numStates; stateIndex++) {
+			stateStarts[stateIndex] = entry;
+			final State<T> state = states.get(stateIndex);
+			final boolean dense = isDense(stateIndex, getTransitions(state, transitions));
+			for (int value = 0; value < DENSE_SIZE; value++) {
+				final State<T> nextState = transitions[value];
+				if (dense || nextState != null) {
+					values[entry] = (byte) value;
+					nextStates[entry++] = nextState == null ? NO_STATE : stateNumbers.get(nextState);
+				}
+			}
+			if (state.isFinal()) {
+				finalStates[stateIndex >>> 6] |= 1L << stateIndex;
+			}
+			final Collection<T> stateAssociations = state.getAssociations();
+			associations[stateIndex] = stateAssociations.isEmpty() ? Collections.<T>emptyList()
+					: Collections.unmodifiableList(new ArrayList<T>(stateAssociations));
+		}
+		stateStarts[numStates] = entry;
+	}
+
+	/**
+	 * Returns the state to transition to from a state on a byte value, or {@link #NO_STATE}
+	 * if there is no transition.
+	 *
+	 * @param state The state to transition from.
+	 * @param value The byte value to transition on.
+	 * @return The next state, or {@link #NO_STATE} if there is no transition for the byte.
+	 */
+	public int getNextState(final int state, final byte value) {
+		final int start = stateStarts[state];
+		final int end = stateStarts[state + 1];
+		final int unsignedValue = value & 0xFF;
+		if (end - start == DENSE_SIZE) {
+			return nextStates[start + unsignedValue];
+		}
+		int low = start;
+		int high = end - 1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final int middleValue = values[middle] & 0xFF;
+			if (middleValue < unsignedValue) {
+				low = middle + 1;
+			} else if (middleValue > unsignedValue) {
+				high = middle - 1;
+			} else {
+				return nextStates[middle];
+			}
+		}
+		return NO_STATE;
+	}
+
+	/**
+	 * Returns true if the state is final.
+	 *
+	 * @param state The state to test.
+	 * @return true if the state is final.
+	 */
+	public boolean isFinal(final int state) {
+		return (finalStates[state >>> 6] & (1L << state)) != 0;
+	}
+
+	/**
+	 * Returns an unmodifiable collection of the objects associated with a state.
+	 *
+	 * @param state The state to get the associations of.
+	 * @return A collection of the objects associated with the state, which may be empty.
+	 */
+	public Collection<T> getAssociations(final int state) {
+		return associations[state];
+	}
+
+	/**
+	 * Returns the number of states in the table.
+	 *
+	 * @return The number of states in the table.
+	 */
+	public int getNumberOfStates() {
+		return associations.length;
+	}
+
+	/**
+	 * Returns the number of transition entries in the table, counting 256 entries for each dense state.
+	 *
+	 * @return The number of transition entries in the table.
+	 */
+	public int getNumberOfEntries() {
+		return nextStates.length;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[states: " + getNumberOfStates() +
+				                            " entries: " + getNumberOfEntries() + ']';
+	}
+
+	private static <T> State<T> getInitialState(final Trie<T> trie) {
+		ArgUtils.checkNullObject(trie, "trie");
+		return trie.getInitialState();
+	}
+
+	// Generic arrays cannot be created directly; the array only ever holds State<T>.
+	@SuppressWarnings("unchecked")
+	private static <T> State<T>[] newStates(final int numStates) {
+		return (State<T>[]) new State<?>[numStates];
+	}
+
+	// Generic arrays cannot be created directly; the array only ever holds Collection<T>.
+	@SuppressWarnings("unchecked")
+	private static <T> Collection<T>[] newAssociations(final int numStates) {
+		return (Collection<T>[]) new Collection<?>[numStates];
+	}
+
+	private static boolean isDense(final int stateIndex, final int numTransitions) {
+		return stateIndex == INITIAL_STATE || numTransitions > MAX_SPARSE_TRANSITIONS;
+	}
+
+	/**
+	 * Fills the array with the state each byte value transitions to from a state, or null if
+	 * there is no transition, and returns the number of byte values with a transition.
+	 * Only the first state reachable on each byte is recorded.
+	 */
+	private static <T> int getTransitions(final State<T> state, final State<T>[] transitions) {
+		Arrays.fill(transitions, null);
+		int count = 0;
+		for (final Transition<T> transition : state) {
+			final State<T> toState = transition.getToState();
+			for (final byte value : transition.getBytes()) {
+				if (transitions[value & 0xFF] == null) {
+					transitions[value & 0xFF] = toState;
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+}
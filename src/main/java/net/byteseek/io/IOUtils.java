@@ -32,6 +32,8 @@
 package net.byteseek.io;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -219,6 +221,41 @@ public final class IOUtils {
 		return totalRead;
 	}
 
+	/**
+	 * Reads bytes from a {@link java.nio.channels.FileChannel} into the byte array,
+	 * starting from the position provided, until the byte array is filled or there
+	 * are no more bytes in the FileChannel.
+	 * <p>
+	 * The position of the FileChannel itself is not used or changed, so many threads
+	 * can read from the same FileChannel at the same time using this method.
+	 * <p>
+	 * Returns the total number of bytes read into the array.
+	 *
+	 * @param input
+	 *            The FileChannel to read from.
+	 * @param bytes
+	 *            The byte array to fill.
+	 * @param fromPosition
+	 *            The position to begin reading from in the FileChannel.
+	 * @return int The total number of bytes read.
+	 * @throws IOException
+	 *             If a problem occurs reading from the FileChannel.
+	 */
+	public static int readBytes(final FileChannel input,
+			final byte[] bytes, final long fromPosition) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		final int blockSize = bytes.length;
+		int totalRead = 0;
+		while (totalRead < blockSize) {
+			final int read = input.read(buffer, fromPosition + totalRead);
+			if (read == -1) {
+				break;
+			}
+			totalRead += read;
+		}
+		return totalRead;
+	}
+
 	/**
 	 * Writes the contents of an array of bytes into a
 	 * {@link java.io.RandomAccessFile}.
@@ -36,7 +36,10 @@ import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 import net.byteseek.io.reader.cache.WindowCache;
+import net.byteseek.io.reader.cache.WindowCache.WindowObserver;
+import net.byteseek.io.reader.windows.HardWindow;
 import net.byteseek.io.reader.windows.Window;
+import net.byteseek.io.reader.windows.WindowBufferPool;
 import net.byteseek.utils.ArgUtils;
 
 //FUTURE:
@@ -98,6 +101,18 @@ public abstract class AbstractReader implements WindowReader {
 	 */
 	private Window lastWindow;
 
+	/**
+	 * An optional pool of byte arrays to create new Windows from, and to return
+	 * the arrays of Windows leaving the cache to.  If null, a new array is
+	 * allocated for each Window.
+	 */
+	private WindowBufferPool bufferPool;
+
+	/**
+	 * Returns the arrays of Windows leaving the cache to the buffer pool.
+	 */
+	private WindowObserver bufferRecycler;
+
 	/**
 	 * Construct the WindowReader using a default window size, using the WindowCache
 	 * provided.
@@ -195,6 +210,54 @@ public abstract class AbstractReader implements WindowReader {
 		return null;
 	}
 
+	/**
+	 * Sets a {@link WindowBufferPool} for this reader to draw the byte arrays of
+	 * new Windows from.  When the cache notifies that a {@link HardWindow} has left it,
+	 * the array backing that Window is returned to the pool.  If the pool is null
+	 * (the default), a new array is allocated for each Window, and Windows leaving the
+	 * cache are left for the garbage collector.
+	 * <p>
+	 * A pool should only be used if a Window leaving the cache is no longer referenced
+	 * by anything which will read it again, since its array will be reused for another
+	 * Window.  Callers must not hold on to Windows obtained from this reader while reading
+	 * further Windows, and the cache must not notify that a Window is free while it is
+	 * still held somewhere else, for example in the memory cache of a
+	 * {@link net.byteseek.io.reader.cache.DoubleCache}.
+	 *
+	 * @param pool The pool of byte arrays to use, or null if arrays should not be pooled.
+	 */
+	public void setWindowBufferPool(final WindowBufferPool pool) {
+		if (bufferRecycler != null) {
+			cache.unsubscribe(bufferRecycler);
+			bufferRecycler = null;
+		}
+		bufferPool = pool;
+		if (pool != null) {
+			bufferRecycler = new BufferRecycler(pool);
+			cache.subscribe(bufferRecycler);
+		}
+	}
+
+	/**
+	 * Returns the {@link WindowBufferPool} used by this reader, or null if no pool is used.
+	 *
+	 * @return The WindowBufferPool used by this reader, or null if no pool is used.
+	 */
+	public WindowBufferPool getWindowBufferPool() {
+		return bufferPool;
+	}
+
+	/**
+	 * Returns a byte array of the window size to read the bytes of a new Window
+	 * into, drawn from the {@link WindowBufferPool} if one is set.
+	 *
+	 * @return A byte array of the window size.
+	 */
+	protected final byte[] getWindowArray() {
+		final WindowBufferPool pool = bufferPool;
+		return pool == null ? new byte[windowSize] : pool.borrow(windowSize);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -236,6 +299,29 @@ public abstract class AbstractReader implements WindowReader {
 	 */
 	protected abstract Window createWindow(final long windowStart) throws IOException;
 
+	/**
+	 * Returns the arrays of {@link HardWindow}s leaving the cache to a buffer pool.
+	 * The last Window returned by this reader is not recycled, as it is still
+	 * being handed out by {@link #getWindow(long)}; this happens when the cache
+	 * does not hold Windows at all, for example the
+	 * {@link net.byteseek.io.reader.cache.NoCache}.
+	 */
+	private final class BufferRecycler implements WindowObserver {
+
+		private final WindowBufferPool pool;
+
+		private BufferRecycler(final WindowBufferPool pool) {
+			this.pool = pool;
+		}
+
+		@Override
+		public void windowFree(final Window window, final WindowCache fromCache) throws IOException {
+			if (window instanceof HardWindow && window != lastWindow) {
+				pool.release(window.getArray());
+			}
+		}
+	}
+
 	/**
 	 * An iterator of {@link Window}s over a {@link WindowReader}.
 	 */
@@ -0,0 +1,250 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+import net.byteseek.io.IOUtils;
+import net.byteseek.io.reader.cache.ConcurrentLeastRecentlyUsedCache;
+import net.byteseek.io.reader.cache.WindowCache;
+import net.byteseek.io.reader.windows.HardWindow;
+import net.byteseek.io.reader.windows.SoftWindow;
+import net.byteseek.io.reader.windows.SoftWindowRecovery;
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.io.reader.windows.WindowBufferPool;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * A thread-safe WindowReader extending {@link AbstractReader} which reads a file into
+ * cached byte arrays.  Many threads can search different regions of the same file
+ * through a single ConcurrentFileReader.
+ * <p>
+ * Unlike the {@link FileReader}, it does not share a file pointer between callers.  Windows
+ * are read using the positional {@link java.nio.channels.FileChannel#read(java.nio.ByteBuffer, long)}
+ * method, which can be called safely by many threads at the same time.  It does not
+ * remember the last Window it returned, so every Window is obtained from the cache or read
+ * from the file.  By default, it uses a {@link ConcurrentLeastRecentlyUsedCache}.
+ * <p>
+ * The reader is only thread-safe if the {@link WindowCache} it uses is thread-safe.
+ * If two threads ask for a Window which is not cached at the same time, both may read it
+ * from the file, but only the first Window added will be cached.
+ * <p>
+ * Note that if a thread reading from the file is interrupted, the underlying FileChannel
+ * is closed and the reader can no longer be used by any thread.
+ *
+ * @author Matt Palmer
+ */
+public class ConcurrentFileReader extends AbstractReader implements SoftWindowRecovery {
+
+    private final static String READ_ONLY = "r";
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private final long length;
+    private volatile boolean useSoftWindows;
+
+    /**
+     * Constructs a ConcurrentFileReader which defaults to a window size of 4096, caching
+     * the last 32 most recently used Windows in a {@link ConcurrentLeastRecentlyUsedCache}.
+     *
+     * @param file The file to read from.
+     * @throws FileNotFoundException If the file does not exist.
+     * @throws IllegalArgumentException if the file passed in is null.
+     */
+    public ConcurrentFileReader(final File file) throws FileNotFoundException {
+        this(file, DEFAULT_WINDOW_SIZE, new ConcurrentLeastRecentlyUsedCache(DEFAULT_CAPACITY));
+    }
+
+    /**
+     * Constructs a ConcurrentFileReader using the window size passed in, caching the
+     * most recently used Windows up to the capacity specified in a
+     * {@link ConcurrentLeastRecentlyUsedCache}.
+     *
+     * @param file The file to read from.
+     * @param windowSize The size of the byte array to read from the file.
+     * @param capacity The number of byte arrays to cache.
+     * @throws FileNotFoundException If the file does not exist.
+     * @throws IllegalArgumentException if the file passed in is null, or the window size or capacity are not positive.
+     */
+    public ConcurrentFileReader(final File file, final int windowSize, final int capacity)
+            throws FileNotFoundException {
+        this(file, windowSize, new ConcurrentLeastRecentlyUsedCache(capacity));
+    }
+
+    /**
+     * Constructs a ConcurrentFileReader which defaults to a window size of 4096, caching
+     * the last 32 most recently used Windows in a {@link ConcurrentLeastRecentlyUsedCache}.
+     *
+     * @param path The path of the file to read from.
+     * @throws FileNotFoundException If the file does not exist.
+     * @throws IllegalArgumentException if the path passed in is null.
+     */
+    public ConcurrentFileReader(final String path) throws FileNotFoundException {
+        this(path == null? null : new File(path), DEFAULT_WINDOW_SIZE,
+             new ConcurrentLeastRecentlyUsedCache(DEFAULT_CAPACITY));
+    }
+
+    /**
+     * Constructs a ConcurrentFileReader which reads the file into Windows of the specified
+     * size, using the {@link WindowCache} supplied to cache them.  The cache must be
+     * thread-safe if the reader is used by more than one thread.
+     *
+     * @param file The file to read from.
+     * @param windowSize The size of the byte array to read from the file.
+     * @param cache The cache of Windows to use.
+     * @throws FileNotFoundException If the file does not exist.
+     * @throws IllegalArgumentException If the file or cache passed in is null, or the window size is not positive.
+     */
+    public ConcurrentFileReader(final File file, final int windowSize, final WindowCache cache)
+            throws FileNotFoundException {
+        super(windowSize, cache);
+        ArgUtils.checkNullObject(file, "file");
+        this.file = file;
+        this.randomAccessFile = new RandomAccessFile(file, READ_ONLY);
+        this.channel = randomAccessFile.getChannel();
+        this.length = file.length();
+    }
+
+    /**
+     * Returns the length of the file.
+     *
+     * @return The length of the file accessed by the reader.
+     */
+    @Override
+    public final long length() {
+        return length;
+    }
+
+    /**
+     * Returns a window onto the data for a given position, obtained from the cache
+     * or read from the file.  Unlike the {@link AbstractReader}, the last window
+     * returned is not recorded, as it would be shared between threads.
+     *
+     * @param position The position in the reader for which a Window is requested.
+     * @return A Window containing the position, or null if the position is not in the file.
+     * @throws IOException if an IO error occurred trying to read a new window.
+     */
+    @Override
+    public Window getWindow(final long position) throws IOException {
+        if (position >= 0 && position < length) {
+            final int offset = (int) (position % (long) windowSize);
+            final long windowStart = position - offset;
+            Window window = cache.getWindow(windowStart);
+            if (window == null) {
+                window = createWindow(windowStart);
+                if (window != null) {
+                    cache.addWindow(window);
+                }
+            }
+            return window != null && offset < window.length()? window : null;
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Window createWindow(final long windowStart) throws IOException {
+        if (windowStart >= 0 && windowStart < length) {
+            final byte[] bytes = new byte[windowSize];
+            final int totalRead = IOUtils.readBytes(channel, bytes, windowStart);
+            if (totalRead > 0) {
+                return useSoftWindows? new SoftWindow(bytes, windowStart, totalRead, this)
+                                     : new HardWindow(bytes, windowStart, totalRead);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Closes the underlying {@link java.io.RandomAccessFile}, then clears any
+     * cache associated with this WindowReader.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            randomAccessFile.close();
+        } finally {
+            super.close();
+        }
+    }
+
+    /**
+     * Returns the {@link java.io.File} object accessed by this WindowReader.
+     *
+     * @return The File object accessed by this WindowReader.
+     */
+    public final File getFile() {
+        return file;
+    }
+
+    /**
+     * Sets whether new Windows should be {@link SoftWindow}s, whose byte arrays
+     * can be reclaimed by the garbage collector under low memory conditions.
+     *
+     * @param useSoftWindows Whether to create SoftWindows.
+     */
+    public void useSoftWindows(final boolean useSoftWindows) {
+        this.useSoftWindows = useSoftWindows;
+    }
+
+    /**
+     * Always throws UnsupportedOperationException.  Other threads may still be reading
+     * a Window after it leaves the cache, so its array cannot safely be reused.
+     *
+     * @param pool The pool of byte arrays.
+     * @throws UnsupportedOperationException Always throws this exception.
+     */
+    @Override
+    public void setWindowBufferPool(final WindowBufferPool pool) {
+        throw new UnsupportedOperationException("A concurrent reader cannot reuse window arrays.");
+    }
+
+    @Override
+    public byte[] reloadWindowBytes(final Window window) throws IOException {
+        final byte[] bytes = new byte[windowSize];
+        IOUtils.readBytes(channel, bytes, window.getWindowPosition());
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[file:" + file + " length: " + length + " cache:" + cache + ']';
+    }
+
+}
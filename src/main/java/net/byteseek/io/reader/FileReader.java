@@ -38,7 +38,7 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 
 import net.byteseek.io.IOUtils;
-import net.byteseek.io.reader.cache.LeastRecentlyUsedCache;
+import net.byteseek.io.reader.cache.LeastRecentlyUsedArrayCache;
 import net.byteseek.io.reader.cache.WindowCache;
 import net.byteseek.io.reader.windows.HardWindow;
 import net.byteseek.io.reader.windows.SoftWindow;
@@ -68,14 +68,14 @@ public class FileReader extends AbstractReader implements SoftWindowRecovery {
 
 	/**
 	 * Constructs a FileReader which defaults to an array size of 4096, caching
-	 * the last 32 most recently used Windows in a {@link net.byteseek.io.reader.cache.LeastRecentlyUsedCache}
+	 * the last 32 most recently used Windows in a {@link net.byteseek.io.reader.cache.LeastRecentlyUsedArrayCache}
 	 *
 	 * @param file The file to read from.
 	 * @throws FileNotFoundException If the file does not exist.
 	 * @throws IllegalArgumentException if the file passed in is null.
 	 */
 	public FileReader(final File file) throws FileNotFoundException {
-		this(file, DEFAULT_WINDOW_SIZE, new LeastRecentlyUsedCache(DEFAULT_CAPACITY));
+		this(file, DEFAULT_WINDOW_SIZE, new LeastRecentlyUsedArrayCache(DEFAULT_CAPACITY));
 	}
 
 	/**
@@ -94,7 +94,7 @@ public class FileReader extends AbstractReader implements SoftWindowRecovery {
 
 	/**
 	 * Constructs a FileReader using the {@link net.byteseek.io.reader.windows.Window} size passed in, and
-	 * caches the last 32 Windows in a {@link net.byteseek.io.reader.cache.LeastRecentlyUsedCache}.
+	 * caches the last 32 Windows in a {@link net.byteseek.io.reader.cache.LeastRecentlyUsedArrayCache}.
 	 * 
 	 * @param file The file to read from.
 	 * @param windowSize The size of the byte array to read from the file.
@@ -103,13 +103,13 @@ public class FileReader extends AbstractReader implements SoftWindowRecovery {
 	 */
 	public FileReader(final File file, final int windowSize)
 			throws FileNotFoundException {
-		this(file, windowSize, new LeastRecentlyUsedCache(DEFAULT_CAPACITY));
+		this(file, windowSize, new LeastRecentlyUsedArrayCache(DEFAULT_CAPACITY));
 	}
 
 	/**
 	 * Constructs a FileReader using the array size passed in, and caches the
 	 * last most recently used Windows up to the capacity specified in a
-	 * {@link net.byteseek.io.reader.cache.LeastRecentlyUsedCache}.
+	 * {@link net.byteseek.io.reader.cache.LeastRecentlyUsedArrayCache}.
 	 * 
 	 * @param file The file to read from.
 	 * @param windowSize the size of the byte array to read from the file.
@@ -119,20 +119,20 @@ public class FileReader extends AbstractReader implements SoftWindowRecovery {
 	 */
 	public FileReader(final File file, final int windowSize, final int capacity)
 			throws FileNotFoundException {
-		this(file, windowSize, new LeastRecentlyUsedCache(capacity));
+		this(file, windowSize, new LeastRecentlyUsedArrayCache(capacity));
 	}
 
 	/**
 	 * Constructs a FileReader which defaults to a {@link net.byteseek.io.reader.windows.Window} size of 4096,
 	 * caching the last 32 most recently used {@link net.byteseek.io.reader.windows.Window}s in a
-	 * {@link net.byteseek.io.reader.cache.LeastRecentlyUsedCache}.
+	 * {@link net.byteseek.io.reader.cache.LeastRecentlyUsedArrayCache}.
 	 * 
 	 * @param path The path of the file to read from.
 	 * @throws FileNotFoundException If the file does not exist.
 	 * @throws IllegalArgumentException if the path passed in is null.
 	 */
 	public FileReader(final String path) throws FileNotFoundException {
-		this(path == null? null : new File(path), DEFAULT_WINDOW_SIZE, new LeastRecentlyUsedCache(DEFAULT_CAPACITY));
+		this(path == null? null : new File(path), DEFAULT_WINDOW_SIZE, new LeastRecentlyUsedArrayCache(DEFAULT_CAPACITY));
 	}
 
 	/**
@@ -151,7 +151,7 @@ public class FileReader extends AbstractReader implements SoftWindowRecovery {
 
 	/**
 	 * Constructs a FileReader using the {@link net.byteseek.io.reader.windows.Window} size passed in, and
-	 * caches the last 32 Windows in a {@link net.byteseek.io.reader.cache.LeastRecentlyUsedCache}.
+	 * caches the last 32 Windows in a {@link net.byteseek.io.reader.cache.LeastRecentlyUsedArrayCache}.
 	 * 
 	 * @param path  The path of the file to read from.
 	 * @param windowSize The size of the byte array to read from the file.
@@ -160,13 +160,13 @@ public class FileReader extends AbstractReader implements SoftWindowRecovery {
 	 */
 	public FileReader(final String path, final int windowSize)
 			throws FileNotFoundException {
-		this(path == null? null : new File(path), windowSize, new LeastRecentlyUsedCache(DEFAULT_CAPACITY));
+		this(path == null? null : new File(path), windowSize, new LeastRecentlyUsedArrayCache(DEFAULT_CAPACITY));
 	}
 
 	/**
 	 * Constructs a FileReader using the {@link net.byteseek.io.reader.windows.Window} size passed in, and
 	 * caches the last Windows up to the capacity supplied using a
-	 * {@link net.byteseek.io.reader.cache.LeastRecentlyUsedCache}.
+	 * {@link net.byteseek.io.reader.cache.LeastRecentlyUsedArrayCache}.
 	 * 
 	 * @param path The path of the file to read from.
 	 * @param windowSize The size of the byte array to read from the file.
@@ -176,7 +176,7 @@ public class FileReader extends AbstractReader implements SoftWindowRecovery {
 	 */
 	public FileReader(final String path, final int windowSize,
 			final int capacity) throws FileNotFoundException {
-		this(path == null? null : new File(path), windowSize, new LeastRecentlyUsedCache(capacity));
+		this(path == null? null : new File(path), windowSize, new LeastRecentlyUsedArrayCache(capacity));
 	}
 
 	/**
@@ -216,7 +216,7 @@ public class FileReader extends AbstractReader implements SoftWindowRecovery {
 		if (windowStart >= 0) {
 			try {
 				randomAccessFile.seek(windowStart);
-				final byte[] bytes = new byte[windowSize];
+				final byte[] bytes = useSoftWindows? new byte[windowSize] : getWindowArray();
 				final int totalRead = IOUtils.readBytes(randomAccessFile, bytes);
 				if (totalRead > 0) {
 					return useSoftWindows? new SoftWindow(bytes, windowStart, totalRead, this)
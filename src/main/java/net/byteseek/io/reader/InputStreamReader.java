@@ -35,7 +35,7 @@ import java.io.IOException;
 import java.io.InputStream;
 
 import net.byteseek.io.IOUtils;
-import net.byteseek.io.reader.cache.LeastRecentlyUsedCache;
+import net.byteseek.io.reader.cache.LeastRecentlyUsedArrayCache;
 import net.byteseek.io.reader.cache.TempFileCache;
 import net.byteseek.io.reader.cache.TwoLevelCache;
 import net.byteseek.io.reader.cache.WindowCache;
@@ -55,7 +55,7 @@ import net.byteseek.utils.ArgUtils;
  * until the end is encountered and a length can be determined.
  * <p>
  * By default, the InputStreamReader uses a {@link TwoLevelCache}, with a
- * {@link net.byteseek.io.reader.cache.LeastRecentlyUsedCache} as its primary cache, and a
+ * {@link net.byteseek.io.reader.cache.LeastRecentlyUsedArrayCache} as its primary cache, and a
  * {@link TempFileCache} as its secondary cache. If the input stream fits
  * entirely into the MostRecentlyUsedCache, then a temporary file will never be
  * created. The secondary cache only gets used if a Window drops out of the
@@ -86,7 +86,7 @@ public class InputStreamReader extends AbstractReader {
 	/**
 	 * Constructs an InputStreamReader from an InputStream, using the default
 	 * window size of 4096 and a default capacity of 32, and a
-	 * {@link TwoLevelCache} with a {@link net.byteseek.io.reader.cache.LeastRecentlyUsedCache} as its primary
+	 * {@link TwoLevelCache} with a {@link net.byteseek.io.reader.cache.LeastRecentlyUsedArrayCache} as its primary
 	 * cache and a {@link TempFileCache} as the secondary cache.
 	 * 
 	 * @param stream
@@ -101,7 +101,7 @@ public class InputStreamReader extends AbstractReader {
 	/**
 	 * Constructs an InputStreamReader from an InputStream, using the default
 	 * window size of 4096 and a default capacity of 32, and a
-	 * {@link TwoLevelCache} with a {@link net.byteseek.io.reader.cache.LeastRecentlyUsedCache} as its primary
+	 * {@link TwoLevelCache} with a {@link net.byteseek.io.reader.cache.LeastRecentlyUsedArrayCache} as its primary
 	 * cache and a {@link TempFileCache} as the secondary cache.
 	 *
 	 * @param stream
@@ -159,7 +159,7 @@ public class InputStreamReader extends AbstractReader {
 	/**
 	 * Constructs an InputStreamReader from an InputStream, using the window
 	 * size provided and a default capacity of 32, and a {@link TwoLevelCache}
-	 * with a {@link net.byteseek.io.reader.cache.LeastRecentlyUsedCache} as its primary cache and a
+	 * with a {@link net.byteseek.io.reader.cache.LeastRecentlyUsedArrayCache} as its primary cache and a
 	 * {@link TempFileCache} as the secondary cache.
 	 * 
 	 * @param stream
@@ -176,7 +176,7 @@ public class InputStreamReader extends AbstractReader {
 	/**
 	 * Constructs an InputStreamReader from an InputStream, using the window
 	 * size provided and a default capacity of 32, and a {@link TwoLevelCache}
-	 * with a {@link net.byteseek.io.reader.cache.LeastRecentlyUsedCache} as its primary cache and a
+	 * with a {@link net.byteseek.io.reader.cache.LeastRecentlyUsedArrayCache} as its primary cache and a
 	 * {@link TempFileCache} as the secondary cache.
 	 *
 	 * @param stream
@@ -196,7 +196,7 @@ public class InputStreamReader extends AbstractReader {
 	/**
 	 * Constructs an InputStreamReader from an InputStream, using the window
 	 * size provided, the capacity provided and a {@link TwoLevelCache} with a
-	 * {@link net.byteseek.io.reader.cache.LeastRecentlyUsedCache} as its primary cache and a
+	 * {@link net.byteseek.io.reader.cache.LeastRecentlyUsedArrayCache} as its primary cache and a
 	 * {@link TempFileCache} as the secondary cache.
 	 * 
 	 * @param stream
@@ -212,13 +212,13 @@ public class InputStreamReader extends AbstractReader {
 	public InputStreamReader(final InputStream stream, final int windowSize,
 			final int capacity) {
 		this(stream, windowSize, TwoLevelCache.create(
-				new LeastRecentlyUsedCache(capacity), new TempFileCache()), true);
+				new LeastRecentlyUsedArrayCache(capacity), new TempFileCache()), true);
 	}
 
 	/**
 	 * Constructs an InputStreamReader from an InputStream, using the window
 	 * size provided, the capacity provided and a {@link TwoLevelCache} with a
-	 * {@link net.byteseek.io.reader.cache.LeastRecentlyUsedCache} as its primary cache and a
+	 * {@link net.byteseek.io.reader.cache.LeastRecentlyUsedArrayCache} as its primary cache and a
 	 * {@link TempFileCache} as the secondary cache.
 	 *
 	 * @param stream
@@ -236,7 +236,7 @@ public class InputStreamReader extends AbstractReader {
 	public InputStreamReader(final InputStream stream, final int windowSize,
 							 final int capacity, final boolean closeStreamOnClose) {
 		this(stream, windowSize, TwoLevelCache.create(
-				new LeastRecentlyUsedCache(capacity), new TempFileCache()),
+				new LeastRecentlyUsedArrayCache(capacity), new TempFileCache()),
 		        closeStreamOnClose);
 	}
 
@@ -327,7 +327,7 @@ public class InputStreamReader extends AbstractReader {
 	protected Window createWindow(final long windowPos) throws IOException {
 		Window window = null;
 		while (nextReadPos <= windowPos && length == UNKNOWN_LENGTH) {
-			final byte[] bytes = new byte[windowSize];
+			final byte[] bytes = recovery == null? getWindowArray() : new byte[windowSize];
 			final int totalRead = IOUtils.readBytes(stream, bytes);
 			if (totalRead > 0) {
 				if (recovery == null) {
@@ -362,7 +362,7 @@ public class InputStreamReader extends AbstractReader {
 	@Override
 	public long length() throws IOException {
 		while (length == UNKNOWN_LENGTH) {
-			final byte[] bytes = new byte[windowSize];
+			final byte[] bytes = recovery == null? getWindowArray() : new byte[windowSize];
 			final int totalRead = IOUtils.readBytes(stream, bytes);
 			if (totalRead > 0) {
 				final Window lastWindow;
@@ -0,0 +1,271 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import net.byteseek.io.reader.cache.LeastRecentlyUsedCache;
+import net.byteseek.io.reader.cache.WindowCache;
+import net.byteseek.io.reader.windows.MappedWindow;
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * A WindowReader extending {@link AbstractReader} which memory maps a file using
+ * {@link java.nio.channels.FileChannel#map(java.nio.channels.FileChannel.MapMode, long, long)}.
+ * <p>
+ * The file is mapped in large segments, each of which is a whole number of windows
+ * long, so a Window never spans two segments.  Segments are only mapped when a position
+ * inside them is first requested.  The {@link MappedWindow}s returned are views directly
+ * onto the mapped segments, and bytes read using {@link #readByte(long)} are read straight
+ * from the mapped segment without creating a Window at all.
+ * <p>
+ * The operating system page cache already caches the file contents, but a MappedWindow
+ * copies its bytes into an array the first time {@link net.byteseek.io.reader.windows.Window#getArray()}
+ * is called, which searchers do for every window they search.  This reader therefore uses a
+ * {@link net.byteseek.io.reader.cache.LeastRecentlyUsedCache} by default, so a window read again
+ * returns the array already copied.  A {@link net.byteseek.io.reader.cache.NoCache} can be
+ * supplied if only {@link #readByte(long)} or {@link net.byteseek.io.reader.windows.Window#getByte(int)}
+ * are used.
+ * <p>
+ * Note that a mapped segment is only released when it is garbage collected, not when the
+ * reader is closed.  This class is not thread-safe.
+ *
+ * @author Matt Palmer
+ */
+public class MappedFileReader extends AbstractReader {
+
+    private final static String READ_ONLY = "r";
+
+    /**
+     * The default size of a mapped segment, unless a different value is provided
+     * in the constructor.  It will be rounded down to a whole number of windows.
+     */
+    protected final static int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+    /**
+     * The smallest size of a mapped segment.  Each segment is a separate mapping, which
+     * is only released when it is garbage collected, so tiny segments over a file can
+     * exhaust the number of mappings a process may have.  Smaller segment sizes are
+     * rounded up to a whole number of windows at least this long.
+     */
+    protected final static int MINIMUM_SEGMENT_SIZE = 1 << 16;
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private final long length;
+    private final int segmentSize;
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Constructs a MappedFileReader using a default window size of 4096, a default
+     * segment size of 1Gb and a least recently used window cache.
+     *
+     * @param file The file to read from.
+     * @throws FileNotFoundException If the file does not exist.
+     * @throws IllegalArgumentException if the file passed in is null.
+     */
+    public MappedFileReader(final File file) throws FileNotFoundException {
+        this(file, DEFAULT_WINDOW_SIZE, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Constructs a MappedFileReader using the window size provided, a default
+     * segment size of 1Gb and a least recently used window cache.
+     *
+     * @param file The file to read from.
+     * @param windowSize The size of the windows to return.
+     * @throws FileNotFoundException If the file does not exist.
+     * @throws IllegalArgumentException if the file passed in is null, or the window size is not positive.
+     */
+    public MappedFileReader(final File file, final int windowSize) throws FileNotFoundException {
+        this(file, windowSize, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Constructs a MappedFileReader using the window size and segment size provided,
+     * and a least recently used window cache.
+     *
+     * @param file The file to read from.
+     * @param windowSize The size of the windows to return.
+     * @param segmentSize The size of each mapped segment of the file, rounded down to a whole number of windows,
+     *                    or up to a whole number of windows at least {@link #MINIMUM_SEGMENT_SIZE} long.
+     * @throws FileNotFoundException If the file does not exist.
+     * @throws IllegalArgumentException if the file passed in is null, the window size is not positive
+     *                                  or the segment size is smaller than the window size.
+     */
+    public MappedFileReader(final File file, final int windowSize, final int segmentSize) throws FileNotFoundException {
+        this(file, windowSize, segmentSize, new LeastRecentlyUsedCache(DEFAULT_CAPACITY));
+    }
+
+    /**
+     * Constructs a MappedFileReader using a default window size of 4096, a default
+     * segment size of 1Gb and a least recently used window cache.
+     *
+     * @param path The path of the file to read from.
+     * @throws FileNotFoundException If the file does not exist.
+     * @throws IllegalArgumentException if the path passed in is null.
+     */
+    public MappedFileReader(final String path) throws FileNotFoundException {
+        this(path == null? null : new File(path), DEFAULT_WINDOW_SIZE, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Constructs a MappedFileReader using the window size, segment size and {@link WindowCache} provided.
+     *
+     * @param file The file to read from.
+     * @param windowSize The size of the windows to return.
+     * @param segmentSize The size of each mapped segment of the file, rounded down to a whole number of windows,
+     *                    or up to a whole number of windows at least {@link #MINIMUM_SEGMENT_SIZE} long.
+     * @param cache The cache of Windows to use.
+     * @throws FileNotFoundException If the file does not exist.
+     * @throws IllegalArgumentException if the file or cache passed in is null, the window size is not positive
+     *                                  or the segment size is smaller than the window size.
+     */
+    public MappedFileReader(final File file, final int windowSize, final int segmentSize,
+                            final WindowCache cache) throws FileNotFoundException {
+        super(windowSize, cache);
+        ArgUtils.checkNullObject(file, "file");
+        if (segmentSize < windowSize) {
+            throw new IllegalArgumentException("The segment size " + segmentSize +
+                                               " cannot be smaller than the window size " + windowSize);
+        }
+        this.file = file;
+        this.segmentSize = segmentSize < MINIMUM_SEGMENT_SIZE?
+                           windowSize * ((MINIMUM_SEGMENT_SIZE + windowSize - 1) / windowSize) :
+                           segmentSize - (segmentSize % windowSize);
+        this.randomAccessFile = new RandomAccessFile(file, READ_ONLY);
+        this.channel = randomAccessFile.getChannel();
+        this.length = file.length();
+        this.segments = new MappedByteBuffer[(int) ((length + this.segmentSize - 1) / this.segmentSize)];
+    }
+
+    /**
+     * Returns the length of the file.
+     *
+     * @return The length of the file accessed by the reader.
+     */
+    @Override
+    public final long length() {
+        return length;
+    }
+
+    /**
+     * Reads a byte directly from the mapped segment containing the position, without
+     * creating or caching a Window.
+     *
+     * @param position The position in the reader to read a byte from.
+     * @return The byte at the given position (0-255), or a negative number if
+     *         there is no byte at the position specified.
+     * @throws IOException if an error occurs mapping the segment containing the position.
+     */
+    @Override
+    public int readByte(final long position) throws IOException {
+        if (position >= 0 && position < length) {
+            final int segmentIndex = (int) (position / segmentSize);
+            return getSegment(segmentIndex).get((int) (position - (long) segmentIndex * segmentSize)) & 0xFF;
+        }
+        return NO_BYTE_AT_POSITION;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Window createWindow(final long windowStart) throws IOException {
+        if (windowStart >= 0 && windowStart < length) {
+            final int segmentIndex = (int) (windowStart / segmentSize);
+            final int segmentOffset = (int) (windowStart - (long) segmentIndex * segmentSize);
+            final int windowLength = (int) Math.min(windowSize, length - windowStart);
+            return new MappedWindow(getSegment(segmentIndex), segmentOffset, windowStart, windowLength);
+        }
+        return null;
+    }
+
+    /**
+     * Closes the underlying {@link java.io.RandomAccessFile}, releases references to
+     * the mapped segments, then clears any cache associated with this WindowReader.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            randomAccessFile.close();
+        } finally {
+            for (int segmentIndex = 0; segmentIndex < segments.length; segmentIndex++) {
+                segments[segmentIndex] = null;
+            }
+            super.close();
+        }
+    }
+
+    /**
+     * Returns the {@link java.io.File} object accessed by this WindowReader.
+     *
+     * @return The File object accessed by this WindowReader.
+     */
+    public final File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the size of the mapped segments of the file.
+     *
+     * @return The size of the mapped segments of the file.
+     */
+    public final int getSegmentSize() {
+        return segmentSize;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[file:" + file + " length: " + length +
+                                            " segment size: " + segmentSize + " cache:" + cache + ']';
+    }
+
+    private MappedByteBuffer getSegment(final int segmentIndex) throws IOException {
+        MappedByteBuffer segment = segments[segmentIndex];
+        if (segment == null) {
+            final long segmentStart = (long) segmentIndex * segmentSize;
+            final long segmentLength = Math.min(segmentSize, length - segmentStart);
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, segmentLength);
+            segments[segmentIndex] = segment;
+        }
+        return segment;
+    }
+
+}
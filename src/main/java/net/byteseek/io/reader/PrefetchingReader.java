@@ -0,0 +1,340 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * A WindowReader which decorates another WindowReader, reading the next Windows ahead of
+ * a sequential scan in the background, so reading from the underlying source overlaps
+ * with searching the Windows already read.
+ * <p>
+ * When two adjacent Windows are requested one after the other, the direction of the
+ * scan (forwards or backwards) is detected, and the next Windows in that direction are
+ * requested from the decorated reader as tasks in an {@link java.util.concurrent.ExecutorService}.
+ * The decorated reader places them in its {@link net.byteseek.io.reader.cache.WindowCache}
+ * as usual.  If a Window is requested while it is still being read in the background, this
+ * reader waits for it rather than reading it again.  Any other access pattern cancels the
+ * prefetching until a sequential scan is detected again.
+ * <p>
+ * The decorated reader is used by the background tasks at the same time as by the caller,
+ * so it must be safe to use from many threads at once, for example the
+ * {@link ConcurrentFileReader} with a thread-safe cache.  The cache should hold more Windows
+ * than the number read ahead, or prefetched Windows may be evicted before they are used.
+ * <p>
+ * The ExecutorService is supplied by the caller and is not shut down by this class.
+ * This class itself is not thread-safe; it should be used by one thread at a time.
+ *
+ * @author Matt Palmer
+ */
+public final class PrefetchingReader implements WindowReader {
+
+    /**
+     * The default number of Windows to read ahead of a sequential scan, unless
+     * a different value is provided in the constructor.
+     */
+    public final static int DEFAULT_PREFETCH_WINDOWS = 4;
+
+    private static final int NO_DIRECTION = 0;
+    private static final int FORWARDS     = 1;
+    private static final int BACKWARDS    = -1;
+
+    private final WindowReader reader;
+    private final ExecutorService executor;
+    private final int prefetchWindows;
+    private final Map<Long, Future<Window>> pending;
+
+    private long lastWindowStart = -1;
+    private long lastWindowEnd   = -1;
+    private int direction = NO_DIRECTION;
+
+    /**
+     * Constructs a PrefetchingReader which reads 4 Windows ahead of a sequential scan.
+     *
+     * @param reader The WindowReader to decorate.  It must be safe to use from many threads at once.
+     * @param executor The ExecutorService to read Windows in the background with.
+     * @throws IllegalArgumentException if the reader or executor are null.
+     */
+    public PrefetchingReader(final WindowReader reader, final ExecutorService executor) {
+        this(reader, executor, DEFAULT_PREFETCH_WINDOWS);
+    }
+
+    /**
+     * Constructs a PrefetchingReader which reads the given number of Windows ahead of a sequential scan.
+     *
+     * @param reader The WindowReader to decorate.  It must be safe to use from many threads at once.
+     * @param executor The ExecutorService to read Windows in the background with.
+     * @param prefetchWindows The number of Windows to read ahead of a sequential scan.
+     * @throws IllegalArgumentException if the reader or executor are null, or the number of
+     *                                  windows to read ahead is not positive.
+     */
+    public PrefetchingReader(final WindowReader reader, final ExecutorService executor, final int prefetchWindows) {
+        ArgUtils.checkNullObject(reader, "reader");
+        ArgUtils.checkNullObject(executor, "executor");
+        ArgUtils.checkPositiveInteger(prefetchWindows, "prefetchWindows");
+        this.reader = reader;
+        this.executor = executor;
+        this.prefetchWindows = prefetchWindows;
+        this.pending = new HashMap<Long, Future<Window>>(prefetchWindows * 2);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int readByte(final long position) throws IOException {
+        final Window window = getWindow(position);
+        return window == null ? -1 : window.getByte(reader.getWindowOffset(position)) & 0xFF;
+    }
+
+    /**
+     * Returns a Window for the given position, waiting for it if it is being read in the
+     * background, and reading the next Windows ahead if a sequential scan is detected.
+     *
+     * @param position The position of the byte to read in the underlying data.
+     * @return A Window containing the position, or null if there is no byte at that position.
+     * @throws IOException if there was a problem reading the Window, or the thread was interrupted
+     *                     while waiting for a Window being read in the background.
+     */
+    @Override
+    public Window getWindow(final long position) throws IOException {
+        if (position < 0) {
+            return null;
+        }
+        final int offset = reader.getWindowOffset(position);
+        final long windowStart = position - offset;
+        final Window window = getPrefetchedWindow(windowStart);
+        if (window != null && offset < window.length()) {
+            if (windowStart != lastWindowStart) {
+                updateDirection(window);
+                if (direction != NO_DIRECTION) {
+                    prefetch(window);
+                }
+            }
+            return window;
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getWindowOffset(final long position) {
+        return reader.getWindowOffset(position);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long length() throws IOException {
+        return reader.length();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<Window> iterator() {
+        return new WindowIterator();
+    }
+
+    /**
+     * Cancels any Windows being read in the background, and closes the decorated reader.
+     *
+     * @throws IOException if there was a problem closing the decorated reader.
+     */
+    @Override
+    public void close() throws IOException {
+        cancelPrefetching();
+        reader.close();
+    }
+
+    /**
+     * Returns the WindowReader decorated by this PrefetchingReader.
+     *
+     * @return The WindowReader decorated by this PrefetchingReader.
+     */
+    public WindowReader getReader() {
+        return reader;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[prefetch windows: " + prefetchWindows + " reader: " + reader + ']';
+    }
+
+    /*
+     * Returns the Window starting at the position given, waiting for it if it is being read in the background.
+     * If reading it in the background failed, it is read again, so the caller gets the real error, if any.
+     */
+    private Window getPrefetchedWindow(final long windowStart) throws IOException {
+        final Future<Window> future = pending.remove(windowStart);
+        if (future != null) {
+            try {
+                return future.get();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for a prefetched window at " + windowStart);
+            } catch (final ExecutionException readItAgain) {
+            }
+        }
+        return reader.getWindow(windowStart);
+    }
+
+    /*
+     * A scan is sequential if the window requested is adjacent to the last one in the same direction.
+     */
+    private void updateDirection(final Window window) {
+        final int newDirection;
+        if (window.getWindowPosition() == lastWindowEnd + 1) {
+            newDirection = FORWARDS;
+        } else if (window.getWindowEndPosition() == lastWindowStart - 1) {
+            newDirection = BACKWARDS;
+        } else {
+            newDirection = NO_DIRECTION;
+        }
+        if (newDirection != direction) {
+            cancelPrefetching();
+            direction = newDirection;
+        }
+        lastWindowStart = window.getWindowPosition();
+        lastWindowEnd   = window.getWindowEndPosition();
+    }
+
+    /*
+     * Reads the next windows in the direction of the scan which are not already being read.
+     * Windows other than the last one are all the same length, so forwards the next windows
+     * are spaced by the length of this window.  Backwards, the window offset gives the start
+     * of the previous window.
+     */
+    private void prefetch(final Window window) {
+        long windowStart = window.getWindowPosition();
+        final int length = window.length();
+        for (int count = 0; count < prefetchWindows; count++) {
+            if (direction == FORWARDS) {
+                windowStart += length;
+            } else {
+                if (windowStart == 0) {
+                    break;
+                }
+                windowStart = windowStart - 1 - reader.getWindowOffset(windowStart - 1);
+            }
+            if (!pending.containsKey(windowStart)) {
+                pending.put(windowStart, executor.submit(new WindowRead(windowStart)));
+            }
+        }
+    }
+
+    /*
+     * Windows already being read still end up in the cache of the decorated reader; they are
+     * not interrupted, as interrupting a thread reading a channel closes the channel.
+     */
+    private void cancelPrefetching() {
+        for (final Future<Window> future : pending.values()) {
+            future.cancel(false);
+        }
+        pending.clear();
+    }
+
+    /**
+     * Reads a Window from the decorated reader in the background.
+     */
+    private final class WindowRead implements Callable<Window> {
+
+        private final long windowStart;
+
+        private WindowRead(final long windowStart) {
+            this.windowStart = windowStart;
+        }
+
+        @Override
+        public Window call() throws IOException {
+            return reader.getWindow(windowStart);
+        }
+    }
+
+    /**
+     * An iterator of {@link Window}s over this reader.
+     */
+    private final class WindowIterator implements Iterator<Window> {
+
+        private long position = 0;
+
+        @Override
+        public boolean hasNext() {
+            try {
+                return getWindow(position) != null;
+            } catch (final IOException ex) {
+                return false;
+            }
+        }
+
+        @Override
+        public Window next() {
+            try {
+                final Window window = getWindow(position);
+                if (window != null) {
+                    position += window.length();
+                    return window;
+                }
+            } catch (final IOException throwNoSuchElementExceptionInstead) {
+            }
+            throw new NoSuchElementException();
+        }
+
+        /**
+         * Always throws UnsupportedOperationException. It is not possible to
+         * remove a Window from a WindowReader.
+         *
+         * @throws UnsupportedOperationException Always throws this exception.
+         */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Cannot remove a window from a reader.");
+        }
+    }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+import java.io.IOException;
+
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.utils.collections.LongLinkedHashMap;
+
+/**
+ * A {@link WindowCache} which uses the Adaptive Replacement Cache (ARC) policy by
+ * Nimrod Megiddo and Dharmendra Modha, which is resistant to sequential scans.
+ * <p>
+ * Windows used only once since they were added are held in a "recent" list, and windows
+ * used again while cached are moved to a "frequent" list.  The positions of windows evicted
+ * from each list are remembered, without their windows, in a ghost list of the same size as
+ * the cache.  When a window is added whose position is in a ghost list, the target size of the
+ * recent list adapts towards the list it would have stayed in, and the window goes straight
+ * into the frequent list.
+ * <p>
+ * A scan which reads each window once only cycles through the recent list, so windows which are
+ * used repeatedly, such as the header and trailer of a file searched by several searchers, stay
+ * in the frequent list.  Windows leaving the cache are notified to any
+ * {@link net.byteseek.io.reader.cache.WindowCache.WindowObserver}s, so this cache can be used
+ * as the primary cache of a {@link TwoLevelCache} or the memory cache of a {@link DoubleCache}.
+ * <p>
+ * See "ARC: A Self-Tuning, Low Overhead Replacement Cache", Nimrod Megiddo and Dharmendra S. Modha, 2003.
+ * <p>
+ * This is not thread-safe.
+ *
+ * @author Matt Palmer
+ */
+public final class AdaptiveReplacementCache extends AbstractFreeNotificationCache {
+
+    private final int capacity;
+    private final LongLinkedHashMap<Window> recentWindows;    // windows used once since they were cached.
+    private final LongLinkedHashMap<Window> frequentWindows;  // windows used more than once, in order of use.
+    private final LongLinkedHashMap<Boolean> recentGhosts;    // positions of windows evicted from recent windows.
+    private final LongLinkedHashMap<Boolean> frequentGhosts;  // positions of windows evicted from frequent windows.
+    private int recentTarget;                                 // the adaptive target size of the recent windows.
+
+    /**
+     * Creates an AdaptiveReplacementCache using the provided capacity.
+     *
+     * @param capacity The number of Window objects to cache.  If zero, no windows are cached,
+     *                 and each window added is immediately freed.
+     * @throws IllegalArgumentException if the capacity is negative.
+     */
+    public AdaptiveReplacementCache(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("The capacity cannot be negative: " + capacity);
+        }
+        this.capacity = capacity;
+        recentWindows   = new LongLinkedHashMap<Window>(capacity + 1);
+        frequentWindows = new LongLinkedHashMap<Window>(capacity + 1, 0.75f, true);
+        recentGhosts    = new LongLinkedHashMap<Boolean>(capacity + 1);
+        frequentGhosts  = new LongLinkedHashMap<Boolean>(capacity + 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A window found in the recent windows is moved to the frequent windows.
+     */
+    @Override
+    public Window getWindow(final long position) {
+        Window window = frequentWindows.get(position);
+        if (window == null) {
+            window = recentWindows.remove(position);
+            if (window != null) {
+                frequentWindows.put(position, window);
+            }
+        }
+        return window;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addWindow(final Window window) throws IOException {
+        final long position = window.getWindowPosition();
+        if (recentWindows.containsKey(position) || frequentWindows.containsKey(position)) {
+            return;
+        }
+        if (capacity == 0) {
+            notifyWindowFree(window, this);
+            return;
+        }
+        final Window evictedWindow;
+        if (recentGhosts.containsKey(position)) {
+
+            // The window was evicted from the recent windows too soon - favour recent windows:
+            final int adjustment = Math.max(1, frequentGhosts.size() / recentGhosts.size());
+            recentTarget = Math.min(capacity, recentTarget + adjustment);
+            evictedWindow = replace(false);
+            recentGhosts.remove(position);
+            frequentWindows.put(position, window);
+
+        } else if (frequentGhosts.containsKey(position)) {
+
+            // The window was evicted from the frequent windows too soon - favour frequent windows:
+            final int adjustment = Math.max(1, recentGhosts.size() / frequentGhosts.size());
+            recentTarget = Math.max(0, recentTarget - adjustment);
+            evictedWindow = replace(true);
+            frequentGhosts.remove(position);
+            frequentWindows.put(position, window);
+
+        } else {
+
+            // A window we know nothing about - keep the ghost lists within the capacity of the cache:
+            final int recentSize = recentWindows.size() + recentGhosts.size();
+            if (recentSize == capacity) {
+                if (recentWindows.size() < capacity) {
+                    removeEldest(recentGhosts);
+                    evictedWindow = replace(false);
+                } else {
+                    evictedWindow = removeEldest(recentWindows);
+                }
+            } else {
+                final int totalSize = recentSize + frequentWindows.size() + frequentGhosts.size();
+                if (totalSize == 2 * capacity) {
+                    removeEldest(frequentGhosts);
+                }
+                evictedWindow = replace(false);
+            }
+            recentWindows.put(position, window);
+        }
+
+        if (evictedWindow != null) {
+            notifyWindowFree(evictedWindow, this);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        recentWindows.clear();
+        frequentWindows.clear();
+        recentGhosts.clear();
+        frequentGhosts.clear();
+        recentTarget = 0;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[size: " + (recentWindows.size() + frequentWindows.size()) +
+                                            " capacity: " + capacity + " recent target: " + recentTarget + ']';
+    }
+
+    /*
+     * If the cache is full, evicts the eldest window from the recent windows if they are over their
+     * target size, or otherwise from the frequent windows, and remembers its position in the matching
+     * ghost list.  Returns the evicted window, or null if the cache is not full.
+     */
+    private Window replace(final boolean inFrequentGhosts) {
+        final int recentSize = recentWindows.size();
+        if (recentSize + frequentWindows.size() < capacity) {
+            return null;
+        }
+        if (recentSize > 0 && (recentSize > recentTarget || frequentWindows.isEmpty() ||
+                               (inFrequentGhosts && recentSize == recentTarget))) {
+            return evictEldest(recentWindows, recentGhosts);
+        }
+        return evictEldest(frequentWindows, frequentGhosts);
+    }
+
+    private static Window evictEldest(final LongLinkedHashMap<Window> windows,
+                                      final LongLinkedHashMap<Boolean> ghosts) {
+        final LongLinkedHashMap.MapEntry<Window> eldest = windows.iterator().next();
+        final long position = eldest.getKey();
+        ghosts.put(position, Boolean.TRUE);
+        return windows.remove(position);
+    }
+
+    private static <T> T removeEldest(final LongLinkedHashMap<T> map) {
+        return map.remove(map.iterator().next().getKey());
+    }
+
+}
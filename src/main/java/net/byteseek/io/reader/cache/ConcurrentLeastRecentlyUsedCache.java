@@ -0,0 +1,211 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+import java.io.IOException;
+
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.utils.ArgUtils;
+import net.byteseek.utils.collections.LongLinkedHashMap;
+
+/**
+ * A thread-safe {@link WindowCache} which holds on to the {@link net.byteseek.io.reader.windows.Window}
+ * objects which were most recently used, up to a configurable capacity.
+ * <p>
+ * The cache is split into a number of segments, each of which is a small least recently used
+ * cache guarded by its own lock.  A Window is always placed in the segment selected by a hash
+ * of its position, so threads working on different regions of a reader rarely contend for the
+ * same lock.  As each segment evicts its own least recently used Window, the cache as a whole
+ * only approximates a least recently used policy.
+ * <p>
+ * Observers should be subscribed before the cache is used by more than one thread.  They are
+ * notified that a Window is free outside of any lock held by the cache, on the thread which
+ * caused the Window to be evicted.
+ *
+ * @author Matt Palmer
+ */
+public final class ConcurrentLeastRecentlyUsedCache extends AbstractFreeNotificationCache {
+
+    /**
+     * The default number of segments the cache is split into, unless a different
+     * value is provided in the constructor.
+     */
+    public final static int DEFAULT_CONCURRENCY = 16;
+
+    private final int capacity;
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    /**
+     * Creates a ConcurrentLeastRecentlyUsedCache with the capacity provided, using the
+     * default number of segments.
+     *
+     * @param capacity The number of Window objects to cache.
+     * @throws IllegalArgumentException if the capacity is not positive.
+     */
+    public ConcurrentLeastRecentlyUsedCache(final int capacity) {
+        this(capacity, DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Creates a ConcurrentLeastRecentlyUsedCache with the capacity provided, split into
+     * a number of segments.  The number of segments is rounded up to a power of two,
+     * but will not be more than the capacity of the cache.
+     *
+     * @param capacity The number of Window objects to cache.
+     * @param concurrency The number of threads expected to use the cache at the same time.
+     * @throws IllegalArgumentException if the capacity or concurrency is not positive.
+     */
+    public ConcurrentLeastRecentlyUsedCache(final int capacity, final int concurrency) {
+        ArgUtils.checkPositiveInteger(capacity, "capacity");
+        ArgUtils.checkPositiveInteger(concurrency, "concurrency");
+        int numSegments = 1;
+        int bits = 0;
+        while (numSegments < concurrency && numSegments * 2 <= capacity) {
+            numSegments <<= 1;
+            bits++;
+        }
+        this.capacity = capacity;
+        this.segmentShift = 32 - bits;
+        this.segments = new Segment[numSegments];
+        final int segmentCapacity = capacity / numSegments;
+        final int remainder = capacity % numSegments;
+        for (int segmentIndex = 0; segmentIndex < numSegments; segmentIndex++) {
+            segments[segmentIndex] = new Segment(segmentIndex < remainder ? segmentCapacity + 1 : segmentCapacity);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Window getWindow(final long position) {
+        final Segment segment = segmentFor(position);
+        synchronized (segment) {
+            return segment.get(position);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addWindow(final Window window) throws IOException {
+        final long windowPosition = window.getWindowPosition();
+        final Segment segment = segmentFor(windowPosition);
+        final Window evicted;
+        synchronized (segment) {
+            if (segment.containsKey(windowPosition)) {
+                return;
+            }
+            segment.put(windowPosition, window);
+            evicted = segment.takeEvicted();
+        }
+        if (evicted != null) {
+            notifyWindowFree(evicted, this);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        for (final Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of Windows currently held in the cache.
+     *
+     * @return The number of Windows currently held in the cache.
+     */
+    public int size() {
+        int size = 0;
+        for (final Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[size: " + size() + " capacity: " + capacity +
+                                            " segments: " + segments.length + ']';
+    }
+
+    private Segment segmentFor(final long position) {
+        if (segmentShift == 32) {
+            return segments[0];
+        }
+        // Window positions are usually multiples of the window size, so spread all the bits
+        // of the position before taking the top bits of the hash as the segment index.
+        final int hash = (int) (position ^ (position >>> 32)) * 0x9E3779B9;
+        return segments[hash >>> segmentShift];
+    }
+
+    /**
+     * A least recently used map of Windows, which records the Window it evicts
+     * so that observers can be notified once the segment lock is released.
+     */
+    private static final class Segment extends LongLinkedHashMap<Window> {
+
+        private final int segmentCapacity;
+        private Window evicted;
+
+        private Segment(final int segmentCapacity) {
+            super(segmentCapacity + 1, 1.1f, true);
+            this.segmentCapacity = segmentCapacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final MapEntry<Window> eldest) {
+            final boolean remove = size() > segmentCapacity;
+            if (remove) {
+                evicted = eldest.getValue();
+            }
+            return remove;
+        }
+
+        private Window takeEvicted() {
+            final Window window = evicted;
+            evicted = null;
+            return window;
+        }
+    }
+
+}
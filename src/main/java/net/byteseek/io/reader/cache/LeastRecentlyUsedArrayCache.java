@@ -0,0 +1,260 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import net.byteseek.io.reader.windows.Window;
+
+/**
+ * A {@link WindowCache} which holds on to the {@link net.byteseek.io.reader.windows.Window}
+ * objects which were most recently used, in exactly the same way as the {@link LeastRecentlyUsedCache},
+ * but without allocating any objects after it is constructed.
+ * <p>
+ * Windows are held in a fixed number of slots, linked in order of use by arrays of slot indexes.
+ * Window positions are looked up in an open addressing hash table of primitive longs, using linear
+ * probing, so a lookup usually reads a single array element and moving a window to the front
+ * of the order only updates a few ints.  When the cache is full, the least recently used slot
+ * is reused for the new window.
+ * <p>
+ * This is not thread-safe.
+ *
+ * @author Matt Palmer
+ */
+public final class LeastRecentlyUsedArrayCache extends AbstractFreeNotificationCache {
+
+    private static final int  NO_SLOT          = -1;
+    private static final int  EMPTY            = 0;
+    private static final long HASH_MULTIPLIER  = 0x9E3779B97F4A7C15L;
+
+    private final int capacity;
+
+    // The windows cached, the position of each, and the doubly linked list of slots in order of use:
+    private final Window[] windows;
+    private final long[] windowPositions;
+    private final int[] previousSlots;
+    private final int[] nextSlots;
+    private int mostRecentSlot = NO_SLOT;
+    private int leastRecentSlot = NO_SLOT;
+    private int size;
+
+    // The open addressing hash table from window positions to slots.  Table entries hold the slot plus one,
+    // so an entry of zero is empty.
+    private final long[] tablePositions;
+    private final int[] tableEntries;
+    private final int tableMask;
+    private final int hashShift;
+
+    /**
+     * Creates a LeastRecentlyUsedArrayCache using the provided capacity.
+     *
+     * @param capacity The number of Window objects to cache.  If zero, no windows are cached,
+     *                 and each window added is immediately freed.
+     * @throws IllegalArgumentException if the capacity is negative.
+     */
+    public LeastRecentlyUsedArrayCache(final int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("The capacity cannot be negative: " + capacity);
+        }
+        this.capacity = capacity;
+        windows = new Window[capacity];
+        windowPositions = new long[capacity];
+        previousSlots = new int[capacity];
+        nextSlots = new int[capacity];
+
+        // Keep the table no more than half full, so probe sequences stay short:
+        int tableBits = 1;
+        while ((1 << tableBits) < capacity * 2) {
+            tableBits++;
+        }
+        tablePositions = new long[1 << tableBits];
+        tableEntries = new int[1 << tableBits];
+        tableMask = (1 << tableBits) - 1;
+        hashShift = 64 - tableBits;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Window getWindow(final long position) {
+        final int slot = findSlot(position);
+        if (slot == NO_SLOT) {
+            return null;
+        }
+        if (slot != mostRecentSlot) {
+            unlink(slot);
+            linkMostRecent(slot);
+        }
+        return windows[slot];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addWindow(final Window window) throws IOException {
+        final long windowPosition = window.getWindowPosition();
+        if (findSlot(windowPosition) == NO_SLOT) {
+
+            // Find a free slot, or reuse the least recently used one:
+            final int slot;
+            Window evictedWindow = null;
+            if (size < capacity) {
+                slot = size++;
+            } else if (capacity == 0) {
+                notifyWindowFree(window, this);
+                return;
+            } else {
+                slot = leastRecentSlot;
+                evictedWindow = windows[slot];
+                removeFromTable(windowPositions[slot]);
+                unlink(slot);
+            }
+
+            // Put the window in the slot as the most recently used:
+            windows[slot] = window;
+            windowPositions[slot] = windowPosition;
+            addToTable(windowPosition, slot);
+            linkMostRecent(slot);
+
+            if (evictedWindow != null) {
+                notifyWindowFree(evictedWindow, this);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(windows, null);
+        Arrays.fill(tableEntries, EMPTY);
+        mostRecentSlot = NO_SLOT;
+        leastRecentSlot = NO_SLOT;
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[size: " + size + " capacity: " + capacity + ']';
+    }
+
+    private int tableIndex(final long position) {
+        return (int) ((position * HASH_MULTIPLIER) >>> hashShift);
+    }
+
+    private int findSlot(final long position) {
+        final long[] positions = tablePositions;
+        final int[] entries = tableEntries;
+        final int mask = tableMask;
+        int index = tableIndex(position);
+        int entry;
+        while ((entry = entries[index]) != EMPTY) {
+            if (positions[index] == position) {
+                return entry - 1;
+            }
+            index = (index + 1) & mask;
+        }
+        return NO_SLOT;
+    }
+
+    private void addToTable(final long position, final int slot) {
+        final int mask = tableMask;
+        int index = tableIndex(position);
+        while (tableEntries[index] != EMPTY) {
+            index = (index + 1) & mask;
+        }
+        tablePositions[index] = position;
+        tableEntries[index] = slot + 1;
+    }
+
+    /*
+     * Removes a position from the table by shifting back any entries later in its probe
+     * sequence which could no longer be found if its entry was just emptied, so no tombstones
+     * are needed.
+     */
+    private void removeFromTable(final long position) {
+        final long[] positions = tablePositions;
+        final int[] entries = tableEntries;
+        final int mask = tableMask;
+        int emptyIndex = tableIndex(position);
+        while (positions[emptyIndex] != position || entries[emptyIndex] == EMPTY) {
+            emptyIndex = (emptyIndex + 1) & mask;
+        }
+        int index = emptyIndex;
+        while (true) {
+            index = (index + 1) & mask;
+            if (entries[index] == EMPTY) {
+                break;
+            }
+            final int homeIndex = tableIndex(positions[index]);
+            final boolean homeBetween = emptyIndex <= index? emptyIndex < homeIndex && homeIndex <= index
+                                                           : emptyIndex < homeIndex || homeIndex <= index;
+            if (!homeBetween) {
+                positions[emptyIndex] = positions[index];
+                entries[emptyIndex] = entries[index];
+                emptyIndex = index;
+            }
+        }
+        entries[emptyIndex] = EMPTY;
+    }
+
+    private void linkMostRecent(final int slot) {
+        previousSlots[slot] = NO_SLOT;
+        nextSlots[slot] = mostRecentSlot;
+        if (mostRecentSlot != NO_SLOT) {
+            previousSlots[mostRecentSlot] = slot;
+        } else {
+            leastRecentSlot = slot;
+        }
+        mostRecentSlot = slot;
+    }
+
+    private void unlink(final int slot) {
+        final int previousSlot = previousSlots[slot];
+        final int nextSlot = nextSlots[slot];
+        if (previousSlot != NO_SLOT) {
+            nextSlots[previousSlot] = nextSlot;
+        } else {
+            mostRecentSlot = nextSlot;
+        }
+        if (nextSlot != NO_SLOT) {
+            previousSlots[nextSlot] = previousSlot;
+        } else {
+            leastRecentSlot = previousSlot;
+        }
+    }
+
+}
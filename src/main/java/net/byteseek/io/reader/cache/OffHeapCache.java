@@ -0,0 +1,253 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.byteseek.io.reader.windows.MappedWindow;
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * A {@link WindowCache} which copies the bytes of {@link net.byteseek.io.reader.windows.Window}s
+ * into direct {@link java.nio.ByteBuffer}s outside the Java heap, up to a maximum number of bytes.
+ * It maintains a map of the start positions of each window against the slab and offset
+ * where the bytes of the Window were stored.
+ * <p>
+ * Windows are appended to fixed size slabs of direct memory, which are allocated as they are needed.
+ * If allocating another slab would exceed the maximum number of bytes, the oldest slab is dropped,
+ * and each Window stored in it is notified as leaving the cache.  Windows returned by the cache are
+ * {@link MappedWindow}s reading directly from the slab, so a very large stream can be cached without
+ * sizing the heap for it, for example by using this as the secondary cache of a {@link TwoLevelCache}
+ * for an {@link net.byteseek.io.reader.InputStreamReader}.
+ * <p>
+ * Slabs are never overwritten once dropped, so Windows obtained from the cache remain valid after
+ * they leave it.  The direct memory of a dropped slab is released by the garbage collector once nothing
+ * refers to it any longer.
+ * <p>
+ * This is not thread-safe.
+ *
+ * @author Matt Palmer
+ */
+public final class OffHeapCache extends AbstractFreeNotificationCache {
+
+    /**
+     * The default size in bytes of each slab of direct memory, unless a different value is
+     * provided in the constructor, or the maximum number of bytes is smaller.
+     */
+    public static final int DEFAULT_SLAB_SIZE = 16 * 1024 * 1024;
+
+    private final TLongObjectMap<WindowInfo> windowPositions;
+    private final LinkedList<Slab> slabs;
+    private final long maxBytes;
+    private final int slabSize;
+    private long allocatedBytes;
+
+    /**
+     * Constructs an OffHeapCache which stores up to the maximum number of bytes given,
+     * in slabs of 16 MiB, or the maximum number of bytes if that is smaller.
+     *
+     * @param maxBytes The maximum number of bytes of direct memory to allocate.
+     * @throws IllegalArgumentException if the maximum number of bytes is less than one.
+     */
+    public OffHeapCache(final long maxBytes) {
+        this(maxBytes, (int) Math.min(maxBytes, DEFAULT_SLAB_SIZE));
+    }
+
+    /**
+     * Constructs an OffHeapCache which stores up to the maximum number of bytes given,
+     * in slabs of the size given.
+     *
+     * @param maxBytes The maximum number of bytes of direct memory to allocate.
+     * @param slabSize The size of each slab of direct memory to allocate.
+     * @throws IllegalArgumentException if the maximum number of bytes or the slab size is less than one,
+     *                                  or the slab size is greater than the maximum number of bytes.
+     */
+    public OffHeapCache(final long maxBytes, final int slabSize) {
+        ArgUtils.checkPositiveInteger(slabSize, "slabSize");
+        if (maxBytes < slabSize) {
+            throw new IllegalArgumentException("The maximum number of bytes " + maxBytes +
+                                               " cannot be less than the slab size " + slabSize);
+        }
+        this.maxBytes = maxBytes;
+        this.slabSize = slabSize;
+        windowPositions = new TLongObjectHashMap<WindowInfo>();
+        slabs = new LinkedList<Slab>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Window getWindow(final long position) {
+        final WindowInfo info = windowPositions.get(position);
+        return info == null ? null : new MappedWindow(info.slab.buffer, info.offset, position, info.length);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If the Window is larger than the maximum number of bytes, it is not cached,
+     * and is immediately notified as leaving the cache.
+     */
+    @Override
+    public void addWindow(final Window window) throws IOException {
+        final long windowPosition = window.getWindowPosition();
+        if (!windowPositions.containsKey(windowPosition)) {
+            final int length = window.length();
+            if (length > maxBytes) {
+                notifyWindowFree(window, this);
+            } else {
+                final Slab slab = getSlabWithSpace(length);
+                final WindowInfo info = new WindowInfo(windowPosition, slab, slab.buffer.position(), length);
+                slab.buffer.put(window.getArray(), 0, length);
+                slab.windows.add(info);
+                windowPositions.put(windowPosition, info);
+            }
+        }
+    }
+
+    /**
+     * Clears the map of Window positions and drops all the slabs of direct memory.
+     * Windows are not notified as leaving the cache when it is cleared.
+     */
+    @Override
+    public void clear() {
+        windowPositions.clear();
+        slabs.clear();
+        allocatedBytes = 0;
+    }
+
+    /**
+     * Returns the number of bytes of direct memory currently allocated by this cache.
+     *
+     * @return The number of bytes of direct memory currently allocated by this cache.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Returns the maximum number of bytes of direct memory this cache will allocate.
+     *
+     * @return The maximum number of bytes of direct memory this cache will allocate.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[max bytes: " + maxBytes + " slab size: " + slabSize +
+                                            " allocated bytes: " + allocatedBytes +
+                                            " window positions recorded: " + windowPositions.size() + ']';
+    }
+
+    /*
+     * Returns the current slab if it has space for the length given, or allocates a new one,
+     * dropping the oldest slabs until the new slab fits in the maximum number of bytes.
+     * A Window larger than the slab size is given a slab of its own.
+     */
+    private Slab getSlabWithSpace(final int length) throws IOException {
+        if (!slabs.isEmpty()) {
+            final Slab current = slabs.getLast();
+            if (current.buffer.remaining() >= length) {
+                return current;
+            }
+        }
+        final int newSlabSize = Math.max(slabSize, length);
+        while (allocatedBytes + newSlabSize > maxBytes) {
+            dropOldestSlab();
+        }
+        final Slab slab = new Slab(ByteBuffer.allocateDirect(newSlabSize));
+        slabs.addLast(slab);
+        allocatedBytes += newSlabSize;
+        return slab;
+    }
+
+    private void dropOldestSlab() throws IOException {
+        final Slab oldest = slabs.removeFirst();
+        allocatedBytes -= oldest.buffer.capacity();
+        IOException freeException = null;
+        for (final WindowInfo info : oldest.windows) {
+            windowPositions.remove(info.windowPosition);
+            try {
+                notifyWindowFree(new MappedWindow(oldest.buffer, info.offset, info.windowPosition, info.length), this);
+            } catch (IOException ex) {
+                freeException = ex;
+            }
+        }
+        if (freeException != null) {
+            throw freeException;
+        }
+    }
+
+    /**
+     * A slab of direct memory, and the Windows stored in it.  The position of the
+     * buffer is the offset at which the next Window will be stored.
+     */
+    private static final class Slab {
+
+        final ByteBuffer buffer;
+        final List<WindowInfo> windows;
+
+        Slab(final ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.windows = new ArrayList<WindowInfo>();
+        }
+    }
+
+    /**
+     * A utility class recording the slab a Window is stored in, and its offset and length in it.
+     */
+    private static final class WindowInfo {
+
+        final long windowPosition;
+        final Slab slab;
+        final int offset;
+        final int length;
+
+        WindowInfo(final long windowPosition, final Slab slab, final int offset, final int length) {
+            this.windowPosition = windowPosition;
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+}
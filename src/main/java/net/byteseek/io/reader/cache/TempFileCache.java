@@ -34,11 +34,17 @@ package net.byteseek.io.reader.cache;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
 
 import gnu.trove.map.TLongObjectMap;
 import gnu.trove.map.hash.TLongObjectHashMap;
 import net.byteseek.io.IOUtils;
 import net.byteseek.io.reader.windows.*;
+import net.byteseek.utils.ArgUtils;
 
 
 /**
@@ -46,18 +52,42 @@ import net.byteseek.io.reader.windows.*;
  * into a temporary file for later retrieval.  It maintains a map of the start positions
  * of each window against the position in the file where the Window was stored.
  * <p>
+ * Windows are appended to the file in batches, using a single gathering write of the
+ * byte arrays of all the Windows in the batch.  Until its batch is written, a Window
+ * is returned directly from the cache.  Windows lying inside a segment of the file which
+ * has been completely written are returned as {@link MappedWindow}s reading from a
+ * read-only memory-mapped view of that segment.  The remaining Windows are read back
+ * from the file into {@link SoftWindow}s.
+ * <p>
  * A temporary file is only created if a Window is added to the cache, and it is
- * deleted when the cache is cleared.
+ * deleted when the cache is cleared.  Windows already obtained from a mapped segment
+ * remain readable after the cache is cleared, as a mapping stays valid until it is
+ * garbage collected.  On some platforms, the temporary file cannot be deleted while
+ * a mapping of it is still in use.
  * 
  * @author Matt Palmer
  */
 public final class TempFileCache extends AbstractFreeNotificationCache implements SoftWindowRecovery {
 
+    /**
+     * The default size in bytes of each memory-mapped segment of the temporary file.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final int BATCH_WINDOWS = 32;
+    private static final int BATCH_BYTES   = 1024 * 1024;
+
     private final TLongObjectMap<WindowInfo> windowPositions;
+    private final List<WindowInfo> batch;
+    private final List<MappedByteBuffer> segments;
     private final File tempDir;
+    private final int segmentSize;
     private File tempFile;
     private RandomAccessFile file;
+    private FileChannel channel;
     private long nextFilePos;
+    private long writtenFilePos;
+    private int batchBytes;
 
     /**
      * Constructs a TempFileCache.
@@ -75,8 +105,27 @@ public final class TempFileCache extends AbstractFreeNotificationCache implement
      * @throws java.lang.IllegalArgumentException if the tempdir supplied is not a directory.
      */
     public TempFileCache(final File tempDir) {
+        this(tempDir, DEFAULT_SEGMENT_SIZE);
+    }
+
+
+    /**
+     * Constructs a TempFileCache which creates temporary files in the directory specified,
+     * memory-mapping them in segments of the size given.
+     * If the file is null, then temporary files will be created in the default temp directory.
+     *
+     * @param tempDir The directory to create temporary files in.
+     * @param segmentSize The size in bytes of each memory-mapped segment of the temporary file.
+     * @throws java.lang.IllegalArgumentException if the tempdir supplied is not a directory,
+     *                                            or the segment size is less than one.
+     */
+    public TempFileCache(final File tempDir, final int segmentSize) {
+        ArgUtils.checkPositiveInteger(segmentSize, "segmentSize");
         windowPositions = new TLongObjectHashMap<WindowInfo>();
+        batch = new ArrayList<WindowInfo>(BATCH_WINDOWS);
+        segments = new ArrayList<MappedByteBuffer>();
         this.tempDir = tempDir;
+        this.segmentSize = segmentSize;
         if (tempDir != null && !tempDir.isDirectory()) {
             throw new IllegalArgumentException("The temp dir file supplied is not a directory: " + tempDir.getAbsolutePath());
         }
@@ -88,19 +137,27 @@ public final class TempFileCache extends AbstractFreeNotificationCache implement
      */
     @Override
     public Window getWindow(final long position) throws IOException {
-        Window window = null;
         final WindowInfo info = windowPositions.get(position);
-        if (info != null) {
-            final byte[] array = new byte[info.length];
-            IOUtils.readBytes(file, array, info.filePosition);
-            window = new SoftWindow(array, position, info.length, this);
+        if (info == null) {
+            return null;
+        }
+        if (info.unwrittenWindow != null) {
+            return info.unwrittenWindow;
         }
-        return window;
+        final MappedByteBuffer segment = getMappedSegment(info);
+        if (segment != null) {
+            return new MappedWindow(segment, (int) (info.filePosition % segmentSize), position, info.length);
+        }
+        final byte[] array = new byte[info.length];
+        IOUtils.readBytes(channel, array, info.filePosition);
+        return new SoftWindow(array, position, info.length, this);
     }
 
     
     /**
      * {@inheritDoc}
+     * <p>
+     * The Window is written to the temporary file when its batch is full.
      */
     @Override
     public void addWindow(final Window window) throws IOException {
@@ -108,11 +165,14 @@ public final class TempFileCache extends AbstractFreeNotificationCache implement
         final WindowInfo info = windowPositions.get(windowPosition);
         if (info == null) {
             createFileIfNotExists();
-            file.seek(nextFilePos);
-            file.write(window.getArray(), 0, window.length());
-            windowPositions.put(windowPosition,
-                                new WindowInfo(window.length(), nextFilePos));
-            nextFilePos += window.length();
+            final WindowInfo newInfo = new WindowInfo(window, window.length(), nextFilePos);
+            windowPositions.put(windowPosition, newInfo);
+            batch.add(newInfo);
+            batchBytes += newInfo.length;
+            nextFilePos += newInfo.length;
+            if (batch.size() >= BATCH_WINDOWS || batchBytes >= BATCH_BYTES) {
+                writeBatch();
+            }
         }
     }
 
@@ -124,6 +184,9 @@ public final class TempFileCache extends AbstractFreeNotificationCache implement
     @Override
     public void clear() throws IOException {
         windowPositions.clear();
+        batch.clear();
+        batchBytes = 0;
+        segments.clear();
         deleteFileIfExists();
     }
     
@@ -136,15 +199,79 @@ public final class TempFileCache extends AbstractFreeNotificationCache implement
     public File getTempFile() {
         return tempFile;
     }
+
+
+    @Override
+    public byte[] reloadWindowBytes(final Window window) throws IOException {
+        final WindowInfo info = windowPositions.get(window.getWindowPosition());
+        if (info != null) {
+            if (info.unwrittenWindow != null) {
+                return info.unwrittenWindow.getArray();
+            }
+            final byte[] array = new byte[info.length];
+            IOUtils.readBytes(channel, array, info.filePosition);
+            return array;
+        }
+        throw new WindowMissingException("No window exists in the cache for the window: " + window);
+    }
+
+
+    /*
+     * Appends the byte arrays of all the windows in the batch to the file in a single gathering write.
+     */
+    private void writeBatch() throws IOException {
+        final int batchSize = batch.size();
+        final ByteBuffer[] buffers = new ByteBuffer[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            final WindowInfo info = batch.get(i);
+            buffers[i] = ByteBuffer.wrap(info.unwrittenWindow.getArray(), 0, info.length);
+        }
+        channel.position(writtenFilePos);
+        long remaining = nextFilePos - writtenFilePos;
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+        for (int i = 0; i < batchSize; i++) {
+            batch.get(i).unwrittenWindow = null;
+        }
+        batch.clear();
+        batchBytes = 0;
+        writtenFilePos = nextFilePos;
+    }
+
+
+    /*
+     * Returns a read-only mapping of the segment of the file the window lies in, or null if the
+     * window crosses into the next segment, or the segment has not been completely written yet.
+     */
+    private MappedByteBuffer getMappedSegment(final WindowInfo info) throws IOException {
+        final int segmentNumber = (int) (info.filePosition / segmentSize);
+        final long segmentStart = (long) segmentNumber * segmentSize;
+        final long segmentEnd = segmentStart + segmentSize;
+        if (info.filePosition + info.length > segmentEnd || segmentEnd > writtenFilePos) {
+            return null;
+        }
+        while (segments.size() <= segmentNumber) {
+            segments.add(null);
+        }
+        MappedByteBuffer segment = segments.get(segmentNumber);
+        if (segment == null) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, segmentSize);
+            segments.set(segmentNumber, segment);
+        }
+        return segment;
+    }
     
     
     private void createFileIfNotExists() throws IOException {
         if (tempFile == null) {
             windowPositions.clear();
             nextFilePos = 0;
+            writtenFilePos = 0;
             tempFile = tempDir == null? IOUtils.createTempFile()
                                       : IOUtils.createTempFile(tempDir);
             file = new RandomAccessFile(tempFile, "rw");
+            channel = file.getChannel();
         }
     }
     
@@ -158,9 +285,11 @@ public final class TempFileCache extends AbstractFreeNotificationCache implement
                 fileCloseException = ex;
             } finally {
                 file = null;
+                channel = null;
                 tempFile.delete();
                 tempFile = null;
                 nextFilePos = 0;
+                writtenFilePos = 0;
             }
             if (fileCloseException != null) {
                 throw fileCloseException;
@@ -168,28 +297,20 @@ public final class TempFileCache extends AbstractFreeNotificationCache implement
         }
     }
 
-    @Override
-    public byte[] reloadWindowBytes(final Window window) throws IOException {
-        final WindowInfo info = windowPositions.get(window.getWindowPosition());
-        if (info != null) {
-            final byte[] array = new byte[info.length];
-            IOUtils.readBytes(file, array, info.filePosition);
-            return array;
-        }
-        throw new WindowMissingException("No window exists in the cache for the window: " + window);
-    }
-
 
     /**
      * A utility class recording the length of a Window and the position in 
-     * the temporary file it exists at.
+     * the temporary file it exists at.  Until the Window is written to the
+     * file, the Window itself is also recorded.
      */
     private static final class WindowInfo {
-        
+
+        Window unwrittenWindow;
         final int length;
         final long filePosition;  
         
-        public WindowInfo(final int limit, final long filePosition) {
+        public WindowInfo(final Window window, final int limit, final long filePosition) {
+            this.unwrittenWindow = window;
             this.length = limit;
             this.filePosition = filePosition;
         }
@@ -42,5 +42,8 @@
  * Therefore, even in-memory caches (depending on how the reader is configured)
  * can adapt to low memory conditions if required, as long as the window can be
  * re-read (e.g. from a file, or a TempFileCache).
+ * <p>
+ * Caches are not thread-safe, except for the ConcurrentLeastRecentlyUsedCache,
+ * which can be shared by readers used from many threads, such as the ConcurrentFileReader.
  */
 package net.byteseek.io.reader.cache;
@@ -0,0 +1,168 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.windows;
+
+import net.byteseek.utils.ArgUtils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A MappedWindow is a view onto a region of a {@link java.nio.ByteBuffer}, normally a
+ * {@link java.nio.MappedByteBuffer} holding a large segment of a memory-mapped file,
+ * or a slab of direct memory in an {@link net.byteseek.io.reader.cache.OffHeapCache}.
+ * Windows contain the position in the WindowReader they begin from, and how long the
+ * Window is.
+ * <p>
+ * Individual bytes are read directly from the buffer without any copying.  As the
+ * {@link Window} interface exposes a byte array through {@link #getArray()}, the bytes
+ * of the window are only copied into an array the first time it is asked for, and that
+ * array is then retained by the window.  Clients which only read bytes using
+ * {@link #getByte(int)} never cause a copy to be made.
+ * <p>
+ * The buffer is not copied or altered by this class - absolute get operations are used,
+ * so the position and limit of the buffer are never changed.
+ *
+ * @author Matt Palmer
+ */
+public final class MappedWindow implements Window {
+
+    private final ByteBuffer buffer;
+    private final int bufferOffset;
+    private final long windowPosition;
+    private final int length;
+    private byte[] bytes;
+
+    /**
+     * Constructs a MappedWindow over the buffer provided.
+     *
+     * @param buffer The buffer containing the bytes of the window.
+     * @param bufferOffset The offset into the buffer at which the window begins.
+     * @param windowPosition The position in the WindowReader at which the Window starts.
+     * @param length The length of the window.
+     * @throws IllegalArgumentException if the buffer is null, or the offset and length
+     *                                  do not fit inside the buffer.
+     */
+    public MappedWindow(final ByteBuffer buffer, final int bufferOffset,
+                        final long windowPosition, final int length) {
+        ArgUtils.checkNullObject(buffer, "buffer");
+        if (bufferOffset < 0 || length < 0 || bufferOffset + length > buffer.capacity()) {
+            throw new IllegalArgumentException("The buffer offset " + bufferOffset + " and length " + length +
+                                               " must fit inside the buffer capacity " + buffer.capacity());
+        }
+        this.buffer = buffer;
+        this.bufferOffset = bufferOffset;
+        this.windowPosition = windowPosition;
+        this.length = length;
+    }
+
+    /**
+     * Gets a byte from the Window relative to the start of the Window (not
+     * relative to the start of the WindowReader), reading it directly from the
+     * buffer which backs the Window.
+     *
+     * @param position The position in the Window to read a byte from.
+     * @return The byte at that position in the Window.
+     * @throws IndexOutOfBoundsException if the position is outside the underlying buffer.
+     */
+    @Override
+    public byte getByte(final int position) {
+        return buffer.get(bufferOffset + position);
+    }
+
+    /**
+     * Returns a byte array containing the bytes of this Window.  The bytes are copied
+     * from the underlying buffer the first time this method is called, and the same
+     * array is returned on subsequent calls.  Clients should not alter the array returned.
+     *
+     * @return A byte array containing the bytes of this Window.
+     */
+    @Override
+    public byte[] getArray() {
+        byte[] array = bytes;
+        if (array == null) {
+            array = new byte[length];
+            final ByteBuffer view = buffer.duplicate();
+            view.position(bufferOffset);
+            view.get(array, 0, length);
+            bytes = array;
+        }
+        return array;
+    }
+
+    /**
+     * Returns the position in the WindowReader that this Window was read from.
+     *
+     * @return The position in the WindowReader that this Window was read from.
+     */
+    @Override
+    public long getWindowPosition() {
+        return windowPosition;
+    }
+
+    /**
+     * Returns the final position in this window.  It is equivalent
+     * to the window position plus the length of the window, minus one.
+     *
+     * @return the last position in this window.
+     */
+    @Override
+    public long getWindowEndPosition() {
+        return windowPosition + length - 1;
+    }
+
+    /**
+     * Returns the starting position of the window after this one.  It is
+     * equivalent to the window position plus the length of this window.
+     *
+     * @return The starting position of the window after this one.
+     */
+    @Override
+    public long getNextWindowPosition() {
+        return windowPosition + length;
+    }
+
+    /**
+     * Returns the length of the Window.
+     *
+     * @return The length of the Window.
+     */
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[buffer offset:" + bufferOffset + " window length:" + length +
+                                            " window pos:" + windowPosition + ']';
+    }
+}
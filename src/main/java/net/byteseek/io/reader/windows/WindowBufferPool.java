@@ -0,0 +1,195 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.windows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * A pool of byte arrays used to back {@link HardWindow}s, so readers can reuse the
+ * arrays of windows which have left their cache, rather than allocating a new array
+ * for every window they create.
+ * <p>
+ * Arrays are pooled in buckets by their exact length.  Each bucket holds up to a maximum
+ * number of free arrays; arrays released to a full bucket are simply left for the garbage
+ * collector.  A single pool can be shared by many readers, for example when scanning
+ * many files with the same window size one after another.
+ * <p>
+ * An array must only be released to the pool when nothing else refers to it any longer.
+ * In particular, a window whose array has been released must not be read again, as the
+ * array may already have been filled with the bytes of another window.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Matt Palmer
+ */
+public final class WindowBufferPool {
+
+    /**
+     * The default maximum number of free arrays held for each array length.
+     */
+    public static final int DEFAULT_BUFFERS_PER_SIZE = 64;
+
+    private final int maxBuffersPerSize;
+    private final List<Bucket> buckets = new ArrayList<Bucket>(2);
+
+    /**
+     * Constructs a WindowBufferPool holding up to 64 free arrays for each array length.
+     */
+    public WindowBufferPool() {
+        this(DEFAULT_BUFFERS_PER_SIZE);
+    }
+
+    /**
+     * Constructs a WindowBufferPool holding up to the given number of free arrays for each array length.
+     *
+     * @param maxBuffersPerSize The maximum number of free arrays to hold for each array length.
+     * @throws IllegalArgumentException if the maximum number of arrays is less than one.
+     */
+    public WindowBufferPool(final int maxBuffersPerSize) {
+        ArgUtils.checkPositiveInteger(maxBuffersPerSize, "maxBuffersPerSize");
+        this.maxBuffersPerSize = maxBuffersPerSize;
+    }
+
+    /**
+     * Returns a byte array of the requested length, reusing a free array in the pool
+     * if there is one, or allocating a new array if not.  The contents of a reused
+     * array are not cleared.
+     *
+     * @param length The length of the array required.
+     * @return A byte array of the requested length.
+     * @throws IllegalArgumentException if the length is less than one.
+     */
+    public byte[] borrow(final int length) {
+        ArgUtils.checkPositiveInteger(length, "length");
+        synchronized (buckets) {
+            final Bucket bucket = findBucket(length);
+            if (bucket != null && bucket.count > 0) {
+                final byte[] array = bucket.arrays[--bucket.count];
+                bucket.arrays[bucket.count] = null;
+                return array;
+            }
+        }
+        return new byte[length];
+    }
+
+    /**
+     * Returns a byte array to the pool, so it can be borrowed again.  If the pool
+     * already holds the maximum number of free arrays of that length, the array is discarded.
+     *
+     * @param array The array to return to the pool.
+     * @return true if the array was added to the pool.
+     * @throws IllegalArgumentException if the array is null.
+     */
+    public boolean release(final byte[] array) {
+        ArgUtils.checkNullByteArray(array, "array");
+        if (array.length > 0) {
+            synchronized (buckets) {
+                Bucket bucket = findBucket(array.length);
+                if (bucket == null) {
+                    bucket = new Bucket(array.length, maxBuffersPerSize);
+                    buckets.add(bucket);
+                }
+                if (bucket.count < maxBuffersPerSize) {
+                    bucket.arrays[bucket.count++] = array;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of free arrays of the given length currently held in the pool.
+     *
+     * @param length The length of array.
+     * @return The number of free arrays of that length held in the pool.
+     */
+    public int available(final int length) {
+        synchronized (buckets) {
+            final Bucket bucket = findBucket(length);
+            return bucket == null ? 0 : bucket.count;
+        }
+    }
+
+    /**
+     * Discards all free arrays held in the pool.
+     */
+    public void clear() {
+        synchronized (buckets) {
+            buckets.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (buckets) {
+            return getClass().getSimpleName() + "[max buffers per size: " + maxBuffersPerSize +
+                                                " buckets: " + buckets + ']';
+        }
+    }
+
+    /*
+     * There are normally only one or two window sizes in use, so a linear search is faster
+     * than a hash lookup, and avoids boxing the length.
+     */
+    private Bucket findBucket(final int length) {
+        final List<Bucket> localBuckets = buckets;
+        for (int i = 0; i < localBuckets.size(); i++) {
+            final Bucket bucket = localBuckets.get(i);
+            if (bucket.length == length) {
+                return bucket;
+            }
+        }
+        return null;
+    }
+
+    private static final class Bucket {
+
+        private final int length;
+        private final byte[][] arrays;
+        private int count;
+
+        private Bucket(final int length, final int capacity) {
+            this.length = length;
+            this.arrays = new byte[capacity][];
+        }
+
+        @Override
+        public String toString() {
+            return "[length: " + length + " free: " + count + ']';
+        }
+    }
+
+}
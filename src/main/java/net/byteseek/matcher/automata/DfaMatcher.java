@@ -68,8 +68,8 @@ public class DfaMatcher<T> implements AutomataMatcher<T> {
 		long currentPosition = matchPosition;
 		Window window = reader.getWindow(currentPosition);
 		State<T> state = automata.getInitialState();
-		// While we have a window on the data to match in:
-		while (window != null) {
+		// While we have a window on the data to match in and a state to process:
+		while (window != null && state != null) {
 			final byte[] bytes = window.getArray();
 			final int windowLength = window.length();
 			final int windowStart = reader.getWindowOffset(currentPosition);
@@ -90,7 +90,8 @@ public class DfaMatcher<T> implements AutomataMatcher<T> {
 			currentPosition += windowLength - windowStart;
 			window = reader.getWindow(currentPosition);
 		}
-		return false;
+		// See if the state after the last byte is final (a match ending at the end of the data):
+		return state != null && currentPosition > matchPosition && state.isFinal();
 	}
 
 	/**
@@ -116,6 +117,9 @@ public class DfaMatcher<T> implements AutomataMatcher<T> {
 				final byte currentByte = bytes[currentPosition++];
 				currentState = currentState.getNextState(currentByte);
 			}
+
+			// See if the state after the last byte is final (a match ending at the end of the array):
+			return currentState != null && currentState.isFinal();
 		}
 		return false;
 	}
@@ -130,8 +134,8 @@ public class DfaMatcher<T> implements AutomataMatcher<T> {
 		long currentPosition = matchPosition;
 		Window window = reader.getWindow(currentPosition);
 		State<T> state = automata.getInitialState();
-		// While we have a window on the data to match in:
-		while (window != null) {
+		// While we have a window on the data to match in and a state to process:
+		while (window != null && state != null) {
 			final byte[] bytes = window.getArray();
 			final int windowLength = window.length();
 			final int windowStart = reader.getWindowOffset(currentPosition);
@@ -154,6 +158,10 @@ public class DfaMatcher<T> implements AutomataMatcher<T> {
 			currentPosition += windowLength - windowStart;
 			window = reader.getWindow(currentPosition);
 		}
+		// See if the state after the last byte is final (a match ending at the end of the data):
+		if (state != null && currentPosition > matchPosition && state.isFinal()) {
+			return new DfaMatchResult<T>(matchPosition, currentPosition - matchPosition, state);
+		}
 		return null;
 	}
 
@@ -169,8 +177,8 @@ public class DfaMatcher<T> implements AutomataMatcher<T> {
 			long currentPosition = startPosition;
 			Window window = reader.getWindow(currentPosition);
 			State<T> state = ((DfaMatchResult<T>) lastMatch).getMatchingState();
-			// While we have a window on the data to match in:
-			while (window != null) {
+			// While we have a window on the data to match in and a state to process:
+			while (window != null && state != null) {
 				final byte[] bytes = window.getArray();
 				final int windowLength = window.length();
 				final int windowStart = reader.getWindowOffset(currentPosition);
@@ -208,8 +216,8 @@ public class DfaMatcher<T> implements AutomataMatcher<T> {
 		Window window = reader.getWindow(currentPosition);
 		State<T> state = automata.getInitialState();
 		Collection<MatchResult<T>> results = Collections.emptyList();
-		// While we have a window on the data to match in:
-		while (window != null) {
+		// While we have a window on the data to match in and a state to process:
+		while (window != null && state != null) {
 			final byte[] bytes = window.getArray();
 			final int windowLength = window.length();
 			final int windowStart = reader.getWindowOffset(currentPosition);
@@ -235,6 +243,13 @@ public class DfaMatcher<T> implements AutomataMatcher<T> {
 			currentPosition += windowLength - windowStart;
 			window = reader.getWindow(currentPosition);
 		}
+		// See if the state after the last byte is final (a match ending at the end of the data):
+		if (state != null && currentPosition > matchPosition && state.isFinal()) {
+			if (results.isEmpty()) {
+				results = new ArrayList<MatchResult<T>>();
+			}
+			results.add(new DfaMatchResult<T>(matchPosition, currentPosition - matchPosition, state));
+		}
 		return results;
 	}
 
@@ -262,6 +277,11 @@ public class DfaMatcher<T> implements AutomataMatcher<T> {
 				final byte currentByte = bytes[currentPosition++];
 				currentState = currentState.getNextState(currentByte);
 			}
+
+			// See if the state after the last byte is final (a match ending at the end of the array):
+			if (currentState != null && currentState.isFinal()) {
+				return new DfaMatchResult<T>(matchPosition, length - matchPosition, currentState);
+			}
 		}
 		return null;
 	}
@@ -326,6 +346,14 @@ public class DfaMatcher<T> implements AutomataMatcher<T> {
 				final byte currentByte = bytes[currentPosition++];
 				currentState = currentState.getNextState(currentByte);
 			}
+
+			// See if the state after the last byte is final (a match ending at the end of the array):
+			if (currentState != null && currentState.isFinal()) {
+				if (results.isEmpty()) {
+					results = new ArrayList<MatchResult<T>>();
+				}
+				results.add(new DfaMatchResult<T>(matchPosition, length - matchPosition, currentState));
+			}
 		}
 		return results;
 	}
@@ -0,0 +1,329 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.matcher.automata;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+import net.byteseek.automata.Automata;
+import net.byteseek.automata.deterministic.DfaTable;
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.MatchResult;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * A matcher for deterministic finite state automata which runs over a compiled {@link DfaTable},
+ * rather than following the graph of State objects.
+ * <p>
+ * It matches exactly the same things as a {@link DfaMatcher} over the same automata, but each
+ * byte is matched with a single lookup in a dense int array, without any virtual method calls
+ * or transition objects.  The table costs 1Kb of memory per state in the automata.
+ *
+ * @param <T> The type of object associated with states in the automata.
+ * @author Matt Palmer
+ */
+public class DfaTableMatcher<T> implements AutomataMatcher<T> {
+
+	private final DfaTable<T> table;
+
+	/**
+	 * Constructs a DfaTableMatcher by compiling a deterministic automata into a {@link DfaTable}.
+	 *
+	 * @param automata The deterministic automata to match.
+	 * @throws IllegalArgumentException if the automata is null or not deterministic.
+	 */
+	public DfaTableMatcher(final Automata<T> automata) {
+		this(new DfaTable<T>(automata));
+	}
+
+	/**
+	 * Constructs a DfaTableMatcher from an already compiled {@link DfaTable}.
+	 *
+	 * @param table The compiled table to match.
+	 * @throws IllegalArgumentException if the table is null.
+	 */
+	public DfaTableMatcher(final DfaTable<T> table) {
+		ArgUtils.checkNullObject(table, "table");
+		this.table = table;
+	}
+
+	/**
+	 * Returns the compiled table this matcher runs over.
+	 *
+	 * @return The compiled table this matcher runs over.
+	 */
+	public DfaTable<T> getTable() {
+		return table;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean matches(final WindowReader reader, final long matchPosition) throws IOException {
+		final DfaTable<T> localTable = table;
+		long currentPosition = matchPosition;
+		Window window = reader.getWindow(currentPosition);
+		int state = DfaTable.INITIAL_STATE;
+		while (window != null && state != DfaTable.NO_STATE) {
+			final byte[] bytes = window.getArray();
+			final int windowLength = window.length();
+			final int windowStart = reader.getWindowOffset(currentPosition);
+			int windowPos = windowStart;
+			while (state != DfaTable.NO_STATE && windowPos < windowLength) {
+				if (localTable.isFinal(state)) {
+					return true;
+				}
+				state = localTable.getNextState(state, bytes[windowPos++]);
+			}
+			currentPosition += windowLength - windowStart;
+			window = reader.getWindow(currentPosition);
+		}
+		return state != DfaTable.NO_STATE && currentPosition > matchPosition && localTable.isFinal(state);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean matches(final byte[] bytes, final int matchPosition) {
+		final int length = bytes.length;
+		if (matchPosition >= 0 && matchPosition < length) {
+			final DfaTable<T> localTable = table;
+			int currentPosition = matchPosition;
+			int state = DfaTable.INITIAL_STATE;
+			while (state != DfaTable.NO_STATE && currentPosition < length) {
+				if (localTable.isFinal(state)) {
+					return true;
+				}
+				state = localTable.getNextState(state, bytes[currentPosition++]);
+			}
+			return state != DfaTable.NO_STATE && localTable.isFinal(state);
+		}
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public MatchResult<T> firstMatch(final WindowReader reader, final long matchPosition) throws IOException {
+		return nextMatch(reader, matchPosition, matchPosition, DfaTable.INITIAL_STATE, true);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public MatchResult<T> nextMatch(final WindowReader reader, final MatchResult<T> lastMatch) throws IOException {
+		if (lastMatch instanceof TableMatchResult) {
+			final TableMatchResult<T> last = (TableMatchResult<T>) lastMatch;
+			if (last.table == table) {
+				final long matchPosition = last.getMatchPosition();
+				return nextMatch(reader, matchPosition, matchPosition + last.getMatchLength(), last.state, false);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Collection<MatchResult<T>> allMatches(final WindowReader reader, final long matchPosition)
+			throws IOException {
+		Collection<MatchResult<T>> results = Collections.emptyList();
+		MatchResult<T> result = firstMatch(reader, matchPosition);
+		while (result != null) {
+			if (results.isEmpty()) {
+				results = new ArrayList<MatchResult<T>>();
+			}
+			results.add(result);
+			result = nextMatch(reader, result);
+		}
+		return results;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public MatchResult<T> firstMatch(final byte[] bytes, final int matchPosition) {
+		return nextMatch(bytes, matchPosition, matchPosition, DfaTable.INITIAL_STATE, true);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public MatchResult<T> nextMatch(final byte[] bytes, final MatchResult<T> lastMatch) {
+		if (lastMatch instanceof TableMatchResult) {
+			final TableMatchResult<T> last = (TableMatchResult<T>) lastMatch;
+			if (last.table == table) {
+				final int matchPosition = (int) last.getMatchPosition();
+				return nextMatch(bytes, matchPosition, (int) (matchPosition + last.getMatchLength()), last.state, false);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Collection<MatchResult<T>> allMatches(final byte[] bytes, final int matchPosition) {
+		Collection<MatchResult<T>> results = Collections.emptyList();
+		MatchResult<T> result = firstMatch(bytes, matchPosition);
+		while (result != null) {
+			if (results.isEmpty()) {
+				results = new ArrayList<MatchResult<T>>();
+			}
+			results.add(result);
+			result = nextMatch(bytes, result);
+		}
+		return results;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[table:" + table + ']';
+	}
+
+	/**
+	 * Runs the table from a state at a position in the reader until it finds a final state.
+	 * If checkFirst is true, the state we start in can be a match, otherwise at least one byte
+	 * must be matched before looking for a final state.
+	 */
+	private MatchResult<T> nextMatch(final WindowReader reader, final long matchPosition, final long startPosition,
+									 final int startState, final boolean checkFirst) throws IOException {
+		final DfaTable<T> localTable = table;
+		long currentPosition = startPosition;
+		Window window = reader.getWindow(currentPosition);
+		if (window == null) {
+			return null;
+		}
+		int state = startState;
+		if (checkFirst && localTable.isFinal(state)) {
+			return new TableMatchResult<T>(localTable, matchPosition, currentPosition - matchPosition, state);
+		}
+		while (window != null) {
+			final byte[] bytes = window.getArray();
+			final int windowLength = window.length();
+			final int windowStart = reader.getWindowOffset(currentPosition);
+			int windowPos = windowStart;
+			while (windowPos < windowLength) {
+				state = localTable.getNextState(state, bytes[windowPos++]);
+				if (state == DfaTable.NO_STATE) {
+					return null;
+				}
+				if (localTable.isFinal(state)) {
+					final long matchLength = currentPosition - matchPosition + windowPos - windowStart;
+					return new TableMatchResult<T>(localTable, matchPosition, matchLength, state);
+				}
+			}
+			currentPosition += windowLength - windowStart;
+			window = reader.getWindow(currentPosition);
+		}
+		return null;
+	}
+
+	/**
+	 * Runs the table from a state at a position in the array until it finds a final state.
+	 * If checkFirst is true, the state we start in can be a match, otherwise at least one byte
+	 * must be matched before looking for a final state.
+	 */
+	private MatchResult<T> nextMatch(final byte[] bytes, final int matchPosition, final int startPosition,
+									 final int startState, final boolean checkFirst) {
+		final int length = bytes.length;
+		if (startPosition < 0 || startPosition >= length) {
+			return null;
+		}
+		final DfaTable<T> localTable = table;
+		int state = startState;
+		if (checkFirst && localTable.isFinal(state)) {
+			return new TableMatchResult<T>(localTable, matchPosition, startPosition - matchPosition, state);
+		}
+		int currentPosition = startPosition;
+		while (currentPosition < length) {
+			state = localTable.getNextState(state, bytes[currentPosition++]);
+			if (state == DfaTable.NO_STATE) {
+				return null;
+			}
+			if (localTable.isFinal(state)) {
+				return new TableMatchResult<T>(localTable, matchPosition, currentPosition - matchPosition, state);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * A private MatchResult which stashes away the table and the state that matched,
+	 * so the nextMatch() methods can carry on from where they left off.
+	 *
+	 * @param <T> The type of object associated with states in the table.
+	 */
+	private static final class TableMatchResult<T> implements MatchResult<T> {
+
+		private final DfaTable<T> table;
+		private final long matchPosition;
+		private final long matchLength;
+		private final int state;
+
+		private TableMatchResult(final DfaTable<T> table, final long matchPosition,
+								 final long matchLength, final int state) {
+			this.table = table;
+			this.matchPosition = matchPosition;
+			this.matchLength = matchLength;
+			this.state = state;
+		}
+
+		@Override
+		public Collection<T> getMatchingObjects() {
+			return table.getAssociations(state);
+		}
+
+		@Override
+		public long getMatchPosition() {
+			return matchPosition;
+		}
+
+		@Override
+		public long getMatchLength() {
+			return matchLength;
+		}
+
+	}
+
+}
@@ -0,0 +1,494 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.matcher.automata;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.byteseek.automata.Automata;
+import net.byteseek.automata.State;
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.MatchResult;
+import net.byteseek.utils.ArgUtils;
+import net.byteseek.utils.collections.IdentityHashSet;
+
+/**
+ * A matcher for any finite state automata (deterministic or not), which builds the
+ * equivalent deterministic automata lazily, one state at a time, as the data being matched
+ * requires it.
+ * <p>
+ * Each deterministic state stands for a set of states in the original automata.  The first
+ * time a byte is seen in a deterministic state, the set of states it leads to is worked out
+ * and cached, so later matches only need a single array lookup per byte, like a {@link DfaMatcher}.
+ * Unlike the {@link net.byteseek.automata.deterministic.DfaBuilder}, only states which are actually
+ * reached are ever built, so automata which would have an exponential number of deterministic
+ * states can still be matched.
+ * <p>
+ * The number of cached states is bounded.  If building a new state would exceed the limit,
+ * the whole cache is flushed and is built up again from the states then in use.  If the cache
+ * is flushed very often, matching degrades towards the speed of simulating the automata directly
+ * with an {@link NfaMatcher}, but memory use stays bounded.  Each cached state takes roughly 1Kb
+ * (on a 32 bit or compressed-pointer JVM) for its transition table, plus the set of states it stands for.
+ * <p>
+ * This class is safe for use by multiple threads.  Transitions which are already cached are
+ * followed without locking; building new states and flushing the cache are synchronized.
+ *
+ * @param <T> The type of object associated with states in the automata.
+ * @author Matt Palmer
+ */
+public final class LazyDfaMatcher<T> implements AutomataMatcher<T> {
+
+	/**
+	 * The default maximum number of deterministic states to cache before flushing the cache.
+	 */
+	public static final int DEFAULT_MAX_CACHED_STATES = 4096;
+
+	/**
+	 * The smallest cache which can work: the initial state, and one state reached from it.
+	 */
+	public static final int MIN_CACHED_STATES = 2;
+
+	/**
+	 * A cached transition to this state means there is no next state.
+	 */
+	@SuppressWarnings("rawtypes")
+	private static final CachedState NO_STATE = new CachedState<Object>(new IdentityHashSet<State<Object>>(), -1);
+
+	private final Automata<T> automata;
+	private final int maxCachedStates;
+
+	// Guarded by this:
+	private Map<Set<State<T>>, CachedState<T>> cache;
+	private int generation;
+	private long flushCount;
+
+	// Published safely, as CachedState only has final fields:
+	private volatile CachedState<T> initialState;
+
+	/**
+	 * Constructs a LazyDfaMatcher for an automata, with the default maximum number of
+	 * cached states.
+	 *
+	 * @param automata The automata to match.
+	 * @throws IllegalArgumentException if the automata is null.
+	 */
+	public LazyDfaMatcher(final Automata<T> automata) {
+		this(automata, DEFAULT_MAX_CACHED_STATES);
+	}
+
+	/**
+	 * Constructs a LazyDfaMatcher for an automata, with the maximum number of
+	 * deterministic states to cache before the cache is flushed.
+	 *
+	 * @param automata        The automata to match.
+	 * @param maxCachedStates The maximum number of deterministic states to cache.
+	 * @throws IllegalArgumentException if the automata is null or the maximum number of states is less than two.
+	 */
+	public LazyDfaMatcher(final Automata<T> automata, final int maxCachedStates) {
+		ArgUtils.checkNullObject(automata, "automata");
+		ArgUtils.checkRangeInclusive(maxCachedStates, MIN_CACHED_STATES, Integer.MAX_VALUE, "maxCachedStates");
+		this.automata = automata;
+		this.maxCachedStates = maxCachedStates;
+		this.cache = new HashMap<Set<State<T>>, CachedState<T>>();
+		final Set<State<T>> initialStates = new IdentityHashSet<State<T>>();
+		initialStates.add(automata.getInitialState());
+		this.initialState = createState(initialStates);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean matches(final WindowReader reader, final long matchPosition) throws IOException {
+		long currentPosition = matchPosition;
+		Window window = reader.getWindow(currentPosition);
+		CachedState<T> state = initialState;
+		while (window != null && state != null) {
+			final byte[] bytes = window.getArray();
+			final int windowLength = window.length();
+			final int windowStart = reader.getWindowOffset(currentPosition);
+			int windowPos = windowStart;
+			while (state != null && windowPos < windowLength) {
+				if (state.isFinal) {
+					return true;
+				}
+				state = getNextState(state, bytes[windowPos++]);
+			}
+			currentPosition += windowLength - windowStart;
+			window = reader.getWindow(currentPosition);
+		}
+		return state != null && currentPosition > matchPosition && state.isFinal;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean matches(final byte[] bytes, final int matchPosition) {
+		final int length = bytes.length;
+		if (matchPosition >= 0 && matchPosition < length) {
+			int currentPosition = matchPosition;
+			CachedState<T> state = initialState;
+			while (state != null && currentPosition < length) {
+				if (state.isFinal) {
+					return true;
+				}
+				state = getNextState(state, bytes[currentPosition++]);
+			}
+			return state != null && state.isFinal;
+		}
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public MatchResult<T> firstMatch(final WindowReader reader, final long matchPosition) throws IOException {
+		return nextMatch(reader, matchPosition, matchPosition, initialState, true);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public MatchResult<T> nextMatch(final WindowReader reader, final MatchResult<T> lastMatch) throws IOException {
+		if (lastMatch instanceof LazyMatchResult) {
+			final LazyMatchResult<T> last = (LazyMatchResult<T>) lastMatch;
+			if (last.matcher == this) {
+				final long matchPosition = last.getMatchPosition();
+				return nextMatch(reader, matchPosition, matchPosition + last.getMatchLength(), last.state, false);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Collection<MatchResult<T>> allMatches(final WindowReader reader, final long matchPosition)
+			throws IOException {
+		Collection<MatchResult<T>> results = Collections.emptyList();
+		MatchResult<T> result = firstMatch(reader, matchPosition);
+		while (result != null) {
+			if (results.isEmpty()) {
+				results = new ArrayList<MatchResult<T>>();
+			}
+			results.add(result);
+			result = nextMatch(reader, result);
+		}
+		return results;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public MatchResult<T> firstMatch(final byte[] bytes, final int matchPosition) {
+		return nextMatch(bytes, matchPosition, matchPosition, initialState, true);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public MatchResult<T> nextMatch(final byte[] bytes, final MatchResult<T> lastMatch) {
+		if (lastMatch instanceof LazyMatchResult) {
+			final LazyMatchResult<T> last = (LazyMatchResult<T>) lastMatch;
+			if (last.matcher == this) {
+				final int matchPosition = (int) last.getMatchPosition();
+				return nextMatch(bytes, matchPosition, (int) (matchPosition + last.getMatchLength()), last.state, false);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Collection<MatchResult<T>> allMatches(final byte[] bytes, final int matchPosition) {
+		Collection<MatchResult<T>> results = Collections.emptyList();
+		MatchResult<T> result = firstMatch(bytes, matchPosition);
+		while (result != null) {
+			if (results.isEmpty()) {
+				results = new ArrayList<MatchResult<T>>();
+			}
+			results.add(result);
+			result = nextMatch(bytes, result);
+		}
+		return results;
+	}
+
+	/**
+	 * Returns the maximum number of deterministic states which are cached before the cache is flushed.
+	 *
+	 * @return The maximum number of deterministic states which are cached.
+	 */
+	public int getMaxCachedStates() {
+		return maxCachedStates;
+	}
+
+	/**
+	 * Returns the number of deterministic states currently cached.
+	 *
+	 * @return The number of deterministic states currently cached.
+	 */
+	public synchronized int getNumberOfCachedStates() {
+		return cache.size();
+	}
+
+	/**
+	 * Returns the number of times the cache has been flushed since this matcher was created.
+	 * If this is high compared to the amount of data matched, the maximum number of cached
+	 * states should be increased.
+	 *
+	 * @return The number of times the cache has been flushed.
+	 */
+	public synchronized long getFlushCount() {
+		return flushCount;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[automata:" + automata + " maxCachedStates:" + maxCachedStates + ']';
+	}
+
+	/**
+	 * Returns the next state from a state on a byte, or null if there is no next state.
+	 * The cached transition is used if it exists, otherwise it is built.
+	 */
+	private CachedState<T> getNextState(final CachedState<T> state, final byte value) {
+		final CachedState<T> nextState = state.transitions[value & 0xFF];
+		return nextState == null ? buildNextState(state, value)
+				: nextState == NO_STATE ? null : nextState;
+	}
+
+	@SuppressWarnings("unchecked")
+	private synchronized CachedState<T> buildNextState(final CachedState<T> state, final byte value) {
+		final int index = value & 0xFF;
+		final CachedState<T> existing = state.transitions[index];
+		if (existing != null) {
+			return existing == NO_STATE ? null : existing;
+		}
+		final Set<State<T>> nextStates = new IdentityHashSet<State<T>>();
+		for (final State<T> nfaState : state.nfaStates) {
+			nfaState.appendNextStates(nextStates, value);
+		}
+		final CachedState<T> nextState;
+		if (nextStates.isEmpty()) {
+			nextState = null;
+		} else {
+			final CachedState<T> cached = cache.get(nextStates);
+			nextState = cached == null ? createState(nextStates) : cached;
+		}
+		// Only record the transition if the state is still in the cache.  A state left over
+		// from before a flush is only in use by the match which holds it, and will be garbage
+		// once that match moves on.
+		if (state.generation == generation) {
+			state.transitions[index] = nextState == null ? (CachedState<T>) NO_STATE : nextState;
+		}
+		return nextState;
+	}
+
+	/**
+	 * Creates and caches a new state, flushing the cache first if it is full.
+	 */
+	private synchronized CachedState<T> createState(final Set<State<T>> nfaStates) {
+		if (cache.size() >= maxCachedStates) {
+			flush();
+		}
+		final CachedState<T> newState = new CachedState<T>(nfaStates, generation);
+		cache.put(nfaStates, newState);
+		return newState;
+	}
+
+	private void flush() {
+		cache = new HashMap<Set<State<T>>, CachedState<T>>();
+		generation++;
+		flushCount++;
+		// The initial state is always needed, so re-create it in the new cache.
+		final CachedState<T> oldInitialState = initialState;
+		final CachedState<T> newInitialState = new CachedState<T>(oldInitialState.nfaStates, generation);
+		cache.put(newInitialState.nfaStates, newInitialState);
+		initialState = newInitialState;
+	}
+
+	/**
+	 * Runs the cached automata from a state at a position in the reader until it finds a final state.
+	 * If checkFirst is true, the state we start in can be a match, otherwise at least one byte
+	 * must be matched before looking for a final state.
+	 */
+	private MatchResult<T> nextMatch(final WindowReader reader, final long matchPosition, final long startPosition,
+									 final CachedState<T> startState, final boolean checkFirst) throws IOException {
+		long currentPosition = startPosition;
+		Window window = reader.getWindow(currentPosition);
+		if (window == null) {
+			return null;
+		}
+		CachedState<T> state = startState;
+		if (checkFirst && state.isFinal) {
+			return new LazyMatchResult<T>(this, matchPosition, currentPosition - matchPosition, state);
+		}
+		while (window != null) {
+			final byte[] bytes = window.getArray();
+			final int windowLength = window.length();
+			final int windowStart = reader.getWindowOffset(currentPosition);
+			int windowPos = windowStart;
+			while (windowPos < windowLength) {
+				state = getNextState(state, bytes[windowPos++]);
+				if (state == null) {
+					return null;
+				}
+				if (state.isFinal) {
+					final long matchLength = currentPosition - matchPosition + windowPos - windowStart;
+					return new LazyMatchResult<T>(this, matchPosition, matchLength, state);
+				}
+			}
+			currentPosition += windowLength - windowStart;
+			window = reader.getWindow(currentPosition);
+		}
+		return null;
+	}
+
+	/**
+	 * Runs the cached automata from a state at a position in the array until it finds a final state.
+	 * If checkFirst is true, the state we start in can be a match, otherwise at least one byte
+	 * must be matched before looking for a final state.
+	 */
+	private MatchResult<T> nextMatch(final byte[] bytes, final int matchPosition, final int startPosition,
+									 final CachedState<T> startState, final boolean checkFirst) {
+		final int length = bytes.length;
+		if (startPosition < 0 || startPosition >= length) {
+			return null;
+		}
+		CachedState<T> state = startState;
+		if (checkFirst && state.isFinal) {
+			return new LazyMatchResult<T>(this, matchPosition, startPosition - matchPosition, state);
+		}
+		int currentPosition = startPosition;
+		while (currentPosition < length) {
+			state = getNextState(state, bytes[currentPosition++]);
+			if (state == null) {
+				return null;
+			}
+			if (state.isFinal) {
+				return new LazyMatchResult<T>(this, matchPosition, currentPosition - matchPosition, state);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * A deterministic state, standing for a set of states in the automata being matched.
+	 * A null transition has not been built yet; a transition to {@link #NO_STATE} means
+	 * there is no next state.  The transitions
+	 * are written under the matcher lock, but can be read without it, as a CachedState only
+	 * has final fields and so is always seen fully constructed.
+	 *
+	 * @param <T> The type of object associated with states in the automata.
+	 */
+	private static final class CachedState<T> {
+
+		private final Set<State<T>> nfaStates;
+		private final int generation;
+		private final boolean isFinal;
+		private final Collection<T> associations;
+		private final CachedState<T>[] transitions;
+
+		private CachedState(final Set<State<T>> nfaStates, final int generation) {
+			this.nfaStates = nfaStates;
+			this.generation = generation;
+			boolean anyFinal = false;
+			final List<T> allAssociations = new ArrayList<T>();
+			for (final State<T> state : nfaStates) {
+				anyFinal |= state.isFinal();
+				allAssociations.addAll(state.getAssociations());
+			}
+			this.isFinal = anyFinal;
+			this.associations = allAssociations.isEmpty() ? Collections.<T>emptyList()
+					: Collections.unmodifiableList(allAssociations);
+			// Generic arrays cannot be created directly; the array only ever holds CachedState<T>.
+			@SuppressWarnings("unchecked")
+			final CachedState<T>[] unbuiltTransitions = (CachedState<T>[]) new CachedState<?>[256];
+			this.transitions = unbuiltTransitions;
+		}
+
+	}
+
+	/**
+	 * A private MatchResult which stashes away the state that matched,
+	 * so the nextMatch() methods can carry on from where they left off.
+	 *
+	 * @param <T> The type of object associated with states in the automata.
+	 */
+	private static final class LazyMatchResult<T> implements MatchResult<T> {
+
+		private final LazyDfaMatcher<T> matcher;
+		private final long matchPosition;
+		private final long matchLength;
+		private final CachedState<T> state;
+
+		private LazyMatchResult(final LazyDfaMatcher<T> matcher, final long matchPosition,
+								final long matchLength, final CachedState<T> state) {
+			this.matcher = matcher;
+			this.matchPosition = matchPosition;
+			this.matchLength = matchLength;
+			this.state = state;
+		}
+
+		@Override
+		public Collection<T> getMatchingObjects() {
+			return state.associations;
+		}
+
+		@Override
+		public long getMatchPosition() {
+			return matchPosition;
+		}
+
+		@Override
+		public long getMatchLength() {
+			return matchLength;
+		}
+
+	}
+
+}
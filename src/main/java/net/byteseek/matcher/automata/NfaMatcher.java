@@ -75,8 +75,8 @@ public final class NfaMatcher<T> implements AutomataMatcher<T> {
 		activeStates.add(automata.getInitialState());
 		Window window = reader.getWindow(currentPosition);
 
-		//While we have a window on the data to match in:
-		while (window != null) {
+		//While we have a window on the data to match in and states to match:
+		while (window != null && !activeStates.isEmpty()) {
 			final byte[] bytes = window.getArray();
 			final int windowLength = window.length();
 			final int windowStart = reader.getWindowOffset(currentPosition);
@@ -108,7 +108,9 @@ public final class NfaMatcher<T> implements AutomataMatcher<T> {
 			currentPosition += windowLength - windowStart;
 			window = reader.getWindow(currentPosition);
 		}
-		return false;
+
+		// See if any states after the last byte are final (a match ending at the end of the data):
+		return currentPosition > matchPosition && anyStatesAreFinal(activeStates);
 	}
 
 	/**
@@ -152,6 +154,9 @@ public final class NfaMatcher<T> implements AutomataMatcher<T> {
 				nextStates = lastActiveSet;
 				nextStates.clear();
 			}
+
+			// See if any states after the last byte are final (a match ending at the end of the array):
+			return anyStatesAreFinal(activeStates);
 		}
 		return false;
 	}
@@ -193,6 +198,15 @@ public final class NfaMatcher<T> implements AutomataMatcher<T> {
 		return null;
 	}
 	
+	private static <T> boolean anyStatesAreFinal(final Set<State<T>> states) {
+		for (final State<T> state : states) {
+			if (state.isFinal()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
     @Override
     public String toString() {
     	return getClass().getSimpleName() + "[automata:" + automata + ']'; 
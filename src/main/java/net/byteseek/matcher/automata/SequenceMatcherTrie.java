@@ -146,7 +146,8 @@ public final class SequenceMatcherTrie extends AbstractTrie<SequenceMatcher> {
     public SequenceMatcherTrie(final Collection<? extends SequenceMatcher> sequences, 
                                final StateFactory<SequenceMatcher> stateFactory, 
                                final TransitionFactory<SequenceMatcher, Collection<Byte>> transitionFactory) {
-        super(stateFactory, transitionFactory);
+        super(stateFactory, transitionFactory == null ? new ByteMatcherTransitionFactory<SequenceMatcher>()
+                                                      : transitionFactory);
         if (sequences != null) {
             addAll(sequences);
         }
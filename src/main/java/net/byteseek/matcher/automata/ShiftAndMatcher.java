@@ -0,0 +1,201 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.matcher.automata;
+
+import java.io.IOException;
+
+import net.byteseek.automata.Automata;
+import net.byteseek.automata.bitparallel.ShiftAndTable;
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.Matcher;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * A Matcher which matches a Glushkov automata, such as one compiled from a regular expression,
+ * by simulating all of its active states in parallel using bit operations.
+ * <p>
+ * It matches the same automata as an {@link NfaMatcher}, but rather than following
+ * State objects and collecting the next states into sets for each byte, it steps a compiled
+ * {@link ShiftAndTable}.  For automata with up to 64 states, the active states are held
+ * in a single long and matching allocates nothing.  Larger automata hold their active
+ * states in long arrays.
+ * <p>
+ * This class is immutable and thread-safe.
+ *
+ * @author Matt Palmer
+ */
+public final class ShiftAndMatcher implements Matcher {
+
+	private final ShiftAndTable table;
+
+	/**
+	 * Constructs a ShiftAndMatcher from a Glushkov automata.
+	 *
+	 * @param <T>      The type of object associated with states in the automata.
+	 * @param automata The automata to match.
+	 * @throws IllegalArgumentException if the automata is null, or is not a Glushkov automata.
+	 */
+	public <T> ShiftAndMatcher(final Automata<T> automata) {
+		this(new ShiftAndTable(automata));
+	}
+
+	/**
+	 * Constructs a ShiftAndMatcher from a compiled ShiftAndTable.
+	 *
+	 * @param table The ShiftAndTable to match.
+	 * @throws IllegalArgumentException if the table is null.
+	 */
+	public ShiftAndMatcher(final ShiftAndTable table) {
+		ArgUtils.checkNullObject(table, "table");
+		this.table = table;
+	}
+
+	/**
+	 * Returns the ShiftAndTable matched by this matcher.
+	 *
+	 * @return The ShiftAndTable matched by this matcher.
+	 */
+	public ShiftAndTable getTable() {
+		return table;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean matches(final WindowReader reader, final long matchPosition) throws IOException {
+		final ShiftAndTable localTable = table;
+		final boolean singleWord = localTable.getNumberOfWords() == 1;
+		final long finalStates = singleWord ? localTable.getFinalStates() : 0;
+		long states = ShiftAndTable.INITIAL_STATES;
+		long[] multiStates = null;
+		long[] nextMultiStates = null;
+		if (!singleWord) {
+			multiStates = new long[localTable.getNumberOfWords()];
+			nextMultiStates = new long[localTable.getNumberOfWords()];
+			localTable.setInitialStates(multiStates);
+		}
+		long currentPosition = matchPosition;
+		Window window = reader.getWindow(currentPosition);
+		if (window != null && (singleWord ? (states & finalStates) != 0 : localTable.isFinal(multiStates))) {
+			return true;
+		}
+		while (window != null) {
+			final byte[] bytes = window.getArray();
+			final int windowLength = window.length();
+			final int windowStart = reader.getWindowOffset(currentPosition);
+			for (int windowPos = windowStart; windowPos < windowLength; windowPos++) {
+				if (singleWord) {
+					states = localTable.nextStates(states, bytes[windowPos]);
+					if (states == 0) {
+						return false;
+					}
+					if ((states & finalStates) != 0) {
+						return true;
+					}
+				} else {
+					if (!localTable.nextStates(multiStates, nextMultiStates, bytes[windowPos])) {
+						return false;
+					}
+					if (localTable.isFinal(nextMultiStates)) {
+						return true;
+					}
+					final long[] lastStates = multiStates;
+					multiStates = nextMultiStates;
+					nextMultiStates = lastStates;
+				}
+			}
+			currentPosition += windowLength - windowStart;
+			window = reader.getWindow(currentPosition);
+		}
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean matches(final byte[] bytes, final int matchPosition) {
+		final int length = bytes.length;
+		if (matchPosition >= 0 && matchPosition < length) {
+			final ShiftAndTable localTable = table;
+			if (localTable.getNumberOfWords() == 1) {
+				final long finalStates = localTable.getFinalStates();
+				long states = ShiftAndTable.INITIAL_STATES;
+				if ((states & finalStates) != 0) {
+					return true;
+				}
+				for (int currentPosition = matchPosition; currentPosition < length; currentPosition++) {
+					states = localTable.nextStates(states, bytes[currentPosition]);
+					if (states == 0) {
+						return false;
+					}
+					if ((states & finalStates) != 0) {
+						return true;
+					}
+				}
+				return false;
+			}
+			return matchesMultiWord(bytes, matchPosition);
+		}
+		return false;
+	}
+
+	private boolean matchesMultiWord(final byte[] bytes, final int matchPosition) {
+		final ShiftAndTable localTable = table;
+		long[] states = new long[localTable.getNumberOfWords()];
+		long[] nextStates = new long[localTable.getNumberOfWords()];
+		localTable.setInitialStates(states);
+		if (localTable.isFinal(states)) {
+			return true;
+		}
+		for (int currentPosition = matchPosition; currentPosition < bytes.length; currentPosition++) {
+			if (!localTable.nextStates(states, nextStates, bytes[currentPosition])) {
+				return false;
+			}
+			if (localTable.isFinal(nextStates)) {
+				return true;
+			}
+			final long[] lastStates = states;
+			states = nextStates;
+			nextStates = lastStates;
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[table:" + table + ']';
+	}
+
+}
@@ -31,6 +31,7 @@
 
 package net.byteseek.matcher.bytes;
 
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
@@ -60,6 +61,29 @@ public abstract class AbstractByteMatcher implements ByteMatcher {
     }
 
     
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Matches the byte at the position in the buffer using {@link #matches(byte)}.
+     */
+    @Override
+    public boolean matches(final ByteBuffer buffer, final int matchPosition) {
+        return matchPosition >= 0 && matchPosition < buffer.limit() &&
+               matches(buffer.get(matchPosition));
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Matches the byte at the position in the buffer using {@link #matches(byte)}.
+     */
+    @Override
+    public boolean matchesNoBoundsCheck(final ByteBuffer buffer, final int matchPosition) {
+        return matches(buffer.get(matchPosition));
+    }
+
+
     /**
      * {@inheritDoc}
      *
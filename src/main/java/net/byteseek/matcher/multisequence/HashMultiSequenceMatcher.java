@@ -32,160 +32,893 @@
 package net.byteseek.matcher.multisequence;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import net.byteseek.io.reader.WindowReader;
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.matcher.bytes.ByteMatcher;
 import net.byteseek.matcher.sequence.SequenceMatcher;
 import net.byteseek.utils.ArgUtils;
 
 
 /**
- * WARNING: THIS CLASS IS ENTIRELY UNFINISHED.  DO NOT USE.
- * <p>
- * It is intended to be a half-way house in terms of time-space trade-off  between
+ * A MultiSequenceMatcher which finds the sequences to verify at a position using
+ * a hash table, giving a half-way house in terms of time-space trade-off between
  * the List and the Trie multi-sequence-matchers.
  * <p>
- * The idea is to create a limited-size hash-table.  Each sequence matcher is 
- * added to the hashtable, indexed on the bytes which they first match. Each position
- * in the hashtable contains a list of sequence matchers that hash to that position.
- * Encountering a byte, a hashtable lookup is performed to see which lists of sequence
- * matchers need to be tried at that position.
+ * The bytes of every sequence which matches a single byte value at each position
+ * are copied contiguously into one byte array, and each of these sequences is placed
+ * into a hash table indexed on its first bytes.  The number of bytes hashed is the length
+ * of the shortest of these sequences, up to a maximum of four.  Each sequence also has a
+ * 64-bit fingerprint of its first eight bytes.  When matching, the bytes at the position
+ * are hashed to find the sequences to try, and a fingerprint of the bytes at the position
+ * rejects most of them with a single comparison before the remaining bytes are compared.
+ * <p>
+ * Like the {@link TrieMultiSequenceMatcher}, matching backwards reads the bytes of
+ * each sequence from the match position back towards the start, so the same hash table
+ * and fingerprints are used in both directions.
  * <p>
- * It should be faster than a ListMultiSequenceMatcher, but take up less memory than
- * building an entirely new Trie structure from the sequence matchers.  The size of the
- * hashtable must be chosen carefully to achieve this balance.
+ * Sequences which match more than one byte value at any position (e.g. byte classes)
+ * cannot be placed in the hash table, so they are simply tried in turn, as they would
+ * be by a {@link ListMultiSequenceMatcher}.
  * <p>
  * When used in conjunction with the WuManber multi-sequence search algorithms,
- * we are as close as possible to the original description of Wu-Manber (although 
- * the Trie based matcher would probably be faster in most cases).
- * 
+ * we are as close as possible to the original description of Wu-Manber.  Searching
+ * forwards, the searchers verify the reversed sequences backwards from each position
+ * where there is no safe shift, so the candidates are found from a hash of the last
+ * bytes of the original sequences.
+ * <p>
+ * It is immutable, so it can be safely used in multi-threaded applications.
+ *
  * @author Matt Palmer
  */
-@SuppressWarnings("all") // code entirely unfinished - do not use yet.
-public class HashMultiSequenceMatcher implements MultiSequenceMatcher {
+public final class HashMultiSequenceMatcher implements MultiSequenceMatcher {
+
+    private static final int MAX_HASH_BYTES    = 4;
+    private static final int FINGERPRINT_BYTES = 8;
+    private static final int MIN_TABLE_BITS    = 4;
+    private static final int HASH_MULTIPLIER   = 0x9E3779B1;
 
     private final List<SequenceMatcher> matchers;
-    private final List<SequenceMatcher>[] hashTable;
     private final int minimumLength;
     private final int maximumLength;
-    
-    /**
-     * Private constructor to prevent construction.  This class is currently only
-     * a shell with no real implementation.
-     * 
-     * @param matchers
-     */
-    private HashMultiSequenceMatcher(final Collection<? extends SequenceMatcher> matchers) {
-        // Store matcher list:
-        ArgUtils.checkNullOrEmptyCollection(matchers, "matchers");
-        this.matchers = new ArrayList<SequenceMatcher>(matchers.size());
-        
-        //Calculate min length, max length and the hash of each matcher:
-        hashTable = createHashTableFor(this.matchers);
+
+    // The sequences which match a single byte at each position, with their bytes in the arena:
+    private final SequenceMatcher[] byteSequences;
+    private final byte[] arena;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int hashBytes;
+    private final int hashShift;
+
+    // Fingerprints of the first bytes of each byte sequence:
+    private final long[] fingerprints;
+    private final long[] fingerprintMasks;
+
+    // Hash table: the sequences in bucket b are the entries from bucketStarts[b] to bucketStarts[b + 1].
+    private final int[] bucketStarts;
+    private final int[] bucketEntries;
+
+    // The sequences which match more than one byte at some position, and their reverses:
+    private final SequenceMatcher[] otherSequences;
+    private final SequenceMatcher[] reversedOthers;
+
+
+    /**
+     * Constructs a HashMultiSequenceMatcher from a collection of sequence matchers.
+     *
+     * @param matchers A collection of sequence matchers to construct the
+     *        HashMultiSequenceMatcher from.
+     * @throws IllegalArgumentException if the collection is null or empty, or any of the
+     *         SequenceMatchers in the collection are null.
+     */
+    public HashMultiSequenceMatcher(final Collection<? extends SequenceMatcher> matchers) {
+        ArgUtils.checkNullOrEmptyCollectionNoNullElements(matchers, "matchers");
+        this.matchers = new ArrayList<SequenceMatcher>(matchers);
+
+        // Separate the sequences matching single bytes from the others and find the lengths:
+        final List<SequenceMatcher> bytes  = new ArrayList<SequenceMatcher>();
+        final List<SequenceMatcher> others = new ArrayList<SequenceMatcher>();
         int currentMin = Integer.MAX_VALUE;
         int currentMax = Integer.MIN_VALUE;
-        for (final SequenceMatcher matcher : matchers) {
+        int minByteLength = Integer.MAX_VALUE;
+        int arenaSize = 0;
+        for (final SequenceMatcher matcher : this.matchers) {
             final int length = matcher.length();
             if (length < currentMin) currentMin = length;
             if (length > currentMax) currentMax = length;
-            addHashFor(matcher);
+            if (matchesSingleBytes(matcher)) {
+                bytes.add(matcher);
+                arenaSize += length;
+                if (length < minByteLength) minByteLength = length;
+            } else {
+                others.add(matcher);
+            }
+        }
+        minimumLength  = currentMin;
+        maximumLength  = currentMax;
+        otherSequences = others.toArray(new SequenceMatcher[others.size()]);
+        reversedOthers = MultiSequenceUtils.reverseMatchers(others).toArray(new SequenceMatcher[others.size()]);
+        byteSequences  = bytes.toArray(new SequenceMatcher[bytes.size()]);
+        hashBytes      = byteSequences.length == 0? 0 : Math.min(minByteLength, MAX_HASH_BYTES);
+
+        // Copy the bytes of the byte sequences into the arena and calculate their fingerprints:
+        final int numSequences = byteSequences.length;
+        arena            = new byte[arenaSize];
+        offsets          = new int[numSequences];
+        lengths          = new int[numSequences];
+        fingerprints     = new long[numSequences];
+        fingerprintMasks = new long[numSequences];
+        int arenaPosition = 0;
+        for (int sequence = 0; sequence < numSequences; sequence++) {
+            final SequenceMatcher matcher = byteSequences[sequence];
+            final int length = matcher.length();
+            offsets[sequence] = arenaPosition;
+            lengths[sequence] = length;
+            for (int position = 0; position < length; position++) {
+                arena[arenaPosition++] = matcher.getMatcherForPosition(position).getMatchingBytes()[0];
+            }
+            final int fingerprintBytes = Math.min(length, FINGERPRINT_BYTES);
+            fingerprints[sequence]     = headWord(arena, offsets[sequence], fingerprintBytes);
+            fingerprintMasks[sequence] = fingerprintBytes == FINGERPRINT_BYTES? -1L
+                                       : (1L << (fingerprintBytes * 8)) - 1;
         }
-        minimumLength = currentMin;
-        maximumLength = currentMax;
+
+        // Build the hash table of the first bytes:
+        final int tableBits = getTableBits(numSequences);
+        hashShift     = 32 - tableBits;
+        bucketStarts  = new int[(1 << tableBits) + 1];
+        bucketEntries = new int[numSequences];
+        final int[] buckets = new int[numSequences];
+        for (int sequence = 0; sequence < numSequences; sequence++) {
+            buckets[sequence] = bucketForwards(arena, offsets[sequence]);
+        }
+        fillBuckets(buckets, bucketStarts, bucketEntries);
     }
-    
-    public Collection<SequenceMatcher> allMatches(final WindowReader reader, final long matchPosition) throws IOException {
-        throw new UnsupportedOperationException("Not supported yet.");
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<SequenceMatcher> allMatches(final WindowReader reader, final long matchPosition)
+            throws IOException {
+        return matchForwards(reader, matchPosition, true);
     }
 
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
     public Collection<SequenceMatcher> allMatches(final byte[] bytes, final int matchPosition) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return matchForwards(bytes, matchPosition, bytes.length, true);
     }
 
-    public Collection<SequenceMatcher> allMatchesBackwards(final WindowReader reader, final long matchPosition) throws IOException {
-        throw new UnsupportedOperationException("Not supported yet.");
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<SequenceMatcher> allMatchesBackwards(final WindowReader reader, final long matchPosition)
+            throws IOException {
+        return matchBackwards(reader, matchPosition, true);
     }
 
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
     public Collection<SequenceMatcher> allMatchesBackwards(final byte[] bytes, final int matchPosition) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return matchBackwards(bytes, matchPosition, bytes.length, true);
     }
 
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
     public SequenceMatcher firstMatch(final WindowReader reader, final long matchPosition) throws IOException {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return first(matchForwards(reader, matchPosition, false));
     }
 
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
     public SequenceMatcher firstMatch(final byte[] bytes, final int matchPosition) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return first(matchForwards(bytes, matchPosition, bytes.length, false));
     }
 
-    public SequenceMatcher firstMatchBackwards(final WindowReader reader, final long matchPosition) throws IOException {
-        throw new UnsupportedOperationException("Not supported yet.");
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SequenceMatcher firstMatchBackwards(final WindowReader reader, final long matchPosition)
+            throws IOException {
+        return first(matchBackwards(reader, matchPosition, false));
     }
 
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
     public SequenceMatcher firstMatchBackwards(final byte[] bytes, final int matchPosition) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return first(matchBackwards(bytes, matchPosition, bytes.length, false));
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean matches(final WindowReader reader, final long matchPosition) throws IOException {
+        return !matchForwards(reader, matchPosition, false).isEmpty();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean matches(final byte[] bytes, final int matchPosition) {
+        return !matchForwards(bytes, matchPosition, bytes.length, false).isEmpty();
     }
 
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
     public boolean matchesBackwards(final WindowReader reader, final long matchPosition) throws IOException {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return !matchBackwards(reader, matchPosition, false).isEmpty();
     }
 
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
     public boolean matchesBackwards(final byte[] bytes, final int matchPosition) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return !matchBackwards(bytes, matchPosition, bytes.length, false).isEmpty();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<SequenceMatcher> allMatches(final ByteBuffer buffer, final int matchPosition) {
+        return matchForwards(buffer, matchPosition, true);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<SequenceMatcher> allMatchesBackwards(final ByteBuffer buffer, final int matchPosition) {
+        return matchBackwards(buffer, matchPosition, true);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SequenceMatcher firstMatch(final ByteBuffer buffer, final int matchPosition) {
+        return first(matchForwards(buffer, matchPosition, false));
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SequenceMatcher firstMatchBackwards(final ByteBuffer buffer, final int matchPosition) {
+        return first(matchBackwards(buffer, matchPosition, false));
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean matches(final ByteBuffer buffer, final int matchPosition) {
+        return !matchForwards(buffer, matchPosition, false).isEmpty();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean matchesBackwards(final ByteBuffer buffer, final int matchPosition) {
+        return !matchBackwards(buffer, matchPosition, false).isEmpty();
     }
 
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
     public int getMinimumLength() {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return minimumLength;
     }
 
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
     public int getMaximumLength() {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return maximumLength;
     }
 
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
     public MultiSequenceMatcher reverse() {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return new HashMultiSequenceMatcher(MultiSequenceUtils.reverseMatchers(matchers));
     }
 
+
     /**
-     * 
-     * @param sequences
-     * @return
+     * {@inheritDoc}
      */
+    @Override
     public MultiSequenceMatcher newInstance(final Collection<? extends SequenceMatcher> sequences) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return new HashMultiSequenceMatcher(sequences);
     }
 
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
     public List<SequenceMatcher> getSequenceMatchers() {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return new ArrayList<SequenceMatcher>(matchers);
+    }
+
+
+    /*
+     * Matches sequences starting at the match position in a byte array, reading no further than the limit.
+     */
+    private List<SequenceMatcher> matchForwards(final byte[] bytes, final int matchPosition,
+                                                final int limit, final boolean allMatches) {
+        List<SequenceMatcher> result = Collections.emptyList();
+        final int remaining = limit - matchPosition;
+        if (matchPosition >= 0 && remaining >= minimumLength) {
+            if (hashBytes > 0 && remaining >= hashBytes) {
+                final int bucket = bucketForwards(bytes, matchPosition);
+                final int lastEntry = bucketStarts[bucket + 1];
+                if (bucketStarts[bucket] < lastEntry) {
+                    final int fingerprintBytes = remaining < FINGERPRINT_BYTES? remaining : FINGERPRINT_BYTES;
+                    final long fingerprint = headWord(bytes, matchPosition, fingerprintBytes);
+                    for (int entry = bucketStarts[bucket]; entry < lastEntry; entry++) {
+                        final int sequence = bucketEntries[entry];
+                        final int length = lengths[sequence];
+                        if (length <= remaining &&
+                            (fingerprint & fingerprintMasks[sequence]) == fingerprints[sequence] &&
+                            arenaMatches(offsets[sequence] + FINGERPRINT_BYTES, bytes,
+                                         matchPosition + FINGERPRINT_BYTES, length - FINGERPRINT_BYTES)) {
+                            if (!allMatches) {
+                                return Collections.singletonList(byteSequences[sequence]);
+                            }
+                            result = addMatch(result, byteSequences[sequence]);
+                        }
+                    }
+                }
+            }
+            for (final SequenceMatcher sequence : otherSequences) {
+                if (sequence.length() <= remaining && sequence.matchesNoBoundsCheck(bytes, matchPosition)) {
+                    if (!allMatches) {
+                        return Collections.singletonList(sequence);
+                    }
+                    result = addMatch(result, sequence);
+                }
+            }
+        }
+        return result;
     }
 
-    public boolean matches(WindowReader reader, long matchPosition) throws IOException {
-        throw new UnsupportedOperationException("Not supported yet.");
+
+    /*
+     * Matches sequences reading back from the match position in a byte array, which is before the limit.
+     */
+    private List<SequenceMatcher> matchBackwards(final byte[] bytes, final int matchPosition,
+                                                 final int limit, final boolean allMatches) {
+        List<SequenceMatcher> result = Collections.emptyList();
+        final int available = matchPosition + 1;
+        if (matchPosition < limit && available >= minimumLength) {
+            if (hashBytes > 0 && available >= hashBytes) {
+                final int bucket = bucketBackwards(bytes, matchPosition);
+                final int lastEntry = bucketStarts[bucket + 1];
+                if (bucketStarts[bucket] < lastEntry) {
+                    final int fingerprintBytes = available < FINGERPRINT_BYTES? available : FINGERPRINT_BYTES;
+                    final long fingerprint = tailWord(bytes, matchPosition, fingerprintBytes);
+                    for (int entry = bucketStarts[bucket]; entry < lastEntry; entry++) {
+                        final int sequence = bucketEntries[entry];
+                        final int length = lengths[sequence];
+                        if (length <= available &&
+                            (fingerprint & fingerprintMasks[sequence]) == fingerprints[sequence] &&
+                            arenaMatchesBackwards(offsets[sequence] + FINGERPRINT_BYTES, bytes,
+                                                  matchPosition - FINGERPRINT_BYTES, length - FINGERPRINT_BYTES)) {
+                            if (!allMatches) {
+                                return Collections.singletonList(byteSequences[sequence]);
+                            }
+                            result = addMatch(result, byteSequences[sequence]);
+                        }
+                    }
+                }
+            }
+            final SequenceMatcher[] reversed = reversedOthers;
+            for (int other = 0; other < reversed.length; other++) {
+                final int length = reversed[other].length();
+                if (length <= available && reversed[other].matchesNoBoundsCheck(bytes, available - length)) {
+                    if (!allMatches) {
+                        return Collections.singletonList(otherSequences[other]);
+                    }
+                    result = addMatch(result, otherSequences[other]);
+                }
+            }
+        }
+        return result;
     }
 
-    public boolean matches(byte[] bytes, int matchPosition) {
-        throw new UnsupportedOperationException("Not supported yet.");
+
+    /*
+     * Matches sequences starting at the match position in a ByteBuffer.
+     */
+    private List<SequenceMatcher> matchForwards(final ByteBuffer buffer, final int matchPosition,
+                                                final boolean allMatches) {
+        List<SequenceMatcher> result = Collections.emptyList();
+        final int remaining = buffer.limit() - matchPosition;
+        if (matchPosition >= 0 && remaining >= minimumLength) {
+            if (hashBytes > 0 && remaining >= hashBytes) {
+                final int bucket = bucketForwards(buffer, matchPosition);
+                final int lastEntry = bucketStarts[bucket + 1];
+                if (bucketStarts[bucket] < lastEntry) {
+                    final int fingerprintBytes = remaining < FINGERPRINT_BYTES? remaining : FINGERPRINT_BYTES;
+                    final long fingerprint = headWord(buffer, matchPosition, fingerprintBytes);
+                    for (int entry = bucketStarts[bucket]; entry < lastEntry; entry++) {
+                        final int sequence = bucketEntries[entry];
+                        final int length = lengths[sequence];
+                        if (length <= remaining &&
+                            (fingerprint & fingerprintMasks[sequence]) == fingerprints[sequence] &&
+                            arenaMatches(offsets[sequence] + FINGERPRINT_BYTES, buffer,
+                                         matchPosition + FINGERPRINT_BYTES, length - FINGERPRINT_BYTES)) {
+                            if (!allMatches) {
+                                return Collections.singletonList(byteSequences[sequence]);
+                            }
+                            result = addMatch(result, byteSequences[sequence]);
+                        }
+                    }
+                }
+            }
+            for (final SequenceMatcher sequence : otherSequences) {
+                if (sequence.length() <= remaining && sequence.matchesNoBoundsCheck(buffer, matchPosition)) {
+                    if (!allMatches) {
+                        return Collections.singletonList(sequence);
+                    }
+                    result = addMatch(result, sequence);
+                }
+            }
+        }
+        return result;
     }
 
-    private void addHashFor(final SequenceMatcher matcher) {
-        //TODO: this is only for a block size of one, what about higher block sizes?
-        final byte[] matchingBytes = matcher.getMatcherForPosition(0).getMatchingBytes();
-        for (final byte b : matchingBytes) {
-           
+
+    /*
+     * Matches sequences reading back from the match position in a ByteBuffer.
+     */
+    private List<SequenceMatcher> matchBackwards(final ByteBuffer buffer, final int matchPosition,
+                                                 final boolean allMatches) {
+        List<SequenceMatcher> result = Collections.emptyList();
+        final int available = matchPosition + 1;
+        if (matchPosition < buffer.limit() && available >= minimumLength) {
+            if (hashBytes > 0 && available >= hashBytes) {
+                final int bucket = bucketBackwards(buffer, matchPosition);
+                final int lastEntry = bucketStarts[bucket + 1];
+                if (bucketStarts[bucket] < lastEntry) {
+                    final int fingerprintBytes = available < FINGERPRINT_BYTES? available : FINGERPRINT_BYTES;
+                    final long fingerprint = tailWord(buffer, matchPosition, fingerprintBytes);
+                    for (int entry = bucketStarts[bucket]; entry < lastEntry; entry++) {
+                        final int sequence = bucketEntries[entry];
+                        final int length = lengths[sequence];
+                        if (length <= available &&
+                            (fingerprint & fingerprintMasks[sequence]) == fingerprints[sequence] &&
+                            arenaMatchesBackwards(offsets[sequence] + FINGERPRINT_BYTES, buffer,
+                                                  matchPosition - FINGERPRINT_BYTES, length - FINGERPRINT_BYTES)) {
+                            if (!allMatches) {
+                                return Collections.singletonList(byteSequences[sequence]);
+                            }
+                            result = addMatch(result, byteSequences[sequence]);
+                        }
+                    }
+                }
+            }
+            final SequenceMatcher[] reversed = reversedOthers;
+            for (int other = 0; other < reversed.length; other++) {
+                final int length = reversed[other].length();
+                if (length <= available && reversed[other].matchesNoBoundsCheck(buffer, available - length)) {
+                    if (!allMatches) {
+                        return Collections.singletonList(otherSequences[other]);
+                    }
+                    result = addMatch(result, otherSequences[other]);
+                }
+            }
         }
+        return result;
     }
 
-    private List<SequenceMatcher>[] createHashTableFor(final List<SequenceMatcher> matchers) {
-        //TODO: determine appropriate table size.
-        int tableSize = 32;
-        return new List[tableSize];
+
+    /*
+     * Matches sequences starting at the match position in a WindowReader.  If all the sequences
+     * fit into the Window containing the match position, its array is matched directly.
+     */
+    private List<SequenceMatcher> matchForwards(final WindowReader reader, final long matchPosition,
+                                                final boolean allMatches) throws IOException {
+        final Window window = reader.getWindow(matchPosition);
+        if (window == null) {
+            return Collections.emptyList();
+        }
+        final int offset = reader.getWindowOffset(matchPosition);
+        final int windowLength = window.length();
+        if (offset + maximumLength <= windowLength) {
+            return matchForwards(window.getArray(), offset, windowLength, allMatches);
+        }
+
+        // The sequences may cross into following windows:
+        List<SequenceMatcher> result = Collections.emptyList();
+        if (hashBytes > 0) {
+            final int bucket = bucketForwards(reader, matchPosition);
+            if (bucket >= 0) {
+                for (int entry = bucketStarts[bucket]; entry < bucketStarts[bucket + 1]; entry++) {
+                    final SequenceMatcher sequence = byteSequences[bucketEntries[entry]];
+                    if (sequence.matches(reader, matchPosition)) {
+                        if (!allMatches) {
+                            return Collections.singletonList(sequence);
+                        }
+                        result = addMatch(result, sequence);
+                    }
+                }
+            }
+        }
+        for (final SequenceMatcher sequence : otherSequences) {
+            if (sequence.matches(reader, matchPosition)) {
+                if (!allMatches) {
+                    return Collections.singletonList(sequence);
+                }
+                result = addMatch(result, sequence);
+            }
+        }
+        return result;
     }
-    
+
+
+    /*
+     * Matches sequences reading back from the match position in a WindowReader.  If all the
+     * sequences fit into the Window containing the match position, its array is matched directly.
+     */
+    private List<SequenceMatcher> matchBackwards(final WindowReader reader, final long matchPosition,
+                                                 final boolean allMatches) throws IOException {
+        final Window window = reader.getWindow(matchPosition);
+        if (window == null) {
+            return Collections.emptyList();
+        }
+        final int offset = reader.getWindowOffset(matchPosition);
+        if (offset + 1 >= maximumLength) {
+            return matchBackwards(window.getArray(), offset, window.length(), allMatches);
+        }
+
+        // The sequences may cross into preceding windows:
+        List<SequenceMatcher> result = Collections.emptyList();
+        if (hashBytes > 0) {
+            final int bucket = bucketBackwards(reader, matchPosition);
+            if (bucket >= 0) {
+                for (int entry = bucketStarts[bucket]; entry < bucketStarts[bucket + 1]; entry++) {
+                    final int sequence = bucketEntries[entry];
+                    if (arenaMatchesBackwards(offsets[sequence], reader, matchPosition, lengths[sequence])) {
+                        if (!allMatches) {
+                            return Collections.singletonList(byteSequences[sequence]);
+                        }
+                        result = addMatch(result, byteSequences[sequence]);
+                    }
+                }
+            }
+        }
+        final SequenceMatcher[] reversed = reversedOthers;
+        for (int other = 0; other < reversed.length; other++) {
+            final long sequenceStart = matchPosition - reversed[other].length() + 1;
+            if (sequenceStart >= 0 && reversed[other].matches(reader, sequenceStart)) {
+                if (!allMatches) {
+                    return Collections.singletonList(otherSequences[other]);
+                }
+                result = addMatch(result, otherSequences[other]);
+            }
+        }
+        return result;
+    }
+
+
+    /*
+     * Returns the bucket for the hash bytes from a position onwards in a byte array.
+     */
+    private int bucketForwards(final byte[] bytes, final int position) {
+        int hash = 0;
+        for (int index = position; index < position + hashBytes; index++) {
+            hash = hash * 31 + (bytes[index] & 0xFF);
+        }
+        return (hash * HASH_MULTIPLIER) >>> hashShift;
+    }
+
+
+    /*
+     * Returns the bucket for the hash bytes from a position backwards in a byte array.
+     */
+    private int bucketBackwards(final byte[] bytes, final int position) {
+        int hash = 0;
+        for (int index = position; index > position - hashBytes; index--) {
+            hash = hash * 31 + (bytes[index] & 0xFF);
+        }
+        return (hash * HASH_MULTIPLIER) >>> hashShift;
+    }
+
+
+    /*
+     * Returns the bucket for the hash bytes from a position onwards in a ByteBuffer.
+     */
+    private int bucketForwards(final ByteBuffer buffer, final int position) {
+        int hash = 0;
+        for (int index = position; index < position + hashBytes; index++) {
+            hash = hash * 31 + (buffer.get(index) & 0xFF);
+        }
+        return (hash * HASH_MULTIPLIER) >>> hashShift;
+    }
+
+
+    /*
+     * Returns the bucket for the hash bytes from a position backwards in a ByteBuffer.
+     */
+    private int bucketBackwards(final ByteBuffer buffer, final int position) {
+        int hash = 0;
+        for (int index = position; index > position - hashBytes; index--) {
+            hash = hash * 31 + (buffer.get(index) & 0xFF);
+        }
+        return (hash * HASH_MULTIPLIER) >>> hashShift;
+    }
+
+
+    /*
+     * Returns the bucket for the hash bytes from a position onwards in a WindowReader,
+     * or -1 if the bytes are not all in the reader.
+     */
+    private int bucketForwards(final WindowReader reader, final long position) throws IOException {
+        int hash = 0;
+        for (long index = position; index < position + hashBytes; index++) {
+            final int value = reader.readByte(index);
+            if (value < 0) {
+                return -1;
+            }
+            hash = hash * 31 + value;
+        }
+        return (hash * HASH_MULTIPLIER) >>> hashShift;
+    }
+
+
+    /*
+     * Returns the bucket for the hash bytes from a position backwards in a WindowReader,
+     * or -1 if the bytes are not all in the reader.
+     */
+    private int bucketBackwards(final WindowReader reader, final long position) throws IOException {
+        if (position - hashBytes + 1 < 0) {
+            return -1;
+        }
+        int hash = 0;
+        for (long index = position; index > position - hashBytes; index--) {
+            final int value = reader.readByte(index);
+            if (value < 0) {
+                return -1;
+            }
+            hash = hash * 31 + value;
+        }
+        return (hash * HASH_MULTIPLIER) >>> hashShift;
+    }
+
+
+    /*
+     * Returns true if the bytes in the arena match the bytes from a position onwards in a byte array.
+     */
+    private boolean arenaMatches(final int arenaPosition, final byte[] bytes, final int position, final int count) {
+        final byte[] localArena = arena;
+        for (int index = 0; index < count; index++) {
+            if (localArena[arenaPosition + index] != bytes[position + index]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /*
+     * Returns true if the bytes in the arena match the bytes from a position backwards in a byte array.
+     */
+    private boolean arenaMatchesBackwards(final int arenaPosition, final byte[] bytes, final int position,
+                                          final int count) {
+        final byte[] localArena = arena;
+        for (int index = 0; index < count; index++) {
+            if (localArena[arenaPosition + index] != bytes[position - index]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /*
+     * Returns true if the bytes in the arena match the bytes from a position onwards in a ByteBuffer.
+     */
+    private boolean arenaMatches(final int arenaPosition, final ByteBuffer buffer, final int position,
+                                 final int count) {
+        final byte[] localArena = arena;
+        for (int index = 0; index < count; index++) {
+            if (localArena[arenaPosition + index] != buffer.get(position + index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /*
+     * Returns true if the bytes in the arena match the bytes from a position backwards in a ByteBuffer.
+     */
+    private boolean arenaMatchesBackwards(final int arenaPosition, final ByteBuffer buffer, final int position,
+                                          final int count) {
+        final byte[] localArena = arena;
+        for (int index = 0; index < count; index++) {
+            if (localArena[arenaPosition + index] != buffer.get(position - index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /*
+     * Returns true if the bytes in the arena match the bytes from a position backwards in a WindowReader.
+     */
+    private boolean arenaMatchesBackwards(final int arenaPosition, final WindowReader reader, final long position,
+                                          final int count) throws IOException {
+        if (position - count + 1 < 0) {
+            return false;
+        }
+        final byte[] localArena = arena;
+        for (int index = 0; index < count; index++) {
+            if ((localArena[arenaPosition + index] & 0xFF) != reader.readByte(position - index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /*
+     * Packs a number of bytes from a position onwards into a long, the first byte lowest.
+     */
+    private static long headWord(final byte[] bytes, final int position, final int count) {
+        long word = 0;
+        for (int index = count - 1; index >= 0; index--) {
+            word = (word << 8) | (bytes[position + index] & 0xFF);
+        }
+        return word;
+    }
+
+
+    /*
+     * Packs a number of bytes from a position onwards into a long, the first byte lowest.
+     */
+    private static long headWord(final ByteBuffer buffer, final int position, final int count) {
+        long word = 0;
+        for (int index = count - 1; index >= 0; index--) {
+            word = (word << 8) | (buffer.get(position + index) & 0xFF);
+        }
+        return word;
+    }
+
+
+    /*
+     * Packs a number of bytes from a position backwards into a long, the first byte lowest.
+     */
+    private static long tailWord(final byte[] bytes, final int position, final int count) {
+        long word = 0;
+        for (int index = count - 1; index >= 0; index--) {
+            word = (word << 8) | (bytes[position - index] & 0xFF);
+        }
+        return word;
+    }
+
+
+    /*
+     * Packs a number of bytes from a position backwards into a long, the first byte lowest.
+     */
+    private static long tailWord(final ByteBuffer buffer, final int position, final int count) {
+        long word = 0;
+        for (int index = count - 1; index >= 0; index--) {
+            word = (word << 8) | (buffer.get(position - index) & 0xFF);
+        }
+        return word;
+    }
+
+
+    /*
+     * Returns true if a sequence matches exactly one byte value at each of its positions.
+     */
+    private static boolean matchesSingleBytes(final SequenceMatcher sequence) {
+        for (final ByteMatcher matcher : sequence) {
+            if (matcher.getNumberOfMatchingBytes() != 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /*
+     * Returns the number of bits in the hash table, giving at least twice as many buckets as sequences.
+     */
+    private static int getTableBits(final int numSequences) {
+        int bits = MIN_TABLE_BITS;
+        while ((1 << bits) < numSequences * 2 && bits < 30) {
+            bits++;
+        }
+        return bits;
+    }
+
+
+    /*
+     * Fills in the start of each bucket and the sequences in them, in the order of the sequences.
+     */
+    private static void fillBuckets(final int[] buckets, final int[] starts, final int[] entries) {
+        for (final int bucket : buckets) {
+            starts[bucket + 1]++;
+        }
+        for (int bucket = 1; bucket < starts.length; bucket++) {
+            starts[bucket] += starts[bucket - 1];
+        }
+        final int[] next = starts.clone();
+        for (int sequence = 0; sequence < buckets.length; sequence++) {
+            entries[next[buckets[sequence]]++] = sequence;
+        }
+    }
+
+
+    private static List<SequenceMatcher> addMatch(final List<SequenceMatcher> result, final SequenceMatcher match) {
+        final List<SequenceMatcher> matches = result.isEmpty()? new ArrayList<SequenceMatcher>(2) : result;
+        matches.add(match);
+        return matches;
+    }
+
+
+    private static SequenceMatcher first(final List<SequenceMatcher> matches) {
+        return matches.isEmpty()? null : matches.get(0);
+    }
+
+
     @Override
     public String toString() {
-    	return getClass().getSimpleName() + "[num sequences:" + matchers.size() + ']'; 
+    	return getClass().getSimpleName() + "[num sequences:" + matchers.size() + ']';
     }
-    
+
 }
@@ -32,6 +32,7 @@
 package net.byteseek.matcher.multisequence;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -165,10 +166,9 @@ public final class ListMultiSequenceMatcher implements MultiSequenceMatcher {
             final int matchPosition) {
         List<SequenceMatcher> result = Collections.emptyList();         
         final long noOfBytes = bytes.length;
-        //FIXME: bounds checking doesn't look right.
-        if (matchPosition >= minimumLength - 1 && matchPosition + minimumLength < noOfBytes) {
+        if (matchPosition >= 0 && matchPosition + minimumLength <= noOfBytes) {
             final List<SequenceMatcher> localMatchers = matchers;
-            if (matchPosition + maximumLength < noOfBytes) {
+            if (matchPosition + maximumLength <= noOfBytes) {
                 for (final SequenceMatcher sequence : localMatchers) {
                     if (sequence.matchesNoBoundsCheck(bytes, matchPosition)) {
                         if (result.isEmpty()) {
@@ -270,9 +270,9 @@ public final class ListMultiSequenceMatcher implements MultiSequenceMatcher {
     @Override      
     public SequenceMatcher firstMatch(final byte[] bytes, final int matchPosition) {
         final long noOfBytes = bytes.length;
-        if (matchPosition >= minimumLength - 1 && matchPosition + minimumLength < noOfBytes) {
+        if (matchPosition >= 0 && matchPosition + minimumLength <= noOfBytes) {
             final List<SequenceMatcher> localMatchers = matchers;
-            if (matchPosition + maximumLength < noOfBytes) {
+            if (matchPosition + maximumLength <= noOfBytes) {
                 for (final SequenceMatcher sequence : localMatchers) {
                     if (sequence.matchesNoBoundsCheck(bytes, matchPosition)) {
                         return sequence;
@@ -356,9 +356,9 @@ public final class ListMultiSequenceMatcher implements MultiSequenceMatcher {
     @Override
     public boolean matches(final byte[] bytes, final int matchPosition) {
         final int noOfBytes = bytes.length;
-        if (matchPosition >= minimumLength - 1 && matchPosition + minimumLength < noOfBytes) {
+        if (matchPosition >= 0 && matchPosition + minimumLength <= noOfBytes) {
             final List<SequenceMatcher> localMatchers = matchers;
-            if (matchPosition + maximumLength < noOfBytes) {
+            if (matchPosition + maximumLength <= noOfBytes) {
                 for (final SequenceMatcher sequence : localMatchers) {
                     if (sequence.matchesNoBoundsCheck(bytes, matchPosition)) {
                         return true;
@@ -419,6 +419,112 @@ public final class ListMultiSequenceMatcher implements MultiSequenceMatcher {
     }    
     
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<SequenceMatcher> allMatches(final ByteBuffer buffer, final int matchPosition) {
+        List<SequenceMatcher> result = Collections.emptyList();
+        if (matchPosition >= 0 && matchPosition + minimumLength <= buffer.limit()) {
+            final boolean allFit = matchPosition + maximumLength <= buffer.limit();
+            final List<SequenceMatcher> localMatchers = matchers;
+            for (final SequenceMatcher sequence : localMatchers) {
+                if (allFit? sequence.matchesNoBoundsCheck(buffer, matchPosition)
+                          : sequence.matches(buffer, matchPosition)) {
+                    if (result.isEmpty()) {
+                        result = new ArrayList<SequenceMatcher>(2);
+                    }
+                    result.add(sequence);
+                }
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<SequenceMatcher> allMatchesBackwards(final ByteBuffer buffer, final int matchPosition) {
+        List<SequenceMatcher> result = Collections.emptyList();
+        if (matchPosition >= minimumLength - 1 && matchPosition < buffer.limit()) {
+            final int onePastMatchPosition = matchPosition + 1;
+            final boolean allFit = onePastMatchPosition >= maximumLength;
+            final List<SequenceMatcher> localMatchers = matchers;
+            for (final SequenceMatcher sequence : localMatchers) {
+                final int sequenceStart = onePastMatchPosition - sequence.length();
+                if (allFit? sequence.matchesNoBoundsCheck(buffer, sequenceStart)
+                          : sequence.matches(buffer, sequenceStart)) {
+                    if (result.isEmpty()) {
+                        result = new ArrayList<SequenceMatcher>(2);
+                    }
+                    result.add(sequence);
+                }
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SequenceMatcher firstMatch(final ByteBuffer buffer, final int matchPosition) {
+        if (matchPosition >= 0 && matchPosition + minimumLength <= buffer.limit()) {
+            final boolean allFit = matchPosition + maximumLength <= buffer.limit();
+            final List<SequenceMatcher> localMatchers = matchers;
+            for (final SequenceMatcher sequence : localMatchers) {
+                if (allFit? sequence.matchesNoBoundsCheck(buffer, matchPosition)
+                          : sequence.matches(buffer, matchPosition)) {
+                    return sequence;
+                }
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SequenceMatcher firstMatchBackwards(final ByteBuffer buffer, final int matchPosition) {
+        if (matchPosition >= minimumLength - 1 && matchPosition < buffer.limit()) {
+            final int onePastMatchPosition = matchPosition + 1;
+            final boolean allFit = onePastMatchPosition >= maximumLength;
+            final List<SequenceMatcher> localMatchers = matchers;
+            for (final SequenceMatcher sequence : localMatchers) {
+                final int sequenceStart = onePastMatchPosition - sequence.length();
+                if (allFit? sequence.matchesNoBoundsCheck(buffer, sequenceStart)
+                          : sequence.matches(buffer, sequenceStart)) {
+                    return sequence;
+                }
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean matches(final ByteBuffer buffer, final int matchPosition) {
+        return firstMatch(buffer, matchPosition) != null;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean matchesBackwards(final ByteBuffer buffer, final int matchPosition) {
+        return firstMatchBackwards(buffer, matchPosition) != null;
+    }
+    
+
     /**    
      * {@inheritDoc}
      */ 
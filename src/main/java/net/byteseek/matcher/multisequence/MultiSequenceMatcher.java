@@ -32,6 +32,7 @@
 package net.byteseek.matcher.multisequence;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.List;
 
@@ -69,6 +70,20 @@ public interface MultiSequenceMatcher extends Matcher {
      * @return A collection of matching SequenceMatchers or an empty collection if none matched.
      */
     public Collection<SequenceMatcher> allMatches(byte[] bytes, int matchPosition);
+
+
+    /**
+     * Returns all the SequenceMatcher objects which matched.
+     * Should never return null - always returns a collection, even if empty.
+     * <p>
+     * Positions are absolute indexes into the buffer, up to (but not including)
+     * the limit of the buffer.  The position and limit of the buffer are not altered.
+     *
+     * @param buffer The ByteBuffer to read from.
+     * @param matchPosition The position to test for a match.
+     * @return A collection of matching SequenceMatchers or an empty collection if none matched.
+     */
+    public Collection<SequenceMatcher> allMatches(ByteBuffer buffer, int matchPosition);
     
     
    
@@ -98,6 +113,19 @@ public interface MultiSequenceMatcher extends Matcher {
      * @return A collection of matching SequenceMatchers or an empty collection if none matched.
      */
     public Collection<SequenceMatcher> allMatchesBackwards(byte[] bytes, int matchPosition);    
+
+
+    /**
+     * Returns all the SequenceMatcher objects which matched backwards from
+     * the matchPosition.
+     * 
+     * Should never return null - always returns a collection, even if empty.
+     *
+     * @param buffer The ByteBuffer to read from.
+     * @param matchPosition The position to test for a match.
+     * @return A collection of matching SequenceMatchers or an empty collection if none matched.
+     */
+    public Collection<SequenceMatcher> allMatchesBackwards(ByteBuffer buffer, int matchPosition);
         
      
     /**
@@ -121,6 +149,16 @@ public interface MultiSequenceMatcher extends Matcher {
      * @return The SequenceMatcher which matched at that position, or null if none matched.
      */
     public SequenceMatcher firstMatch(byte[] bytes, int matchPosition);   
+
+
+    /**
+     * Returns the first matching sequence, or null if no sequence matched.
+     *
+     * @param buffer The ByteBuffer to read from.
+     * @param matchPosition matchPosition The position to test for a match.
+     * @return The SequenceMatcher which matched at that position, or null if none matched.
+     */
+    public SequenceMatcher firstMatch(ByteBuffer buffer, int matchPosition);
     
     
     /**
@@ -145,6 +183,27 @@ public interface MultiSequenceMatcher extends Matcher {
      * @return The SequenceMatcher which matched at that position, or null if none matched.
      */
     public SequenceMatcher firstMatchBackwards(byte[] bytes, int matchPosition);       
+
+
+    /**
+     * Returns the first matching sequence backwards from the matchPosition,
+     * or null if no sequence matched.
+     *
+     * @param buffer The ByteBuffer to read from.
+     * @param matchPosition matchPosition The position to test for a match.
+     * @return The SequenceMatcher which matched at that position, or null if none matched.
+     */
+    public SequenceMatcher firstMatchBackwards(ByteBuffer buffer, int matchPosition);
+
+
+    /**
+     * Returns whether or not there is a match at the matchPosition.
+     *
+     * @param buffer The ByteBuffer to read from.
+     * @param matchPosition The position to try to match at.
+     * @return Whether there is a match at the given position.
+     */
+    public boolean matches(ByteBuffer buffer, int matchPosition);
     
     
     /**
@@ -167,6 +226,16 @@ public interface MultiSequenceMatcher extends Matcher {
      * @return Whether there is a match at the given position.
      */    
     public boolean matchesBackwards(byte[] bytes, int matchPosition);
+
+
+    /**
+     * Returns whether or not there is a match backwards from the matchPosition
+     *
+     * @param buffer The ByteBuffer to read from.
+     * @param matchPosition The position to try to match at.
+     * @return Whether there is a match at the given position.
+     */
+    public boolean matchesBackwards(ByteBuffer buffer, int matchPosition);
     
     
     /**
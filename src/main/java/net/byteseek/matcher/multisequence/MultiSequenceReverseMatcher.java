@@ -31,6 +31,7 @@
 package net.byteseek.matcher.multisequence;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.IdentityHashMap;
@@ -241,6 +242,60 @@ public final class MultiSequenceReverseMatcher implements MultiSequenceMatcher {
     }
     
     
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<SequenceMatcher> allMatches(ByteBuffer buffer, int matchPosition) {
+        return getOriginalSequences(reversed.allMatches(buffer, matchPosition));
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<SequenceMatcher> allMatchesBackwards(ByteBuffer buffer, int matchPosition) {
+        return getOriginalSequences(reversed.allMatchesBackwards(buffer, matchPosition));
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SequenceMatcher firstMatch(ByteBuffer buffer, int matchPosition) {
+        return getOriginalSequence(reversed.firstMatch(buffer, matchPosition));
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SequenceMatcher firstMatchBackwards(ByteBuffer buffer, int matchPosition) {
+        return getOriginalSequence(reversed.firstMatchBackwards(buffer, matchPosition));
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean matches(ByteBuffer buffer, int matchPosition) {
+        return reversed.matches(buffer, matchPosition);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean matchesBackwards(ByteBuffer buffer, int matchPosition) {
+        return reversed.matchesBackwards(buffer, matchPosition);
+    }
+
+
     /**
      * Translates a collection of reversed sequence matchers back into the original
      * non-reversed ones they were created from.
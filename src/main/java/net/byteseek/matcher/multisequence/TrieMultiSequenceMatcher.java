@@ -32,15 +32,16 @@
 package net.byteseek.matcher.multisequence;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
-import net.byteseek.automata.State;
 import net.byteseek.automata.trie.Trie;
 import net.byteseek.automata.trie.TrieFactory;
+import net.byteseek.automata.trie.TrieTable;
 import net.byteseek.io.reader.windows.Window;
 import net.byteseek.io.reader.WindowReader;
 import net.byteseek.matcher.automata.SequenceMatcherTrieFactory;
@@ -54,9 +55,10 @@ import net.byteseek.utils.ArgUtils;
  * are added to it (hundreds, thousands, mjllions...), to match it performs no more
  * comparisons than required for the longest sequence in the Trie (and usually less). 
  * <p>
- * This is highly time-efficient, but takes more space to hold the Trie automata 
- * states in addition to the original list of SequenceMatchers used to construct 
- * the Trie.
+ * Once the Trie is built, it is compiled into a compact {@link TrieTable}, and the
+ * Trie itself is discarded.  Matching walks the states of the table, which are held
+ * in a few arrays rather than as a graph of objects.  The table takes much less space
+ * than the Trie, in addition to the original list of SequenceMatchers used to construct it.
  * <p>
  * Note that for a very low number of SequenceMatchers, it is possible that a simpler
  * matcher, such as the {@link ListMultiSequenceMatcher} may be faster, due to lower
@@ -71,7 +73,10 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 
 	private final static TrieFactory<SequenceMatcher>	DEFAULT_TRIE_FACTORY	= new SequenceMatcherTrieFactory();
 
-	private final Trie<SequenceMatcher>					trie;
+	private final TrieTable<SequenceMatcher>			table;
+	private final List<SequenceMatcher>					sequences;
+	private final int									minimumLength;
+	private final int									maximumLength;
 
 	/**
 	 * Constructs an immutable TrieMultiSequenceMatcher from a collection of {@link SequenceMatcher}s,
@@ -94,7 +99,11 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 			final Collection<? extends SequenceMatcher> matchers) {
 		ArgUtils.checkNullObject(factory, "factory");
 		ArgUtils.checkNullOrEmptyCollection(matchers, "matchers");
-		this.trie = factory.create(matchers);
+		final Trie<SequenceMatcher> trie = factory.create(matchers);
+		this.table = new TrieTable<SequenceMatcher>(trie);
+		this.sequences = new ArrayList<SequenceMatcher>(trie.getSequences());
+		this.minimumLength = trie.getMinimumLength();
+		this.maximumLength = trie.getMaximumLength();
 	}
 
 	/**
@@ -103,30 +112,25 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 	@Override
 	public Collection<SequenceMatcher> allMatches(final WindowReader reader, final long matchPosition)
 			throws IOException {
-		List<SequenceMatcher> result = Collections.emptyList();
-		State<SequenceMatcher> state = trie.getInitialState();
+		Collection<SequenceMatcher> result = Collections.emptyList();
+		int state = TrieTable.INITIAL_STATE;
 		long currentPosition = matchPosition;
-		Window window = reader.getWindow(matchPosition);
+		Window window = reader.getWindow(currentPosition);
 		while (window != null) {
 			final int windowLength = window.length();
 			final byte[] array = window.getArray();
 			int windowPosition = reader.getWindowOffset(currentPosition);
 			while (windowPosition < windowLength) {
-				final byte currentByte = array[windowPosition++];
-				state = state.getNextState(currentByte);
-				if (state == null) {
+				state = table.getNextState(state, array[windowPosition++]);
+				if (state == TrieTable.NO_STATE) {
 					return result;
 				}
-				if (state.isFinal()) {
-					final Collection<SequenceMatcher> matching = state.getAssociations();
-					if (result.isEmpty()) {
-						result = new ArrayList<SequenceMatcher>(matching.size() * 2);
-					}
-					result.addAll(matching);
+				if (table.isFinal(state)) {
+					result = addMatches(result, state);
 				}
 			}
-			currentPosition += windowLength;
-			window = reader.getWindow(matchPosition);
+			currentPosition = window.getNextWindowPosition();
+			window = reader.getWindow(currentPosition);
 		}
 		return result;
 	}
@@ -136,21 +140,18 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 	 */
 	@Override
 	public Collection<SequenceMatcher> allMatches(final byte[] bytes, final int matchPosition) {
-		List<SequenceMatcher> result = Collections.emptyList();
+		Collection<SequenceMatcher> result = Collections.emptyList();
 		final int noOfBytes = bytes.length;
-		final int minimumLength = trie.getMinimumLength();
-		if (matchPosition >= minimumLength - 1 && matchPosition + minimumLength < noOfBytes) {
-			State<SequenceMatcher> state = trie.getInitialState();
+		if (matchPosition >= 0 && matchPosition + minimumLength <= noOfBytes) {
+			int state = TrieTable.INITIAL_STATE;
 			int currentPosition = matchPosition;
-			while (state != null && currentPosition < noOfBytes) {
-				final byte currentByte = bytes[currentPosition++];
-				state = state.getNextState(currentByte);
-				if (state != null && state.isFinal()) {
-					final Collection<SequenceMatcher> matching = state.getAssociations();
-					if (result.isEmpty()) {
-						result = new ArrayList<SequenceMatcher>(matching.size() * 2);
-					}
-					result.addAll(matching);
+			while (currentPosition < noOfBytes) {
+				state = table.getNextState(state, bytes[currentPosition++]);
+				if (state == TrieTable.NO_STATE) {
+					break;
+				}
+				if (table.isFinal(state)) {
+					result = addMatches(result, state);
 				}
 			}
 		}
@@ -163,30 +164,24 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 	@Override
 	public Collection<SequenceMatcher> allMatchesBackwards(final WindowReader reader,
 			final long matchPosition) throws IOException {
-		List<SequenceMatcher> result = Collections.emptyList();
-		State<SequenceMatcher> state = trie.getInitialState();
+		Collection<SequenceMatcher> result = Collections.emptyList();
+		int state = TrieTable.INITIAL_STATE;
 		long currentPosition = matchPosition;
-		Window window = reader.getWindow(matchPosition);
+		Window window = reader.getWindow(currentPosition);
 		while (window != null) {
-			final int windowLength = window.length();
 			final byte[] array = window.getArray();
 			int windowPosition = reader.getWindowOffset(currentPosition);
 			while (windowPosition >= 0) {
-				final byte currentByte = array[windowPosition--];
-				state = state.getNextState(currentByte);
-				if (state == null) {
+				state = table.getNextState(state, array[windowPosition--]);
+				if (state == TrieTable.NO_STATE) {
 					return result;
 				}
-				if (state.isFinal()) {
-					final Collection<SequenceMatcher> matching = state.getAssociations();
-					if (result.isEmpty()) {
-						result = new ArrayList<SequenceMatcher>(matching.size() * 2);
-					}
-					result.addAll(matching);
+				if (table.isFinal(state)) {
+					result = addMatches(result, state);
 				}
 			}
-			currentPosition -= windowLength;
-			window = reader.getWindow(matchPosition);
+			currentPosition = window.getWindowPosition() - 1;
+			window = reader.getWindow(currentPosition);
 		}
 		return result;
 	}
@@ -197,21 +192,18 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 	@Override
 	public Collection<SequenceMatcher> allMatchesBackwards(final byte[] bytes,
 			final int matchPosition) {
-		List<SequenceMatcher> result = Collections.emptyList();
+		Collection<SequenceMatcher> result = Collections.emptyList();
 		final int noOfBytes = bytes.length;
-		final int minimumLength = trie.getMinimumLength();
-		if (matchPosition >= minimumLength - 1 && matchPosition + minimumLength < noOfBytes) {
-			State<SequenceMatcher> state = trie.getInitialState();
+		if (matchPosition >= minimumLength - 1 && matchPosition < noOfBytes) {
+			int state = TrieTable.INITIAL_STATE;
 			int currentPosition = matchPosition;
-			while (state != null && currentPosition >= 0) {
-				final byte currentByte = bytes[currentPosition--];
-				state = state.getNextState(currentByte);
-				if (state != null && state.isFinal()) {
-					final Collection<SequenceMatcher> matching = state.getAssociations();
-					if (result.isEmpty()) {
-						result = new ArrayList<SequenceMatcher>(matching.size() * 2);
-					}
-					result.addAll(matching);
+			while (currentPosition >= 0) {
+				state = table.getNextState(state, bytes[currentPosition--]);
+				if (state == TrieTable.NO_STATE) {
+					break;
+				}
+				if (table.isFinal(state)) {
+					result = addMatches(result, state);
 				}
 			}
 		}
@@ -224,25 +216,24 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 	@Override
 	public SequenceMatcher firstMatch(final WindowReader reader, final long matchPosition)
 			throws IOException {
-		State<SequenceMatcher> state = trie.getInitialState();
+		int state = TrieTable.INITIAL_STATE;
 		long currentPosition = matchPosition;
-		Window window = reader.getWindow(matchPosition);
+		Window window = reader.getWindow(currentPosition);
 		while (window != null) {
 			final int windowLength = window.length();
 			final byte[] array = window.getArray();
 			int windowPosition = reader.getWindowOffset(currentPosition);
 			while (windowPosition < windowLength) {
-				final byte currentByte = array[windowPosition++];
-				state = state.getNextState(currentByte);
-				if (state == null) {
+				state = table.getNextState(state, array[windowPosition++]);
+				if (state == TrieTable.NO_STATE) {
 					return null;
 				}
-				if (state.isFinal()) {
+				if (table.isFinal(state)) {
 					return getFirstAssociation(state);
 				}
 			}
-			currentPosition += windowLength;
-			window = reader.getWindow(matchPosition);
+			currentPosition = window.getNextWindowPosition();
+			window = reader.getWindow(currentPosition);
 		}
 		return null;
 	}
@@ -254,12 +245,14 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 	public SequenceMatcher firstMatch(final byte[] bytes, final int matchPosition) {
 		if (matchPosition >= 0) {
 			final int noOfBytes = bytes.length;
-			State<SequenceMatcher> state = trie.getInitialState();
+			int state = TrieTable.INITIAL_STATE;
 			int currentPosition = matchPosition;
-			while (state != null && currentPosition < noOfBytes) {
-				final byte currentByte = bytes[currentPosition++];
-				state = state.getNextState(currentByte);
-				if (state != null && state.isFinal()) {
+			while (currentPosition < noOfBytes) {
+				state = table.getNextState(state, bytes[currentPosition++]);
+				if (state == TrieTable.NO_STATE) {
+					break;
+				}
+				if (table.isFinal(state)) {
 					return getFirstAssociation(state);
 				}
 			}
@@ -273,25 +266,23 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 	@Override
 	public SequenceMatcher firstMatchBackwards(final WindowReader reader, final long matchPosition)
 			throws IOException {
-		State<SequenceMatcher> state = trie.getInitialState();
+		int state = TrieTable.INITIAL_STATE;
 		long currentPosition = matchPosition;
-		Window window = reader.getWindow(matchPosition);
+		Window window = reader.getWindow(currentPosition);
 		while (window != null) {
-			final int windowLength = window.length();
 			final byte[] array = window.getArray();
 			int windowPosition = reader.getWindowOffset(currentPosition);
 			while (windowPosition >= 0) {
-				final byte currentByte = array[windowPosition--];
-				state = state.getNextState(currentByte);
-				if (state == null) {
+				state = table.getNextState(state, array[windowPosition--]);
+				if (state == TrieTable.NO_STATE) {
 					return null;
 				}
-				if (state.isFinal()) {
+				if (table.isFinal(state)) {
 					return getFirstAssociation(state);
 				}
 			}
-			currentPosition -= windowLength;
-			window = reader.getWindow(matchPosition);
+			currentPosition = window.getWindowPosition() - 1;
+			window = reader.getWindow(currentPosition);
 		}
 		return null;
 	}
@@ -303,12 +294,14 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 	public SequenceMatcher firstMatchBackwards(final byte[] bytes, final int matchPosition) {
 		final int noOfBytes = bytes.length;
 		if (matchPosition < noOfBytes) {
-			State<SequenceMatcher> state = trie.getInitialState();
+			int state = TrieTable.INITIAL_STATE;
 			int currentPosition = matchPosition;
-			while (state != null && currentPosition >= 0) {
-				final byte currentByte = bytes[currentPosition--];
-				state = state.getNextState(currentByte);
-				if (state != null && state.isFinal()) {
+			while (currentPosition >= 0) {
+				state = table.getNextState(state, bytes[currentPosition--]);
+				if (state == TrieTable.NO_STATE) {
+					break;
+				}
+				if (table.isFinal(state)) {
 					return getFirstAssociation(state);
 				}
 			}
@@ -349,12 +342,116 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 		return firstMatchBackwards(bytes, matchPosition) != null;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Collection<SequenceMatcher> allMatches(final ByteBuffer buffer, final int matchPosition) {
+		Collection<SequenceMatcher> result = Collections.emptyList();
+		final int limit = buffer.limit();
+		if (matchPosition >= 0 && matchPosition + minimumLength <= limit) {
+			int state = TrieTable.INITIAL_STATE;
+			int currentPosition = matchPosition;
+			while (currentPosition < limit) {
+				state = table.getNextState(state, buffer.get(currentPosition++));
+				if (state == TrieTable.NO_STATE) {
+					break;
+				}
+				if (table.isFinal(state)) {
+					result = addMatches(result, state);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Collection<SequenceMatcher> allMatchesBackwards(final ByteBuffer buffer, final int matchPosition) {
+		Collection<SequenceMatcher> result = Collections.emptyList();
+		if (matchPosition >= minimumLength - 1 && matchPosition < buffer.limit()) {
+			int state = TrieTable.INITIAL_STATE;
+			int currentPosition = matchPosition;
+			while (currentPosition >= 0) {
+				state = table.getNextState(state, buffer.get(currentPosition--));
+				if (state == TrieTable.NO_STATE) {
+					break;
+				}
+				if (table.isFinal(state)) {
+					result = addMatches(result, state);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SequenceMatcher firstMatch(final ByteBuffer buffer, final int matchPosition) {
+		if (matchPosition >= 0) {
+			final int limit = buffer.limit();
+			int state = TrieTable.INITIAL_STATE;
+			int currentPosition = matchPosition;
+			while (currentPosition < limit) {
+				state = table.getNextState(state, buffer.get(currentPosition++));
+				if (state == TrieTable.NO_STATE) {
+					break;
+				}
+				if (table.isFinal(state)) {
+					return getFirstAssociation(state);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SequenceMatcher firstMatchBackwards(final ByteBuffer buffer, final int matchPosition) {
+		if (matchPosition < buffer.limit()) {
+			int state = TrieTable.INITIAL_STATE;
+			int currentPosition = matchPosition;
+			while (currentPosition >= 0) {
+				state = table.getNextState(state, buffer.get(currentPosition--));
+				if (state == TrieTable.NO_STATE) {
+					break;
+				}
+				if (table.isFinal(state)) {
+					return getFirstAssociation(state);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean matches(final ByteBuffer buffer, final int matchPosition) {
+		return firstMatch(buffer, matchPosition) != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean matchesBackwards(final ByteBuffer buffer, final int matchPosition) {
+		return firstMatchBackwards(buffer, matchPosition) != null;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public int getMinimumLength() {
-		return trie.getMinimumLength();
+		return minimumLength;
 	}
 
 	/**
@@ -362,7 +459,7 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 	 */
 	@Override
 	public int getMaximumLength() {
-		return trie.getMaximumLength();
+		return maximumLength;
 	}
 
 	/**
@@ -370,7 +467,7 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 	 */
 	@Override
 	public MultiSequenceMatcher reverse() {
-		return new TrieMultiSequenceMatcher(MultiSequenceUtils.reverseMatchers(trie.getSequences()));
+		return new TrieMultiSequenceMatcher(MultiSequenceUtils.reverseMatchers(sequences));
 	}
 
 	/**
@@ -386,7 +483,16 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 	 */
 	@Override
 	public List<SequenceMatcher> getSequenceMatchers() {
-		return new ArrayList<SequenceMatcher>(trie.getSequences());
+		return new ArrayList<SequenceMatcher>(sequences);
+	}
+
+	/**
+	 * Returns the compiled {@link TrieTable} this matcher matches with.
+	 *
+	 * @return The TrieTable this matcher matches with.
+	 */
+	public TrieTable<SequenceMatcher> getTrieTable() {
+		return table;
 	}
 
 	/**
@@ -398,19 +504,43 @@ public final class TrieMultiSequenceMatcher implements MultiSequenceMatcher {
 	 */
 	@Override
 	public String toString() {
-		return getClass().getSimpleName() + "[sequences:" + trie.getSequences() + ']';
+		return getClass().getSimpleName() + "[sequences:" + sequences + ']';
+	}
+
+	/**
+	 * Adds the SequenceMatchers associated with a final state to the matches found so far.
+	 * The unmodifiable associations of the first final state are returned without copying
+	 * them; a list is only created if a later state also matches.
+	 *
+	 * @param result The matches found so far.
+	 * @param state The final state whose associations match.
+	 * @return A collection of all the matches found so far.
+	 */
+	private Collection<SequenceMatcher> addMatches(final Collection<SequenceMatcher> result, final int state) {
+		final Collection<SequenceMatcher> matching = table.getAssociations(state);
+		if (result.isEmpty()) {
+			return matching;
+		}
+		if (result instanceof ArrayList) {
+			result.addAll(matching);
+			return result;
+		}
+		final List<SequenceMatcher> combined = new ArrayList<SequenceMatcher>((result.size() + matching.size()) * 2);
+		combined.addAll(result);
+		combined.addAll(matching);
+		return combined;
 	}
 
 	/**
 	 * Returns the SequenceMatcher which happens to be the first one associated
-	 * with an automata State.  A State may be associated with zero to many
+	 * with a state in the table.  A state may be associated with zero to many
 	 * SequenceMatchers.  This is to support the firstMatch functions.
 	 * 
-	 * @param state The State to get the first associated SequenceMatcher from.
+	 * @param state The state to get the first associated SequenceMatcher from.
 	 * @return The first associated SequenceMatcher, or null if there are none.
 	 */
-	private SequenceMatcher getFirstAssociation(final State<SequenceMatcher> state) {
-		final Iterator<SequenceMatcher> associationIterator = state.associationIterator();
+	private SequenceMatcher getFirstAssociation(final int state) {
+		final Iterator<SequenceMatcher> associationIterator = table.getAssociations(state).iterator();
 		if (associationIterator.hasNext()) {
 			return associationIterator.next();
 		}
@@ -32,6 +32,7 @@
 package net.byteseek.matcher.sequence;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -510,6 +511,37 @@ public final class ByteMatcherSequenceMatcher implements SequenceMatcher {
         }
         return true;
     }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the ByteBuffer passed in is null.
+     */
+    @Override
+    public boolean matches(final ByteBuffer buffer, final int matchPosition) {
+        return matchPosition + length <= buffer.limit() && matchPosition >= 0 &&
+               matchesNoBoundsCheck(buffer, matchPosition);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the ByteBuffer passed in is null.
+     */
+    @Override
+    public boolean matchesNoBoundsCheck(final ByteBuffer buffer, final int matchPosition) {
+        int position = matchPosition;
+        final ByteMatcher[] localMatchers = matchers;
+        final int endIndex = endArrayIndex;
+        for (int matcherPosition = startArrayIndex; matcherPosition < endIndex; matcherPosition++) {
+            if (!localMatchers[matcherPosition].matches(buffer.get(position++))) {
+                return false;
+            }
+        }
+        return true;
+    }
     
 
     /**
@@ -979,6 +1011,27 @@ public final class ByteMatcherSequenceMatcher implements SequenceMatcher {
             return true;
 		}
 
+
+		@Override
+		public boolean matches(final ByteBuffer buffer, final int matchPosition) {
+			return matchPosition + length() <= buffer.limit() && matchPosition >= 0 &&
+				   matchesNoBoundsCheck(buffer, matchPosition);
+		}
+
+
+		@Override
+		public boolean matchesNoBoundsCheck(final ByteBuffer buffer, final int matchPosition) {
+			int position = matchPosition;
+			final ByteMatcher[] matchArray = matchers;
+			final int endingIndex = startArrayIndex;
+			for (int matchIndex = endArrayIndex - 1; matchIndex >= endingIndex; matchIndex--) {
+				if (!matchArray[matchIndex].matches(buffer.get(position++))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
 		
 		@Override
 		public ByteMatcher getMatcherForPosition(final int position) {
@@ -32,6 +32,7 @@
 package net.byteseek.matcher.sequence;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -358,6 +359,37 @@ public final class ByteSequenceMatcher implements SequenceMatcher {
         }
         return true;
     }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the ByteBuffer passed in is null.
+     */
+    @Override
+    public boolean matches(final ByteBuffer buffer, final int matchPosition) {
+        return matchPosition + endArrayIndex - startArrayIndex <= buffer.limit() && matchPosition >= 0 &&
+               matchesNoBoundsCheck(buffer, matchPosition);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the ByteBuffer passed in is null.
+     */
+    @Override
+    public boolean matchesNoBoundsCheck(final ByteBuffer buffer, final int matchPosition) {
+        int position = matchPosition;
+        final byte[] matchArray = byteArray;
+        final int endingIndex = endArrayIndex;
+        for (int matchIndex = startArrayIndex; matchIndex < endingIndex; matchIndex++) {
+            if (matchArray[matchIndex] != buffer.get(position++)) {
+                return false;
+            }
+        }
+        return true;
+    }
     
     
     /**
@@ -647,6 +679,33 @@ public final class ByteSequenceMatcher implements SequenceMatcher {
         }
 
 
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean matches(final ByteBuffer buffer, final int matchPosition) {
+            return matchPosition + length() <= buffer.limit() && matchPosition >= 0 &&
+                   matchesNoBoundsCheck(buffer, matchPosition);
+        }
+
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean matchesNoBoundsCheck(final ByteBuffer buffer, final int matchPosition) {
+            int position = matchPosition;
+            final byte[] matchArray = byteArray;
+            final int endingIndex = startArrayIndex;
+            for (int matchIndex = endArrayIndex - 1; matchIndex >= endingIndex; matchIndex--) {
+                if (matchArray[matchIndex] != buffer.get(position++)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+
         /**
          * {@inheritDoc}
          */
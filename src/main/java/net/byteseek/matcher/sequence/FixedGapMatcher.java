@@ -32,6 +32,7 @@
 package net.byteseek.matcher.sequence;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
@@ -137,6 +138,31 @@ public final class FixedGapMatcher implements SequenceMatcher {
     public boolean matchesNoBoundsCheck(final byte[] bytes, final int matchPosition) {
         return true;
     }
+
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the ByteBuffer is null.
+     */
+    @Override
+    public boolean matches(final ByteBuffer buffer, final int matchPosition) {
+        return matchPosition + length <= buffer.limit() && matchPosition >= 0;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Note that this implementation will always return true, even if the ByteBuffer passed in is
+     * null or empty, or the matchPostition is negative.
+     *
+     */
+    @Override
+    public boolean matchesNoBoundsCheck(final ByteBuffer buffer, final int matchPosition) {
+        return true;
+    }
     
     
     /**
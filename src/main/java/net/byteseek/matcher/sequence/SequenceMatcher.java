@@ -31,6 +31,8 @@
 
 package net.byteseek.matcher.sequence;
 
+import java.nio.ByteBuffer;
+
 import net.byteseek.matcher.Matcher;
 import net.byteseek.matcher.bytes.ByteMatcher;
 
@@ -77,6 +79,42 @@ import net.byteseek.matcher.bytes.ByteMatcher;
      * @throws NullPointerException if the byte array passed in is null.
      */
     public boolean matchesNoBoundsCheck(byte[] bytes, int matchPosition);    
+
+
+    /**
+     * Returns whether there is a match or not at the given position in a ByteBuffer.
+     * If the position to match at does not exist in the buffer, then no exception
+     * is thrown - there will simply be no match.
+     * <p>
+     * Positions are absolute indexes into the buffer, from zero up to (but not including)
+     * the limit of the buffer.  The position and limit of the buffer are not altered,
+     * so direct and read-only buffers can be matched directly, without copying them
+     * into a byte array first.
+     *
+     * @param buffer The ByteBuffer to read from.
+     * @param matchPosition The position to try to match at.
+     * @return Whether there is a match at the given position.
+     * @throws NullPointerException if the ByteBuffer passed in is null.
+     */
+    public boolean matches(ByteBuffer buffer, int matchPosition);
+
+
+    /**
+     * Returns whether there is a match or not at the given position in a ByteBuffer.
+     * <p>
+     * It does not perform any bounds checking, so an IndexOutOfBoundsException
+     * can be thrown by this method if matching is outside the limit of the buffer.
+     * As with {@link #matchesNoBoundsCheck(byte[], int)}, it is intended for use by
+     * search algorithms which have already assured that matching is safe.
+     *
+     * @param buffer The ByteBuffer to read from.
+     * @param matchPosition The position to try to match at.
+     * @return Whether there is a match at the given position.
+     * @throws IndexOutOfBoundsException if a match is made outside the limit of
+     *                                   the buffer.
+     * @throws NullPointerException if the ByteBuffer passed in is null.
+     */
+    public boolean matchesNoBoundsCheck(ByteBuffer buffer, int matchPosition);
     
     
     /**
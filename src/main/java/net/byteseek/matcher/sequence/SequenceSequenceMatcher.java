@@ -32,6 +32,7 @@
 package net.byteseek.matcher.sequence;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -222,6 +223,39 @@ public final class SequenceSequenceMatcher implements SequenceMatcher {
         }
         return true;
     }
+
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the ByteBuffer passed in is null.
+     */
+    @Override
+    public boolean matches(final ByteBuffer buffer, final int matchPosition) {
+        return matchPosition + totalLength <= buffer.limit() && matchPosition >= 0 &&
+               matchesNoBoundsCheck(buffer, matchPosition);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the ByteBuffer passed in is null.
+     */
+    @Override
+    public boolean matchesNoBoundsCheck(final ByteBuffer buffer, final int matchPosition) {
+        int matchAt = matchPosition;
+        final SequenceMatcher[] localMatchers = matchers;
+        for (final SequenceMatcher matcher : localMatchers) {
+            if (matcher.matchesNoBoundsCheck(buffer, matchAt)) {
+                matchAt += matcher.length();
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
     
     
     /**
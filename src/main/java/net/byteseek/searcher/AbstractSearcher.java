@@ -32,6 +32,7 @@
 package net.byteseek.searcher;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import net.byteseek.io.reader.WindowReader;
@@ -40,6 +41,19 @@ import net.byteseek.io.reader.WindowReader;
  * An abstract searcher implementation which provides default implementations of
  * many of the overloaded search methods, providing default values to the real
  * search methods.
+ * <p>
+ * It also provides a default implementation of searching in a {@link java.nio.ByteBuffer}.
+ * If the buffer simply wraps an entire byte array, the array is searched directly.
+ * Otherwise, the buffer is searched in chunks, copying each chunk (plus enough bytes after
+ * it to complete a match) into a byte array and searching that.  Chunks start small and
+ * double in size, so a match near the search position is found without copying the rest
+ * of the buffer.  Subclasses which know the longest match they can make should override
+ * {@link #getMaximumMatchLength()} so the chunks can be bounded.
+ * <p>
+ * Searchers which can search a buffer in place should override
+ * {@link #searchForwards(java.nio.ByteBuffer, int, int)} and
+ * {@link #searchBackwards(java.nio.ByteBuffer, int, int)} instead, for example by
+ * writing their search loop once against a {@link ByteAccessor}.
  * 
  * @param <T>
  *            The type of object returned on a match by this Searcher.
@@ -47,6 +61,14 @@ import net.byteseek.io.reader.WindowReader;
  */
 public abstract class AbstractSearcher<T> implements Searcher<T> {
 
+	/**
+	 * Returned by {@link #getMaximumMatchLength()} if the longest match is not known.
+	 */
+	protected static final int UNKNOWN_MATCH_LENGTH = Integer.MAX_VALUE;
+
+	private static final int FIRST_CHUNK_SIZE = 256;
+	private static final int MAX_CHUNK_SIZE   = 65536;
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -117,6 +139,173 @@ public abstract class AbstractSearcher<T> implements Searcher<T> {
 		return searchBackwards(bytes, bytes.length - 1, 0);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This default implementation searches the array backing the buffer if it simply
+	 * wraps an entire array, otherwise it copies the buffer into arrays in chunks
+	 * from the search position, stopping at the first chunk with a match.
+	 */
+	@Override
+	public List<SearchResult<T>> searchForwards(final ByteBuffer buffer,
+			final int fromPosition, final int toPosition) {
+		if (wrapsEntireArray(buffer)) {
+			return searchForwards(buffer.array(), fromPosition, toPosition);
+		}
+		final int lastBufferPosition = buffer.limit() - 1;
+		final int lastPosition = toPosition < lastBufferPosition ? toPosition : lastBufferPosition;
+		final int maxLength = getMaximumMatchLength();
+		int chunkSize = getFirstChunkSize(maxLength);
+		int chunkStart = fromPosition > 0 ? fromPosition : 0;
+		while (chunkStart <= lastPosition) {
+			final int chunkEnd = lastPosition - chunkStart < chunkSize ? lastPosition : chunkStart + chunkSize - 1;
+			final byte[] chunk = copyBytes(buffer, chunkStart, copyEnd(chunkEnd, maxLength, lastBufferPosition));
+			final List<SearchResult<T>> results = searchForwards(chunk, 0, chunkEnd - chunkStart);
+			if (!results.isEmpty()) {
+				return SearchUtils.addPositionToResults(results, chunkStart);
+			}
+			if (chunkEnd == lastPosition) {
+				break;
+			}
+			chunkStart = chunkEnd + 1;
+			chunkSize = nextChunkSize(chunkSize);
+		}
+		return SearchUtils.noResults();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<SearchResult<T>> searchForwards(final ByteBuffer buffer,
+			final int fromPosition) {
+		return searchForwards(buffer, fromPosition, buffer.limit() - 1);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<SearchResult<T>> searchForwards(final ByteBuffer buffer) {
+		return searchForwards(buffer, 0, buffer.limit() - 1);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This default implementation searches the array backing the buffer if it simply
+	 * wraps an entire array, otherwise it copies the buffer into arrays in chunks
+	 * back from the search position, stopping at the first chunk with a match.
+	 */
+	@Override
+	public List<SearchResult<T>> searchBackwards(final ByteBuffer buffer,
+			final int fromPosition, final int toPosition) {
+		if (wrapsEntireArray(buffer)) {
+			return searchBackwards(buffer.array(), fromPosition, toPosition);
+		}
+		final int lastBufferPosition = buffer.limit() - 1;
+		final int lastPosition = toPosition > 0 ? toPosition : 0;
+		final int maxLength = getMaximumMatchLength();
+		int chunkSize = getFirstChunkSize(maxLength);
+		int chunkEnd = fromPosition < lastBufferPosition ? fromPosition : lastBufferPosition;
+		while (chunkEnd >= lastPosition) {
+			final int chunkStart = chunkEnd - lastPosition < chunkSize ? lastPosition : chunkEnd - chunkSize + 1;
+			final byte[] chunk = copyBytes(buffer, chunkStart, copyEnd(chunkEnd, maxLength, lastBufferPosition));
+			final List<SearchResult<T>> results = searchBackwards(chunk, chunkEnd - chunkStart, 0);
+			if (!results.isEmpty()) {
+				return SearchUtils.addPositionToResults(results, chunkStart);
+			}
+			chunkEnd = chunkStart - 1;
+			chunkSize = nextChunkSize(chunkSize);
+		}
+		return SearchUtils.noResults();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<SearchResult<T>> searchBackwards(final ByteBuffer buffer,
+			final int fromPosition) {
+		return searchBackwards(buffer, fromPosition, 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<SearchResult<T>> searchBackwards(final ByteBuffer buffer) {
+		return searchBackwards(buffer, buffer.limit() - 1, 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This default implementation repeatedly calls
+	 * {@link #searchForwards(net.byteseek.io.reader.WindowReader, long, long)},
+	 * so it still allocates a list for each match.  Searchers which can report
+	 * matches directly should override it.
+	 */
+	@Override
+	public boolean searchForwards(final WindowReader reader, final long fromPosition,
+			final long toPosition, final SearchListener<T> listener) throws IOException {
+		long searchPosition = fromPosition > 0 ? fromPosition : 0;
+		while (searchPosition <= toPosition) {
+			final List<SearchResult<T>> results = searchForwards(reader, searchPosition, toPosition);
+			if (results.isEmpty()) {
+				break;
+			}
+			if (!SearchUtils.reportResults(results, 0, listener)) {
+				return false;
+			}
+			searchPosition = results.get(results.size() - 1).getMatchPosition() + 1;
+		}
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean searchForwards(final WindowReader reader, final SearchListener<T> listener)
+			throws IOException {
+		return searchForwards(reader, 0, Long.MAX_VALUE, listener);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This default implementation repeatedly calls
+	 * {@link #searchForwards(byte[], int, int)}, so it still allocates a list
+	 * for each match.  Searchers which can report matches directly should
+	 * override it.
+	 */
+	@Override
+	public boolean searchForwards(final byte[] bytes, final int fromPosition,
+			final int toPosition, final SearchListener<T> listener) {
+		final int lastPosition = toPosition < bytes.length ? toPosition : bytes.length - 1;
+		int searchPosition = fromPosition > 0 ? fromPosition : 0;
+		while (searchPosition <= lastPosition) {
+			final List<SearchResult<T>> results = searchForwards(bytes, searchPosition, lastPosition);
+			if (results.isEmpty()) {
+				break;
+			}
+			if (!SearchUtils.reportResults(results, 0, listener)) {
+				return false;
+			}
+			searchPosition = (int) results.get(results.size() - 1).getMatchPosition() + 1;
+		}
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean searchForwards(final byte[] bytes, final SearchListener<T> listener) {
+		return searchForwards(bytes, 0, bytes.length - 1, listener);
+	}
+
 	/**
 	 * Returns a position guaranteed to be within the length of the reader, or
 	 * -1 if the reader itself has a length of zero.
@@ -152,4 +341,51 @@ public abstract class AbstractSearcher<T> implements Searcher<T> {
 		return reader.getWindow(positionToTry) != null ? positionToTry : reader
 				.length() - 1;
 	}
+
+	/**
+	 * Returns true if the ByteBuffer is backed by an accessible array, and positions
+	 * in the buffer are identical to positions in the array, up to the end of the array.
+	 * 
+	 * @param buffer The ByteBuffer to test.
+	 * @return Whether positions in the buffer and its backing array are identical.
+	 */
+	protected static boolean wrapsEntireArray(final ByteBuffer buffer) {
+		return buffer.hasArray() && buffer.arrayOffset() == 0 &&
+			   buffer.limit() == buffer.array().length;
+	}
+
+	/**
+	 * Returns the length of the longest match this searcher can make, used to bound the
+	 * bytes copied when searching a {@link java.nio.ByteBuffer} which does not simply wrap
+	 * an array.  This default implementation returns {@link #UNKNOWN_MATCH_LENGTH}, in which
+	 * case the whole range from the search position is copied at once.
+	 * 
+	 * @return The length of the longest match this searcher can make,
+	 *         or {@link #UNKNOWN_MATCH_LENGTH} if it is not known.
+	 */
+	protected int getMaximumMatchLength() {
+		return UNKNOWN_MATCH_LENGTH;
+	}
+
+	private static int getFirstChunkSize(final int maxLength) {
+		return maxLength == UNKNOWN_MATCH_LENGTH ? Integer.MAX_VALUE
+			 : maxLength > FIRST_CHUNK_SIZE ? maxLength : FIRST_CHUNK_SIZE;
+	}
+
+	private static int nextChunkSize(final int chunkSize) {
+		return chunkSize < MAX_CHUNK_SIZE ? chunkSize << 1 : chunkSize;
+	}
+
+	private static int copyEnd(final int chunkEnd, final int maxLength, final int lastBufferPosition) {
+		final long matchEnd = (long) chunkEnd + maxLength - 1;
+		return matchEnd < lastBufferPosition ? (int) matchEnd : lastBufferPosition;
+	}
+
+	private static byte[] copyBytes(final ByteBuffer buffer, final int fromPosition, final int toPosition) {
+		final byte[] bytes = new byte[toPosition - fromPosition + 1];
+		final ByteBuffer view = buffer.duplicate();
+		view.position(fromPosition);
+		view.get(bytes);
+		return bytes;
+	}
 }
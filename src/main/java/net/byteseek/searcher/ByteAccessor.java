@@ -0,0 +1,155 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package net.byteseek.searcher;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+import net.byteseek.matcher.multisequence.MultiSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+
+/**
+ * Gives a search loop the same access to the bytes of a byte array or a
+ * {@link java.nio.ByteBuffer}, so a searcher can search both in place with a
+ * single loop.  A ByteBuffer is read with absolute gets, so its position and
+ * limit are never altered, and its length is its limit.
+ * <p>
+ * Each method tests whether it is accessing an array.  As the test never changes
+ * for an accessor, the JIT hoists it out of a search loop, leaving the array loop
+ * as fast as one written for arrays alone.
+ *
+ * @author Matt Palmer
+ */
+public final class ByteAccessor {
+
+	private final byte[] array;
+	private final ByteBuffer buffer;
+	private final int length;
+
+	private ByteAccessor(final byte[] array, final ByteBuffer buffer, final int length) {
+		this.array  = array;
+		this.buffer = buffer;
+		this.length = length;
+	}
+
+	/**
+	 * Returns a ByteAccessor for a byte array.
+	 *
+	 * @param bytes The byte array to access.
+	 * @return A ByteAccessor for the byte array.
+	 * @throws NullPointerException if the array is null.
+	 */
+	public static ByteAccessor of(final byte[] bytes) {
+		return new ByteAccessor(bytes, null, bytes.length);
+	}
+
+	/**
+	 * Returns a ByteAccessor for a ByteBuffer.  If the buffer simply wraps an
+	 * entire byte array, the array is accessed directly.
+	 *
+	 * @param buffer The ByteBuffer to access.
+	 * @return A ByteAccessor for the ByteBuffer.
+	 * @throws NullPointerException if the buffer is null.
+	 */
+	public static ByteAccessor of(final ByteBuffer buffer) {
+		return AbstractSearcher.wrapsEntireArray(buffer) ? of(buffer.array())
+				                                         : new ByteAccessor(null, buffer, buffer.limit());
+	}
+
+	/**
+	 * Returns the number of bytes which can be accessed.
+	 *
+	 * @return The number of bytes which can be accessed.
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Returns the byte at a position.  The position is not checked.
+	 *
+	 * @param position The position of the byte.
+	 * @return The byte at the position.
+	 */
+	public byte get(final int position) {
+		return array != null ? array[position] : buffer.get(position);
+	}
+
+	/**
+	 * Returns whether a SequenceMatcher matches at a position.
+	 *
+	 * @param matcher  The SequenceMatcher to match.
+	 * @param position The position to match at.
+	 * @return Whether the SequenceMatcher matches at the position.
+	 */
+	public boolean matches(final SequenceMatcher matcher, final int position) {
+		return array != null ? matcher.matches(array, position) : matcher.matches(buffer, position);
+	}
+
+	/**
+	 * Returns whether a SequenceMatcher matches at a position, without checking
+	 * that the sequence fits.
+	 *
+	 * @param matcher  The SequenceMatcher to match.
+	 * @param position The position to match at.
+	 * @return Whether the SequenceMatcher matches at the position.
+	 */
+	public boolean matchesNoBoundsCheck(final SequenceMatcher matcher, final int position) {
+		return array != null ? matcher.matchesNoBoundsCheck(array, position)
+				             : matcher.matchesNoBoundsCheck(buffer, position);
+	}
+
+	/**
+	 * Returns all the sequences of a MultiSequenceMatcher which match forwards
+	 * from a position.
+	 *
+	 * @param matcher  The MultiSequenceMatcher to match.
+	 * @param position The position to match at.
+	 * @return The sequences which match, which may be empty.
+	 */
+	public Collection<SequenceMatcher> allMatches(final MultiSequenceMatcher matcher, final int position) {
+		return array != null ? matcher.allMatches(array, position) : matcher.allMatches(buffer, position);
+	}
+
+	/**
+	 * Returns all the sequences of a MultiSequenceMatcher which match backwards
+	 * from a position.
+	 *
+	 * @param matcher  The MultiSequenceMatcher to match.
+	 * @param position The position to match back from.
+	 * @return The sequences which match, which may be empty.
+	 */
+	public Collection<SequenceMatcher> allMatchesBackwards(final MultiSequenceMatcher matcher, final int position) {
+		return array != null ? matcher.allMatchesBackwards(array, position)
+				             : matcher.allMatchesBackwards(buffer, position);
+	}
+
+}
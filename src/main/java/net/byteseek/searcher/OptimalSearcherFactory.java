@@ -0,0 +1,313 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.matcher.bytes.ByteMatcher;
+import net.byteseek.matcher.multisequence.HashMultiSequenceMatcher;
+import net.byteseek.matcher.multisequence.MultiSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.multisequence.MultiSequenceMatcherSearcher;
+import net.byteseek.searcher.multisequence.aho_corasick.AhoCorasickSearcher;
+import net.byteseek.searcher.sequence.SequenceMatcherSearcher;
+import net.byteseek.searcher.sequence.bndm.BndmSearcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+import net.byteseek.searcher.sequence.packed.PackedStringSearcher;
+import net.byteseek.searcher.sequence.sunday.SundayQuickSearcher;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * An implementation of {@link SearcherFactory} which inspects the sequences to search for,
+ * and creates the {@link Searcher} it expects to be fastest for them.
+ * <p>
+ * Its heuristics are based on the average shift a searcher would make over text in which
+ * all byte values are equally likely, calculated from the byte values matched at each
+ * position of the sequences.  Wide byte classes near the end of a sequence reduce the
+ * shifts which can be made.  A shifting searcher does more work at each position it
+ * examines than a searcher which simply tries to match at every position, so it is only
+ * faster if its average shift is greater than this extra cost.  The extra cost is a
+ * property of the machine; it can be measured by the micro-benchmark in {@link #calibrate()}.
+ * <p>
+ * For a single sequence:
+ * <ul>
+ * <li>If the sequence is only one byte long, use a {@link SequenceMatcherSearcher}.
+ * <li>If the sequence is a short string of bytes, use a {@link PackedStringSearcher},
+ *     which tests eight positions at a time without shifting.
+ * <li>If the average shift is not greater than the cost of shifting, use a {@link SequenceMatcherSearcher}.
+ * <li>If the sequence contains byte classes, use a {@link BndmSearcher}, which matches them exactly.
+ * <li>If the average Sunday Quick shift is significantly longer than the average Horspool shift
+ *     (which happens for shorter sequences), use a {@link SundayQuickSearcher}.
+ * <li>Otherwise, use a {@link BoyerMooreHorspoolSearcher}.
+ * </ul>
+ * For a set of sequences:
+ * <ul>
+ * <li>If there is only one sequence, choose a searcher for it as above.
+ * <li>For small sets of sequences, use a {@link MultiSequenceMatcherSearcher}, and for larger sets
+ *     an {@link AhoCorasickSearcher}, which reads each byte once however many sequences there are.
+ * </ul>
+ * The Set-Horspool and Wu-Manber searchers are not created, as they can still miss matches
+ * in some sets of sequences.  When created from a collection of sequences, the searchers verify
+ * matches with a {@link HashMultiSequenceMatcher}.
+ * <p>
+ * This class is immutable, so it can be safely used in multi-threaded applications.
+ *
+ * @author Matt Palmer
+ */
+public final class OptimalSearcherFactory implements SearcherFactory {
+
+    /**
+     * The cost of shifting used if none is specified.  A shifting searcher must shift
+     * by more than this on average to be faster than trying to match at every position.
+     */
+    public static final double DEFAULT_SHIFT_COST = 2.0;
+
+    /**
+     * A factory using the default cost of shifting.
+     */
+    public static final SearcherFactory FACTORY = new OptimalSearcherFactory();
+
+    private static final double MIN_SHIFT_COST = 1.0;
+    private static final double MAX_SHIFT_COST = 16.0;
+    private static final double SUNDAY_GAIN = 1.1;
+    private static final int PACKED_STRING_LIMIT = 8;
+    private static final int MATCHER_SEARCHER_LIMIT = 16;
+
+    private static final int CALIBRATION_TEXT_LENGTH = 65536;
+    private static final int CALIBRATION_SEQUENCE_LENGTH = 8;
+    private static final int CALIBRATION_RUNS = 64;
+
+    private final double shiftCost;
+
+
+    /**
+     * Constructs an OptimalSearcherFactory using the {@link #DEFAULT_SHIFT_COST}.
+     */
+    public OptimalSearcherFactory() {
+        this(DEFAULT_SHIFT_COST);
+    }
+
+
+    /**
+     * Constructs an OptimalSearcherFactory given the cost of shifting: the average
+     * shift a shifting searcher must exceed to be faster than trying to match at every position.
+     *
+     * @param shiftCost The cost of shifting.
+     * @throws IllegalArgumentException if the cost of shifting is less than one.
+     */
+    public OptimalSearcherFactory(final double shiftCost) {
+        if (!(shiftCost >= MIN_SHIFT_COST)) {
+            throw new IllegalArgumentException("The shift cost must be at least one: " + shiftCost);
+        }
+        this.shiftCost = shiftCost;
+    }
+
+
+    /**
+     * Runs a short micro-benchmark to measure the cost of shifting on this machine, and
+     * returns an OptimalSearcherFactory which uses it.
+     * <p>
+     * It times a {@link SequenceMatcherSearcher} and a {@link BoyerMooreHorspoolSearcher}
+     * searching for a sequence which does not occur in some random text, so the Horspool
+     * searcher always shifts by the length of the sequence.  The cost of shifting is the
+     * time each Horspool shift takes, divided by the time taken to try each position.
+     * The result is limited to between one and sixteen, as timings can be distorted by
+     * other activity on the machine.
+     *
+     * @return An OptimalSearcherFactory calibrated for this machine.
+     */
+    public static OptimalSearcherFactory calibrate() {
+        final Random random = new Random(CALIBRATION_TEXT_LENGTH);
+        final byte[] text = new byte[CALIBRATION_TEXT_LENGTH];
+        for (int position = 0; position < text.length; position++) {
+            text[position] = (byte) random.nextInt(128);
+        }
+        final byte[] bytes = new byte[CALIBRATION_SEQUENCE_LENGTH];
+        Arrays.fill(bytes, (byte) 0xFF);
+        final SequenceMatcher sequence = new ByteSequenceMatcher(bytes);
+        final Searcher<SequenceMatcher> matchSearcher = new SequenceMatcherSearcher(sequence);
+        final Searcher<SequenceMatcher> shiftSearcher = new BoyerMooreHorspoolSearcher(sequence);
+        shiftSearcher.prepareForwards();
+
+        // Alternate the searchers, so both are affected equally by compilation and other activity:
+        long matchTime = Long.MAX_VALUE;
+        long shiftTime = Long.MAX_VALUE;
+        for (int run = 0; run < CALIBRATION_RUNS; run++) {
+            matchTime = Math.min(matchTime, time(matchSearcher, text));
+            shiftTime = Math.min(shiftTime, time(shiftSearcher, text));
+        }
+        final double cost = matchTime > 0? (double) shiftTime * CALIBRATION_SEQUENCE_LENGTH / matchTime
+                                         : DEFAULT_SHIFT_COST;
+        return new OptimalSearcherFactory(Math.min(MAX_SHIFT_COST, Math.max(MIN_SHIFT_COST, cost)));
+    }
+
+
+    /**
+     * Returns the cost of shifting used by this factory.
+     *
+     * @return The cost of shifting used by this factory.
+     */
+    public double getShiftCost() {
+        return shiftCost;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if the sequence is null.
+     */
+    @Override
+    public Searcher<SequenceMatcher> create(final SequenceMatcher sequence) {
+        ArgUtils.checkNullObject(sequence, "sequence");
+        final int length = sequence.length();
+        if (length > 1) {
+            final boolean byteClasses = hasByteClasses(sequence);
+            if (!byteClasses && length <= PACKED_STRING_LIMIT) {
+                return new PackedStringSearcher(sequence);
+            }
+            final double horspoolShift = getHorspoolShift(sequence);
+            if (horspoolShift > shiftCost) {
+                if (byteClasses) {
+                    return new BndmSearcher(sequence);
+                }
+                return getSundayShift(sequence) > horspoolShift * SUNDAY_GAIN?
+                        new SundayQuickSearcher(sequence) : new BoyerMooreHorspoolSearcher(sequence);
+            }
+        }
+        return new SequenceMatcherSearcher(sequence);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if the MultiSequenceMatcher is null.
+     */
+    @Override
+    public Searcher<SequenceMatcher> create(final MultiSequenceMatcher sequences) {
+        ArgUtils.checkNullObject(sequences, "sequences");
+        final List<SequenceMatcher> sequenceList = sequences.getSequenceMatchers();
+        if (sequenceList.size() == 1) {
+            return create(sequenceList.get(0));
+        }
+        return sequenceList.size() <= MATCHER_SEARCHER_LIMIT? new MultiSequenceMatcherSearcher(sequences)
+                                                             : new AhoCorasickSearcher(sequences);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if the collection is null or empty, or contains a null sequence.
+     */
+    @Override
+    public Searcher<SequenceMatcher> create(final Collection<? extends SequenceMatcher> sequences) {
+        ArgUtils.checkNullOrEmptyCollectionNoNullElements(sequences, "sequences");
+        if (sequences.size() == 1) {
+            return create(sequences.iterator().next());
+        }
+        return create(new HashMultiSequenceMatcher(sequences));
+    }
+
+
+    /*
+     * Returns whether any position of a sequence matches more than one byte value.
+     */
+    private static boolean hasByteClasses(final SequenceMatcher sequence) {
+        for (final ByteMatcher matcher : sequence) {
+            if (matcher.getNumberOfMatchingBytes() != 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /*
+     * Returns the average Horspool shift for a sequence over all byte values.
+     */
+    private static double getHorspoolShift(final SequenceMatcher sequence) {
+        final int length = sequence.length();
+        final int[] shifts = new int[256];
+        Arrays.fill(shifts, length);
+        for (int position = 0; position < length - 1; position++) {
+            for (final byte value : sequence.getMatcherForPosition(position).getMatchingBytes()) {
+                shifts[value & 0xFF] = length - 1 - position;
+            }
+        }
+        return average(shifts);
+    }
+
+
+    /*
+     * Returns the average Sunday Quick shift for a sequence over all byte values.
+     */
+    private static double getSundayShift(final SequenceMatcher sequence) {
+        final int length = sequence.length();
+        final int[] shifts = new int[256];
+        Arrays.fill(shifts, length + 1);
+        for (int position = 0; position < length; position++) {
+            for (final byte value : sequence.getMatcherForPosition(position).getMatchingBytes()) {
+                shifts[value & 0xFF] = length - position;
+            }
+        }
+        return average(shifts);
+    }
+
+
+    private static double average(final int[] shifts) {
+        long total = 0;
+        for (final int shift : shifts) {
+            total += shift;
+        }
+        return (double) total / shifts.length;
+    }
+
+
+    private static long time(final Searcher<SequenceMatcher> searcher, final byte[] text) {
+        final long start = System.nanoTime();
+        searcher.searchForwards(text);
+        return System.nanoTime() - start;
+    }
+
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[shift cost: " + shiftCost + ']';
+    }
+
+}
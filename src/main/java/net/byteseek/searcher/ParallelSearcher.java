@@ -0,0 +1,290 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * Searches for all matches of a {@link Searcher} using many threads at once, by
+ * splitting the positions to search into chunks and searching each chunk as a
+ * separate task in an {@link java.util.concurrent.ExecutorService}.
+ * <p>
+ * Each chunk is a range of positions at which a match may <em>start</em>.  As a searcher
+ * reads as far past the end of its search range as it needs to verify a match, a match which
+ * starts in one chunk and ends in the next is found once, by the chunk it starts in.  This is
+ * equivalent to overlapping the chunks by the length of the matcher, without having to remove
+ * duplicate matches at the chunk boundaries.  The results of all the chunks are merged in
+ * position order, and are identical to the results of
+ * {@link SearchUtils#searchAllForwards(Searcher, WindowReader)}.
+ * <p>
+ * The searchers in byteseek hold no search state, and can be shared by many threads.
+ * A {@link net.byteseek.io.reader.WindowReader} must be safe to use from many threads at
+ * once to be searched in parallel, for example the
+ * {@link net.byteseek.io.reader.ConcurrentFileReader}.  Byte arrays can always be searched in parallel.
+ * <p>
+ * The ExecutorService is supplied by the caller and is not shut down by this class.
+ *
+ * @param <T> The type of object associated with a match in the Searcher.
+ * @author Matt Palmer
+ */
+public final class ParallelSearcher<T> {
+
+    /**
+     * The default number of positions searched by each task, unless a different
+     * value is provided in the constructor.
+     */
+    public final static int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private final Searcher<T> searcher;
+    private final ExecutorService executor;
+    private final int chunkSize;
+
+    /**
+     * Constructs a ParallelSearcher using the default chunk size of 1Mb.
+     *
+     * @param searcher The Searcher to search with.
+     * @param executor The ExecutorService to run the search tasks in.
+     * @throws IllegalArgumentException if the searcher or executor are null.
+     */
+    public ParallelSearcher(final Searcher<T> searcher, final ExecutorService executor) {
+        this(searcher, executor, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a ParallelSearcher using the chunk size provided.
+     *
+     * @param searcher The Searcher to search with.
+     * @param executor The ExecutorService to run the search tasks in.
+     * @param chunkSize The number of positions searched by each task.
+     * @throws IllegalArgumentException if the searcher or executor are null, or the chunk size is not positive.
+     */
+    public ParallelSearcher(final Searcher<T> searcher, final ExecutorService executor, final int chunkSize) {
+        ArgUtils.checkNullObject(searcher, "searcher");
+        ArgUtils.checkNullObject(executor, "executor");
+        ArgUtils.checkPositiveInteger(chunkSize, "chunkSize");
+        this.searcher = searcher;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Searches a {@link WindowReader} forwards for all matches of the Searcher.
+     *
+     * @param reader The WindowReader to search in.  It must be safe to use from many threads at once.
+     * @return A list of all the SearchResults found in the reader, in position order.
+     * @throws IOException if there was a problem reading the reader, or the search was interrupted.
+     * @throws IllegalArgumentException if the reader is null.
+     */
+    public List<SearchResult<T>> searchAllForwards(final WindowReader reader) throws IOException {
+        ArgUtils.checkNullObject(reader, "reader");
+        return searchAllForwards(reader, 0, reader.length() - 1);
+    }
+
+    /**
+     * Searches a {@link WindowReader} forwards for all matches of the Searcher starting
+     * between two positions.
+     *
+     * @param reader The WindowReader to search in.  It must be safe to use from many threads at once.
+     * @param fromPosition The first position a match can start at.
+     * @param toPosition The last position a match can start at.
+     * @return A list of all the SearchResults found in the reader, in position order.
+     * @throws IOException if there was a problem reading the reader, or the search was interrupted.
+     * @throws IllegalArgumentException if the reader is null.
+     */
+    public List<SearchResult<T>> searchAllForwards(final WindowReader reader,
+                                                   final long fromPosition, final long toPosition) throws IOException {
+        ArgUtils.checkNullObject(reader, "reader");
+        final long lastPosition = Math.min(toPosition, reader.length() - 1);
+        final List<Callable<List<SearchResult<T>>>> tasks = new ArrayList<Callable<List<SearchResult<T>>>>();
+        for (long chunkStart = Math.max(fromPosition, 0); chunkStart <= lastPosition; chunkStart += chunkSize) {
+            final long chunkEnd = Math.min(chunkStart + chunkSize - 1, lastPosition);
+            tasks.add(new ReaderChunkSearch(reader, chunkStart, chunkEnd));
+        }
+        return runTasks(tasks);
+    }
+
+    /**
+     * Searches a byte array forwards for all matches of the Searcher.
+     *
+     * @param bytes The byte array to search in.
+     * @return A list of all the SearchResults found in the byte array, in position order.
+     * @throws IOException if the search was interrupted.
+     * @throws IllegalArgumentException if the byte array is null.
+     */
+    public List<SearchResult<T>> searchAllForwards(final byte[] bytes) throws IOException {
+        ArgUtils.checkNullByteArray(bytes, "bytes");
+        final List<Callable<List<SearchResult<T>>>> tasks = new ArrayList<Callable<List<SearchResult<T>>>>();
+        for (long chunkStart = 0; chunkStart < bytes.length; chunkStart += chunkSize) {
+            final long chunkEnd = Math.min(chunkStart + chunkSize - 1, bytes.length - 1);
+            tasks.add(new ArrayChunkSearch(bytes, (int) chunkStart, (int) chunkEnd));
+        }
+        return runTasks(tasks);
+    }
+
+    /**
+     * Returns the Searcher used to search.
+     *
+     * @return The Searcher used to search.
+     */
+    public Searcher<T> getSearcher() {
+        return searcher;
+    }
+
+    /**
+     * Returns the number of positions searched by each task.
+     *
+     * @return The number of positions searched by each task.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[chunk size: " + chunkSize + " searcher: " + searcher + ']';
+    }
+
+    private List<SearchResult<T>> runTasks(final List<Callable<List<SearchResult<T>>>> tasks) throws IOException {
+        final List<Future<List<SearchResult<T>>>> futures = new ArrayList<Future<List<SearchResult<T>>>>(tasks.size());
+        try {
+            for (final Callable<List<SearchResult<T>>> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            // The chunks are in position order, so adding the results in order merges them:
+            final List<SearchResult<T>> results = new ArrayList<SearchResult<T>>();
+            for (final Future<List<SearchResult<T>>> future : futures) {
+                results.addAll(future.get());
+            }
+            return results;
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Parallel search was interrupted.");
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            for (final Future<List<SearchResult<T>>> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Returns the position to continue searching from after a set of results.
+     */
+    private static <T> long nextSearchPosition(final List<SearchResult<T>> results) {
+        long furthestPosition = Long.MIN_VALUE;
+        for (final SearchResult<T> result : results) {
+            final long resultPosition = result.getMatchPosition();
+            if (resultPosition > furthestPosition) {
+                furthestPosition = resultPosition;
+            }
+        }
+        return furthestPosition + 1;
+    }
+
+    private final class ReaderChunkSearch implements Callable<List<SearchResult<T>>> {
+
+        private final WindowReader reader;
+        private final long chunkStart;
+        private final long chunkEnd;
+
+        private ReaderChunkSearch(final WindowReader reader, final long chunkStart, final long chunkEnd) {
+            this.reader = reader;
+            this.chunkStart = chunkStart;
+            this.chunkEnd = chunkEnd;
+        }
+
+        @Override
+        public List<SearchResult<T>> call() throws IOException {
+            final List<SearchResult<T>> chunkResults = new ArrayList<SearchResult<T>>();
+            long searchPosition = chunkStart;
+            while (searchPosition <= chunkEnd) {
+                final List<SearchResult<T>> results = searcher.searchForwards(reader, searchPosition, chunkEnd);
+                if (results.isEmpty()) {
+                    break;
+                }
+                chunkResults.addAll(results);
+                searchPosition = nextSearchPosition(results);
+            }
+            return chunkResults;
+        }
+    }
+
+    private final class ArrayChunkSearch implements Callable<List<SearchResult<T>>> {
+
+        private final byte[] bytes;
+        private final int chunkStart;
+        private final int chunkEnd;
+
+        private ArrayChunkSearch(final byte[] bytes, final int chunkStart, final int chunkEnd) {
+            this.bytes = bytes;
+            this.chunkStart = chunkStart;
+            this.chunkEnd = chunkEnd;
+        }
+
+        @Override
+        public List<SearchResult<T>> call() {
+            final List<SearchResult<T>> chunkResults = new ArrayList<SearchResult<T>>();
+            int searchPosition = chunkStart;
+            while (searchPosition <= chunkEnd) {
+                final List<SearchResult<T>> results = searcher.searchForwards(bytes, searchPosition, chunkEnd);
+                if (results.isEmpty()) {
+                    break;
+                }
+                chunkResults.addAll(results);
+                searchPosition = (int) nextSearchPosition(results);
+            }
+            return chunkResults;
+        }
+    }
+
+}
@@ -0,0 +1,428 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import net.byteseek.io.IOUtils;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * An immutable set of precompiled search tables for a searcher, which can be written
+ * to a compact binary format and read or memory-mapped back again.
+ * <p>
+ * The shift tables of a searcher are normally calculated lazily the first time
+ * it searches, which is costly for large numbers of sequences.  A searcher implementing
+ * {@link PrecompilableSearcher} can give up its tables, which can be saved at build time,
+ * and then be constructed with the saved tables at startup, skipping the calculation.
+ * <p>
+ * The tables record the class name of the searcher which produced them, and a
+ * 64-bit fingerprint of the sequences and parameters they were calculated from.
+ * A searcher constructed with tables checks these, and rejects tables which were
+ * not calculated for it.
+ * <p>
+ * The binary format is big-endian:
+ * <pre>
+ *   int    magic number 0x42535354 ("BSST")
+ *   int    format version
+ *   int    length of the searcher type, followed by its bytes in UTF-8
+ *   long   fingerprint
+ *   int    number of tables
+ *   for each table:
+ *     int  length of the table, followed by its ints
+ *   int    CRC32 of all preceding bytes
+ * </pre>
+ * Files with a different magic number or format version, or which fail the checksum,
+ * are rejected with an IOException.
+ *
+ * @author Matt Palmer
+ */
+public final class SearchTables {
+
+    /**
+     * The index of the table used when searching forwards.
+     */
+    public static final int FORWARDS = 0;
+
+    /**
+     * The index of the table used when searching backwards.
+     */
+    public static final int BACKWARDS = 1;
+
+    /**
+     * The version of the binary format written by this class.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int     MAGIC        = 0x42535354;
+    private static final Charset UTF8         = Charset.forName("UTF-8");
+    private static final long    FNV_OFFSET   = 0xCBF29CE484222325L;
+    private static final long    FNV_PRIME    = 0x100000001B3L;
+    private static final int     CHECK_BUFFER = 8192;
+
+    private final String searcherType;
+    private final long fingerprint;
+    private final int[][] tables;
+
+
+    /**
+     * Constructs SearchTables from the type and fingerprint of a searcher and its tables.
+     * The tables are copied.
+     *
+     * @param searcherType The class name of the searcher the tables are for.
+     * @param fingerprint  A fingerprint of the sequences and parameters of the searcher.
+     * @param tables       The tables of the searcher.
+     * @throws IllegalArgumentException if the searcher type is null or empty, or any table is null.
+     */
+    public SearchTables(final String searcherType, final long fingerprint, final int[]... tables) {
+        this(copyTables(tables), searcherType, fingerprint);
+    }
+
+
+    /*
+     * Constructs SearchTables which own the tables given, so they are not copied again.
+     */
+    private SearchTables(final int[][] tables, final String searcherType, final long fingerprint) {
+        ArgUtils.checkNullOrEmptyString(searcherType, "searcherType");
+        this.searcherType = searcherType;
+        this.fingerprint  = fingerprint;
+        this.tables       = tables;
+    }
+
+
+    /**
+     * Calculates a 64-bit fingerprint of a collection of sequences and some integer parameters,
+     * which identifies the sequences (in order) and parameters that tables were calculated from.
+     *
+     * @param sequences  The sequences to fingerprint.
+     * @param parameters Any other parameters the tables depend on (e.g. a block size).
+     * @return A 64-bit fingerprint of the sequences and parameters.
+     * @throws IllegalArgumentException if the sequences are null or contain a null element.
+     */
+    public static long fingerprint(final Collection<? extends SequenceMatcher> sequences,
+                                   final int... parameters) {
+        ArgUtils.checkNullCollectionElements(sequences, "sequences");
+        long hash = FNV_OFFSET;
+        for (final SequenceMatcher sequence : sequences) {
+            final String regex = sequence.toRegularExpression(false);
+            for (int index = 0; index < regex.length(); index++) {
+                hash = (hash ^ regex.charAt(index)) * FNV_PRIME;
+            }
+            hash = (hash ^ 0xFFFF) * FNV_PRIME; // separator which cannot appear in a regex.
+        }
+        for (final int parameter : parameters) {
+            hash = (hash ^ parameter) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+
+    /**
+     * Returns the class name of the searcher the tables are for.
+     *
+     * @return The class name of the searcher the tables are for.
+     */
+    public String getSearcherType() {
+        return searcherType;
+    }
+
+
+    /**
+     * Returns the fingerprint of the sequences and parameters the tables were calculated from.
+     *
+     * @return The fingerprint of the sequences and parameters the tables were calculated from.
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+
+    /**
+     * Returns the number of tables.
+     *
+     * @return The number of tables.
+     */
+    public int getNumberOfTables() {
+        return tables.length;
+    }
+
+
+    /**
+     * Returns the length of a table, without copying it.
+     *
+     * @param index The index of the table.
+     * @return The length of the table at the index.
+     * @throws IndexOutOfBoundsException if the index is not the index of a table.
+     */
+    public int getTableLength(final int index) {
+        return tables[index].length;
+    }
+
+
+    /**
+     * Returns a copy of a table.
+     *
+     * @param index The index of the table.
+     * @return A copy of the table at the index.
+     * @throws IndexOutOfBoundsException if the index is not the index of a table.
+     */
+    public int[] getTable(final int index) {
+        return tables[index].clone();
+    }
+
+
+    /**
+     * Checks that these tables were calculated by a type of searcher from sequences with
+     * a fingerprint, and that there are the expected number of tables.
+     *
+     * @param searcherType   The class name of the searcher.
+     * @param fingerprint    The fingerprint of the sequences and parameters of the searcher.
+     * @param numberOfTables The number of tables the searcher uses.
+     * @throws IllegalArgumentException if the tables were not calculated for the searcher.
+     */
+    public void check(final String searcherType, final long fingerprint, final int numberOfTables) {
+        if (!this.searcherType.equals(searcherType)) {
+            throw new IllegalArgumentException("Search tables are for a " + this.searcherType +
+                                               ", not a " + searcherType);
+        }
+        if (this.fingerprint != fingerprint) {
+            throw new IllegalArgumentException("Search tables were not calculated from the sequences given.");
+        }
+        if (tables.length != numberOfTables) {
+            throw new IllegalArgumentException(String.format(
+                    "Expected %d search tables, but there are %d", numberOfTables, tables.length));
+        }
+    }
+
+
+    /**
+     * Checks that these tables were calculated by a type of searcher from sequences with
+     * a fingerprint, that there are the expected number of tables, and that every table
+     * has the expected length.
+     *
+     * @param searcherType   The class name of the searcher.
+     * @param fingerprint    The fingerprint of the sequences and parameters of the searcher.
+     * @param numberOfTables The number of tables the searcher uses.
+     * @param tableLength    The length of each table the searcher uses.
+     * @throws IllegalArgumentException if the tables were not calculated for the searcher.
+     */
+    public void check(final String searcherType, final long fingerprint, final int numberOfTables,
+                      final int tableLength) {
+        check(searcherType, fingerprint, numberOfTables);
+        for (int index = 0; index < tables.length; index++) {
+            if (tables[index].length != tableLength) {
+                throw new IllegalArgumentException(String.format(
+                        "Expected search table %d to have %d entries, but it has %d",
+                        index, tableLength, tables[index].length));
+            }
+        }
+    }
+
+
+    /**
+     * Writes the tables in the binary format to a file.
+     *
+     * @param file The file to write to.
+     * @throws IOException if there was a problem writing the file.
+     */
+    public void write(final File file) throws IOException {
+        final OutputStream output = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            write(output);
+        } finally {
+            output.close();
+        }
+    }
+
+
+    /**
+     * Writes the tables in the binary format to an output stream.
+     * The stream is flushed, but not closed.
+     *
+     * @param output The stream to write to.
+     * @throws IOException if there was a problem writing to the stream.
+     */
+    public void write(final OutputStream output) throws IOException {
+        final CheckedOutputStream checked = new CheckedOutputStream(output, new CRC32());
+        final DataOutputStream data = new DataOutputStream(checked);
+        final byte[] type = searcherType.getBytes(UTF8);
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        data.writeInt(type.length);
+        data.write(type);
+        data.writeLong(fingerprint);
+        data.writeInt(tables.length);
+        for (final int[] table : tables) {
+            data.writeInt(table.length);
+            for (final int value : table) {
+                data.writeInt(value);
+            }
+        }
+        data.flush();
+        data.writeInt((int) checked.getChecksum().getValue());
+        data.flush();
+    }
+
+
+    /**
+     * Memory-maps a file written by {@link #write(File)} and reads the tables from it.
+     *
+     * @param file The file to map.
+     * @return The SearchTables in the file.
+     * @throws IOException if there was a problem reading the file, or it is not a valid tables file.
+     */
+    public static SearchTables map(final File file) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            raf.close();
+        }
+    }
+
+
+    /**
+     * Reads the tables from an input stream, for example a resource packaged with an application.
+     * The stream is not closed.
+     *
+     * @param input The stream to read from.
+     * @return The SearchTables in the stream.
+     * @throws IOException if there was a problem reading the stream, or it does not contain valid tables.
+     */
+    public static SearchTables read(final InputStream input) throws IOException {
+        return read(ByteBuffer.wrap(IOUtils.readEntireStream(input)));
+    }
+
+
+    /**
+     * Reads the tables from the remaining bytes of a buffer.
+     * The position of the buffer is not changed.
+     * <p>
+     * The tables are copied out of the buffer, as the searchers index arrays in their
+     * search loops, so a mapped buffer can be released once this method returns.
+     *
+     * @param buffer The buffer to read from.
+     * @return The SearchTables in the buffer.
+     * @throws IOException if the buffer does not contain valid tables.
+     */
+    public static SearchTables read(final ByteBuffer buffer) throws IOException {
+        ArgUtils.checkNullObject(buffer, "buffer");
+        final ByteBuffer data = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+        try {
+            if (data.getInt() != MAGIC) {
+                throw new IOException("Not a search tables file.");
+            }
+            final int version = data.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException(String.format(
+                        "Unsupported search tables format version %d, expected %d", version, FORMAT_VERSION));
+            }
+            final byte[] type = new byte[checkLength(data.getInt(), data.remaining())];
+            data.get(type);
+            final long fingerprint = data.getLong();
+            final int[][] tables = new int[checkLength(data.getInt(), data.remaining() / 4)][];
+            for (int index = 0; index < tables.length; index++) {
+                final int[] table = new int[checkLength(data.getInt(), data.remaining() / 4)];
+                data.asIntBuffer().get(table);
+                data.position(data.position() + table.length * 4);
+                tables[index] = table;
+            }
+            final int checksumPosition = data.position();
+            if (data.getInt() != checksum(data, checksumPosition)) {
+                throw new IOException("Search tables checksum does not match; the data is corrupt.");
+            }
+            return new SearchTables(tables, new String(type, UTF8), fingerprint);
+        } catch (final BufferUnderflowException truncated) {
+            throw new IOException("Search tables are truncated.");
+        }
+    }
+
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[searcher:" + searcherType +
+               " fingerprint:" + Long.toHexString(fingerprint) + " tables:" + tables.length + ']';
+    }
+
+
+    private static int[][] copyTables(final int[][] tables) {
+        ArgUtils.checkNullObject(tables, "tables");
+        final int[][] copies = new int[tables.length][];
+        for (int index = 0; index < tables.length; index++) {
+            ArgUtils.checkNullObject(tables[index], "table");
+            copies[index] = tables[index].clone();
+        }
+        return copies;
+    }
+
+
+    private static int checkLength(final int length, final int available) throws IOException {
+        if (length < 0 || length > available) {
+            throw new IOException("Search tables are corrupt: invalid length " + length);
+        }
+        return length;
+    }
+
+
+    private static int checksum(final ByteBuffer data, final int length) {
+        final CRC32 crc = new CRC32();
+        final ByteBuffer bytes = data.duplicate();
+        bytes.position(0);
+        final byte[] chunk = new byte[CHECK_BUFFER];
+        int remaining = length;
+        while (remaining > 0) {
+            final int chunkLength = Math.min(remaining, CHECK_BUFFER);
+            bytes.get(chunk, 0, chunkLength);
+            crc.update(chunk, 0, chunkLength);
+            remaining -= chunkLength;
+        }
+        return (int) crc.getValue();
+    }
+
+}
@@ -270,4 +270,32 @@ public final class SearchUtils {
 		return newResults;
 	}
 
+	/**
+	 * Reports a list of search results to a SearchListener, adding an amount
+	 * to each match position.  Stops reporting as soon as the listener asks to
+	 * stop searching.
+	 * 
+	 * @param <T>
+	 *            The type of object associated with a match in the Searcher.
+	 * @param results
+	 *            The search results to report.
+	 * @param amountToAdd
+	 *            The amount to add to the match position of each SearchResult.
+	 * @param listener
+	 *            The SearchListener to report the results to.
+	 * @return true if the listener wants to continue searching, false if it
+	 *         asked to stop.
+	 */
+	public static <T> boolean reportResults(final List<SearchResult<T>> results,
+			final long amountToAdd, final SearchListener<T> listener) {
+		final int numResults = results.size();
+		for (int i = 0; i < numResults; i++) {
+			final SearchResult<T> result = results.get(i);
+			if (!listener.resultFound(result.getMatchPosition() + amountToAdd, result.getMatchingObject())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 }
@@ -32,13 +32,14 @@
 package net.byteseek.searcher;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import net.byteseek.io.reader.WindowReader;
 
 /**
  * An interface for classes that search bytes provided by a {@link WindowReader}, or
- * on a byte array. Searching can be forwards or backwards.
+ * on a byte array or {@link java.nio.ByteBuffer}. Searching can be forwards or backwards.
  * <p>
  * Searching either returns the position at which a match was found, or a
  * negative number indicates a match was not found.
@@ -134,6 +135,126 @@ public interface Searcher<T> {
 	 */
 	public List<SearchResult<T>> searchForwards(byte[] bytes);
 
+	/**
+	 * Searches bytes forwards provided by a ByteBuffer from the position given
+	 * by fromPosition up to toPosition.
+	 * <p>
+	 * Positions are absolute indexes into the buffer, and matches may extend
+	 * up to (but not including) the limit of the buffer.  The position and limit
+	 * of the buffer are not altered by searching, so direct and read-only buffers
+	 * can be searched without copying them into a byte array first.
+	 * 
+	 * @param buffer
+	 *            The ByteBuffer giving access to the bytes being searched.
+	 * @param fromPosition
+	 *            The position to search from.
+	 * @param toPosition
+	 *            The position to search up to.
+	 * @return The position a match was found at, or a negative number if no
+	 *         match was found.
+	 */
+	public List<SearchResult<T>> searchForwards(ByteBuffer buffer, int fromPosition,
+			int toPosition);
+
+	/**
+	 * Searches bytes forwards provided by a ByteBuffer from the position given
+	 * by fromPosition up to the limit of the buffer.
+	 * 
+	 * @param buffer
+	 *            The ByteBuffer giving access to the bytes being searched.
+	 * @param fromPosition
+	 *            The position to search from.
+	 * @return The position a match was found at, or a negative number if no
+	 *         match was found.
+	 */
+	public List<SearchResult<T>> searchForwards(ByteBuffer buffer, int fromPosition);
+
+	/**
+	 * Searches bytes forwards provided by a ByteBuffer, from zero up to the
+	 * limit of the buffer.
+	 * 
+	 * @param buffer
+	 *            The ByteBuffer giving access to the bytes being searched.
+	 * @return The position a match was found at, or a negative number if no
+	 *         match was found.
+	 */
+	public List<SearchResult<T>> searchForwards(ByteBuffer buffer);
+
+	/**
+	 * Searches forwards in a WindowReader from fromPosition up to toPosition,
+	 * reporting every match found to a {@link SearchListener} as it is found.
+	 * <p>
+	 * Unlike the methods which return lists of results, no lists or result
+	 * objects need to be created for each match, and searching carries on
+	 * after a match for as long as the listener asks it to.
+	 * 
+	 * @param reader
+	 *            The WindowReader giving access to the bytes being searched.
+	 * @param fromPosition
+	 *            The position to search from.
+	 * @param toPosition
+	 *            The last position a match can start at.
+	 * @param listener
+	 *            The SearchListener to report each match to.
+	 * @return true if the search reached toPosition or the end of the reader, or
+	 *         false if the listener stopped the search.
+	 * @throws IOException
+	 *             If the reader encounters a problem reading bytes.
+	 */
+	public boolean searchForwards(WindowReader reader, long fromPosition,
+			long toPosition, SearchListener<T> listener) throws IOException;
+
+	/**
+	 * Searches forwards in a WindowReader, reporting every match found to a
+	 * {@link SearchListener} as it is found.
+	 * 
+	 * @param reader
+	 *            The WindowReader giving access to the bytes being searched.
+	 * @param listener
+	 *            The SearchListener to report each match to.
+	 * @return true if the search reached the end of the reader, or false if the
+	 *         listener stopped the search.
+	 * @throws IOException
+	 *             If the reader encounters a problem reading bytes.
+	 */
+	public boolean searchForwards(WindowReader reader, SearchListener<T> listener)
+			throws IOException;
+
+	/**
+	 * Searches forwards in a byte array from fromPosition up to toPosition,
+	 * reporting every match found to a {@link SearchListener} as it is found.
+	 * <p>
+	 * Unlike the methods which return lists of results, no lists or result
+	 * objects need to be created for each match, and searching carries on
+	 * after a match for as long as the listener asks it to.
+	 * 
+	 * @param bytes
+	 *            The byte array giving access to the bytes being searched.
+	 * @param fromPosition
+	 *            The position to search from.
+	 * @param toPosition
+	 *            The last position a match can start at.
+	 * @param listener
+	 *            The SearchListener to report each match to.
+	 * @return true if the search reached toPosition or the end of the array, or
+	 *         false if the listener stopped the search.
+	 */
+	public boolean searchForwards(byte[] bytes, int fromPosition, int toPosition,
+			SearchListener<T> listener);
+
+	/**
+	 * Searches forwards in a byte array, reporting every match found to a
+	 * {@link SearchListener} as it is found.
+	 * 
+	 * @param bytes
+	 *            The byte array giving access to the bytes being searched.
+	 * @param listener
+	 *            The SearchListener to report each match to.
+	 * @return true if the search reached the end of the array, or false if the
+	 *         listener stopped the search.
+	 */
+	public boolean searchForwards(byte[] bytes, SearchListener<T> listener);
+
 	/**
 	 * Searches bytes backwards provided by a {@link WindowReader} object, from the
 	 * position given by fromPosition up to toPosition.
@@ -218,6 +339,49 @@ public interface Searcher<T> {
 	 */
 	public List<SearchResult<T>> searchBackwards(byte[] bytes);
 
+	/**
+	 * Searches bytes backwards provided by a ByteBuffer, from the position
+	 * given by fromPosition up to toPosition.
+	 * <p>
+	 * Positions are absolute indexes into the buffer, and matches may extend
+	 * up to (but not including) the limit of the buffer.  The position and limit
+	 * of the buffer are not altered by searching.
+	 * 
+	 * @param buffer
+	 *            The ByteBuffer giving access to the bytes being searched.
+	 * @param fromPosition
+	 *            The position to search from.
+	 * @param toPosition
+	 *            The position to search back to.
+	 * @return The position a match was found at, or a negative number if no
+	 *         match was found.
+	 */
+	public List<SearchResult<T>> searchBackwards(ByteBuffer buffer,
+			int fromPosition, int toPosition);
+
+	/**
+	 * Searches bytes backwards provided by a ByteBuffer, from the position
+	 * given by fromPosition up to the start of the buffer.
+	 * 
+	 * @param buffer
+	 *            The ByteBuffer giving access to the bytes being searched.
+	 * @param fromPosition
+	 *            The position to search from.
+	 * @return The position a match was found at, or a negative number if no
+	 *         match was found.
+	 */
+	public List<SearchResult<T>> searchBackwards(ByteBuffer buffer, int fromPosition);
+
+	/**
+	 * Searches a ByteBuffer backwards, from the limit of the buffer to the start.
+	 * 
+	 * @param buffer
+	 *            The ByteBuffer giving access to the bytes being searched.
+	 * @return The position a match was found at, or a negative number if no
+	 *         match was found.
+	 */
+	public List<SearchResult<T>> searchBackwards(ByteBuffer buffer);
+
 	/**
 	 * Ensures that the searcher is fully prepared to search forwards. Some
 	 * searchers may defer calculating all the necessary parameters until the
@@ -0,0 +1,74 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher;
+
+import java.util.Collection;
+
+import net.byteseek.matcher.multisequence.MultiSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+
+/**
+ * An interface for objects which implement a factory for {@link Searcher}s
+ * of sequences and sets of sequences.
+ *
+ * @author Matt Palmer
+ */
+public interface SearcherFactory {
+
+    /**
+     * Creates a {@link Searcher} for a single sequence.
+     *
+     * @param sequence The sequence to search for.
+     * @return A Searcher for the sequence.
+     */
+    Searcher<SequenceMatcher> create(SequenceMatcher sequence);
+
+
+    /**
+     * Creates a {@link Searcher} for all the sequences in a {@link MultiSequenceMatcher}.
+     * If the searcher must verify matches, it uses the MultiSequenceMatcher to do so.
+     *
+     * @param sequences The MultiSequenceMatcher containing the sequences to search for.
+     * @return A Searcher for the sequences.
+     */
+    Searcher<SequenceMatcher> create(MultiSequenceMatcher sequences);
+
+
+    /**
+     * Creates a {@link Searcher} for a collection of sequences.
+     *
+     * @param sequences The sequences to search for.
+     * @return A Searcher for the sequences.
+     */
+    Searcher<SequenceMatcher> create(Collection<? extends SequenceMatcher> sequences);
+
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * Searches a stream of bytes which is pushed to it in chunks, reporting every match
+ * forwards to a {@link SearchListener} as it is found.
+ * <p>
+ * Unlike searching an {@link net.byteseek.io.reader.InputStreamReader}, the stream is never
+ * buffered for random access.  Only the last maxMatchLength - 1 bytes are carried over
+ * from one chunk to the next, so matches which cross chunk boundaries are still found.
+ * Each chunk is otherwise searched where it is, without copying it.  This makes it suitable
+ * for searching network streams and pipes of unbounded length.
+ * <p>
+ * A StreamSearcher is an {@link OutputStream}, so bytes can be written to it directly,
+ * or it can be the target of a stream pipeline.  When the stream ends, {@link #close()}
+ * must be called to search the bytes at the very end of the stream.  Positions reported
+ * to the listener are positions in the whole stream written so far, starting at zero.
+ * If the listener asks to stop searching, any further bytes written are ignored.
+ * <p>
+ * A StreamSearcher holds the state of a single stream, so it is not safe for use by
+ * multiple threads.  It can search another stream after calling {@link #reset()}.
+ *
+ * @param <T> The type of object associated with a search match.
+ * @author Matt Palmer
+ */
+public final class StreamSearcher<T> extends OutputStream {
+
+    private static final int COPY_BUFFER_SIZE = 65536;
+
+    private final Searcher<T> searcher;
+    private final int maxMatchLength;
+    private final StreamListener<T> streamListener;
+
+    private final byte[] carry;     // the bytes at the end of the stream which have not been searched yet.
+    private final byte[] join;      // the carried bytes joined to the start of the next chunk.
+    private final byte[] oneByte = new byte[1]; // reused to search single bytes written to the stream.
+    private byte[] copyBuffer;      // only used to copy ByteBuffers without an accessible array.
+    private int carryLength;
+    private long streamLength;
+    private boolean stopped;
+    private boolean closed;
+
+    /**
+     * Constructs a StreamSearcher.
+     *
+     * @param searcher       The Searcher to search with.
+     * @param maxMatchLength The length of the longest match the searcher can find - for example,
+     *                       the length of its SequenceMatcher, or the maximum length of its MultiSequenceMatcher.
+     * @param listener       The listener to report matches to.
+     * @throws IllegalArgumentException if the searcher or listener are null, or the max match length is not positive.
+     */
+    public StreamSearcher(final Searcher<T> searcher, final int maxMatchLength, final SearchListener<T> listener) {
+        ArgUtils.checkNullObject(searcher, "searcher");
+        ArgUtils.checkPositiveInteger(maxMatchLength, "maxMatchLength");
+        ArgUtils.checkNullObject(listener, "listener");
+        this.searcher = searcher;
+        this.maxMatchLength = maxMatchLength;
+        this.streamListener = new StreamListener<T>(listener);
+        this.carry = new byte[maxMatchLength - 1];
+        this.join = new byte[2 * (maxMatchLength - 1)];
+    }
+
+    /**
+     * Searches a single byte pushed to the stream.
+     *
+     * @param value The byte to search.
+     * @throws IOException if the StreamSearcher has been closed.
+     */
+    @Override
+    public void write(final int value) throws IOException {
+        oneByte[0] = (byte) value;
+        write(oneByte, 0, 1);
+    }
+
+    /**
+     * Searches a chunk of bytes pushed to the stream.
+     *
+     * @param bytes  The array containing the chunk.
+     * @param offset The position of the chunk in the array.
+     * @param length The length of the chunk.
+     * @throws IOException if the StreamSearcher has been closed.
+     * @throws IndexOutOfBoundsException if the offset and length are outside the array.
+     */
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        ArgUtils.checkNullByteArray(bytes);
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " and length " + length +
+                                                " are outside an array of length " + bytes.length);
+        }
+        checkOpen();
+        if (length > 0) {
+            if (!stopped) {
+                searchChunk(bytes, offset, length);
+            }
+            streamLength += length;
+        }
+    }
+
+    /**
+     * Searches the remaining bytes of a ByteBuffer pushed to the stream.
+     * On return, the position of the buffer is at its limit.
+     *
+     * @param buffer The ByteBuffer containing the chunk, from its position to its limit.
+     * @throws IOException if the StreamSearcher has been closed.
+     * @throws IllegalArgumentException if the buffer is null.
+     */
+    public void write(final ByteBuffer buffer) throws IOException {
+        ArgUtils.checkNullObject(buffer, "buffer");
+        if (buffer.hasArray()) {
+            final int remaining = buffer.remaining();
+            write(buffer.array(), buffer.arrayOffset() + buffer.position(), remaining);
+            buffer.position(buffer.limit());
+        } else {
+            if (copyBuffer == null) {
+                copyBuffer = new byte[COPY_BUFFER_SIZE];
+            }
+            while (buffer.hasRemaining()) {
+                final int length = Math.min(buffer.remaining(), COPY_BUFFER_SIZE);
+                buffer.get(copyBuffer, 0, length);
+                write(copyBuffer, 0, length);
+            }
+        }
+    }
+
+    /**
+     * Searches all the bytes in an InputStream until it ends, reading it in chunks.
+     * The StreamSearcher is not closed afterwards, and the InputStream is not closed.
+     *
+     * @param input The InputStream to search.
+     * @throws IOException if there was a problem reading the InputStream, or the StreamSearcher has been closed.
+     * @throws IllegalArgumentException if the input is null.
+     */
+    public void write(final InputStream input) throws IOException {
+        ArgUtils.checkNullObject(input, "input");
+        if (copyBuffer == null) {
+            copyBuffer = new byte[COPY_BUFFER_SIZE];
+        }
+        int bytesRead;
+        while (!stopped && (bytesRead = input.read(copyBuffer)) >= 0) {
+            write(copyBuffer, 0, bytesRead);
+        }
+    }
+
+    /**
+     * Ends the stream, searching the bytes at the very end of it which were carried over
+     * waiting for more bytes.  Closing an already closed StreamSearcher has no effect.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            if (!stopped && carryLength > 0) {
+                // Search the carried bytes in an array of exactly their length, so no stale
+                // bytes after them can form part of a match:
+                final byte[] endOfStream = Arrays.copyOf(carry, carryLength);
+                search(endOfStream, 0, carryLength - 1, streamLength - carryLength);
+            }
+        }
+    }
+
+    /**
+     * Resets the StreamSearcher to search a new stream, discarding any state from the last one.
+     */
+    public void reset() {
+        carryLength = 0;
+        streamLength = 0;
+        stopped = false;
+        closed = false;
+    }
+
+    /**
+     * Returns the number of bytes written to the stream so far.
+     *
+     * @return The number of bytes written to the stream so far.
+     */
+    public long getStreamLength() {
+        return streamLength;
+    }
+
+    /**
+     * Returns true if the listener asked to stop searching.
+     *
+     * @return true if the listener asked to stop searching.
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[searcher:" + searcher + " maxMatchLength:" + maxMatchLength +
+                                            " stream length:" + streamLength + ']';
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("The StreamSearcher has been closed.");
+        }
+    }
+
+    /*
+     * Positions in the stream up to streamLength - maxMatchLength have all been searched,
+     * and the carry holds the bytes after that (or all of them if the stream is shorter).
+     */
+    private void searchChunk(final byte[] bytes, final int offset, final int length) {
+        final int overlap = maxMatchLength - 1;
+
+        // Search the carried positions, joined to enough of the chunk to complete any match starting in them:
+        if (carryLength > 0) {
+            final int joinedBytes = length < overlap ? length : overlap;
+            System.arraycopy(carry, 0, join, 0, carryLength);
+            System.arraycopy(bytes, offset, join, carryLength, joinedBytes);
+            final int joinLength = carryLength + joinedBytes;
+            final int lastCompletePosition = joinLength - maxMatchLength;
+            final int lastJoinPosition = lastCompletePosition < carryLength - 1 ? lastCompletePosition : carryLength - 1;
+            if (lastJoinPosition >= 0 && !search(join, 0, lastJoinPosition, streamLength - carryLength)) {
+                return;
+            }
+        }
+
+        // Search the positions in the chunk which have all the bytes they need, in place:
+        final int lastChunkPosition = offset + length - maxMatchLength;
+        if (lastChunkPosition >= offset && !search(bytes, offset, lastChunkPosition, streamLength - offset)) {
+            return;
+        }
+
+        // Carry over the bytes at the end of the stream which have not been searched yet:
+        if (length >= overlap) {
+            System.arraycopy(bytes, offset + length - overlap, carry, 0, overlap);
+            carryLength = overlap;
+        } else {
+            // Keep the end of the old carried bytes, followed by the whole chunk:
+            final int totalLength = carryLength + length;
+            final int newCarryLength = totalLength < overlap ? totalLength : overlap;
+            final int keepFromCarry = newCarryLength - length;
+            System.arraycopy(carry, carryLength - keepFromCarry, carry, 0, keepFromCarry);
+            System.arraycopy(bytes, offset, carry, keepFromCarry, length);
+            carryLength = newCarryLength;
+        }
+    }
+
+    /**
+     * Searches an array for all matches starting between two positions, reporting them to the listener
+     * at their position in the array plus the stream offset.  Returns false if the listener stops the search.
+     */
+    private boolean search(final byte[] bytes, final int fromPosition, final int toPosition, final long streamOffset) {
+        streamListener.positionOffset = streamOffset;
+        if (!searcher.searchForwards(bytes, fromPosition, toPosition, streamListener)) {
+            stopped = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Passes matches found in an array on to the listener, at their position in the stream.
+     */
+    private static final class StreamListener<T> implements SearchListener<T> {
+
+        private final SearchListener<T> listener;
+        private long positionOffset;
+
+        private StreamListener(final SearchListener<T> listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public boolean resultFound(final long matchPosition, final T matchingObject) {
+            return listener.resultFound(matchPosition + positionOffset, matchingObject);
+        }
+    }
+
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.automata;
+
+import java.io.IOException;
+import java.util.List;
+
+import net.byteseek.automata.Automata;
+import net.byteseek.automata.bitparallel.ShiftAndTable;
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.Matcher;
+import net.byteseek.matcher.automata.ShiftAndMatcher;
+import net.byteseek.searcher.AbstractSearcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchUtils;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * A Searcher for Glushkov automata, such as those compiled from regular expressions,
+ * which simulates all possible matches in parallel using bit operations (the Shift-And algorithm).
+ * <p>
+ * Searching forwards reads each byte once, adding the initial state to the active states
+ * at every position, until a final state is reached.  This finds where the first match ends,
+ * but not where it starts.  No match can start at or before the last position where
+ * there were no active states, so each position after that is verified in turn using a
+ * {@link ShiftAndMatcher}, and the first one which matches is returned.
+ * <p>
+ * Searching backwards verifies each position which could start a match, using the
+ * ShiftAndMatcher.
+ * <p>
+ * For automata with up to 64 states, the active states are held in a single long,
+ * and searching forwards in a byte array allocates nothing until a match is found.
+ * <p>
+ * This class is immutable and thread-safe.
+ *
+ * @author Matt Palmer
+ */
+public final class ShiftAndSearcher extends AbstractSearcher<Matcher> {
+
+    private final ShiftAndMatcher matcher;
+    private final ShiftAndTable table;
+
+    /**
+     * Constructs a ShiftAndSearcher from a Glushkov automata.
+     *
+     * @param <T>      The type of object associated with states in the automata.
+     * @param automata The automata to search for.
+     * @throws IllegalArgumentException if the automata is null, or is not a Glushkov automata.
+     */
+    public <T> ShiftAndSearcher(final Automata<T> automata) {
+        this(new ShiftAndMatcher(automata));
+    }
+
+    /**
+     * Constructs a ShiftAndSearcher from a ShiftAndMatcher.
+     *
+     * @param matcher The ShiftAndMatcher to search for.
+     * @throws IllegalArgumentException if the matcher is null.
+     */
+    public ShiftAndSearcher(final ShiftAndMatcher matcher) {
+        ArgUtils.checkNullObject(matcher, "matcher");
+        this.matcher = matcher;
+        this.table = matcher.getTable();
+    }
+
+    /**
+     * Returns the ShiftAndMatcher searched for.
+     *
+     * @return The ShiftAndMatcher searched for.
+     */
+    public ShiftAndMatcher getMatcher() {
+        return matcher;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<Matcher>> searchForwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+        // Calculate safe bounds for the start of a match:
+        final int startPosition = fromPosition > 0? fromPosition : 0;
+        final int lastStartPosition = toPosition < bytes.length - 1? toPosition : bytes.length - 1;
+        if (startPosition > lastStartPosition) {
+            return SearchUtils.noResults();
+        }
+        if (table.isInitialFinal()) {
+            return SearchUtils.singleResult(startPosition, (Matcher) matcher);
+        }
+        if (table.getNumberOfWords() > 1) {
+            return searchForwardsMultiWord(bytes, startPosition, lastStartPosition);
+        }
+
+        // Initialise:
+        final ShiftAndMatcher theMatcher = matcher;
+        final ShiftAndTable localTable = table;
+        final long finalStates = localTable.getFinalStates();
+
+        // Step the active states over the bytes, starting a new match at each start position:
+        long states = 0;
+        int lastDeadPosition = startPosition - 1;
+        for (int position = startPosition; position < bytes.length; position++) {
+            final long currentStates = position <= lastStartPosition?
+                                       states | ShiftAndTable.INITIAL_STATES : states;
+            states = localTable.nextStates(currentStates, bytes[position]);
+            if (states == 0) {
+                if (position >= lastStartPosition) {
+                    break; // no more matches can start.
+                }
+                lastDeadPosition = position;
+            } else if ((states & finalStates) != 0) {
+                // A match ends here - find the first position it could start at:
+                final int lastCandidate = position < lastStartPosition? position : lastStartPosition;
+                for (int candidate = lastDeadPosition + 1; candidate <= lastCandidate; candidate++) {
+                    if (theMatcher.matches(bytes, candidate)) {
+                        return SearchUtils.singleResult(candidate, (Matcher) theMatcher);
+                    }
+                }
+            }
+        }
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<Matcher>> searchForwards(final WindowReader reader, final long fromPosition,
+                                                      final long toPosition) throws IOException {
+        // Initialise:
+        final ShiftAndMatcher theMatcher = matcher;
+        final ShiftAndTable localTable = table;
+        final boolean singleWord = localTable.getNumberOfWords() == 1;
+        final long finalStates = singleWord? localTable.getFinalStates() : 0;
+        long[] multiStates = null;
+        long[] nextMultiStates = null;
+        if (!singleWord) {
+            multiStates = new long[localTable.getNumberOfWords()];
+            nextMultiStates = new long[localTable.getNumberOfWords()];
+        }
+        final long startPosition = fromPosition > 0? fromPosition : 0;
+        if (localTable.isInitialFinal()) {
+            return startPosition <= toPosition && reader.getWindow(startPosition) != null?
+                   SearchUtils.singleResult(startPosition, (Matcher) theMatcher) : SearchUtils.<Matcher>noResults();
+        }
+        long states = 0;
+        long lastDeadPosition = startPosition - 1;
+        long searchPosition = startPosition;
+
+        // While there is a window to search in:
+        Window window;
+        while ((window = reader.getWindow(searchPosition)) != null) {
+            final byte[] array = window.getArray();
+            final int arrayStartPosition = reader.getWindowOffset(searchPosition);
+            final int arrayEndPosition = window.length() - 1;
+            final long arrayOffset = searchPosition - arrayStartPosition;
+            for (int arrayPosition = arrayStartPosition; arrayPosition <= arrayEndPosition; arrayPosition++) {
+                final long position = arrayOffset + arrayPosition;
+                final boolean canStart = position <= toPosition;
+
+                // Step the active states, starting a new match if we can:
+                final boolean anyStates;
+                final boolean anyFinal;
+                if (singleWord) {
+                    final long currentStates = canStart? states | ShiftAndTable.INITIAL_STATES : states;
+                    states = localTable.nextStates(currentStates, array[arrayPosition]);
+                    anyStates = states != 0;
+                    anyFinal = (states & finalStates) != 0;
+                } else {
+                    if (canStart) {
+                        multiStates[0] |= ShiftAndTable.INITIAL_STATES;
+                    }
+                    anyStates = localTable.nextStates(multiStates, nextMultiStates, array[arrayPosition]);
+                    anyFinal = anyStates && localTable.isFinal(nextMultiStates);
+                    final long[] lastStates = multiStates;
+                    multiStates = nextMultiStates;
+                    nextMultiStates = lastStates;
+                }
+
+                if (!anyStates) {
+                    if (!canStart || position == toPosition) {
+                        return SearchUtils.noResults(); // no more matches can start.
+                    }
+                    lastDeadPosition = position;
+                } else if (anyFinal) {
+                    // A match ends here - find the first position it could start at:
+                    final long lastCandidate = position < toPosition? position : toPosition;
+                    for (long candidate = lastDeadPosition + 1; candidate <= lastCandidate; candidate++) {
+                        if (theMatcher.matches(reader, candidate)) {
+                            return SearchUtils.singleResult(candidate, (Matcher) theMatcher);
+                        }
+                    }
+                }
+            }
+            searchPosition += arrayEndPosition - arrayStartPosition + 1;
+        }
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<Matcher>> searchBackwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+        final ShiftAndMatcher theMatcher = matcher;
+        final ShiftAndTable localTable = table;
+        final int lastPosition = toPosition > 0? toPosition : 0;
+        for (int searchPosition = fromPosition < bytes.length? fromPosition : bytes.length - 1;
+             searchPosition >= lastPosition; searchPosition--) {
+            if (localTable.canStartWith(bytes[searchPosition]) && theMatcher.matches(bytes, searchPosition)) {
+                return SearchUtils.singleResult(searchPosition, (Matcher) theMatcher);
+            }
+        }
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<Matcher>> searchBackwards(final WindowReader reader, final long fromPosition,
+                                                       final long toPosition) throws IOException {
+        final ShiftAndMatcher theMatcher = matcher;
+        final ShiftAndTable localTable = table;
+        final long lastPosition = toPosition > 0? toPosition : 0;
+        long searchPosition = withinLength(reader, fromPosition);
+        Window window;
+        while (searchPosition >= lastPosition && (window = reader.getWindow(searchPosition)) != null) {
+            final byte[] array = window.getArray();
+            final int arrayStartPosition = reader.getWindowOffset(searchPosition);
+            final long distanceToEnd = searchPosition - lastPosition;
+            final int arrayEndPosition = distanceToEnd > arrayStartPosition?
+                                         0 : arrayStartPosition - (int) distanceToEnd;
+            for (int arrayPosition = arrayStartPosition; arrayPosition >= arrayEndPosition; arrayPosition--) {
+                if (localTable.canStartWith(array[arrayPosition])) {
+                    final long matchPosition = searchPosition - arrayStartPosition + arrayPosition;
+                    if (theMatcher.matches(reader, matchPosition)) {
+                        return SearchUtils.singleResult(matchPosition, (Matcher) theMatcher);
+                    }
+                }
+            }
+            searchPosition -= arrayStartPosition + 1;
+        }
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The tables are compiled when the searcher is constructed, so there is nothing to prepare.
+     */
+    @Override
+    public void prepareForwards() {
+        // Nothing to prepare in order to search.
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The tables are compiled when the searcher is constructed, so there is nothing to prepare.
+     */
+    @Override
+    public void prepareBackwards() {
+        // Nothing to prepare in order to search.
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[matcher:" + matcher + ']';
+    }
+
+    private List<SearchResult<Matcher>> searchForwardsMultiWord(final byte[] bytes, final int startPosition,
+                                                                final int lastStartPosition) {
+        final ShiftAndMatcher theMatcher = matcher;
+        final ShiftAndTable localTable = table;
+        long[] states = new long[localTable.getNumberOfWords()];
+        long[] nextStates = new long[localTable.getNumberOfWords()];
+        int lastDeadPosition = startPosition - 1;
+        for (int position = startPosition; position < bytes.length; position++) {
+            if (position <= lastStartPosition) {
+                states[0] |= ShiftAndTable.INITIAL_STATES;
+            }
+            final boolean anyStates = localTable.nextStates(states, nextStates, bytes[position]);
+            final long[] lastStates = states;
+            states = nextStates;
+            nextStates = lastStates;
+            if (!anyStates) {
+                if (position >= lastStartPosition) {
+                    break; // no more matches can start.
+                }
+                lastDeadPosition = position;
+            } else if (localTable.isFinal(states)) {
+                // A match ends here - find the first position it could start at:
+                final int lastCandidate = position < lastStartPosition? position : lastStartPosition;
+                for (int candidate = lastDeadPosition + 1; candidate <= lastCandidate; candidate++) {
+                    if (theMatcher.matches(bytes, candidate)) {
+                        return SearchUtils.singleResult(candidate, (Matcher) theMatcher);
+                    }
+                }
+            }
+        }
+        return SearchUtils.noResults();
+    }
+
+}
@@ -35,6 +35,7 @@ import net.byteseek.io.reader.windows.Window;
 import net.byteseek.io.reader.WindowReader;
 import net.byteseek.matcher.bytes.ByteMatcher;
 import net.byteseek.searcher.AbstractSearcher;
+import net.byteseek.searcher.SearchListener;
 import net.byteseek.searcher.SearchResult;
 import net.byteseek.searcher.SearchUtils;
 import net.byteseek.utils.ArgUtils;
@@ -107,6 +108,21 @@ public final class ByteMatcherSearcher extends AbstractSearcher<ByteMatcher> {
         return SearchUtils.noResults();
     }
 
+    @Override
+    public boolean searchForwards(final byte[] bytes, final int fromPosition, final int toPosition,
+                                  final SearchListener<ByteMatcher> listener) {
+        final ByteMatcher searchByte = toSearchFor;
+        final int startPosition = fromPosition >= 0? fromPosition : 0;
+        final int endPosition   = toPosition < bytes.length? toPosition : bytes.length - 1;
+        for (int searchPosition = startPosition; searchPosition <= endPosition; searchPosition++) {
+            if (searchByte.matches(bytes[searchPosition]) &&
+                !listener.resultFound(searchPosition, searchByte)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public List<SearchResult<ByteMatcher>> searchBackwards(final WindowReader reader, final long fromPosition, final long toPosition) throws IOException {
         final ByteMatcher searchByte = toSearchFor;
@@ -165,6 +181,15 @@ public final class ByteMatcherSearcher extends AbstractSearcher<ByteMatcher> {
         // Nothing to prepare in order to search.
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getMaximumMatchLength() {
+        return 1;
+    }
+
+
     /**
      * Returns a string representation of this searcher.
      * The precise format returned is subject to change, but in general it will
@@ -35,6 +35,7 @@ import net.byteseek.io.reader.windows.Window;
 import net.byteseek.io.reader.WindowReader;
 import net.byteseek.matcher.bytes.OneByteMatcher;
 import net.byteseek.searcher.AbstractSearcher;
+import net.byteseek.searcher.SearchListener;
 import net.byteseek.searcher.SearchResult;
 import net.byteseek.searcher.SearchUtils;
 import net.byteseek.utils.ArgUtils;
@@ -124,6 +125,58 @@ public final class ByteSearcher extends AbstractSearcher<Byte> {
         return SearchUtils.noResults();
     }
 
+    @Override
+    public boolean searchForwards(final WindowReader reader, final long fromPosition, final long toPosition,
+                                  final SearchListener<Byte> listener) throws IOException {
+        final byte searchByte = toSearchFor;
+        final Byte resultValue = byteValue;
+        long searchPosition = fromPosition >=0? fromPosition : 0;
+        Window window;
+        // While we have a window to search in:
+        while ( searchPosition <= toPosition && (window = reader.getWindow(searchPosition)) != null) {
+            final byte[] array = window.getArray();
+
+            // Determine start and end points in the search for this window:
+            final int  startWindowSearchPosition = reader.getWindowOffset(searchPosition);
+            final int  distanceToWindowEnd = window.length() - 1 - startWindowSearchPosition;
+            final long distanceToSearchEnd = toPosition - searchPosition;
+            final int endWindowSearchPosition = distanceToWindowEnd < distanceToSearchEnd?
+                    startWindowSearchPosition + distanceToWindowEnd :
+                    startWindowSearchPosition + (int) distanceToSearchEnd;
+
+            // Search in the window array, reporting each match:
+            final long readerPositionOffset = searchPosition - startWindowSearchPosition;
+            for (int arraySearchPosition = startWindowSearchPosition;
+                     arraySearchPosition <= endWindowSearchPosition; arraySearchPosition++) {
+                if (array[arraySearchPosition] == searchByte &&
+                    !listener.resultFound(readerPositionOffset + arraySearchPosition, resultValue)) {
+                    return false;
+                }
+            }
+
+            // Move the search position onwards to the next window:
+            searchPosition += (distanceToWindowEnd + 1);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean searchForwards(final byte[] bytes, final int fromPosition, final int toPosition,
+                                  final SearchListener<Byte> listener) {
+        final byte searchByte = toSearchFor;
+        final Byte resultValue = byteValue;
+        final int lastPosition = toPosition < bytes.length?
+                                 toPosition : bytes.length - 1;
+        for (int searchPosition = fromPosition > 0? fromPosition : 0;
+             searchPosition <= lastPosition; searchPosition++) {
+            if (searchByte == bytes[searchPosition] &&
+                !listener.resultFound(searchPosition, resultValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public List<SearchResult<Byte>> searchBackwards(final WindowReader reader, final long fromPosition, final long toPosition) throws IOException {
         final byte searchByte = toSearchFor;
@@ -185,6 +238,15 @@ public final class ByteSearcher extends AbstractSearcher<Byte> {
        // Nothing to prepare in order to search.
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getMaximumMatchLength() {
+        return 1;
+    }
+
+
     /**
      * Returns a string representation of this searcher.
      * The precise format returned is subject to change, but in general it will
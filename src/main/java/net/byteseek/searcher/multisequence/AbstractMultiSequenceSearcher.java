@@ -92,6 +92,15 @@ public abstract class AbstractMultiSequenceSearcher extends AbstractSearcher<Seq
     public MultiSequenceMatcher getMatcher() {
         return sequences;
     }
+
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getMaximumMatchLength() {
+        return sequences.getMaximumLength();
+    }
     
     
     /**
@@ -230,7 +239,6 @@ public abstract class AbstractMultiSequenceSearcher extends AbstractSearcher<Seq
     public List<SearchResult<SequenceMatcher>> searchBackwards(final WindowReader reader, 
             final long fromPosition, final long toPosition) throws IOException {
         // Initialise:
-        final int smallestMatchEndPosition = sequences.getMinimumLength() - 1;
         final int longestMatchEndPosition = sequences.getMaximumLength() - 1;
         final long finalSearchPosition = toPosition > 0?
                                          toPosition : 0;
@@ -241,58 +249,46 @@ public abstract class AbstractMultiSequenceSearcher extends AbstractSearcher<Seq
         while (searchPosition >= finalSearchPosition &&
                (window = reader.getWindow(searchPosition)) != null) {
             
-            // Calculate first search start position
-            final int searchStartPosition = reader.getWindowOffset(searchPosition);
+            // Calculate bounds for searching back across this window:
             final long windowStartPosition = window.getWindowPosition();
+            final int searchStartPosition = reader.getWindowOffset(searchPosition);
+            final int lastFitPosition = window.length() - 1 - longestMatchEndPosition;
             final long distanceToEnd = finalSearchPosition - windowStartPosition;                
             final int searchEndPosition = distanceToEnd > 0?
                                     (int) distanceToEnd : 0;             
             
-            // Can the multi-sequence fit into the searchable bytes of this window?
-            // It may not if the start position of the window is already close
-            // to the end of the window, or the sequence is long (potentially
-            // could be longer than any single window - but mostly won't be):
-            if (searchStartPosition - smallestMatchEndPosition >= searchEndPosition) {
+            // From the current search position, the longest sequences may cross over
+            // in to the next window, so we can't search directly in the window byte array.
+            // We must use the reader interface on the sequences to let them match
+            // over more bytes than this window has available.
+            if (searchStartPosition > lastFitPosition) {
+                final int crossingEndPosition = lastFitPosition >= searchEndPosition?
+                                                lastFitPosition + 1 : searchEndPosition;
+                final List<SearchResult<SequenceMatcher>> readerResult =
+                        doSearchBackwards(reader, searchPosition, windowStartPosition + crossingEndPosition);
+                
+                // Did we find a match?
+                if (!readerResult.isEmpty()) {
+                    return readerResult;
+                }
+                searchPosition = windowStartPosition + crossingEndPosition - 1;
+            }
 
-                // Search backwards in the byte array of the window:
-                final byte[] array = window.getArray();
+            // All the sequences fit into the rest of the window, so search
+            // backwards directly in the byte array of the window:
+            final int arraySearchPosition = (int) (searchPosition - windowStartPosition);
+            if (arraySearchPosition >= searchEndPosition) {
                 final List<SearchResult<SequenceMatcher>> arrayResult = 
-                        searchBackwards(array, searchStartPosition, searchEndPosition);
+                        searchBackwards(window.getArray(), arraySearchPosition, searchEndPosition);
                 
                 // Did we find a match?
                 if (!arrayResult.isEmpty()) {
-                    final long readerOffset = searchPosition - searchStartPosition;
-                    return SearchUtils.addPositionToResults(arrayResult, readerOffset);
-                }
-                
-                // Continue the search one on from where we last looked:
-                final int bytesSearched = searchStartPosition - searchEndPosition;
-                searchPosition -= (bytesSearched + 1);
-
-                // Did we pass the final search position?  In which case, we're finished.
-                if (searchPosition < finalSearchPosition) {
-                    return SearchUtils.noResults();
+                    return SearchUtils.addPositionToResults(arrayResult, windowStartPosition);
                 }
             }
-
-            // From the current search position, the multi-sequence crosses over in to
-            // the previous window, so we can't search directly in the window byte array.
-            // We must use the reader interface on the sequence to let it match
-            // over more bytes than this window has available.
-            
-            // Search back to the first position in the previous window where any 
-            // of the sequences might still cross over into the current window.
-            final long lastCrossingPosition = windowStartPosition - longestMatchEndPosition;
-            final List<SearchResult<SequenceMatcher>> readerResult =
-                    doSearchBackwards(reader, searchPosition, lastCrossingPosition);
-            
-            // Did we find a match?
-            if (!readerResult.isEmpty()) {
-                return readerResult;
-            }
             
-            // Continue the search one on from where we last looked:
-            searchPosition = lastCrossingPosition - 1;
+            // Continue the search one back from where we last looked:
+            searchPosition = windowStartPosition + searchEndPosition - 1;
         }
         
         return SearchUtils.noResults();
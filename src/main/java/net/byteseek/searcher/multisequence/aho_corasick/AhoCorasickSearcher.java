@@ -0,0 +1,389 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.multisequence.aho_corasick;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.matcher.automata.SequenceMatcherTrie;
+import net.byteseek.matcher.multisequence.MultiSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchUtils;
+import net.byteseek.searcher.multisequence.AbstractMultiSequenceSearcher;
+import net.byteseek.searcher.multisequence.MultiSequenceMatcherSearcher;
+import net.byteseek.utils.factory.ObjectFactory;
+import net.byteseek.utils.lazy.DoubleCheckImmutableLazyObject;
+import net.byteseek.utils.lazy.LazyObject;
+
+/**
+ * A multi-sequence searcher using the Aho-Corasick algorithm.
+ * <p>
+ * The sequences are built into a {@link SequenceMatcherTrie}, which is compiled into an
+ * {@link AhoCorasickTable} of flat arrays.  The search reads every byte once, so its speed does
+ * not depend on the length of the shortest sequence or the number of sequences, unlike the
+ * Set-Horspool and Wu-Manber searchers, whose shifts collapse with large sets or short sequences.
+ * It is a good choice for very large numbers of sequences, or sets with very short sequences.
+ * <p>
+ * Searching forwards, a match is found when the automaton reaches the end of a sequence.
+ * As a longer sequence starting earlier can end later, the search carries on until no
+ * earlier match is possible, and the results are those sequences which match at the earliest
+ * position.  Searching backwards uses a table built from the reversed sequences, so the first
+ * sequence found is always at the latest position.
+ * The matching sequences are the ones held in the final states of the automaton, so they
+ * do not have to be matched again.
+ * <p>
+ * The state of the automaton is carried over from one window to the next, so searching
+ * a {@link WindowReader} never has to re-read bytes across window boundaries.
+ * <p>
+ * Sequences with many byte classes in them can need an automaton which is too big to build
+ * (see {@link AhoCorasickTable}).  If so, the searcher falls back to verifying the sequences
+ * at each position with a {@link MultiSequenceMatcherSearcher}.
+ *
+ * @author Matt Palmer
+ */
+public final class AhoCorasickSearcher extends AbstractMultiSequenceSearcher {
+
+    private final LazyObject<Automaton> forwardTable;
+    private final LazyObject<Automaton> backwardTable;
+    private final FallbackSearcher fallback;
+
+    /**
+     * Constructs an AhoCorasickSearcher for the sequences in a {@link MultiSequenceMatcher}.
+     *
+     * @param sequences The MultiSequenceMatcher to search for.
+     * @throws IllegalArgumentException if the sequences are null.
+     */
+    public AhoCorasickSearcher(final MultiSequenceMatcher sequences) {
+        super(sequences);
+        forwardTable  = new DoubleCheckImmutableLazyObject<Automaton>(new TableFactory(false));
+        backwardTable = new DoubleCheckImmutableLazyObject<Automaton>(new TableFactory(true));
+        fallback      = new FallbackSearcher(sequences);
+    }
+
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+        // Get the objects needed to search, or fall back if there is no automaton:
+        final AhoCorasickTable<SequenceMatcher> table = forwardTable.get().table;
+        if (table == null) {
+            return fallback.searchForwards(bytes, fromPosition, toPosition);
+        }
+        final int maxLength = sequences.getMaximumLength();
+
+        // Calculate safe bounds for the search:
+        final int startPosition = fromPosition > 0? fromPosition : 0;
+        final long lastToPosition = (long) toPosition + maxLength - 1;
+        int finalPosition = lastToPosition < bytes.length? (int) lastToPosition : bytes.length - 1;
+
+        // Search forwards until no match can start before the earliest match found:
+        final List<SequenceMatcher> matches = new ArrayList<SequenceMatcher>();
+        long earliestMatch = Long.MAX_VALUE;
+        int state = AhoCorasickTable.INITIAL_STATE;
+        for (int searchPosition = startPosition; searchPosition <= finalPosition; searchPosition++) {
+            state = table.getNextState(state, bytes[searchPosition]);
+            if (table.getMatchState(state) != AhoCorasickTable.INITIAL_STATE) {
+                final long matchPosition = addMatches(table, state, searchPosition, toPosition,
+                                                      earliestMatch, matches);
+                if (matchPosition < earliestMatch) {
+                    earliestMatch = matchPosition;
+                    final long lastEndPosition = matchPosition + maxLength - 1;
+                    if (lastEndPosition < finalPosition) {
+                        finalPosition = (int) lastEndPosition;
+                    }
+                }
+            }
+        }
+
+        return earliestMatch == Long.MAX_VALUE ? SearchUtils.<SequenceMatcher>noResults()
+               : SearchUtils.resultsAtPosition(earliestMatch, matches);
+    }
+
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        // Get the objects needed to search, or fall back if there is no automaton:
+        final AhoCorasickTable<SequenceMatcher> table = forwardTable.get().table;
+        if (table == null) {
+            return fallback.searchReaderForwards(reader, fromPosition, toPosition);
+        }
+        final int maxLength = sequences.getMaximumLength();
+
+        // Calculate safe bounds for the search:
+        long searchPosition = fromPosition > 0? fromPosition : 0;
+        long finalPosition = toPosition < Long.MAX_VALUE - maxLength? toPosition + maxLength - 1 : Long.MAX_VALUE;
+
+        // While there is a window to search in:
+        final List<SequenceMatcher> matches = new ArrayList<SequenceMatcher>();
+        long earliestMatch = Long.MAX_VALUE;
+        int state = AhoCorasickTable.INITIAL_STATE;
+        Window window;
+        while (searchPosition <= finalPosition &&
+               (window = reader.getWindow(searchPosition)) != null) {
+            final byte[] array = window.getArray();
+            final int arrayStartPosition = reader.getWindowOffset(searchPosition);
+            final long windowStartPosition = searchPosition - arrayStartPosition;
+            final int arrayEndPosition = window.length() - 1;
+            int arraySearchPosition = arrayStartPosition;
+            while (arraySearchPosition <= arrayEndPosition &&
+                   windowStartPosition + arraySearchPosition <= finalPosition) {
+                state = table.getNextState(state, array[arraySearchPosition]);
+                if (table.getMatchState(state) != AhoCorasickTable.INITIAL_STATE) {
+                    final long matchPosition = addMatches(table, state, windowStartPosition + arraySearchPosition,
+                                                          toPosition, earliestMatch, matches);
+                    if (matchPosition < earliestMatch) {
+                        earliestMatch = matchPosition;
+                        final long lastEndPosition = matchPosition + maxLength - 1;
+                        if (lastEndPosition < finalPosition) {
+                            finalPosition = lastEndPosition;
+                        }
+                    }
+                }
+                arraySearchPosition++;
+            }
+            searchPosition = windowStartPosition + arraySearchPosition;
+        }
+
+        return earliestMatch == Long.MAX_VALUE ? SearchUtils.<SequenceMatcher>noResults()
+               : SearchUtils.resultsAtPosition(earliestMatch, matches);
+    }
+
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+        // Get the objects needed to search, or fall back if there is no automaton:
+        final AhoCorasickTable<SequenceMatcher> table = backwardTable.get().table;
+        if (table == null) {
+            return fallback.searchBackwards(bytes, fromPosition, toPosition);
+        }
+        final int maxLength = sequences.getMaximumLength();
+
+        // Calculate safe bounds for the search.  We start from the furthest position
+        // a sequence matching at the from position could end at.
+        if (fromPosition < toPosition || fromPosition < 0) {
+            return SearchUtils.noResults();
+        }
+        final long firstFromPosition = (long) fromPosition + maxLength - 1;
+        final int startPosition = firstFromPosition < bytes.length? (int) firstFromPosition : bytes.length - 1;
+        final int finalPosition = toPosition > 0? toPosition : 0;
+
+        // Search backwards; the first reversed sequence found at or before the from position is the match:
+        int state = AhoCorasickTable.INITIAL_STATE;
+        for (int searchPosition = startPosition; searchPosition >= finalPosition; searchPosition--) {
+            state = table.getNextState(state, bytes[searchPosition]);
+            if (searchPosition <= fromPosition && table.getMatchState(state) != AhoCorasickTable.INITIAL_STATE) {
+                return SearchUtils.resultsAtPosition(searchPosition, allMatches(table, state));
+            }
+        }
+
+        return SearchUtils.noResults();
+    }
+
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        // Get the objects needed to search, or fall back if there is no automaton:
+        final AhoCorasickTable<SequenceMatcher> table = backwardTable.get().table;
+        if (table == null) {
+            return fallback.searchReaderBackwards(reader, fromPosition, toPosition);
+        }
+        final int maxLength = sequences.getMaximumLength();
+
+        // Calculate safe bounds for the search:
+        if (fromPosition < toPosition || fromPosition < 0) {
+            return SearchUtils.noResults();
+        }
+        final long firstFromPosition = fromPosition < Long.MAX_VALUE - maxLength? fromPosition + maxLength - 1 : Long.MAX_VALUE;
+        long searchPosition = withinLength(reader, firstFromPosition);
+        final long finalPosition = toPosition > 0? toPosition : 0;
+
+        // While there is a window to search in:
+        int state = AhoCorasickTable.INITIAL_STATE;
+        Window window;
+        while (searchPosition >= finalPosition &&
+               (window = reader.getWindow(searchPosition)) != null) {
+            final byte[] array = window.getArray();
+            final int arrayStartPosition = reader.getWindowOffset(searchPosition);
+            final long windowStartPosition = searchPosition - arrayStartPosition;
+            final long distanceToEnd = finalPosition - windowStartPosition;
+            final int lastSearchPosition = distanceToEnd > 0? (int) distanceToEnd : 0;
+            for (int arraySearchPosition = arrayStartPosition; arraySearchPosition >= lastSearchPosition;
+                 arraySearchPosition--) {
+                state = table.getNextState(state, array[arraySearchPosition]);
+                final long matchPosition = windowStartPosition + arraySearchPosition;
+                if (matchPosition <= fromPosition && table.getMatchState(state) != AhoCorasickTable.INITIAL_STATE) {
+                    return SearchUtils.resultsAtPosition(matchPosition, allMatches(table, state));
+                }
+            }
+            searchPosition = windowStartPosition - 1;
+        }
+
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The automaton state is carried across window boundaries, so this just searches the reader.
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchForwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        return searchForwards(reader, fromPosition, toPosition);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The automaton state is carried across window boundaries, so this just searches the reader.
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchBackwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        return searchBackwards(reader, fromPosition, toPosition);
+    }
+
+    @Override
+    public void prepareForwards() {
+        forwardTable.get();
+    }
+
+    @Override
+    public void prepareBackwards() {
+        backwardTable.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[sequences:" + sequences + ']';
+    }
+
+    /**
+     * Adds the sequences ending at a position in a state to a list of matches, if they start
+     * at or before the earliest match found so far and not after the to position.  If a sequence
+     * starts before the earliest match, the list is cleared first.  Returns the start of the
+     * earliest match, including any which were added.
+     */
+    private static long addMatches(final AhoCorasickTable<SequenceMatcher> table, final int state,
+                                   final long endPosition, final long toPosition,
+                                   final long earliestMatch, final List<SequenceMatcher> matches) {
+        long earliestPosition = earliestMatch;
+        // Final states are visited longest first, so each one starts later than the last:
+        for (int matchState = table.getMatchState(state); matchState != AhoCorasickTable.INITIAL_STATE;
+             matchState = table.getNextMatchState(matchState)) {
+            final long matchPosition = endPosition - table.getDepth(matchState) + 1;
+            if (matchPosition > toPosition || matchPosition > earliestPosition) {
+                break;
+            }
+            if (matchPosition < earliestPosition) {
+                matches.clear();
+                earliestPosition = matchPosition;
+            }
+            matches.addAll(table.getAssociations(matchState));
+        }
+        return earliestPosition;
+    }
+
+    /**
+     * Returns all the sequences ending in a state, following failure links.  In the table of reversed
+     * sequences, these are all the sequences which start at the position the state was reached.
+     */
+    private static List<SequenceMatcher> allMatches(final AhoCorasickTable<SequenceMatcher> table,
+                                                    final int state) {
+        final List<SequenceMatcher> matches = new ArrayList<SequenceMatcher>();
+        for (int matchState = table.getMatchState(state); matchState != AhoCorasickTable.INITIAL_STATE;
+             matchState = table.getNextMatchState(matchState)) {
+            matches.addAll(table.getAssociations(matchState));
+        }
+        return matches;
+    }
+
+    /**
+     * Holds an automaton, or null if the sequences need an automaton which is too big to build.
+     */
+    private static final class Automaton {
+        private final AhoCorasickTable<SequenceMatcher> table;
+
+        private Automaton(final AhoCorasickTable<SequenceMatcher> table) {
+            this.table = table;
+        }
+    }
+
+    /**
+     * Verifies the sequences at each position if there is no automaton.  The reader is searched
+     * position by position across windows, as the automaton search would.
+     */
+    private static final class FallbackSearcher extends MultiSequenceMatcherSearcher {
+
+        private FallbackSearcher(final MultiSequenceMatcher sequences) {
+            super(sequences);
+        }
+
+        private List<SearchResult<SequenceMatcher>> searchReaderForwards(final WindowReader reader,
+                final long fromPosition, final long toPosition) throws IOException {
+            return doSearchForwards(reader, fromPosition, toPosition);
+        }
+
+        private List<SearchResult<SequenceMatcher>> searchReaderBackwards(final WindowReader reader,
+                final long fromPosition, final long toPosition) throws IOException {
+            return doSearchBackwards(reader, fromPosition, toPosition);
+        }
+    }
+
+    private final class TableFactory implements ObjectFactory<Automaton> {
+
+        private final boolean reversed;
+
+        private TableFactory(final boolean reversed) {
+            this.reversed = reversed;
+        }
+
+        @Override
+        public Automaton create() {
+            final SequenceMatcherTrie trie = new SequenceMatcherTrie();
+            if (reversed) {
+                trie.addAllReversed(sequences.getSequenceMatchers());
+            } else {
+                trie.addAll(sequences.getSequenceMatchers());
+            }
+            try {
+                return new Automaton(new AhoCorasickTable<SequenceMatcher>(trie));
+            } catch (final IllegalArgumentException tooManyStates) {
+                return new Automaton(null);
+            }
+        }
+    }
+
+}
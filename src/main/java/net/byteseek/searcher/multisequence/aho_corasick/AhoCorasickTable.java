@@ -0,0 +1,486 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.multisequence.aho_corasick;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.byteseek.automata.State;
+import net.byteseek.automata.Transition;
+import net.byteseek.automata.trie.Trie;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * An immutable Aho-Corasick automaton compiled from a {@link Trie}, with the goto function
+ * and failure links held in flat arrays.
+ * <p>
+ * States are numbered breadth-first, with the initial (root) state as zero.  The transitions
+ * of each state are held as a sorted run of bytes and target states in two shared arrays,
+ * and the failure link of each state in an int array.  The root state has a dense table
+ * of 256 transitions, as almost every byte of a search is processed from it or close to it.
+ * <p>
+ * Each final state holds the sequences of the trie which end in it, which all have the
+ * length of the depth of the state.  Every state also records its deepest final state,
+ * following failure links, so a search can find all the sequences which end at a position
+ * by walking from one final state to the next, longest first.
+ * <p>
+ * A trie built from SequenceMatchers can have transitions on sets of bytes, so a state can
+ * be reached by more than one string of bytes.  If those strings need different failure links,
+ * the state (and the sub-trie after it) is copied for each distinct failure link, so every
+ * state has exactly one.  Tries of plain byte sequences never need to be copied, but with
+ * byte classes the number of copies can grow exponentially with the length of the sequences
+ * (for example, a sequence alternating any byte with a fixed byte).  The number of states
+ * which may be copied is limited; if a trie needs more, construction fails with an
+ * IllegalArgumentException, and the caller should search for the sequences some other way.
+ *
+ * @param <T> The type of sequence held in the trie.
+ *
+ * @author Matt Palmer
+ */
+public final class AhoCorasickTable<T> {
+
+    /**
+     * The initial state of the automaton.
+     */
+    public static final int INITIAL_STATE = 0;
+
+    /**
+     * The default maximum number of states which can be copied to give states a single failure link.
+     */
+    public static final int DEFAULT_MAX_COPIED_STATES = 65536;
+
+    private static final int LINEAR_SEARCH_MAX = 8;
+
+    private final int[] rootTransitions;
+    private final int[] transitionIndex;
+    private final byte[] transitionBytes;
+    private final int[] transitionStates;
+    private final int[] failureStates;
+    private final int[] depths;
+    private final int[] matchStates;
+    private final List<List<T>> associations;
+
+    /**
+     * Compiles an Aho-Corasick automaton from a trie, copying at most
+     * {@link #DEFAULT_MAX_COPIED_STATES} states to give states a single failure link.
+     *
+     * @param trie The trie to compile.
+     * @throws IllegalArgumentException if the trie is null, or it needs too many states to be copied.
+     */
+    public AhoCorasickTable(final Trie<T> trie) {
+        this(trie, DEFAULT_MAX_COPIED_STATES);
+    }
+
+    /**
+     * Compiles an Aho-Corasick automaton from a trie, copying at most a maximum number
+     * of states to give states a single failure link.
+     *
+     * @param trie             The trie to compile.
+     * @param maxCopiedStates  The maximum number of states which can be copied.
+     * @throws IllegalArgumentException if the trie is null, the maximum is negative,
+     *                                  or the trie needs more states than the maximum to be copied.
+     */
+    public AhoCorasickTable(final Trie<T> trie, final int maxCopiedStates) {
+        ArgUtils.checkNullObject(trie, "trie");
+        if (maxCopiedStates < 0) {
+            throw new IllegalArgumentException("The maximum number of copied states cannot be negative: " +
+                                               maxCopiedStates);
+        }
+        final List<Node<T>> nodes = buildFailureLinks(copyTrie(trie.getInitialState()), maxCopiedStates);
+        final int numStates = nodes.size();
+        for (int stateNumber = 0; stateNumber < numStates; stateNumber++) {
+            nodes.get(stateNumber).number = stateNumber;
+        }
+        rootTransitions = new int[256];
+        transitionIndex = new int[numStates + 1];
+        failureStates = new int[numStates];
+        depths = new int[numStates];
+        matchStates = new int[numStates];
+        associations = new ArrayList<List<T>>(numStates);
+        int numTransitions = 0;
+        for (final Node<T> node : nodes) {
+            numTransitions += node.keys.length;
+        }
+        transitionBytes = new byte[numTransitions];
+        transitionStates = new int[numTransitions];
+        int transitionPosition = 0;
+        for (int stateNumber = 0; stateNumber < numStates; stateNumber++) {
+            final Node<T> node = nodes.get(stateNumber);
+            transitionIndex[stateNumber] = transitionPosition;
+            for (int keyIndex = 0; keyIndex < node.keys.length; keyIndex++) {
+                transitionBytes[transitionPosition] = (byte) node.keys[keyIndex];
+                transitionStates[transitionPosition++] = node.targets.get(keyIndex).number;
+            }
+            depths[stateNumber] = node.depth;
+            associations.add(node.associations);
+            if (stateNumber != INITIAL_STATE) {
+                final int failure = node.failure.number;
+                failureStates[stateNumber] = failure;
+                // Failure states are always shallower, so have already been numbered:
+                matchStates[stateNumber] = node.associations.isEmpty() ? matchStates[failure] : stateNumber;
+            }
+        }
+        transitionIndex[numStates] = transitionPosition;
+        final Node<T> root = nodes.get(INITIAL_STATE);
+        for (int keyIndex = 0; keyIndex < root.keys.length; keyIndex++) {
+            rootTransitions[root.keys[keyIndex]] = root.targets.get(keyIndex).number;
+        }
+    }
+
+    /**
+     * Returns the state to move to from a state on a byte value, following failure links
+     * as necessary.  There is always a next state; if nothing matches, it is the initial state.
+     *
+     * @param state The current state.
+     * @param value The next byte value.
+     * @return The next state.
+     */
+    public int getNextState(final int state, final byte value) {
+        int currentState = state;
+        while (currentState != INITIAL_STATE) {
+            final int nextState = getTransition(currentState, value);
+            if (nextState != INITIAL_STATE) {
+                return nextState;
+            }
+            currentState = failureStates[currentState];
+        }
+        return rootTransitions[value & 0xFF];
+    }
+
+    /**
+     * Returns the length of the longest sequence which matches ending at a state,
+     * or zero if no sequence ends in the state.
+     *
+     * @param state The state to get the match length for.
+     * @return The length of the longest sequence ending in the state, or zero if none end there.
+     */
+    public int getMatchLength(final int state) {
+        return depths[matchStates[state]];
+    }
+
+    /**
+     * Returns the deepest final state which can be reached from a state by following
+     * failure links (including the state itself), or the initial state if there is none.
+     *
+     * @param state The state to get the match state for.
+     * @return The deepest final state reachable from the state, or the initial state if none are.
+     */
+    public int getMatchState(final int state) {
+        return matchStates[state];
+    }
+
+    /**
+     * Returns the next final state after a final state, following failure links,
+     * or the initial state if there are no more.
+     *
+     * @param matchState A final state.
+     * @return The next (shallower) final state, or the initial state if there are no more.
+     */
+    public int getNextMatchState(final int matchState) {
+        return matchStates[failureStates[matchState]];
+    }
+
+    /**
+     * Returns the depth of a state, which is the length of any sequence ending in it.
+     *
+     * @param state The state to get the depth of.
+     * @return The depth of the state.
+     */
+    public int getDepth(final int state) {
+        return depths[state];
+    }
+
+    /**
+     * Returns the sequences which end in a state (not following failure links),
+     * or an empty list if the state is not final.
+     *
+     * @param state The state to get the sequences for.
+     * @return An unmodifiable list of the sequences which end in the state.
+     */
+    public List<T> getAssociations(final int state) {
+        return associations.get(state);
+    }
+
+    /**
+     * Returns the number of states in the automaton.
+     *
+     * @return The number of states in the automaton.
+     */
+    public int getNumberOfStates() {
+        return failureStates.length;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[states:" + getNumberOfStates() +
+                                            " transitions:" + transitionBytes.length + ']';
+    }
+
+    /**
+     * Returns the state a state has a direct transition to on a byte, or the initial state if
+     * it has none (the initial state is never the target of a transition from another state).
+     */
+    private int getTransition(final int state, final byte value) {
+        final int key = value & 0xFF;
+        int low = transitionIndex[state];
+        int high = transitionIndex[state + 1] - 1;
+        if (high - low < LINEAR_SEARCH_MAX) {
+            for (int position = low; position <= high; position++) {
+                if ((transitionBytes[position] & 0xFF) == key) {
+                    return transitionStates[position];
+                }
+            }
+            return INITIAL_STATE;
+        }
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int middleKey = transitionBytes[middle] & 0xFF;
+            if (middleKey < key) {
+                low = middle + 1;
+            } else if (middleKey > key) {
+                high = middle - 1;
+            } else {
+                return transitionStates[middle];
+            }
+        }
+        return INITIAL_STATE;
+    }
+
+    /*
+     * Building
+     */
+
+    /**
+     * Copies a trie into a tree of mutable nodes.
+     */
+    private static <T> Node<T> copyTrie(final State<T> initialState) {
+        final Node<T> root = new Node<T>(0, associationsOf(initialState));
+        final Deque<State<T>> statesToCopy = new ArrayDeque<State<T>>();
+        final Deque<Node<T>> nodesToCopy = new ArrayDeque<Node<T>>();
+        statesToCopy.push(initialState);
+        nodesToCopy.push(root);
+        while (!statesToCopy.isEmpty()) {
+            final State<T> state = statesToCopy.pop();
+            final Node<T> node = nodesToCopy.pop();
+            for (final Transition<T> transition : state) {
+                final State<T> toState = transition.getToState();
+                final Node<T> child = new Node<T>(node.depth + 1, associationsOf(toState));
+                node.edges.add(new Edge<T>(transition.getBytes(), child));
+                statesToCopy.push(toState);
+                nodesToCopy.push(child);
+            }
+        }
+        return root;
+    }
+
+    private static <T> List<T> associationsOf(final State<T> state) {
+        if (!state.isFinal()) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(new ArrayList<T>(state.getAssociations()));
+    }
+
+    /**
+     * Works out the failure link of every node breadth first, splitting nodes which need more
+     * than one failure link, and returns all the nodes in breadth first order.
+     */
+    private static <T> List<Node<T>> buildFailureLinks(final Node<T> root, final int maxCopiedStates) {
+        final List<Node<T>> nodes = new ArrayList<Node<T>>();
+        int copiedStates = 0;
+        final Deque<Node<T>> toProcess = new ArrayDeque<Node<T>>();
+        toProcess.add(root);
+        while (!toProcess.isEmpty()) {
+            final Node<T> node = toProcess.poll();
+            nodes.add(node);
+            final List<Edge<T>> edges = new ArrayList<Edge<T>>(node.edges);
+            for (final Edge<T> edge : edges) {
+                if (node == root) {
+                    edge.target.failure = root;
+                    toProcess.add(edge.target);
+                } else {
+                    copiedStates += splitByFailure(node, edge, root, toProcess);
+                    if (copiedStates > maxCopiedStates) {
+                        throw new IllegalArgumentException(
+                                "The sequences need more than " + maxCopiedStates +
+                                " copied states to give each state a single failure link.");
+                    }
+                }
+            }
+            node.compileTransitions();
+        }
+        return nodes;
+    }
+
+    /**
+     * Splits the target of an edge for each distinct failure link its bytes lead to,
+     * and returns the number of states copied.
+     */
+    private static <T> int splitByFailure(final Node<T> node, final Edge<T> edge, final Node<T> root,
+                                          final Deque<Node<T>> toProcess) {
+        // Group the bytes of the edge by the failure state each byte leads to:
+        final Map<Node<T>, List<Byte>> failureToBytes = new LinkedHashMap<Node<T>, List<Byte>>();
+        for (final byte value : edge.bytes) {
+            final Node<T> failure = getNextNode(node.failure, value, root);
+            List<Byte> bytes = failureToBytes.get(failure);
+            if (bytes == null) {
+                bytes = new ArrayList<Byte>();
+                failureToBytes.put(failure, bytes);
+            }
+            bytes.add(value);
+        }
+        int copiedStates = 0;
+        boolean first = true;
+        for (final Map.Entry<Node<T>, List<Byte>> entry : failureToBytes.entrySet()) {
+            final Node<T> target;
+            if (first) {
+                target = edge.target;
+                edge.bytes = toArray(entry.getValue());
+                first = false;
+            } else {
+                target = new Node<T>(edge.target.depth, edge.target.associations);
+                copiedStates += copySubtrie(edge.target, target);
+                node.edges.add(new Edge<T>(toArray(entry.getValue()), target));
+            }
+            target.failure = entry.getKey();
+            toProcess.add(target);
+        }
+        return copiedStates;
+    }
+
+    /**
+     * Copies the edges and nodes after a node to a copy of it, and returns the number of nodes copied.
+     */
+    private static <T> int copySubtrie(final Node<T> node, final Node<T> copy) {
+        int copiedStates = 1;
+        final Deque<Node<T>> originals = new ArrayDeque<Node<T>>();
+        final Deque<Node<T>> copies = new ArrayDeque<Node<T>>();
+        originals.push(node);
+        copies.push(copy);
+        while (!originals.isEmpty()) {
+            final Node<T> original = originals.pop();
+            final Node<T> originalCopy = copies.pop();
+            for (final Edge<T> edge : original.edges) {
+                final Node<T> childCopy = new Node<T>(edge.target.depth, edge.target.associations);
+                originalCopy.edges.add(new Edge<T>(edge.bytes, childCopy));
+                originals.push(edge.target);
+                copies.push(childCopy);
+                copiedStates++;
+            }
+        }
+        return copiedStates;
+    }
+
+    /**
+     * Returns the node to move to from an already processed node on a byte, following failure links.
+     */
+    private static <T> Node<T> getNextNode(final Node<T> node, final byte value, final Node<T> root) {
+        Node<T> currentNode = node;
+        while (true) {
+            final Node<T> nextNode = currentNode.getTransition(value);
+            if (nextNode != null) {
+                return nextNode;
+            }
+            if (currentNode == root) {
+                return root;
+            }
+            currentNode = currentNode.failure;
+        }
+    }
+
+    private static byte[] toArray(final List<Byte> bytes) {
+        final byte[] array = new byte[bytes.size()];
+        for (int index = 0; index < array.length; index++) {
+            array[index] = bytes.get(index);
+        }
+        return array;
+    }
+
+    private static final class Edge<T> {
+        private byte[] bytes;
+        private final Node<T> target;
+
+        private Edge(final byte[] bytes, final Node<T> target) {
+            this.bytes = bytes;
+            this.target = target;
+        }
+    }
+
+    private static final class Node<T> {
+        private final int depth;
+        private final List<T> associations; // the sequences ending in this node, shared by copies.
+        private final List<Edge<T>> edges = new ArrayList<Edge<T>>(2);
+        private Node<T> failure;
+        private int[] keys;        // sorted unsigned byte values, set once the node is processed.
+        private List<Node<T>> targets; // the target node for each key.
+        private int number;
+
+        private Node(final int depth, final List<T> associations) {
+            this.depth = depth;
+            this.associations = associations;
+        }
+
+        private void compileTransitions() {
+            final List<Node<T>> byteTargets = new ArrayList<Node<T>>(Collections.<Node<T>>nCopies(256, null));
+            int count = 0;
+            for (final Edge<T> edge : edges) {
+                for (final byte value : edge.bytes) {
+                    if (byteTargets.get(value & 0xFF) == null) {
+                        count++;
+                    }
+                    byteTargets.set(value & 0xFF, edge.target);
+                }
+            }
+            keys = new int[count];
+            targets = new ArrayList<Node<T>>(count);
+            int index = 0;
+            for (int value = 0; value < 256; value++) {
+                final Node<T> target = byteTargets.get(value);
+                if (target != null) {
+                    keys[index++] = value;
+                    targets.add(target);
+                }
+            }
+        }
+
+        private Node<T> getTransition(final byte value) {
+            final int index = Arrays.binarySearch(keys, value & 0xFF);
+            return index >= 0 ? targets.get(index) : null;
+        }
+    }
+
+}
@@ -50,7 +50,9 @@ import net.byteseek.utils.lazy.DoubleCheckImmutableLazyObject;
 import net.byteseek.utils.lazy.LazyObject;
 import net.byteseek.utils.factory.ObjectFactory;
 import net.byteseek.utils.lazy.SingleCheckLazyObject;
+import net.byteseek.searcher.PrecompilableSearcher;
 import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchTables;
 import net.byteseek.searcher.SearchUtils;
 import net.byteseek.searcher.multisequence.AbstractMultiSequenceSearcher;
 import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
@@ -68,9 +70,12 @@ import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
  * 
  * @author Matt Palmer
  */
-public class SetHorspoolSearcher extends AbstractMultiSequenceSearcher {
+public class SetHorspoolSearcher extends AbstractMultiSequenceSearcher implements PrecompilableSearcher {
+
+    private static final int NUMBER_OF_TABLES = 2;
 
     private final ByteMatcherFactory byteMatcherFactory;
+    private final SearchTables tables;
     private final LazyObject<SearchInfo> forwardInfo;
     private final LazyObject<SearchInfo> backwardInfo;
     
@@ -81,7 +86,25 @@ public class SetHorspoolSearcher extends AbstractMultiSequenceSearcher {
      * @param sequences A MultiSequenceMatcher containing the sequences to be searched for.
      */
     public SetHorspoolSearcher(final MultiSequenceMatcher sequences) {
+        this(sequences, null);
+    }
+
+
+    /**
+     * Constructs a SetHorspoolSearcher with the precompiled {@link SearchTables} of a
+     * searcher for the same sequences, so the shifts do not have to be calculated again.
+     *
+     * @param sequences A MultiSequenceMatcher containing the sequences to be searched for.
+     * @param tables    The search tables for the sequences, or null if they should be calculated.
+     * @throws IllegalArgumentException if the tables were not calculated for these sequences,
+     *         or do not have a shift for each of the 256 byte values.
+     */
+    public SetHorspoolSearcher(final MultiSequenceMatcher sequences, final SearchTables tables) {
         super(sequences);
+        if (tables != null) {
+            tables.check(getClass().getName(), fingerprint(), NUMBER_OF_TABLES, 256);
+        }
+        this.tables  = tables;
         forwardInfo  = new DoubleCheckImmutableLazyObject<SearchInfo>(new ForwardInfoFactory());
         backwardInfo = new DoubleCheckImmutableLazyObject<SearchInfo>(new BackwardInfoFactory());
         
@@ -347,10 +370,23 @@ public class SetHorspoolSearcher extends AbstractMultiSequenceSearcher {
         backwardInfo.get();
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SearchTables getSearchTables() {
+        return new SearchTables(getClass().getName(), fingerprint(),
+                                forwardInfo.get().shifts, backwardInfo.get().shifts);
+    }
+
     @Override
     public String toString() {
     	return getClass().getSimpleName() + "[sequences:" + sequences + ']'; 
     }
+
+    private long fingerprint() {
+        return SearchTables.fingerprint(sequences.getSequenceMatchers());
+    }
     
 
     /**
@@ -403,6 +439,11 @@ public class SetHorspoolSearcher extends AbstractMultiSequenceSearcher {
             // the original sequences).
             final MultiSequenceMatcher verifier = new MultiSequenceReverseMatcher(matcher);
 
+            // Use the precompiled shifts if we have them:
+            if (tables != null) {
+                return new SearchInfo(tables.getTable(SearchTables.FORWARDS), lastPositionMatcher, verifier);
+            }
+
             //TODO: check for pathological cases of matchers matching all bytes in the sequences.
 
             // Create the array of shifts and set the default shift to the
@@ -461,6 +502,11 @@ public class SetHorspoolSearcher extends AbstractMultiSequenceSearcher {
             
             final MultiSequenceMatcher verifier = matcher;
 
+            // Use the precompiled shifts if we have them:
+            if (tables != null) {
+                return new SearchInfo(tables.getTable(SearchTables.BACKWARDS), firstPositionMatcher, verifier);
+            }
+
             //TODO: check for pathological cases of matchers matching all bytes in the sequences.
 
             // Create the array of shifts and set the default shift to the
@@ -44,6 +44,8 @@ import net.byteseek.matcher.sequence.SequenceMatcher;
 import net.byteseek.utils.lazy.DoubleCheckImmutableLazyObject;
 import net.byteseek.utils.lazy.LazyObject;
 import net.byteseek.utils.factory.ObjectFactory;
+import net.byteseek.searcher.PrecompilableSearcher;
+import net.byteseek.searcher.SearchTables;
 import net.byteseek.searcher.multisequence.AbstractMultiSequenceSearcher;
 import net.byteseek.searcher.multisequence.set_horspool.SetHorspoolSearcher;
 
@@ -53,9 +55,12 @@ import net.byteseek.searcher.multisequence.set_horspool.SetHorspoolSearcher;
  * taking a {@link MultiSequenceMatcher} containing the sequences to search for,
  * and which provides the matching capability to verify a match.
  * <p>
- * A true Wu-Manber style search would use the {@link HashMultiSequenceMatcher}
- * class as its matcher, which has a good time-space trade-off.  However, you can 
- * use any MultiSequenceMatcher in this searcher, for different trade-offs.
+ * A true Wu-Manber style search uses the {@link HashMultiSequenceMatcher}
+ * class as its matcher, which has a good time-space trade-off.  When there is no
+ * safe shift, it finds the sequences to verify from a hash of the bytes at the
+ * search position, rejecting most of them by comparing a fingerprint of the bytes
+ * before comparing them in full.  However, you can use any MultiSequenceMatcher
+ * in this searcher, for different trade-offs.
  * <p>
  * This style of search is very fast for large numbers of sequences, although its
  * speed is heavily constrained by the minimum length of the sequences.  Very short
@@ -94,9 +99,11 @@ import net.byteseek.searcher.multisequence.set_horspool.SetHorspoolSearcher;
  * @see <a href="http://webglimpse.net/pubs/TR94-17.pdf">Wu-Manber paper (PDF)</a>
  * @author Matt Palmer
  */
-public abstract class AbstractWuManberSearcher extends AbstractMultiSequenceSearcher {
+public abstract class AbstractWuManberSearcher extends AbstractMultiSequenceSearcher
+                                               implements PrecompilableSearcher {
         
     private static final int HIGHEST_POWER_OF_TWO = 1073741824;
+    private static final int NUMBER_OF_TABLES = 2;
 
     /**
      * A class holding the search information used in the Wu-Manber search.
@@ -134,6 +141,12 @@ public abstract class AbstractWuManberSearcher extends AbstractMultiSequenceSear
      * The block size to use in the Wu-Manber search.
      */
     protected final int blockSize;
+
+    
+    /**
+     * Precompiled search tables to use instead of calculating the shifts, or null.
+     */
+    private final SearchTables tables;
     
     
     /**
@@ -158,8 +171,35 @@ public abstract class AbstractWuManberSearcher extends AbstractMultiSequenceSear
      * @param blockSize The block size of the Wu-Manber searcher.
      */
     public AbstractWuManberSearcher(final MultiSequenceMatcher matcher, final int blockSize) {
+        this(matcher, blockSize, null);
+    }
+
+
+    /**
+     * Constructs an abstract WuManberSearcher from a {@link MultiSequenceMatcher}, 
+     * a block size, and the precompiled {@link SearchTables} of a searcher of the same
+     * type for the same sequences and block size, so the shifts do not have to be calculated again.
+     * 
+     * @param matcher A MultiSequenceMatcher containing the sequences to search for.
+     * @param blockSize The block size of the Wu-Manber searcher.
+     * @param tables The search tables for the sequences, or null if they should be calculated.
+     * @throws IllegalArgumentException if the tables were not calculated for these sequences and block size,
+     *         or are not a power of two in size.
+     */
+    public AbstractWuManberSearcher(final MultiSequenceMatcher matcher, final int blockSize,
+                                    final SearchTables tables) {
         super(matcher);
         this.blockSize = blockSize;
+        if (tables != null) {
+            tables.check(getClass().getName(), fingerprint(), NUMBER_OF_TABLES);
+            for (int table = 0; table < NUMBER_OF_TABLES; table++) {
+                final int size = tables.getTableLength(table);
+                if (size == 0 || (size & (size - 1)) != 0) {
+                    throw new IllegalArgumentException("Wu-Manber shift tables must be a power of two in size: " + size);
+                }
+            }
+        }
+        this.tables = tables;
         forwardInfo  = new DoubleCheckImmutableLazyObject<SearchInfo>(new ForwardInfoFactory());
         backwardInfo = new DoubleCheckImmutableLazyObject<SearchInfo>(new BackwardSearchInfo());
     }
@@ -183,6 +223,21 @@ public abstract class AbstractWuManberSearcher extends AbstractMultiSequenceSear
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SearchTables getSearchTables() {
+        return new SearchTables(getClass().getName(), fingerprint(),
+                                forwardInfo.get().shifts, backwardInfo.get().shifts);
+    }
+
+
+    private long fingerprint() {
+        return SearchTables.fingerprint(sequences.getSequenceMatchers(), blockSize);
+    }
+
+
     /**
      * For a given SequenceMatcher, builds a list of the byte values for a block.
      * 
@@ -324,7 +379,8 @@ public abstract class AbstractWuManberSearcher extends AbstractMultiSequenceSear
          */
         @Override
         public SearchInfo create() {
-            return new SearchInfo(getShifts(), getMatcher());
+            final int[] shifts = tables == null? getShifts() : tables.getTable(SearchTables.FORWARDS);
+            return new SearchInfo(shifts, getMatcher());
         }
 
         /**
@@ -399,7 +455,8 @@ public abstract class AbstractWuManberSearcher extends AbstractMultiSequenceSear
          */
         @Override
         public SearchInfo create() {
-            return new SearchInfo(getShifts(), getMatcher());
+            final int[] shifts = tables == null? getShifts() : tables.getTable(SearchTables.BACKWARDS);
+            return new SearchInfo(shifts, getMatcher());
         }
 
         
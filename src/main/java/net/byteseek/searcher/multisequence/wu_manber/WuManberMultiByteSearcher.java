@@ -38,6 +38,7 @@ import net.byteseek.io.reader.WindowReader;
 import net.byteseek.matcher.multisequence.MultiSequenceMatcher;
 import net.byteseek.matcher.sequence.SequenceMatcher;
 import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchTables;
 import net.byteseek.searcher.SearchUtils;
 
 /**
@@ -63,7 +64,24 @@ public class WuManberMultiByteSearcher extends AbstractWuManberSearcher {
      */
     public WuManberMultiByteSearcher(final MultiSequenceMatcher matcher,
                                       final int blockSize) {
-        super(matcher, blockSize);
+        this(matcher, blockSize, null);
+    }
+
+
+    /**
+     * Constructs a WuManberMultiByteSearcher with the precompiled {@link SearchTables} of
+     * a searcher for the same sequences and block size, so the shifts do not have to be
+     * calculated again.
+     * 
+     * @param matcher The MultiSequenceMatcher containing the sequences to search for.
+     * @param blockSize The block size to use when searching.
+     * @param tables The search tables for the sequences, or null if they should be calculated.
+     * @throws IllegalArgumentException if the tables were not calculated for these sequences
+     *         and block size, or the block size is bigger than the minimum sequence length.
+     */
+    public WuManberMultiByteSearcher(final MultiSequenceMatcher matcher,
+                                      final int blockSize, final SearchTables tables) {
+        super(matcher, blockSize, tables);
         if (matcher.getMinimumLength() < blockSize) {
             final String message = String.format(
                     "Minimum sequence length (%d) cannot be smaller than the block size: %d",
@@ -31,6 +31,7 @@
 package net.byteseek.searcher.multisequence.wu_manber;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.List;
 
@@ -38,7 +39,9 @@ import net.byteseek.io.reader.windows.Window;
 import net.byteseek.io.reader.WindowReader;
 import net.byteseek.matcher.multisequence.MultiSequenceMatcher;
 import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.ByteAccessor;
 import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchTables;
 import net.byteseek.searcher.SearchUtils;
 
 /**
@@ -60,19 +63,47 @@ public class WuManberOneByteSearcher extends AbstractWuManberSearcher {
     }
 
 
+    /**
+     * Constructs a WuManberOneByteSearcher with the precompiled {@link SearchTables} of
+     * a searcher for the same sequences, so the shifts do not have to be calculated again.
+     * 
+     * @param matcher The MultiSequenceMatcher containing the sequences to search for.
+     * @param tables The search tables for the sequences, or null if they should be calculated.
+     * @throws IllegalArgumentException if the tables were not calculated for these sequences.
+     */
+    public WuManberOneByteSearcher(final MultiSequenceMatcher matcher, final SearchTables tables) {
+        super(matcher, 1, tables);
+    }
+
+
     /**
      * {@inheritDoc}
      */
     @Override
-    public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes, 
-            final int fromPosition, final int toPosition) {
+    public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+        return searchForwards(ByteAccessor.of(bytes), fromPosition, toPosition);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final ByteBuffer buffer, final int fromPosition, final int toPosition) {
+        return searchForwards(ByteAccessor.of(buffer), fromPosition, toPosition);
+    }
+
+    /**
+     * Searches forwards in place through a {@link ByteAccessor}, so a byte array and
+     * a ByteBuffer are searched by the same loop.
+     */
+    private List<SearchResult<SequenceMatcher>> searchForwards(final ByteAccessor bytes, final int fromPosition, final int toPosition) {
         // Get info needed to search with:
         final SearchInfo info = forwardInfo.get();
         final int[] safeShifts = info.shifts;
         final MultiSequenceMatcher backMatcher = info.matcher;
 
         // Calculate safe bounds for the search:
-        final int lastPossiblePosition = bytes.length - 1;
+        final int lastPossiblePosition = bytes.length() - 1;
         final int lastToPosition = toPosition + sequences.getMaximumLength() - 1;
         final int lastPosition = lastToPosition < lastPossiblePosition ?
                                  lastToPosition : lastPossiblePosition;
@@ -84,14 +115,14 @@ public class WuManberOneByteSearcher extends AbstractWuManberSearcher {
         while (searchPosition <= lastPosition) {
 
             // Get the safe shift for this byte:
-            final int safeShift = safeShifts[bytes[searchPosition] & 0xFF];
+            final int safeShift = safeShifts[bytes.get(searchPosition) & 0xFF];
 
             // Can we shift safely?
             if (safeShift == 0) {
 
                 // No safe shift - see if we have any matches:
                 final Collection<SequenceMatcher> matches =
-                        backMatcher.allMatchesBackwards(bytes, searchPosition);
+                        bytes.allMatchesBackwards(backMatcher, searchPosition);
                 if (!matches.isEmpty()) {
 
                     // See if any of the matches are within the bounds of the search:
@@ -112,7 +143,6 @@ public class WuManberOneByteSearcher extends AbstractWuManberSearcher {
         return SearchUtils.noResults();
     }
 
-
     /**
      * {@inheritDoc}
      */
@@ -179,8 +209,23 @@ public class WuManberOneByteSearcher extends AbstractWuManberSearcher {
      * {@inheritDoc}
      */
     @Override
-    public List<SearchResult<SequenceMatcher>> searchBackwards(final byte[] bytes, 
-            final int fromPosition, final int toPosition) {
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+        return searchBackwards(ByteAccessor.of(bytes), fromPosition, toPosition);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final ByteBuffer buffer, final int fromPosition, final int toPosition) {
+        return searchBackwards(ByteAccessor.of(buffer), fromPosition, toPosition);
+    }
+
+    /**
+     * Searches backwards in place through a {@link ByteAccessor}, so a byte array and
+     * a ByteBuffer are searched by the same loop.
+     */
+    private List<SearchResult<SequenceMatcher>> searchBackwards(final ByteAccessor bytes, final int fromPosition, final int toPosition) {
         // Get info needed to search with:
         final SearchInfo info = backwardInfo.get();
         final int[] safeShifts = info.shifts;
@@ -189,7 +234,7 @@ public class WuManberOneByteSearcher extends AbstractWuManberSearcher {
         // Calculate safe bounds for the search:
         final int lastPosition = toPosition > 0 ?
                                  toPosition : 0;
-        final int firstPossiblePosition = bytes.length - 1;
+        final int firstPossiblePosition = bytes.length() - 1;
         int searchPosition = fromPosition < firstPossiblePosition ?
                              fromPosition : firstPossiblePosition;
 
@@ -197,14 +242,14 @@ public class WuManberOneByteSearcher extends AbstractWuManberSearcher {
         while (searchPosition >= lastPosition) {
 
             // Get the safe shift for this byte:
-            final int safeShift = safeShifts[bytes[searchPosition] & 0xFF];
+            final int safeShift = safeShifts[bytes.get(searchPosition) & 0xFF];
 
             // Can we shift safely?
             if (safeShift == 0) {
 
                 // No safe shift - see if we have any matches:
                 final Collection<SequenceMatcher> matches =
-                        verifier.allMatches(bytes, searchPosition);
+                        bytes.allMatches(verifier, searchPosition);
                 if (!matches.isEmpty()) {
                     return SearchUtils.resultsAtPosition(searchPosition, matches);
                 }
@@ -217,7 +262,6 @@ public class WuManberOneByteSearcher extends AbstractWuManberSearcher {
         return SearchUtils.noResults();
     }
 
-
     /**
      * {@inheritDoc}
      */
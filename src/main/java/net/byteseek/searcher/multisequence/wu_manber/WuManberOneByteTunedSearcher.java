@@ -31,6 +31,7 @@
 package net.byteseek.searcher.multisequence.wu_manber;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.List;
 
@@ -38,6 +39,7 @@ import net.byteseek.io.reader.windows.Window;
 import net.byteseek.io.reader.WindowReader;
 import net.byteseek.matcher.multisequence.MultiSequenceMatcher;
 import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.ByteAccessor;
 import net.byteseek.searcher.SearchResult;
 import net.byteseek.searcher.SearchUtils;
 
@@ -66,8 +68,23 @@ public class WuManberOneByteTunedSearcher extends AbstractWuManberTunedSearcher
      * {@inheritDoc}
      */
     @Override
-    public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes, 
-            final int fromPosition, final int toPosition) {
+    public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+        return searchForwards(ByteAccessor.of(bytes), fromPosition, toPosition);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final ByteBuffer buffer, final int fromPosition, final int toPosition) {
+        return searchForwards(ByteAccessor.of(buffer), fromPosition, toPosition);
+    }
+
+    /**
+     * Searches forwards in place through a {@link ByteAccessor}, so a byte array and
+     * a ByteBuffer are searched by the same loop.
+     */
+    private List<SearchResult<SequenceMatcher>> searchForwards(final ByteAccessor bytes, final int fromPosition, final int toPosition) {
         // Get info needed to search with:
         final SearchInfo info = forwardInfo.get();
         final int[] safeShifts = info.shifts;
@@ -78,7 +95,7 @@ public class WuManberOneByteTunedSearcher extends AbstractWuManberTunedSearcher
         // Calculate safe bounds for the search:
         final int minimumLength = sequences.getMinimumLength();
         final int minimumPosition = minimumLength - 1;        
-        final int lastPossiblePosition = bytes.length - 1;
+        final int lastPossiblePosition = bytes.length() - 1;
         //FIXME: is minimum length the correct distznce - isn't it default shift?
         final int lastPossibleUnrolledPosition = lastPossiblePosition - 3 * minimumLength;
         final int lastToPosition = toPosition + sequences.getMaximumLength() - 1;
@@ -96,22 +113,22 @@ public class WuManberOneByteTunedSearcher extends AbstractWuManberTunedSearcher
             // Could cross over end of byte array however, so this search loop
             // will never search closer than 3 max shifts (minimum length)
             // to the end of the array, to avoid a possible ArrayIndexOutOfBoundsException.
-            int lastByteValue = bytes[searchPosition] & 0xFF;
+            int lastByteValue = bytes.get(searchPosition) & 0xFF;
             int safeShift = safeShifts[lastByteValue];
             while (safeShift != 0) {
                 searchPosition += safeShift;
-                searchPosition += safeShifts[bytes[searchPosition] & 0xFF];
-                searchPosition += safeShifts[bytes[searchPosition] & 0xFF]; 
+                searchPosition += safeShifts[bytes.get(searchPosition) & 0xFF];
+                searchPosition += safeShifts[bytes.get(searchPosition) & 0xFF]; 
                 if (searchPosition > lastUnrolledPosition) {
                     break UNROLLED;
                 }
-                lastByteValue = bytes[searchPosition] & 0xFF;
+                lastByteValue = bytes.get(searchPosition) & 0xFF;
                 safeShift = safeShifts[lastByteValue];
             }
 
             // No safe shift - see if we have any matches:
             final Collection<SequenceMatcher> matches =
-                    backMatcher.allMatchesBackwards(bytes, searchPosition);
+                    bytes.allMatchesBackwards(backMatcher, searchPosition);
             if (!matches.isEmpty()) {
 
                 // See if any of the matches are within the bounds of the search:
@@ -131,14 +148,14 @@ public class WuManberOneByteTunedSearcher extends AbstractWuManberTunedSearcher
         final int lastPosition = lastToPosition < lastPossiblePosition ?
                                  lastToPosition : lastPossiblePosition;
         while (searchPosition <= lastPosition) {
-            final int lastByteValue = bytes[searchPosition] & 0xFF;
+            final int lastByteValue = bytes.get(searchPosition) & 0xFF;
             int safeShift = safeShifts[lastByteValue];   
             if (safeShift > 0) {
                 searchPosition += safeShift;
             } else {
                 // No safe shift - see if we have any matches:
                 final Collection<SequenceMatcher> matches =
-                        backMatcher.allMatchesBackwards(bytes, searchPosition);
+                        bytes.allMatchesBackwards(backMatcher, searchPosition);
                 if (!matches.isEmpty()) {
 
                     // See if any of the matches are within the bounds of the search:
@@ -156,7 +173,6 @@ public class WuManberOneByteTunedSearcher extends AbstractWuManberTunedSearcher
         return SearchUtils.noResults();
     }
 
-    
     /**
      * {@inheritDoc}
      */
@@ -223,8 +239,23 @@ public class WuManberOneByteTunedSearcher extends AbstractWuManberTunedSearcher
      * {@inheritDoc}
      */
     @Override
-    public List<SearchResult<SequenceMatcher>> searchBackwards(final byte[] bytes, 
-            final int fromPosition, final int toPosition) {
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+        return searchBackwards(ByteAccessor.of(bytes), fromPosition, toPosition);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final ByteBuffer buffer, final int fromPosition, final int toPosition) {
+        return searchBackwards(ByteAccessor.of(buffer), fromPosition, toPosition);
+    }
+
+    /**
+     * Searches backwards in place through a {@link ByteAccessor}, so a byte array and
+     * a ByteBuffer are searched by the same loop.
+     */
+    private List<SearchResult<SequenceMatcher>> searchBackwards(final ByteAccessor bytes, final int fromPosition, final int toPosition) {
         // Get info needed to search with:
         final SearchInfo info = backwardInfo.get();
         final int[] safeShifts = info.shifts;
@@ -233,7 +264,7 @@ public class WuManberOneByteTunedSearcher extends AbstractWuManberTunedSearcher
         // Calculate safe bounds for the search:
         final int lastPosition = toPosition > 0 ?
                                  toPosition : 0;
-        final int firstPossiblePosition = bytes.length - 1;
+        final int firstPossiblePosition = bytes.length() - 1;
         int searchPosition = fromPosition < firstPossiblePosition ?
                              fromPosition : firstPossiblePosition;
 
@@ -241,14 +272,14 @@ public class WuManberOneByteTunedSearcher extends AbstractWuManberTunedSearcher
         while (searchPosition >= lastPosition) {
 
             // Get the safe shift for this byte:
-            final int safeShift = safeShifts[bytes[searchPosition] & 0xFF];
+            final int safeShift = safeShifts[bytes.get(searchPosition) & 0xFF];
 
             // Can we shift safely?
             if (safeShift == 0) {
 
                 // No safe shift - see if we have any matches:
                 final Collection<SequenceMatcher> matches =
-                        verifier.allMatches(bytes, searchPosition);
+                        bytes.allMatches(verifier, searchPosition);
                 if (!matches.isEmpty()) {
                     return SearchUtils.resultsAtPosition(searchPosition, matches);
                 }
@@ -261,7 +292,6 @@ public class WuManberOneByteTunedSearcher extends AbstractWuManberTunedSearcher
         return SearchUtils.noResults();
     }
 
-
     /**
      * {@inheritDoc}
      */
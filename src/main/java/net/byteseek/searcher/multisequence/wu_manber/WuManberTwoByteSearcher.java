@@ -39,6 +39,7 @@ import net.byteseek.io.reader.WindowReader;
 import net.byteseek.matcher.multisequence.MultiSequenceMatcher;
 import net.byteseek.matcher.sequence.SequenceMatcher;
 import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchTables;
 import net.byteseek.searcher.SearchUtils;
 
 /**
@@ -56,7 +57,21 @@ public class WuManberTwoByteSearcher extends AbstractWuManberSearcher {
      * @param matcher The MultiSequenceMatcher containing the sequences to search for.
      */
     public WuManberTwoByteSearcher(final MultiSequenceMatcher matcher) {
-        super(matcher, 2);
+        this(matcher, null);
+    }
+
+
+    /**
+     * Constructs a WuManberTwoByteSearcher with the precompiled {@link SearchTables} of
+     * a searcher for the same sequences, so the shifts do not have to be calculated again.
+     * 
+     * @param matcher The MultiSequenceMatcher containing the sequences to search for.
+     * @param tables The search tables for the sequences, or null if they should be calculated.
+     * @throws IllegalArgumentException if the tables were not calculated for these sequences,
+     *         or the minimum sequence length is less than two.
+     */
+    public WuManberTwoByteSearcher(final MultiSequenceMatcher matcher, final SearchTables tables) {
+        super(matcher, 2, tables);
         if (matcher.getMinimumLength() < 2) {
             throw new IllegalArgumentException("A minimum sequence length of at least two is required.");
         }
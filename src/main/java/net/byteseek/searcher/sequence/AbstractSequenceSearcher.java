@@ -38,6 +38,7 @@ import net.byteseek.io.reader.windows.Window;
 import net.byteseek.io.reader.WindowReader;
 import net.byteseek.matcher.sequence.SequenceMatcher;
 import net.byteseek.searcher.AbstractSearcher;
+import net.byteseek.searcher.SearchListener;
 import net.byteseek.searcher.SearchResult;
 import net.byteseek.searcher.SearchUtils;
 import net.byteseek.utils.ArgUtils;
@@ -91,6 +92,15 @@ public abstract class AbstractSequenceSearcher extends AbstractSearcher<Sequence
     public SequenceMatcher getMatcher() {
         return matcher;
     }
+
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getMaximumMatchLength() {
+        return matcher.length();
+    }
     
     
     /**
@@ -184,6 +194,84 @@ public abstract class AbstractSequenceSearcher extends AbstractSearcher<Sequence
         return SearchUtils.noResults();
     }
 
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Like {@link #searchForwards(net.byteseek.io.reader.WindowReader, long, long)},
+     * this searches directly in the window byte arrays when the sequence fits inside
+     * a window, and uses {@link #doSearchForwards(net.byteseek.io.reader.WindowReader, long, long)}
+     * to search across window boundaries.  Matches inside windows are reported without
+     * allocating any results.
+     *
+     * @throws IOException If the reader encounters a problem reading bytes.
+     */
+    @Override
+    public boolean searchForwards(final WindowReader reader, final long fromPosition, final long toPosition,
+                                  final SearchListener<SequenceMatcher> listener) throws IOException {
+        // Initialise:
+        final int lastSequencePosition = matcher.length() - 1;
+        final OffsetListener windowListener = new OffsetListener(listener);
+        long searchPosition = fromPosition > 0?
+                              fromPosition : 0;
+
+        // While there is data to search in:
+        Window window;
+        while (searchPosition <= toPosition &&
+               (window = reader.getWindow(searchPosition)) != null) {
+
+            // Does the sequence fit into the searchable bytes of this window?
+            final long windowStartPosition = window.getWindowPosition();
+            final int arrayStartPosition = reader.getWindowOffset(searchPosition);
+            final int arrayLastPosition = window.length() - 1;
+            if (arrayStartPosition + lastSequencePosition <= arrayLastPosition) {
+
+                // Find the last point in the array where the sequence still fits
+                // inside the array, or the toPosition if it is smaller.
+                final int lastMatchingPosition = arrayLastPosition - lastSequencePosition;
+                final long distanceToEnd = toPosition - windowStartPosition;
+                final int arrayMaxPosition = distanceToEnd < lastMatchingPosition?
+                                       (int) distanceToEnd : lastMatchingPosition;
+
+                // Search forwards in the byte array of the window:
+                windowListener.positionOffset = searchPosition - arrayStartPosition;
+                if (!searchForwards(window.getArray(), arrayStartPosition, arrayMaxPosition, windowListener)) {
+                    return false;
+                }
+
+                // Continue the search one on from where we last looked:
+                searchPosition += (arrayMaxPosition - arrayStartPosition + 1);
+
+                // Did we pass the final toPosition?  In which case, we're finished.
+                if (searchPosition > toPosition) {
+                    return true;
+                }
+            }
+
+            // The sequence crosses over into the next window from here, so search
+            // up to the last position in the window, or the toPosition, whichever
+            // comes first, using the reader:
+            final long lastWindowPosition = windowStartPosition + arrayLastPosition;
+            final long lastSearchPosition = toPosition < lastWindowPosition?
+                                            toPosition : lastWindowPosition;
+            while (searchPosition <= lastSearchPosition) {
+                final List<SearchResult<SequenceMatcher>> readerResult =
+                        doSearchForwards(reader, searchPosition, lastSearchPosition);
+                if (readerResult.isEmpty()) {
+                    break;
+                }
+                if (!SearchUtils.reportResults(readerResult, 0, listener)) {
+                    return false;
+                }
+                searchPosition = readerResult.get(readerResult.size() - 1).getMatchPosition() + 1;
+            }
+
+            // Continue the search one on from where we last looked:
+            searchPosition = lastSearchPosition + 1;
+        }
+
+        return true;
+    }
     
     /**
      * This method searches forwards crossing window boundaries.  It is
@@ -293,8 +381,10 @@ public abstract class AbstractSequenceSearcher extends AbstractSearcher<Sequence
                     windowStartPosition + arrayLastPosition - lastSequencePosition;
             final long firstFitPosition = firstPossibleFitPosition < searchPosition?
                                           firstPossibleFitPosition : searchPosition;
-            final long searchToPosition = firstFitPosition > windowStartPosition?
+            final long windowToPosition = firstFitPosition > windowStartPosition?
                                           firstFitPosition : windowStartPosition;
+            final long searchToPosition = windowToPosition > finalSearchPosition?
+                                          windowToPosition : finalSearchPosition;
             
             final List<SearchResult<SequenceMatcher>> readerResult =
                     doSearchBackwards(reader, searchPosition, searchToPosition);
@@ -344,4 +434,24 @@ public abstract class AbstractSequenceSearcher extends AbstractSearcher<Sequence
     public String toString() {
         return this.getClass().getSimpleName() + '(' + matcher + ')';
     }        
+
+    /**
+     * Passes matches found in a window array on to another listener, adding the
+     * position of the array in the reader to each match position.
+     */
+    private static final class OffsetListener implements SearchListener<SequenceMatcher> {
+
+        private final SearchListener<SequenceMatcher> listener;
+        private long positionOffset;
+
+        private OffsetListener(final SearchListener<SequenceMatcher> listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public boolean resultFound(final long matchPosition, final SequenceMatcher matchingObject) {
+            return listener.resultFound(matchPosition + positionOffset, matchingObject);
+        }
+    }
+
 }
@@ -0,0 +1,402 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, 
+ *    this list of conditions and the following disclaimer.
+ * 
+ *  * Redistributions in binary form must reproduce the above copyright notice, 
+ *    this list of conditions and the following disclaimer in the documentation 
+ *    and/or other materials provided with the distribution.
+ * 
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE 
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR 
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF 
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS 
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.sequence;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.matcher.bytes.ByteMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.AbstractSearcher;
+import net.byteseek.searcher.OptimalSearcherFactory;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchUtils;
+import net.byteseek.searcher.sequence.horspool.HorspoolFinalFlagSearcher;
+import net.byteseek.utils.ArgUtils;
+
+/**
+ * A searcher for a sequence which chooses between a shifting {@link HorspoolFinalFlagSearcher}
+ * and a linear {@link SequenceMatcherSearcher} from the data it actually searches.
+ * <p>
+ * The shifts a Horspool searcher makes depend on the data as well as the sequence.
+ * For example, a sequence with a byte class of base64 characters near its end shifts
+ * well over binary data, but hardly at all over base64 text.  This searcher samples the
+ * bytes of the first Windows it searches in a {@link WindowReader} (and the start of the
+ * first byte arrays it searches), recording the average shift the Horspool searcher would
+ * make over them, and how often it would have to verify a match.  After each sample,
+ * it uses the Horspool searcher if the average shift exceeds the cost of shifting, increased
+ * by the rate of verification, and the linear searcher otherwise.  Once enough Windows have
+ * been sampled, the choice is fixed.
+ * <p>
+ * While sampling a WindowReader, each Window is searched separately, so the searcher
+ * can switch part way through a search.  Both searchers return the first match in the
+ * range searched, so the results are identical whichever is used.  Statistics are kept
+ * separately for searching forwards and backwards, as the shifts differ.
+ * <p>
+ * This searcher is thread-safe, although threads searching at the same time
+ * all contribute to the samples.
+ *
+ * @author Matt Palmer
+ */
+public final class AdaptiveSequenceSearcher extends AbstractSearcher<SequenceMatcher> {
+
+    /**
+     * The number of Windows sampled if none is specified.
+     */
+    public static final int DEFAULT_SAMPLE_WINDOWS = 4;
+
+    private static final int ARRAY_SAMPLE_LENGTH = 4096;
+
+    private final SequenceMatcher sequence;
+    private final AbstractSequenceSearcher shiftSearcher;
+    private final AbstractSequenceSearcher linearSearcher;
+    private final double shiftCost;
+    private final int sampleWindows;
+    private final ShiftStatistics forwardStatistics;
+    private final ShiftStatistics backwardStatistics;
+
+
+    /**
+     * Constructs an AdaptiveSequenceSearcher for a sequence, using the
+     * {@link OptimalSearcherFactory#DEFAULT_SHIFT_COST} and sampling
+     * {@link #DEFAULT_SAMPLE_WINDOWS} Windows.
+     *
+     * @param sequence The sequence to search for.
+     * @throws IllegalArgumentException if the sequence is null.
+     */
+    public AdaptiveSequenceSearcher(final SequenceMatcher sequence) {
+        this(sequence, OptimalSearcherFactory.DEFAULT_SHIFT_COST, DEFAULT_SAMPLE_WINDOWS);
+    }
+
+
+    /**
+     * Constructs an AdaptiveSequenceSearcher for a sequence, given the cost of shifting
+     * and the number of Windows to sample.  The cost of shifting can be measured using
+     * {@link OptimalSearcherFactory#calibrate()}.
+     *
+     * @param sequence The sequence to search for.
+     * @param shiftCost The average shift the Horspool searcher must exceed to be used.
+     * @param sampleWindows The number of Windows to sample in each direction.
+     * @throws IllegalArgumentException if the sequence is null, the shift cost is less than one,
+     *                                  or the number of sample windows is not positive.
+     */
+    public AdaptiveSequenceSearcher(final SequenceMatcher sequence, final double shiftCost,
+                                    final int sampleWindows) {
+        ArgUtils.checkNullObject(sequence, "sequence");
+        ArgUtils.checkPositiveInteger(sampleWindows);
+        if (!(shiftCost >= 1.0)) {
+            throw new IllegalArgumentException("The shift cost must be at least one: " + shiftCost);
+        }
+        this.sequence      = sequence;
+        this.shiftCost     = shiftCost;
+        this.sampleWindows = sampleWindows;
+        shiftSearcher      = new HorspoolFinalFlagSearcher(sequence);
+        linearSearcher     = new SequenceMatcherSearcher(sequence);
+        final int length   = sequence.length();
+        forwardStatistics  = new ShiftStatistics(getForwardShifts(sequence),
+                                                 sequence.getMatcherForPosition(length - 1), length);
+        backwardStatistics = new ShiftStatistics(getBackwardShifts(sequence),
+                                                 sequence.getMatcherForPosition(0), length);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        long searchPosition = fromPosition > 0? fromPosition : 0;
+        while (searchPosition <= toPosition && forwardStatistics.isSampling()) {
+            final Window window = reader.getWindow(searchPosition);
+            if (window == null) {
+                return SearchUtils.noResults();
+            }
+            forwardStatistics.sample(window);
+
+            // Search up to the end of this window with the searcher chosen so far:
+            final long windowEnd = window.getWindowPosition() + window.length() - 1;
+            final long searchEnd = windowEnd < toPosition? windowEnd : toPosition;
+            final List<SearchResult<SequenceMatcher>> results =
+                    getSearcher(forwardStatistics).searchForwards(reader, searchPosition, searchEnd);
+            if (!results.isEmpty()) {
+                return results;
+            }
+            searchPosition = searchEnd + 1;
+        }
+        return searchPosition <= toPosition?
+                getSearcher(forwardStatistics).searchForwards(reader, searchPosition, toPosition)
+              : SearchUtils.<SequenceMatcher>noResults();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        final long lastPosition = toPosition > 0? toPosition : 0;
+        long searchPosition = withinLength(reader, fromPosition);
+        while (searchPosition >= lastPosition && backwardStatistics.isSampling()) {
+            final Window window = reader.getWindow(searchPosition);
+            if (window == null) {
+                return SearchUtils.noResults();
+            }
+            backwardStatistics.sample(window);
+
+            // Search back to the start of this window with the searcher chosen so far:
+            final long windowStart = window.getWindowPosition();
+            final long searchEnd = windowStart > lastPosition? windowStart : lastPosition;
+            final List<SearchResult<SequenceMatcher>> results =
+                    getSearcher(backwardStatistics).searchBackwards(reader, searchPosition, searchEnd);
+            if (!results.isEmpty()) {
+                return results;
+            }
+            searchPosition = searchEnd - 1;
+        }
+        return searchPosition >= lastPosition?
+                getSearcher(backwardStatistics).searchBackwards(reader, searchPosition, lastPosition)
+              : SearchUtils.<SequenceMatcher>noResults();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+        if (forwardStatistics.isSampling()) {
+            final int sampleStart = fromPosition > 0? fromPosition : 0;
+            final int sampleEnd = (int) Math.min(bytes.length, (long) sampleStart + ARRAY_SAMPLE_LENGTH);
+            forwardStatistics.sample(bytes, sampleStart, sampleEnd);
+        }
+        return getSearcher(forwardStatistics).searchForwards(bytes, fromPosition, toPosition);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final byte[] bytes,
+            final int fromPosition, final int toPosition) {
+        if (backwardStatistics.isSampling()) {
+            final int sampleEnd = fromPosition < bytes.length? fromPosition + 1 : bytes.length;
+            final int sampleStart = Math.max(0, sampleEnd - ARRAY_SAMPLE_LENGTH);
+            backwardStatistics.sample(bytes, sampleStart, sampleEnd);
+        }
+        return getSearcher(backwardStatistics).searchBackwards(bytes, fromPosition, toPosition);
+    }
+
+
+    /**
+     * Prepares both searchers to search forwards.
+     */
+    @Override
+    public void prepareForwards() {
+        shiftSearcher.prepareForwards();
+        linearSearcher.prepareForwards();
+    }
+
+
+    /**
+     * Prepares both searchers to search backwards.
+     */
+    @Override
+    public void prepareBackwards() {
+        shiftSearcher.prepareBackwards();
+        linearSearcher.prepareBackwards();
+    }
+
+
+    /**
+     * Returns the sequence searched for.
+     *
+     * @return The sequence searched for.
+     */
+    public SequenceMatcher getMatcher() {
+        return sequence;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getMaximumMatchLength() {
+        return sequence.length();
+    }
+
+
+    /**
+     * Returns the searcher currently chosen to search forwards.
+     *
+     * @return The searcher currently chosen to search forwards.
+     */
+    public AbstractSequenceSearcher getForwardSearcher() {
+        return getSearcher(forwardStatistics);
+    }
+
+
+    /**
+     * Returns the searcher currently chosen to search backwards.
+     *
+     * @return The searcher currently chosen to search backwards.
+     */
+    public AbstractSequenceSearcher getBackwardSearcher() {
+        return getSearcher(backwardStatistics);
+    }
+
+
+    private AbstractSequenceSearcher getSearcher(final ShiftStatistics statistics) {
+        return statistics.useShifts? shiftSearcher : linearSearcher;
+    }
+
+
+    /*
+     * The Horspool shifts searching forwards: the distance from the end of the sequence
+     * of the last position before the end which matches each byte.
+     */
+    private static int[] getForwardShifts(final SequenceMatcher sequence) {
+        final int length = sequence.length();
+        final int[] shifts = new int[256];
+        Arrays.fill(shifts, length);
+        for (int position = 0; position < length - 1; position++) {
+            for (final byte value : sequence.getMatcherForPosition(position).getMatchingBytes()) {
+                shifts[value & 0xFF] = length - 1 - position;
+            }
+        }
+        return shifts;
+    }
+
+
+    /*
+     * The Horspool shifts searching backwards: the distance from the start of the sequence
+     * of the first position after the start which matches each byte.
+     */
+    private static int[] getBackwardShifts(final SequenceMatcher sequence) {
+        final int length = sequence.length();
+        final int[] shifts = new int[256];
+        Arrays.fill(shifts, length);
+        for (int position = length - 1; position > 0; position--) {
+            for (final byte value : sequence.getMatcherForPosition(position).getMatchingBytes()) {
+                shifts[value & 0xFF] = position;
+            }
+        }
+        return shifts;
+    }
+
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[forwards: " + forwardStatistics +
+                                            " backwards: " + backwardStatistics + " sequence:" + sequence + ']';
+    }
+
+
+    /*
+     * Records the shifts and verifications which the Horspool searcher would make
+     * over the bytes sampled in one direction, and whether it should be used.
+     */
+    private final class ShiftStatistics {
+
+        private final int[] shifts;
+        private final ByteMatcher verifyMatcher;
+        private final Set<Long> sampledWindows = new HashSet<Long>();
+        private long totalBytes;
+        private long totalShift;
+        private long totalVerifications;
+        private int samples;
+        private volatile boolean sampling;
+        private volatile boolean useShifts;
+
+        private ShiftStatistics(final int[] shifts, final ByteMatcher verifyMatcher, final int length) {
+            this.shifts        = shifts;
+            this.verifyMatcher = verifyMatcher;
+            this.useShifts     = length > 1;
+            this.sampling      = length > 1;
+        }
+
+        private boolean isSampling() {
+            return sampling;
+        }
+
+        private void sample(final Window window) throws IOException {
+            final boolean notSampled;
+            synchronized (this) {
+                notSampled = sampling && sampledWindows.add(window.getWindowPosition());
+            }
+            if (notSampled) {
+                sample(window.getArray(), 0, window.length());
+            }
+        }
+
+        private void sample(final byte[] bytes, final int from, final int to) {
+            long shiftSum = 0;
+            long verifications = 0;
+            for (int position = from; position < to; position++) {
+                final byte value = bytes[position];
+                shiftSum += shifts[value & 0xFF];
+                if (verifyMatcher.matches(value)) {
+                    verifications++;
+                }
+            }
+            record(to - from, shiftSum, verifications);
+        }
+
+        private synchronized void record(final int bytes, final long shiftSum, final long verifications) {
+            if (sampling && bytes > 0) {
+                totalBytes += bytes;
+                totalShift += shiftSum;
+                totalVerifications += verifications;
+                final double averageShift = (double) totalShift / totalBytes;
+                final double verificationRate = (double) totalVerifications / totalBytes;
+                useShifts = averageShift > shiftCost * (1.0 + verificationRate);
+                sampling = ++samples < sampleWindows;
+            }
+        }
+
+        @Override
+        public synchronized String toString() {
+            return (useShifts? "shifting" : "linear") + (sampling? " (sampling)" : "") +
+                   (totalBytes > 0? " average shift: " + (double) totalShift / totalBytes : "");
+        }
+    }
+
+}
@@ -36,6 +36,7 @@ import java.util.List;
 import net.byteseek.io.reader.windows.Window;
 import net.byteseek.io.reader.WindowReader;
 import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchListener;
 import net.byteseek.searcher.SearchResult;
 import net.byteseek.searcher.SearchUtils;
 
@@ -95,6 +96,33 @@ public final class SequenceMatcherSearcher extends AbstractSequenceSearcher {
         }
         return SearchUtils.noResults();    
     }    
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean searchForwards(final byte[] bytes, final int fromPosition, final int toPosition,
+                                  final SearchListener<SequenceMatcher> listener) {
+        // Initialise:
+        final SequenceMatcher sequence = matcher;
+
+        // Calculate safe bounds for the search:
+        final int lastPossiblePosition = bytes.length - sequence.length();
+        final int lastPosition = toPosition < lastPossiblePosition?
+                                 toPosition : lastPossiblePosition;
+        int searchPosition = fromPosition > 0?
+                             fromPosition : 0;
+
+        // Search forwards, reporting each match:
+        while (searchPosition <= lastPosition) {
+            if (sequence.matchesNoBoundsCheck(bytes, searchPosition) &&
+                !listener.resultFound(searchPosition, sequence)) {
+                return false;
+            }
+            searchPosition++;
+        }
+        return true;
+    }
     
     
     /**
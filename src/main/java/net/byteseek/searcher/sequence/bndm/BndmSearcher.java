@@ -0,0 +1,379 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.sequence.bndm;
+
+import java.io.IOException;
+import java.util.List;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.bytes.ByteMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchListener;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchUtils;
+import net.byteseek.searcher.sequence.AbstractSequenceSearcher;
+import net.byteseek.utils.factory.ObjectFactory;
+import net.byteseek.utils.lazy.DoubleCheckImmutableLazyObject;
+import net.byteseek.utils.lazy.LazyObject;
+
+/**
+ * A searcher which implements the Backward Nondeterministic DAWG Matching (BNDM) algorithm
+ * by Gonzalo Navarro and Mathieu Raffinot.
+ * <p>
+ * Rather than shifting on a single byte, like Horspool and Sunday searchers, BNDM reads
+ * the bytes of each window backwards, simulating in parallel all the positions in the
+ * sequence where the bytes read so far could appear, using a bitmask for each byte value.
+ * When no position remains, the window can be shifted past the bytes read.  Since the masks
+ * are built from the {@link ByteMatcher} at each position of the sequence, byte classes
+ * are matched exactly and keep the average shifts large, even where a Horspool shift
+ * would be very small.
+ * <p>
+ * The state of the search is held in a long, so up to 64 positions of the sequence are
+ * simulated.  Longer sequences are searched for using their first 64 positions (or the last
+ * 64 positions, searching backwards), and each match of those is verified against the
+ * whole sequence.
+ * <p>
+ * See "Fast and Flexible String Matching by Combining Bit-parallelism and Suffix Automata",
+ * Gonzalo Navarro and Mathieu Raffinot, 2000.
+ *
+ * @author Matt Palmer
+ */
+public final class BndmSearcher extends AbstractSequenceSearcher {
+
+    private static final int MAX_WINDOW_LENGTH = 64;
+
+    private final LazyObject<long[]> forwardMasks;
+    private final LazyObject<long[]> backwardMasks;
+
+    /**
+     * Constructs a BNDM searcher given a {@link SequenceMatcher} to search for.
+     *
+     * @param sequence The sequence to search for.
+     * @throws IllegalArgumentException if the sequence is null.
+     */
+    public BndmSearcher(final SequenceMatcher sequence) {
+        super(sequence);
+        forwardMasks  = new DoubleCheckImmutableLazyObject<long[]>(new ForwardMaskFactory());
+        backwardMasks = new DoubleCheckImmutableLazyObject<long[]>(new BackwardMaskFactory());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+
+        // Get the objects needed to search:
+        final long[] masks = forwardMasks.get();
+        final SequenceMatcher sequence = matcher;
+        final int length = sequence.length();
+        final int windowLength = length < MAX_WINDOW_LENGTH? length : MAX_WINDOW_LENGTH;
+        final boolean verify = windowLength < length;
+        final long matchBit = 1L << (windowLength - 1);
+
+        // Calculate safe bounds for the search:
+        final int lastPossiblePosition = bytes.length - length;
+        final int lastPosition = toPosition < lastPossiblePosition?
+                                 toPosition : lastPossiblePosition;
+        int searchPosition = fromPosition > 0?
+                             fromPosition : 0;
+
+        // Search forwards, reading each window backwards:
+        while (searchPosition <= lastPosition) {
+            int remaining = windowLength;
+            int shift = windowLength;
+            long states = -1L;
+            while (states != 0 && remaining > 0) {
+                states &= masks[bytes[searchPosition + --remaining] & 0xFF];
+                if ((states & matchBit) != 0) {
+                    if (remaining > 0) {
+                        shift = remaining; // the bytes read so far start the sequence.
+                    } else if (!verify || sequence.matchesNoBoundsCheck(bytes, searchPosition)) {
+                        return SearchUtils.singleResult(searchPosition, sequence);
+                    }
+                }
+                states <<= 1;
+            }
+            searchPosition += shift;
+        }
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean searchForwards(final byte[] bytes, final int fromPosition, final int toPosition,
+                                  final SearchListener<SequenceMatcher> listener) {
+
+        // Get the objects needed to search:
+        final long[] masks = forwardMasks.get();
+        final SequenceMatcher sequence = matcher;
+        final int length = sequence.length();
+        final int windowLength = length < MAX_WINDOW_LENGTH? length : MAX_WINDOW_LENGTH;
+        final boolean verify = windowLength < length;
+        final long matchBit = 1L << (windowLength - 1);
+
+        // Calculate safe bounds for the search:
+        final int lastPossiblePosition = bytes.length - length;
+        final int lastPosition = toPosition < lastPossiblePosition?
+                                 toPosition : lastPossiblePosition;
+        int searchPosition = fromPosition > 0?
+                             fromPosition : 0;
+
+        // Search forwards, reading each window backwards and reporting each match:
+        while (searchPosition <= lastPosition) {
+            int remaining = windowLength;
+            int shift = windowLength;
+            long states = -1L;
+            while (states != 0 && remaining > 0) {
+                states &= masks[bytes[searchPosition + --remaining] & 0xFF];
+                if ((states & matchBit) != 0) {
+                    if (remaining > 0) {
+                        shift = remaining;
+                    } else if ((!verify || sequence.matchesNoBoundsCheck(bytes, searchPosition)) &&
+                               !listener.resultFound(searchPosition, sequence)) {
+                        return false;
+                    }
+                }
+                states <<= 1;
+            }
+            searchPosition += shift;
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchForwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+
+        // Get the objects needed to search:
+        final long[] masks = forwardMasks.get();
+        final SequenceMatcher sequence = matcher;
+        final int length = sequence.length();
+        final int windowLength = length < MAX_WINDOW_LENGTH? length : MAX_WINDOW_LENGTH;
+        final boolean verify = windowLength < length;
+        final long matchBit = 1L << (windowLength - 1);
+        long searchPosition = fromPosition;
+
+        // Search forwards, reading each window backwards:
+        while (searchPosition <= toPosition) {
+            int remaining = windowLength;
+            int shift = windowLength;
+            long states = -1L;
+            while (states != 0 && remaining > 0) {
+                final int value = reader.readByte(searchPosition + --remaining);
+                if (value < 0) {
+                    return SearchUtils.noResults(); // the window goes past the end of the data.
+                }
+                states &= masks[value];
+                if ((states & matchBit) != 0) {
+                    if (remaining > 0) {
+                        shift = remaining;
+                    } else if (!verify || sequence.matches(reader, searchPosition)) {
+                        return SearchUtils.singleResult(searchPosition, sequence);
+                    }
+                }
+                states <<= 1;
+            }
+            searchPosition += shift;
+        }
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+
+        // Get the objects needed to search:
+        final long[] masks = backwardMasks.get();
+        final SequenceMatcher sequence = matcher;
+        final int length = sequence.length();
+        final int windowLength = length < MAX_WINDOW_LENGTH? length : MAX_WINDOW_LENGTH;
+        final int windowOffset = length - windowLength;
+        final boolean verify = windowOffset > 0;
+        final long matchBit = 1L << (windowLength - 1);
+
+        // Calculate safe bounds for the search:
+        final int lastPossiblePosition = bytes.length - length;
+        int searchPosition = fromPosition < lastPossiblePosition?
+                             fromPosition : lastPossiblePosition;
+        final int lastPosition = toPosition > 0?
+                                 toPosition : 0;
+
+        // Search backwards, reading each window forwards:
+        while (searchPosition >= lastPosition) {
+            final int windowStart = searchPosition + windowOffset;
+            int read = 0;
+            int shift = windowLength;
+            long states = -1L;
+            while (states != 0 && read < windowLength) {
+                states &= masks[bytes[windowStart + read++] & 0xFF];
+                if ((states & matchBit) != 0) {
+                    if (read < windowLength) {
+                        shift = windowLength - read; // the bytes read so far end the sequence.
+                    } else if (!verify || sequence.matchesNoBoundsCheck(bytes, searchPosition)) {
+                        return SearchUtils.singleResult(searchPosition, sequence);
+                    }
+                }
+                states <<= 1;
+            }
+            searchPosition -= shift;
+        }
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchBackwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+
+        // Get the objects needed to search:
+        final long[] masks = backwardMasks.get();
+        final SequenceMatcher sequence = matcher;
+        final int length = sequence.length();
+        final int windowLength = length < MAX_WINDOW_LENGTH? length : MAX_WINDOW_LENGTH;
+        final int windowOffset = length - windowLength;
+        final boolean verify = windowOffset > 0;
+        final long matchBit = 1L << (windowLength - 1);
+        long searchPosition = fromPosition;
+
+        // Search backwards, reading each window forwards:
+        while (searchPosition >= toPosition) {
+            final long windowStart = searchPosition + windowOffset;
+            int read = 0;
+            int shift = windowLength;
+            long states = -1L;
+            while (states != 0 && read < windowLength) {
+                final int value = reader.readByte(windowStart + read++);
+                if (value < 0) {
+                    shift = 1; // the sequence goes past the end of the data here.
+                    break;
+                }
+                states &= masks[value];
+                if ((states & matchBit) != 0) {
+                    if (read < windowLength) {
+                        shift = windowLength - read;
+                    } else if (!verify || sequence.matches(reader, searchPosition)) {
+                        return SearchUtils.singleResult(searchPosition, sequence);
+                    }
+                }
+                states <<= 1;
+            }
+            searchPosition -= shift;
+        }
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void prepareForwards() {
+        forwardMasks.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void prepareBackwards() {
+        backwardMasks.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[sequence:" + matcher + ']';
+    }
+
+
+    private final class ForwardMaskFactory implements ObjectFactory<long[]> {
+
+        private ForwardMaskFactory() {
+        }
+
+        /**
+         * Calculates the masks to use if searching forwards.  The bit for each of the
+         * first 64 positions of the sequence is set in the mask of each byte matching
+         * that position, with the first position as the highest bit.
+         */
+        @Override
+        public long[] create() {
+            final SequenceMatcher sequence = getMatcher();
+            final int windowLength = sequence.length() < MAX_WINDOW_LENGTH? sequence.length() : MAX_WINDOW_LENGTH;
+            final long[] masks = new long[256];
+            for (int position = 0; position < windowLength; position++) {
+                final long positionBit = 1L << (windowLength - 1 - position);
+                for (final byte b : sequence.getMatcherForPosition(position).getMatchingBytes()) {
+                    masks[b & 0xFF] |= positionBit;
+                }
+            }
+            return masks;
+        }
+    }
+
+
+    private final class BackwardMaskFactory implements ObjectFactory<long[]> {
+
+        private BackwardMaskFactory() {
+        }
+
+        /**
+         * Calculates the masks to use if searching backwards.  The bit for each of the
+         * last 64 positions of the sequence is set in the mask of each byte matching
+         * that position, with the last position as the highest bit.
+         */
+        @Override
+        public long[] create() {
+            final SequenceMatcher sequence = getMatcher();
+            final int length = sequence.length();
+            final int windowLength = length < MAX_WINDOW_LENGTH? length : MAX_WINDOW_LENGTH;
+            final int windowOffset = length - windowLength;
+            final long[] masks = new long[256];
+            for (int position = 0; position < windowLength; position++) {
+                final long positionBit = 1L << position;
+                for (final byte b : sequence.getMatcherForPosition(windowOffset + position).getMatchingBytes()) {
+                    masks[b & 0xFF] |= positionBit;
+                }
+            }
+            return masks;
+        }
+    }
+
+}
@@ -32,7 +32,9 @@
 package net.byteseek.searcher.sequence.horspool;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import net.byteseek.io.reader.windows.Window;
@@ -43,7 +45,11 @@ import net.byteseek.matcher.sequence.SequenceMatcher;
 import net.byteseek.utils.lazy.DoubleCheckImmutableLazyObject;
 import net.byteseek.utils.lazy.LazyObject;
 import net.byteseek.utils.factory.ObjectFactory;
+import net.byteseek.searcher.ByteAccessor;
+import net.byteseek.searcher.PrecompilableSearcher;
+import net.byteseek.searcher.SearchListener;
 import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchTables;
 import net.byteseek.searcher.SearchUtils;
 import net.byteseek.searcher.sequence.AbstractSequenceSearcher;
 
@@ -81,8 +87,12 @@ import net.byteseek.searcher.sequence.AbstractSequenceSearcher;
  * 
  * @author Matt Palmer
  */
-public final class BoyerMooreHorspoolSearcher extends AbstractSequenceSearcher {
+public final class BoyerMooreHorspoolSearcher extends AbstractSequenceSearcher
+                                              implements PrecompilableSearcher {
 
+    private static final int NUMBER_OF_TABLES = 2;
+
+    private final SearchTables tables;
     private final LazyObject<SearchInfo> forwardInfo;
     private final LazyObject<SearchInfo> backwardInfo;
 
@@ -93,7 +103,26 @@ public final class BoyerMooreHorspoolSearcher extends AbstractSequenceSearcher {
      * @param sequence The SequenceMatcher to search for.
      */
     public BoyerMooreHorspoolSearcher(final SequenceMatcher sequence) {
+        this(sequence, null);
+    }
+
+
+    /**
+     * Constructs a BoyerMooreHorspool searcher given a {@link SequenceMatcher}
+     * to search for, and the precompiled {@link SearchTables} of a searcher for the
+     * same sequence, so the shifts do not have to be calculated again.
+     *
+     * @param sequence The SequenceMatcher to search for.
+     * @param tables   The search tables for the sequence, or null if they should be calculated.
+     * @throws IllegalArgumentException if the tables were not calculated for this sequence,
+     *         or do not have a shift for each of the 256 byte values.
+     */
+    public BoyerMooreHorspoolSearcher(final SequenceMatcher sequence, final SearchTables tables) {
         super(sequence);
+        if (tables != null) {
+            tables.check(getClass().getName(), fingerprint(), NUMBER_OF_TABLES, 256);
+        }
+        this.tables  = tables;
         forwardInfo  = new DoubleCheckImmutableLazyObject<SearchInfo>(new ForwardInfoFactory());
         backwardInfo = new DoubleCheckImmutableLazyObject<SearchInfo>(new BackwardInfoFactory());
     }
@@ -101,9 +130,25 @@ public final class BoyerMooreHorspoolSearcher extends AbstractSequenceSearcher {
     
     /**
      * {@inheritDoc}
-     */    
+     */
     @Override
     public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+        return searchForwards(ByteAccessor.of(bytes), fromPosition, toPosition);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final ByteBuffer buffer, final int fromPosition, final int toPosition) {
+        return searchForwards(ByteAccessor.of(buffer), fromPosition, toPosition);
+    }
+
+    /**
+     * Searches forwards in place through a {@link ByteAccessor}, so a byte array and
+     * a ByteBuffer are searched by the same loop.
+     */
+    private List<SearchResult<SequenceMatcher>> searchForwards(final ByteAccessor bytes, final int fromPosition, final int toPosition) {
         
         // Get the objects needed to search:
         final SearchInfo info = forwardInfo.get();
@@ -117,7 +162,7 @@ public final class BoyerMooreHorspoolSearcher extends AbstractSequenceSearcher {
                              fromPosition + lastMatcherPosition : lastMatcherPosition;
         
         // Calculate safe bounds for the end of the search:
-        final int lastPossiblePosition = bytes.length - 1;
+        final int lastPossiblePosition = bytes.length() - 1;
         final int lastPossibleSearchPosition = toPosition + lastMatcherPosition;
         final int finalPosition = lastPossibleSearchPosition < lastPossiblePosition?
                                   lastPossibleSearchPosition : lastPossiblePosition;
@@ -127,18 +172,18 @@ public final class BoyerMooreHorspoolSearcher extends AbstractSequenceSearcher {
             
             // Shift forwards until we match the last position in the sequence,
             // or we run out of search space (in which case just return not found).
-            byte currentByte = bytes[searchPosition];
+            byte currentByte = bytes.get(searchPosition);
             while (!endOfSequence.matches(currentByte)) {
                 searchPosition += safeShifts[currentByte & 0xff];
                 if (searchPosition > finalPosition) {
                     return SearchUtils.noResults();
                 }
-                currentByte = bytes[searchPosition];                
+                currentByte = bytes.get(searchPosition);                
             }
             
             // The last byte matched - verify there is a complete match:
             final int startMatchPosition = searchPosition - lastMatcherPosition;
-            if (verifier.matchesNoBoundsCheck(bytes, startMatchPosition)) {
+            if (bytes.matchesNoBoundsCheck(verifier, startMatchPosition)) {
                 return SearchUtils.singleResult(startMatchPosition, matcher); // match found.
             }
             
@@ -147,9 +192,60 @@ public final class BoyerMooreHorspoolSearcher extends AbstractSequenceSearcher {
         }
         
         return SearchUtils.noResults();
-    }    
-        
-    
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean searchForwards(final byte[] bytes, final int fromPosition, final int toPosition,
+                                  final SearchListener<SequenceMatcher> listener) {
+
+        // Get the objects needed to search:
+        final SearchInfo info = forwardInfo.get();
+        final int[] safeShifts = info.shifts;
+        final ByteMatcher endOfSequence = info.matcher;
+        final SequenceMatcher verifier = info.verifier;
+
+        // Determine a safe position to start searching at.
+        final int lastMatcherPosition = getMatcher().length() - 1;
+        int searchPosition = fromPosition > 0?
+                             fromPosition + lastMatcherPosition : lastMatcherPosition;
+
+        // Calculate safe bounds for the end of the search:
+        final int lastPossiblePosition = bytes.length - 1;
+        final int lastPossibleSearchPosition = toPosition + lastMatcherPosition;
+        final int finalPosition = lastPossibleSearchPosition < lastPossiblePosition?
+                                  lastPossibleSearchPosition : lastPossiblePosition;
+
+        // Search forwards:
+        while (searchPosition <= finalPosition) {
+
+            // Shift forwards until we match the last position in the sequence,
+            // or we run out of search space.
+            byte currentByte = bytes[searchPosition];
+            while (!endOfSequence.matches(currentByte)) {
+                searchPosition += safeShifts[currentByte & 0xff];
+                if (searchPosition > finalPosition) {
+                    return true;
+                }
+                currentByte = bytes[searchPosition];
+            }
+
+            // The last byte matched - verify there is a complete match and report it:
+            final int startMatchPosition = searchPosition - lastMatcherPosition;
+            if (verifier.matchesNoBoundsCheck(bytes, startMatchPosition) &&
+                !listener.resultFound(startMatchPosition, matcher)) {
+                return false;
+            }
+
+            // Shift forward by the shift for the current byte:
+            searchPosition += safeShifts[currentByte & 0xff];
+        }
+
+        return true;
+    }
+
     /**
      * Searches forward using the Boyer Moore Horspool algorithm, using 
      * byte arrays from Windows to handle shifting, and the WindowReader interface
@@ -179,8 +275,7 @@ public final class BoyerMooreHorspoolSearcher extends AbstractSequenceSearcher {
             final byte[] array = window.getArray();
             final int arrayStartPosition = reader.getWindowOffset(searchPosition);
             final int arrayEndPosition = window.length() - 1;
-            final int lastMatcherPosition = matcher.length() - 1;
-            final long distanceToEnd = finalPosition - window.getWindowPosition() + lastMatcherPosition;     
+            final long distanceToEnd = finalPosition - window.getWindowPosition();
             final int lastSearchPosition = distanceToEnd < arrayEndPosition?
                                      (int) distanceToEnd : arrayEndPosition;
             int arraySearchPosition = arrayStartPosition;            
@@ -223,6 +318,22 @@ public final class BoyerMooreHorspoolSearcher extends AbstractSequenceSearcher {
      */
     @Override
     public List<SearchResult<SequenceMatcher>> searchBackwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+        return searchBackwards(ByteAccessor.of(bytes), fromPosition, toPosition);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final ByteBuffer buffer, final int fromPosition, final int toPosition) {
+        return searchBackwards(ByteAccessor.of(buffer), fromPosition, toPosition);
+    }
+
+    /**
+     * Searches backwards in place through a {@link ByteAccessor}, so a byte array and
+     * a ByteBuffer are searched by the same loop.
+     */
+    private List<SearchResult<SequenceMatcher>> searchBackwards(final ByteAccessor bytes, final int fromPosition, final int toPosition) {
         
         // Get objects needed for the search:
         final SearchInfo info = backwardInfo.get();
@@ -231,7 +342,7 @@ public final class BoyerMooreHorspoolSearcher extends AbstractSequenceSearcher {
         final SequenceMatcher verifier = info.verifier;
         
         // Calculate safe bounds for the start of the search:
-        final int firstPossiblePosition = bytes.length - getMatcher().length();        
+        final int firstPossiblePosition = bytes.length() - getMatcher().length();        
         int searchPosition = fromPosition < firstPossiblePosition?
                              fromPosition : firstPossiblePosition;
         
@@ -244,19 +355,19 @@ public final class BoyerMooreHorspoolSearcher extends AbstractSequenceSearcher {
             
             // Shift backwards until we match the first position in the
             // sequence, or we run out of search space:
-            byte currentByte = bytes[searchPosition];
+            byte currentByte = bytes.get(searchPosition);
             while (!startOfSequence.matches(currentByte)) {
                 searchPosition -= safeShifts[currentByte & 0xFF];
                 if (searchPosition < lastPosition) {
                     return SearchUtils.noResults();
                 }
-                currentByte = bytes[searchPosition];
+                currentByte = bytes.get(searchPosition);
             }
             
             // The first byte matched - verify there is a complete match.
             // There is only a verifier if the sequence length was greater than one;
             // if the sequence is only one in length, we have already found it.
-            if (verifier == null || verifier.matchesNoBoundsCheck(bytes, searchPosition + 1)) {
+            if (verifier == null || bytes.matchesNoBoundsCheck(verifier, searchPosition + 1)) {
                 return SearchUtils.singleResult(searchPosition, matcher); // match found.
             }
 
@@ -267,7 +378,6 @@ public final class BoyerMooreHorspoolSearcher extends AbstractSequenceSearcher {
         return SearchUtils.noResults();
     }
 
-    
     /**
      * {@inheritDoc}
      */
@@ -347,11 +457,26 @@ public final class BoyerMooreHorspoolSearcher extends AbstractSequenceSearcher {
     }
     
     
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SearchTables getSearchTables() {
+        return new SearchTables(getClass().getName(), fingerprint(),
+                                forwardInfo.get().shifts, backwardInfo.get().shifts);
+    }
+
+
     @Override
     public String toString() {
     	return getClass().getSimpleName() + "[sequence:" + matcher + ']'; 
     }
 
+
+    private long fingerprint() {
+        return SearchTables.fingerprint(Collections.singletonList(matcher));
+    }
+
     
     private static final class SearchInfo {
         private final int[] shifts;
@@ -389,6 +514,11 @@ public final class BoyerMooreHorspoolSearcher extends AbstractSequenceSearcher {
             final SequenceMatcher verifier = (lastPosition == 0)? AnyByteMatcher.ANY_BYTE_MATCHER
             												    : sequence.subsequence(0, lastPosition); 
 
+            // Use the precompiled shifts if we have them:
+            if (tables != null) {
+                return new SearchInfo(tables.getTable(SearchTables.FORWARDS), byteMatcher, verifier);
+            }
+
             // Check for the pathological case of positions matching all bytes, from the end to the start.
             // If there is such a matcher in the sequence, no shift can be bigger than this length.
             // The shift code would still work if we did not do this, but long gaps like .{2048) would
@@ -453,6 +583,11 @@ public final class BoyerMooreHorspoolSearcher extends AbstractSequenceSearcher {
             final SequenceMatcher verifier = (lastPosition == 0)? null 
             													: sequence.subsequence(1, sequenceLength);
 
+            // Use the precompiled shifts if we have them:
+            if (tables != null) {
+                return new SearchInfo(tables.getTable(SearchTables.BACKWARDS), byteMatcher, verifier);
+            }
+
             // Check for the pathological case of positions matching all bytes, from the end to the start.
             // If there is such a matcher in the sequence, no shift can be bigger than this length.
             // The shift code would still work if we did not do this, but long gaps like .{2048) would
@@ -32,6 +32,7 @@
 package net.byteseek.searcher.sequence.horspool;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
 
@@ -43,6 +44,8 @@ import net.byteseek.matcher.sequence.SequenceMatcher;
 import net.byteseek.utils.lazy.DoubleCheckImmutableLazyObject;
 import net.byteseek.utils.lazy.LazyObject;
 import net.byteseek.utils.factory.ObjectFactory;
+import net.byteseek.searcher.ByteAccessor;
+import net.byteseek.searcher.SearchListener;
 import net.byteseek.searcher.SearchResult;
 import net.byteseek.searcher.SearchUtils;
 import net.byteseek.searcher.sequence.AbstractSequenceSearcher;
@@ -128,9 +131,25 @@ public final class HorspoolFinalFlagSearcher extends AbstractSequenceSearcher {
     
     /**
      * {@inheritDoc}
-     */    
+     */
     @Override
     public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+        return searchForwards(ByteAccessor.of(bytes), fromPosition, toPosition);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final ByteBuffer buffer, final int fromPosition, final int toPosition) {
+        return searchForwards(ByteAccessor.of(buffer), fromPosition, toPosition);
+    }
+
+    /**
+     * Searches forwards in place through a {@link ByteAccessor}, so a byte array and
+     * a ByteBuffer are searched by the same loop.
+     */
+    private List<SearchResult<SequenceMatcher>> searchForwards(final ByteAccessor bytes, final int fromPosition, final int toPosition) {
         
         // Get the objects needed to search:
         final SearchInfo info = forwardInfo.get();
@@ -143,7 +162,7 @@ public final class HorspoolFinalFlagSearcher extends AbstractSequenceSearcher {
                              fromPosition + lastMatcherPosition : lastMatcherPosition;
         
         // Calculate safe bounds for the end of the search:
-        final int lastPossiblePosition = bytes.length - 1;
+        final int lastPossiblePosition = bytes.length() - 1;
         final int lastPossibleSearchPosition = toPosition + lastMatcherPosition;
         final int finalPosition = lastPossibleSearchPosition < lastPossiblePosition?
                                   lastPossibleSearchPosition : lastPossiblePosition;
@@ -153,18 +172,18 @@ public final class HorspoolFinalFlagSearcher extends AbstractSequenceSearcher {
             
             // Shift forward until there is a negative shift or we run out of
             // search space.
-            int shift = safeShifts[bytes[searchPosition] & 0xFF];
+            int shift = safeShifts[bytes.get(searchPosition) & 0xFF];
             while (shift > 0) {
                 searchPosition += shift;
                 if (searchPosition > finalPosition) {
                     return SearchUtils.noResults();
                 }
-                shift = safeShifts[bytes[searchPosition] & 0xFF];
+                shift = safeShifts[bytes.get(searchPosition) & 0xFF];
             }
             
             // The last byte matched - verify there is a complete match:
             final int startMatchPosition = searchPosition - lastMatcherPosition;
-            if (verifier.matchesNoBoundsCheck(bytes, startMatchPosition)) {
+            if (bytes.matchesNoBoundsCheck(verifier, startMatchPosition)) {
                 return SearchUtils.singleResult(startMatchPosition, matcher); // match found.
             }
             
@@ -174,9 +193,60 @@ public final class HorspoolFinalFlagSearcher extends AbstractSequenceSearcher {
         }
         
         return SearchUtils.noResults();
-    }    
-        
-    
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean searchForwards(final byte[] bytes, final int fromPosition, final int toPosition,
+                                  final SearchListener<SequenceMatcher> listener) {
+
+        // Get the objects needed to search:
+        final SearchInfo info = forwardInfo.get();
+        final int[] safeShifts = info.shifts;
+        final SequenceMatcher verifier = info.verifier;
+
+        // Calculate safe bounds for the start of the search:
+        final int lastMatcherPosition = getMatcher().length() - 1;
+        int searchPosition = fromPosition > 0?
+                             fromPosition + lastMatcherPosition : lastMatcherPosition;
+
+        // Calculate safe bounds for the end of the search:
+        final int lastPossiblePosition = bytes.length - 1;
+        final int lastPossibleSearchPosition = toPosition + lastMatcherPosition;
+        final int finalPosition = lastPossibleSearchPosition < lastPossiblePosition?
+                                  lastPossibleSearchPosition : lastPossiblePosition;
+
+        // Search forwards:
+        while (searchPosition <= finalPosition) {
+
+            // Shift forward until there is a negative shift or we run out of
+            // search space.
+            int shift = safeShifts[bytes[searchPosition] & 0xFF];
+            while (shift > 0) {
+                searchPosition += shift;
+                if (searchPosition > finalPosition) {
+                    return true;
+                }
+                shift = safeShifts[bytes[searchPosition] & 0xFF];
+            }
+
+            // The last byte matched - verify there is a complete match and report it:
+            final int startMatchPosition = searchPosition - lastMatcherPosition;
+            if (verifier.matchesNoBoundsCheck(bytes, startMatchPosition) &&
+                !listener.resultFound(startMatchPosition, matcher)) {
+                return false;
+            }
+
+            // Shift forward by the next closest shift for the current byte.
+            // Subtract because the shift is negative.
+            searchPosition -= shift;
+        }
+
+        return true;
+    }
+
     /**
      * Searches forward using the Boyer Moore Horspool algorithm, using 
      * byte arrays from Windows to handle shifting, and the WindowReader interface
@@ -205,8 +275,7 @@ public final class HorspoolFinalFlagSearcher extends AbstractSequenceSearcher {
             final byte[] array = window.getArray();
             final int arrayStartPosition = reader.getWindowOffset(searchPosition);
             final int arrayEndPosition = window.length() - 1;
-            final int lastMatcherPosition = matcher.length() - 1;
-            final long distanceToEnd = finalPosition - window.getWindowPosition() + lastMatcherPosition;     
+            final long distanceToEnd = finalPosition - window.getWindowPosition();
             final int lastSearchPosition = distanceToEnd < arrayEndPosition?
                                      (int) distanceToEnd : arrayEndPosition;
             int arraySearchPosition = arrayStartPosition;            
@@ -250,6 +319,22 @@ public final class HorspoolFinalFlagSearcher extends AbstractSequenceSearcher {
      */
     @Override
     public List<SearchResult<SequenceMatcher>> searchBackwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+        return searchBackwards(ByteAccessor.of(bytes), fromPosition, toPosition);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final ByteBuffer buffer, final int fromPosition, final int toPosition) {
+        return searchBackwards(ByteAccessor.of(buffer), fromPosition, toPosition);
+    }
+
+    /**
+     * Searches backwards in place through a {@link ByteAccessor}, so a byte array and
+     * a ByteBuffer are searched by the same loop.
+     */
+    private List<SearchResult<SequenceMatcher>> searchBackwards(final ByteAccessor bytes, final int fromPosition, final int toPosition) {
         
         // Get objects needed for the search:
         final SearchInfo info = backwardInfo.get();
@@ -257,7 +342,7 @@ public final class HorspoolFinalFlagSearcher extends AbstractSequenceSearcher {
         final SequenceMatcher verifier = info.verifier;
         
         // Calculate safe bounds for the start of the search:
-        final int firstPossiblePosition = bytes.length - getMatcher().length();        
+        final int firstPossiblePosition = bytes.length() - getMatcher().length();        
         int searchPosition = fromPosition < firstPossiblePosition?
                              fromPosition : firstPossiblePosition;
         
@@ -270,19 +355,19 @@ public final class HorspoolFinalFlagSearcher extends AbstractSequenceSearcher {
             
             // Shift backwards until there is a negative shift or we run out of
             // search space.
-            int shift = safeShifts[bytes[searchPosition] & 0xFF];
+            int shift = safeShifts[bytes.get(searchPosition) & 0xFF];
             while (shift > 0) {
                 searchPosition -= shift;
                 if (searchPosition < lastPosition) {
                     return SearchUtils.noResults();
                 }
-                shift = safeShifts[bytes[searchPosition] & 0xFF];
+                shift = safeShifts[bytes.get(searchPosition) & 0xFF];
             }
             
             // The first byte matched - verify there is a complete match:
             // A null verifier means we don't need a verifier, as the sequence
             // is only one byte long - which we have just matched above.
-            if (verifier == null || verifier.matchesNoBoundsCheck(bytes, searchPosition + 1)) {
+            if (verifier == null || bytes.matchesNoBoundsCheck(verifier, searchPosition + 1)) {
                 return SearchUtils.singleResult(searchPosition, matcher); // match found.
             }
 
@@ -294,7 +379,6 @@ public final class HorspoolFinalFlagSearcher extends AbstractSequenceSearcher {
         return SearchUtils.noResults();
     }
 
-    
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,350 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.sequence.packed;
+
+import java.io.IOException;
+import java.util.List;
+
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.io.reader.windows.Window;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchListener;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchUtils;
+import net.byteseek.searcher.sequence.AbstractSequenceSearcher;
+import net.byteseek.utils.ByteScanUtils;
+
+/**
+ * A searcher for short literal sequences of bytes, which tests eight candidate positions at a time.
+ * <p>
+ * For each block of eight positions, it reads one word containing the first byte of the sequence
+ * at each position, and another word containing the last byte of the sequence at each position.
+ * Comparing each word with the first or last byte repeated eight times, and combining the results,
+ * leaves only the positions where both the first and last bytes match.  Each of those candidates
+ * is verified against the whole sequence by a {@link ByteSequenceMatcher}.
+ * <p>
+ * Unlike the Horspool and Sunday searchers, it never skips over positions, so it needs no tables
+ * and is not slowed down by low-entropy data or by sequences with repeated bytes.  It works best
+ * for short sequences, where shifts are small anyway.
+ * <p>
+ * Thread safety: this class is immutable, so it is safe to use this
+ * searcher in multiple threads simultaneously. However, note that {@link WindowReader}
+ * implementations passed in to search methods may not be thread-safe.  If byte
+ * arrays are being searched, they must not be modified during searching.
+ *
+ * @author Matt Palmer
+ */
+public final class PackedStringSearcher extends AbstractSequenceSearcher {
+
+    private final ByteSequenceMatcher sequenceBytes;
+    private final byte firstByte;
+    private final byte lastByte;
+
+    /**
+     * Constructs a PackedStringSearcher given a {@link SequenceMatcher} to search for,
+     * each position of which must match a single byte.
+     *
+     * @param sequence The sequence to search for.
+     * @throws IllegalArgumentException if the sequence is null, or it matches more than
+     *         one byte value at any position.
+     */
+    public PackedStringSearcher(final SequenceMatcher sequence) {
+        super(sequence);
+        sequenceBytes = sequence instanceof ByteSequenceMatcher? (ByteSequenceMatcher) sequence
+                                                                : new ByteSequenceMatcher(sequence);
+        firstByte = sequenceBytes.getMatcherForPosition(0).getMatchingBytes()[0];
+        lastByte  = sequenceBytes.getMatcherForPosition(sequenceBytes.length() - 1).getMatchingBytes()[0];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+        final int matchPosition = findForwards(bytes, fromPosition, toPosition);
+        return matchPosition >= 0? SearchUtils.singleResult(matchPosition, matcher)
+                                 : SearchUtils.<SequenceMatcher>noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean searchForwards(final byte[] bytes, final int fromPosition, final int toPosition,
+                                  final SearchListener<SequenceMatcher> listener) {
+        final SequenceMatcher sequence = matcher;
+        int matchPosition = findForwards(bytes, fromPosition, toPosition);
+        while (matchPosition >= 0) {
+            if (!listener.resultFound(matchPosition, sequence)) {
+                return false;
+            }
+            matchPosition = findForwards(bytes, matchPosition + 1, toPosition);
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The positions where the sequence fits inside a window are scanned in the window
+     * array, eight at a time.  Only positions whose first byte matches, but where the
+     * sequence crosses into the next window, are matched through the reader.
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchForwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        // Initialise:
+        final SequenceMatcher sequence = sequenceBytes;
+        final int lastSequencePosition = sequence.length() - 1;
+        final byte first = firstByte;
+        long searchPosition = fromPosition > 0?
+                              fromPosition : 0;
+
+        // While there is data still to search in:
+        Window window;
+        while (searchPosition <= toPosition &&
+               (window = reader.getWindow(searchPosition)) != null) {
+
+            // Calculate bounds for searching over this window:
+            final byte[] array = window.getArray();
+            final long windowStartPosition = window.getWindowPosition();
+            final int arrayStartPosition = reader.getWindowOffset(searchPosition);
+            final int arrayLastPosition = window.length() - 1;
+            final long distanceToEnd = toPosition - windowStartPosition;
+            final int arrayEndPosition = distanceToEnd < arrayLastPosition?
+                                         (int) distanceToEnd : arrayLastPosition;
+            final int lastFitPosition = arrayLastPosition - lastSequencePosition;
+
+            // Scan the positions where the sequence fits inside the window array:
+            if (arrayStartPosition <= lastFitPosition) {
+                final int arrayMatchPosition = findForwards(array, arrayStartPosition,
+                        arrayEndPosition < lastFitPosition? arrayEndPosition : lastFitPosition);
+                if (arrayMatchPosition >= 0) {
+                    return SearchUtils.singleResult(windowStartPosition + arrayMatchPosition, matcher);
+                }
+            }
+
+            // Match the positions where the sequence crosses into the next window through the reader:
+            for (int arrayPosition = arrayStartPosition > lastFitPosition? arrayStartPosition : lastFitPosition + 1;
+                 arrayPosition <= arrayEndPosition; arrayPosition++) {
+                if (array[arrayPosition] == first &&
+                    sequence.matches(reader, windowStartPosition + arrayPosition)) {
+                    return SearchUtils.singleResult(windowStartPosition + arrayPosition, matcher);
+                }
+            }
+
+            // Continue the search one on from where we last looked:
+            searchPosition = windowStartPosition + arrayEndPosition + 1;
+        }
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+        final int matchPosition = findBackwards(bytes, fromPosition, toPosition);
+        return matchPosition >= 0? SearchUtils.singleResult(matchPosition, matcher)
+                                 : SearchUtils.<SequenceMatcher>noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The positions where the sequence fits inside a window are scanned in the window
+     * array, eight at a time.  Only positions whose first byte matches, but where the
+     * sequence crosses into the next window, are matched through the reader.
+     */
+    @Override
+    protected List<SearchResult<SequenceMatcher>> doSearchBackwards(final WindowReader reader,
+            final long fromPosition, final long toPosition) throws IOException {
+        // Initialise:
+        final SequenceMatcher sequence = sequenceBytes;
+        final int lastSequencePosition = sequence.length() - 1;
+        final byte first = firstByte;
+        long searchPosition = withinLength(reader, fromPosition);
+
+        // While there is data to search in:
+        Window window;
+        while (searchPosition >= toPosition &&
+               (window = reader.getWindow(searchPosition)) != null) {
+
+            // Calculate bounds for searching back across this window:
+            final byte[] array = window.getArray();
+            final long windowStartPosition = window.getWindowPosition();
+            final int arrayStartPosition = reader.getWindowOffset(searchPosition);
+            final long distanceToEnd = toPosition - windowStartPosition;
+            final int arrayEndPosition = distanceToEnd > 0?
+                                         (int) distanceToEnd : 0;
+            final int lastFitPosition = window.length() - 1 - lastSequencePosition;
+
+            // Match the positions where the sequence crosses into the next window through the reader:
+            int arrayPosition = arrayStartPosition;
+            while (arrayPosition > lastFitPosition && arrayPosition >= arrayEndPosition) {
+                if (array[arrayPosition] == first &&
+                    sequence.matches(reader, windowStartPosition + arrayPosition)) {
+                    return SearchUtils.singleResult(windowStartPosition + arrayPosition, matcher);
+                }
+                arrayPosition--;
+            }
+
+            // Scan the positions where the sequence fits inside the window array:
+            if (arrayPosition >= arrayEndPosition) {
+                final int arrayMatchPosition = findBackwards(array, arrayPosition, arrayEndPosition);
+                if (arrayMatchPosition >= 0) {
+                    return SearchUtils.singleResult(windowStartPosition + arrayMatchPosition, matcher);
+                }
+            }
+
+            // Continue the search one back from where we last looked:
+            searchPosition = windowStartPosition + arrayEndPosition - 1;
+        }
+        return SearchUtils.noResults();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void prepareForwards() {
+        // Nothing to prepare in order to search.
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void prepareBackwards() {
+        // Nothing to prepare in order to search.
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[sequence:" + matcher + ']';
+    }
+
+    /*
+     * Returns the first position of the sequence in the bytes between the from and to positions, or -1.
+     */
+    private int findForwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+        // Get the objects needed to search:
+        final ByteSequenceMatcher sequence = sequenceBytes;
+        final int lastSequencePosition = sequence.length() - 1;
+        final long firstPattern = ByteScanUtils.broadcast(firstByte);
+        final long lastPattern  = ByteScanUtils.broadcast(lastByte);
+
+        // Calculate safe bounds for the search:
+        final int lastPossiblePosition = bytes.length - lastSequencePosition - 1;
+        final int lastPosition = toPosition < lastPossiblePosition?
+                                 toPosition : lastPossiblePosition;
+        int searchPosition = fromPosition > 0?
+                             fromPosition : 0;
+
+        // Search forwards eight positions at a time, starting at the search position:
+        final int lastBlockStart = lastPosition - ByteScanUtils.WORD_LENGTH + 1;
+        while (searchPosition <= lastBlockStart) {
+            long candidates = ByteScanUtils.matchingBytes(ByteScanUtils.readWord(bytes, searchPosition), firstPattern) &
+                              ByteScanUtils.matchingBytes(ByteScanUtils.readWord(bytes, searchPosition + lastSequencePosition), lastPattern);
+            while (candidates != 0) {
+                final int candidatePosition = searchPosition + (Long.numberOfTrailingZeros(candidates) >>> 3);
+                if (sequence.matchesNoBoundsCheck(bytes, candidatePosition)) {
+                    return candidatePosition;
+                }
+                candidates &= candidates - 1;
+            }
+            searchPosition += ByteScanUtils.WORD_LENGTH;
+        }
+
+        // Search the remaining positions one at a time:
+        final byte first = firstByte;
+        final byte last  = lastByte;
+        while (searchPosition <= lastPosition) {
+            if (bytes[searchPosition] == first && bytes[searchPosition + lastSequencePosition] == last &&
+                sequence.matchesNoBoundsCheck(bytes, searchPosition)) {
+                return searchPosition;
+            }
+            searchPosition++;
+        }
+        return -1;
+    }
+
+    /*
+     * Returns the last position of the sequence in the bytes between the from and to positions,
+     * searching back from the from position, or -1.
+     */
+    private int findBackwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+        // Get the objects needed to search:
+        final ByteSequenceMatcher sequence = sequenceBytes;
+        final int lastSequencePosition = sequence.length() - 1;
+        final long firstPattern = ByteScanUtils.broadcast(firstByte);
+        final long lastPattern  = ByteScanUtils.broadcast(lastByte);
+
+        // Calculate safe bounds for the search:
+        final int lastPossiblePosition = bytes.length - lastSequencePosition - 1;
+        int searchPosition = fromPosition < lastPossiblePosition?
+                             fromPosition : lastPossiblePosition;
+        final int lastPosition = toPosition > 0?
+                                 toPosition : 0;
+
+        // Search backwards eight positions at a time, ending at the search position:
+        final int lastBlockEnd = lastPosition + ByteScanUtils.WORD_LENGTH - 1;
+        while (searchPosition >= lastBlockEnd) {
+            final int blockStart = searchPosition - ByteScanUtils.WORD_LENGTH + 1;
+            long candidates = ByteScanUtils.matchingBytes(ByteScanUtils.readWord(bytes, blockStart), firstPattern) &
+                              ByteScanUtils.matchingBytes(ByteScanUtils.readWord(bytes, blockStart + lastSequencePosition), lastPattern);
+            while (candidates != 0) {
+                final int leadingZeros = Long.numberOfLeadingZeros(candidates);
+                final int candidatePosition = searchPosition - (leadingZeros >>> 3);
+                if (sequence.matchesNoBoundsCheck(bytes, candidatePosition)) {
+                    return candidatePosition;
+                }
+                candidates &= ~(Long.MIN_VALUE >>> leadingZeros);
+            }
+            searchPosition -= ByteScanUtils.WORD_LENGTH;
+        }
+
+        // Search the remaining positions one at a time:
+        final byte first = firstByte;
+        final byte last  = lastByte;
+        while (searchPosition >= lastPosition) {
+            if (bytes[searchPosition] == first && bytes[searchPosition + lastSequencePosition] == last &&
+                sequence.matchesNoBoundsCheck(bytes, searchPosition)) {
+                return searchPosition;
+            }
+            searchPosition--;
+        }
+        return -1;
+    }
+
+}
@@ -32,16 +32,18 @@
 package net.byteseek.searcher.sequence.sunday;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
 
-import net.byteseek.io.reader.windows.Window;
 import net.byteseek.io.reader.WindowReader;
 import net.byteseek.matcher.bytes.ByteMatcher;
 import net.byteseek.matcher.sequence.SequenceMatcher;
 import net.byteseek.utils.lazy.DoubleCheckImmutableLazyObject;
 import net.byteseek.utils.lazy.LazyObject;
 import net.byteseek.utils.factory.ObjectFactory;
+import net.byteseek.searcher.ByteAccessor;
+import net.byteseek.searcher.SearchListener;
 import net.byteseek.searcher.SearchResult;
 import net.byteseek.searcher.SearchUtils;
 import net.byteseek.searcher.sequence.AbstractSequenceSearcher;
@@ -71,9 +73,25 @@ public final class SundayQuickSearcher extends AbstractSequenceSearcher {
 
     /**
      * {@inheritDoc}
-     */    
+     */
     @Override
     public List<SearchResult<SequenceMatcher>> searchForwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+        return searchForwards(ByteAccessor.of(bytes), fromPosition, toPosition);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchForwards(final ByteBuffer buffer, final int fromPosition, final int toPosition) {
+        return searchForwards(ByteAccessor.of(buffer), fromPosition, toPosition);
+    }
+
+    /**
+     * Searches forwards in place through a {@link ByteAccessor}, so a byte array and
+     * a ByteBuffer are searched by the same loop.
+     */
+    private List<SearchResult<SequenceMatcher>> searchForwards(final ByteAccessor bytes, final int fromPosition, final int toPosition) {
         
         // Get the objects needed to search:
         final int[] safeShifts = forwardInfo.get();
@@ -81,7 +99,7 @@ public final class SundayQuickSearcher extends AbstractSequenceSearcher {
         
         // Calculate safe bounds for the search:
         final int length = sequence.length();
-        final int finalPosition = bytes.length - length;
+        final int finalPosition = bytes.length() - length;
         final int lastLoopPosition = finalPosition - 1;
         final int lastPosition = toPosition < lastLoopPosition?
                                  toPosition : lastLoopPosition;
@@ -91,25 +109,67 @@ public final class SundayQuickSearcher extends AbstractSequenceSearcher {
         // Search forwards.  The loop does not check for the final
         // position, as we shift on the byte after the sequence.
         while (searchPosition <= lastPosition) {
-            if (sequence.matchesNoBoundsCheck(bytes, searchPosition)) {
+            if (bytes.matchesNoBoundsCheck(sequence, searchPosition)) {
                 return SearchUtils.singleResult(searchPosition, sequence);
             }
-            searchPosition += safeShifts[bytes[searchPosition + length] & 0xFF];
+            searchPosition += safeShifts[bytes.get(searchPosition + length) & 0xFF];
         }
         
         // Check the final position if necessary:
         if (searchPosition == finalPosition && 
             toPosition     >= finalPosition &&
-            sequence.matches(bytes, finalPosition)) {
+            bytes.matches(sequence, finalPosition)) {
             return SearchUtils.singleResult(finalPosition, sequence);
         }
 
         return SearchUtils.noResults();
-    }        
-    
-    
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean searchForwards(final byte[] bytes, final int fromPosition, final int toPosition,
+                                  final SearchListener<SequenceMatcher> listener) {
+
+        // Get the objects needed to search:
+        final int[] safeShifts = forwardInfo.get();
+        final SequenceMatcher sequence = getMatcher();
+
+        // Calculate safe bounds for the search:
+        final int length = sequence.length();
+        final int finalPosition = bytes.length - length;
+        final int lastLoopPosition = finalPosition - 1;
+        final int lastPosition = toPosition < lastLoopPosition?
+                                 toPosition : lastLoopPosition;
+        int searchPosition = fromPosition > 0?
+                             fromPosition : 0;
+
+        // Search forwards, reporting each match.  The loop does not check
+        // the final position, as we shift on the byte after the sequence.
+        while (searchPosition <= lastPosition) {
+            if (sequence.matchesNoBoundsCheck(bytes, searchPosition) &&
+                !listener.resultFound(searchPosition, sequence)) {
+                return false;
+            }
+            searchPosition += safeShifts[bytes[searchPosition + length] & 0xFF];
+        }
+
+        // Check the final position if necessary:
+        if (searchPosition == finalPosition &&
+            toPosition     >= finalPosition &&
+            sequence.matches(bytes, finalPosition)) {
+            return listener.resultFound(finalPosition, sequence);
+        }
+
+        return true;
+    }
+
     /**
      * {@inheritDoc}
+     * <p>
+     * This is only invoked for positions where the sequence crosses into the next window,
+     * so it reads the byte after each position to shift on through the reader.
      */
     @Override
     public List<SearchResult<SequenceMatcher>> doSearchForwards(final WindowReader reader, 
@@ -119,45 +179,21 @@ public final class SundayQuickSearcher extends AbstractSequenceSearcher {
         final int[] safeShifts = forwardInfo.get();
         final SequenceMatcher sequence = getMatcher();
         final int length = sequence.length();
-        long searchPosition = fromPosition;
+        long searchPosition = fromPosition > 0?
+                              fromPosition : 0;
         
-        // While there is a window to search in...
-        // If there is no window immediately after the sequence,
-        // then there is no match, since this is only invoked if the 
-        // sequence is already crossing into another window.         
-        Window window;
-        while (searchPosition <= toPosition &&
-               (window = reader.getWindow(searchPosition + length)) != null) {
-            
-            // Initialise array search:
-            final byte[] array = window.getArray();
-            final int arrayStartPosition = reader.getWindowOffset(searchPosition + length);
-            final int arrayEndPosition = window.length() - 1;
-            final long distanceToEnd = toPosition - window.getWindowPosition() + length ;
-            final int finalPosition = distanceToEnd < arrayEndPosition?
-                                (int) distanceToEnd : arrayEndPosition;
-            int arraySearchPosition = arrayStartPosition;
-            
-            // Search fowards in the array using the reader interface to match.
-            // The loop does not check the final position, as we shift on the byte
-            // after the sequence (so would get an IndexOutOfBoundsException in the final position).
-            while (arraySearchPosition < finalPosition) {
-                if (sequence.matches(reader, searchPosition)) {
-                    return SearchUtils.singleResult(searchPosition, sequence);
-                }
-                final int shift = safeShifts[array[arraySearchPosition] & 0xFF];
-                searchPosition += shift;
-                arraySearchPosition += shift;
+        // Search forwards using the reader interface to match, and shift on the byte
+        // after the sequence.  If there is no byte after the sequence, there can be
+        // no further match.
+        while (searchPosition <= toPosition) {
+            if (sequence.matches(reader, searchPosition)) {
+                return SearchUtils.singleResult(searchPosition, sequence);
             }
-
-            // Check final position if necessary:
-            if (arraySearchPosition == finalPosition ||
-                searchPosition == toPosition) {
-                if (sequence.matches(reader, searchPosition)) {
-                    return SearchUtils.singleResult(searchPosition, sequence);
-                }
-                searchPosition += safeShifts[array[arraySearchPosition] & 0xFF];
+            final int nextByte = reader.readByte(searchPosition + length);
+            if (nextByte < 0) {
+                break;
             }
+            searchPosition += safeShifts[nextByte];
         }
 
         return SearchUtils.noResults();
@@ -169,6 +205,22 @@ public final class SundayQuickSearcher extends AbstractSequenceSearcher {
      */
     @Override
     public List<SearchResult<SequenceMatcher>> searchBackwards(final byte[] bytes, final int fromPosition, final int toPosition) {
+        return searchBackwards(ByteAccessor.of(bytes), fromPosition, toPosition);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SearchResult<SequenceMatcher>> searchBackwards(final ByteBuffer buffer, final int fromPosition, final int toPosition) {
+        return searchBackwards(ByteAccessor.of(buffer), fromPosition, toPosition);
+    }
+
+    /**
+     * Searches backwards in place through a {@link ByteAccessor}, so a byte array and
+     * a ByteBuffer are searched by the same loop.
+     */
+    private List<SearchResult<SequenceMatcher>> searchBackwards(final ByteAccessor bytes, final int fromPosition, final int toPosition) {
         
         // Get objects needed to search:
         final int[] safeShifts = backwardInfo.get();
@@ -177,7 +229,7 @@ public final class SundayQuickSearcher extends AbstractSequenceSearcher {
         // Calculate safe bounds for the search:
         final int lastLoopPosition = toPosition > 1?
                                      toPosition : 1;
-        final int firstPossiblePosition = bytes.length - sequence.length();
+        final int firstPossiblePosition = bytes.length() - sequence.length();
         int searchPosition = fromPosition < firstPossiblePosition ?
                              fromPosition : firstPossiblePosition;
         
@@ -185,74 +237,51 @@ public final class SundayQuickSearcher extends AbstractSequenceSearcher {
         // first position in the array, because we shift on the byte
         // immediately before the current search position.
         while (searchPosition >= lastLoopPosition) {
-            if (sequence.matchesNoBoundsCheck(bytes, searchPosition)) {
+            if (bytes.matchesNoBoundsCheck(sequence, searchPosition)) {
                 return SearchUtils.singleResult(searchPosition, sequence);
             }
-            searchPosition -= safeShifts[bytes[searchPosition - 1] & 0xFF];             
+            searchPosition -= safeShifts[bytes.get(searchPosition - 1) & 0xFF];             
         }
         
         // Check for first position if necessary:
         if (searchPosition == 0 &&
             toPosition < 1 &&
-            sequence.matches(bytes, 0)) {
+            bytes.matches(sequence, 0)) {
             return SearchUtils.singleResult(0, sequence);
         }
 
         return SearchUtils.noResults();
     }
-    
-    
+
     /**
      * {@inheritDoc}
+     * <p>
+     * This is only invoked for positions where the sequence crosses into the next window,
+     * so it reads the byte before each position to shift on through the reader.
      */
     @Override
     public List<SearchResult<SequenceMatcher>> doSearchBackwards(final WindowReader reader, 
             final long fromPosition, final long toPosition ) throws IOException {
         
-         // Initialise 
-        final int[] safeShifts = forwardInfo.get();
+        // Initialise 
+        final int[] safeShifts = backwardInfo.get();
         final SequenceMatcher sequence = getMatcher();
+        final long finalPosition = toPosition > 0?
+                                   toPosition : 0;
         long searchPosition = fromPosition;
         
-        // While there is a window to search in...
-        // If there is no window immediately before the sequence,
-        // then there is no match, since this is only invoked if the 
-        // sequence is already crossing into another window.        
-        Window window;
-        while (searchPosition >= toPosition &&
-               (window = reader.getWindow(searchPosition - 1)) != null) {
-            
-            // Initialise array search:
-            final byte[] array = window.getArray();
-            final int arrayStartPosition = reader.getWindowOffset(searchPosition - 1);
-            
-            // Search to the beginning of the array, or the final search position,
-            // whichver comes first.
-            final long endRelativeToWindow = toPosition - window.getWindowPosition();
-            final int arrayEndSearchPosition = endRelativeToWindow > 0?
-                                         (int) endRelativeToWindow : 0;
-            int arraySearchPosition = arrayStartPosition;
-            
-            // Search backwards in the array using the reader interface to match.
-            // The loop does not check the final position, as we shift on the byte
-            // before it.
-            while (arraySearchPosition > arrayEndSearchPosition) {
-                if (sequence.matches(reader, searchPosition)) {
-                    return SearchUtils.singleResult(searchPosition, sequence);
-                }
-                final int shift = safeShifts[array[arraySearchPosition] & 0xFF];
-                searchPosition -= shift;
-                arraySearchPosition -= shift;
+        // Search backwards using the reader interface to match, and shift on the byte
+        // before the sequence.  If there is no byte before the sequence, there can be
+        // no further match.
+        while (searchPosition >= finalPosition) {
+            if (sequence.matches(reader, searchPosition)) {
+                return SearchUtils.singleResult(searchPosition, sequence);
             }
-
-            // Check final position if necessary:
-            if (arraySearchPosition == arrayEndSearchPosition ||
-                searchPosition == toPosition) {
-                if (sequence.matches(reader, searchPosition)) {
-                    return SearchUtils.singleResult(searchPosition, sequence);
-                }
-                searchPosition -= safeShifts[array[arraySearchPosition] & 0xFF];
+            final int previousByte = reader.readByte(searchPosition - 1);
+            if (previousByte < 0) {
+                break;
             }
+            searchPosition -= safeShifts[previousByte];
         }
         
         return SearchUtils.noResults();
@@ -0,0 +1,101 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.utils;
+
+/**
+ * A utility class which packs eight bytes of an array into a long, and tests all eight
+ * bytes of it at once against a byte value with a few arithmetic and bitwise operations.
+ *
+ * @author Matt Palmer
+ */
+public final class ByteScanUtils {
+
+    /**
+     * The number of bytes in a word read by {@link #readWord(byte[], int)}.
+     */
+    public static final int WORD_LENGTH = 8;
+
+    private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long LOW_BITS       = 0x0101010101010101L;
+
+    /**
+     * Private constructor for static utility class.
+     */
+    private ByteScanUtils() {
+    }
+
+    /**
+     * Returns a long with the byte value repeated in each of its eight bytes.
+     *
+     * @param value The byte value to repeat.
+     * @return A long with the byte value repeated in each of its eight bytes.
+     */
+    public static long broadcast(final byte value) {
+        return (value & 0xFFL) * LOW_BITS;
+    }
+
+    /**
+     * Returns a long with the top bit set in each byte of the word which is equal to the
+     * corresponding byte in the broadcast value, and all other bits zero.
+     * <p>
+     * No carries are propagated between bytes, so there are no false positives.
+     *
+     * @param word           The word to test.
+     * @param broadcastValue A value obtained from {@link #broadcast(byte)}.
+     * @return A long with the top bit set in each byte which matched.
+     */
+    public static long matchingBytes(final long word, final long broadcastValue) {
+        final long difference = word ^ broadcastValue;
+        return ~(((difference & LOW_SEVEN_BITS) + LOW_SEVEN_BITS) | difference | LOW_SEVEN_BITS);
+    }
+
+    /**
+     * Reads eight bytes from the array into a long, with the byte at the index in the
+     * lowest eight bits, so the lowest matching byte in a word is the earliest in the array.
+     *
+     * @param bytes The array to read from.
+     * @param index The index of the first byte to read.  There must be eight bytes from the index in the array.
+     * @return A long containing the eight bytes at the index, in little-endian order.
+     * @throws ArrayIndexOutOfBoundsException if there are not eight bytes from the index in the array.
+     */
+    public static long readWord(final byte[] bytes, final int index) {
+        return  (bytes[index]     & 0xFFL)        |
+               ((bytes[index + 1] & 0xFFL) << 8)  |
+               ((bytes[index + 2] & 0xFFL) << 16) |
+               ((bytes[index + 3] & 0xFFL) << 24) |
+               ((bytes[index + 4] & 0xFFL) << 32) |
+               ((bytes[index + 5] & 0xFFL) << 40) |
+               ((bytes[index + 6] & 0xFFL) << 48) |
+               ((long) bytes[index + 7]    << 56);
+    }
+
+}
@@ -33,6 +33,7 @@ package net.byteseek.io;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Random;
 
 import net.byteseek.io.reader.FileReader;
 import net.byteseek.io.reader.windows.Window;
@@ -69,6 +70,40 @@ public class Utilities {
         reader.close();
         return window.getArray();
     }
+
+
+    /**
+     * Returns an array of random bytes, in which every byte value is equally likely.
+     *
+     * @param random The source of random numbers.
+     * @param length The number of bytes to return.
+     * @return An array of random bytes.
+     */
+    public static byte[] randomBytes(final Random random, final int length) {
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) random.nextInt(256);
+        }
+        return bytes;
+    }
+
+
+    /**
+     * Returns an array of random bytes, each chosen from an alphabet of byte values.
+     * A small alphabet makes matches common, which tests of matchers and searchers need.
+     *
+     * @param random   The source of random numbers.
+     * @param length   The number of bytes to return.
+     * @param alphabet The byte values to choose from.
+     * @return An array of random bytes from the alphabet.
+     */
+    public static byte[] randomBytes(final Random random, final int length, final byte[] alphabet) {
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        return bytes;
+    }
     
     
 }
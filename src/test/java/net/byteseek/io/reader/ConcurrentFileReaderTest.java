@@ -0,0 +1,151 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.byteseek.io.IOUtils;
+import net.byteseek.io.reader.cache.ConcurrentLeastRecentlyUsedCache;
+import net.byteseek.io.reader.windows.Window;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the ConcurrentFileReader and the ConcurrentLeastRecentlyUsedCache,
+ * reading a single file from many threads at once.
+ *
+ * @author Matt Palmer
+ */
+public class ConcurrentFileReaderTest {
+
+	private final static int NUM_THREADS = 8;
+	private final static int READS_PER_THREAD = 20000;
+
+	@Test
+	public void testReadAllBytes() throws IOException {
+		final File file = getFile("/TestASCII.txt");
+		final byte[] fileBytes = IOUtils.readEntireFile(file);
+		final ConcurrentFileReader reader = new ConcurrentFileReader(file, 1000, 7);
+		long totalLength = 0;
+		for (final Window window : reader) {
+			final long windowPosition = window.getWindowPosition();
+			for (int offset = 0; offset < window.length(); offset++) {
+				assertEquals("Window byte at " + (windowPosition + offset),
+						     fileBytes[(int) (windowPosition + offset)], window.getByte(offset));
+			}
+			totalLength += window.length();
+		}
+		assertEquals("Sum of window lengths", fileBytes.length, totalLength);
+		reader.close();
+	}
+
+	@Test
+	public void testConcurrentRandomReads() throws Exception {
+		final File file = getFile("/TestBigRandom.rnd");
+		final byte[] fileBytes = IOUtils.readEntireFile(file);
+		final ConcurrentFileReader reader = new ConcurrentFileReader(file, 4096, 64);
+		final ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+		try {
+			final List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+			for (int thread = 0; thread < NUM_THREADS; thread++) {
+				final long seed = thread;
+				results.add(executor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						final Random random = new Random(seed);
+						int errors = 0;
+						for (int read = 0; read < READS_PER_THREAD; read++) {
+							final int position = random.nextInt(fileBytes.length);
+							if (reader.readByte(position) != (fileBytes[position] & 0xFF)) {
+								errors++;
+							}
+						}
+						return errors;
+					}
+				}));
+			}
+			for (final Future<Integer> result : results) {
+				assertEquals("Bytes read incorrectly", 0, result.get().intValue());
+			}
+		} finally {
+			executor.shutdown();
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testWindowsOutsideFile() throws IOException {
+		final ConcurrentFileReader reader = new ConcurrentFileReader(getFile("/TestASCII.txt"));
+		assertNull("No window before 0", reader.getWindow(-1));
+		assertNull("No window after length", reader.getWindow(112280));
+		assertEquals("No byte after length", -1, reader.readByte(112280));
+		assertEquals("Length", 112280, reader.length());
+		reader.close();
+	}
+
+	@Test
+	public void testCacheCapacity() throws IOException {
+		final ConcurrentLeastRecentlyUsedCache cache = new ConcurrentLeastRecentlyUsedCache(10, 4);
+		final ConcurrentFileReader reader = new ConcurrentFileReader(getFile("/TestASCII.txt"), 100, cache);
+		for (final Window window : reader) {
+			assertTrue("Cache size within capacity", cache.size() <= 10);
+		}
+		assertTrue("Cache holds windows", cache.size() > 0);
+		reader.close();
+		assertEquals("Cache cleared on close", 0, cache.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCreateNullFile() throws FileNotFoundException {
+		new ConcurrentFileReader((File) null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCacheZeroCapacity() {
+		new ConcurrentLeastRecentlyUsedCache(0);
+	}
+
+	private File getFile(final String resourceName) {
+		return new File(this.getClass().getResource(resourceName).getPath());
+	}
+
+}
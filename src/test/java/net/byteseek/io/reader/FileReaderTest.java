@@ -45,6 +45,7 @@ import java.util.logging.Logger;
 import net.byteseek.io.IOUtils;
 import net.byteseek.io.reader.windows.SoftWindow;
 import net.byteseek.io.reader.windows.SoftWindowRecovery;
+import net.byteseek.io.reader.windows.WindowBufferPool;
 import net.byteseek.io.reader.windows.WindowMissingException;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -269,6 +270,36 @@ public class FileReaderTest {
 
 	}
 
+	@Test
+	public void testWindowBufferPool() throws IOException {
+		File zipfile = getFile("/TestASCII.zip");
+		RandomAccessFile raf = new RandomAccessFile(zipfile, "r");
+		WindowBufferPool pool = new WindowBufferPool();
+
+		FileReader reader = new FileReader(zipfile, 1024, 4);
+		reader.setWindowBufferPool(pool);
+		assertSame(pool, reader.getWindowBufferPool());
+		testGetWindowData(reader, raf);
+		assertTrue("Evicted window arrays are pooled", pool.available(1024) > 0);
+
+		// A second reader reuses the arrays freed by the first:
+		int available = pool.available(1024);
+		FileReader reader2 = new FileReader(zipfile, 1024, 4);
+		reader2.setWindowBufferPool(pool);
+		assertNotNull(reader2.getWindow(0));
+		assertEquals(available - 1, pool.available(1024));
+		testGetWindowData(reader2, raf);
+
+		// With no cache, windows are freed as they are created, but the window returned is not recycled:
+		FileReader noCacheReader = new FileReader(zipfile, 1024, new NoCache());
+		noCacheReader.setWindowBufferPool(pool);
+		testGetWindowData(noCacheReader, raf);
+
+		reader.setWindowBufferPool(null);
+		assertNull(reader.getWindowBufferPool());
+		raf.close();
+	}
+
 	private void testGetWindowData(WindowReader fileReader, RandomAccessFile raf) throws IOException {
 		for (Window window : fileReader) {
 			byte[] fileBytes = new byte[window.length()];
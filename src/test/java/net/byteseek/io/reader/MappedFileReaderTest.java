@@ -0,0 +1,175 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import net.byteseek.io.IOUtils;
+import net.byteseek.io.reader.cache.LeastRecentlyUsedCache;
+import net.byteseek.io.reader.windows.MappedWindow;
+import net.byteseek.io.reader.windows.Window;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the MappedFileReader, using a variety of window and segment sizes.
+ *
+ * @author Matt Palmer
+ */
+public class MappedFileReaderTest {
+
+	private final static int[] WINDOW_SIZES  = new int[] { 1, 7, 255, 1024, 4095, 4096, 65536 };
+	private final static int[] SEGMENT_MULTS = new int[] { 1, 2, 3, 1000 };
+
+	@Test
+	public void testReadAllBytes() throws IOException {
+		testReadAllBytes("/TestASCII.txt");
+		testReadAllBytes("/TestASCII.zip");
+	}
+
+	@Test
+	public void testLength() throws IOException {
+		assertEquals("length ASCII", 112280, new MappedFileReader(getFile("/TestASCII.txt")).length());
+		assertEquals("length ZIP", 45846, new MappedFileReader(getFile("/TestASCII.zip")).length());
+		assertEquals("length empty", 0, new MappedFileReader(getFile("/TestEmpty.empty")).length());
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		final MappedFileReader reader = new MappedFileReader(getFile("/TestEmpty.empty"));
+		assertNull("No window in empty file", reader.getWindow(0));
+		assertEquals("No byte in empty file", -1, reader.readByte(0));
+		assertFalse("No windows to iterate", reader.iterator().hasNext());
+	}
+
+	@Test
+	public void testWindowsOutsideFile() throws IOException {
+		final MappedFileReader reader = new MappedFileReader(getFile("/TestASCII.txt"));
+		assertNull("No window before 0", reader.getWindow(-1));
+		assertNull("No window after length", reader.getWindow(112280));
+		assertNull("No window long after length", reader.getWindow(200000));
+		assertEquals("No byte before 0", -1, reader.readByte(-1));
+		assertEquals("No byte after length", -1, reader.readByte(112280));
+	}
+
+	@Test
+	public void testMappedWindowsReturned() throws IOException {
+		final MappedFileReader reader = new MappedFileReader(getFile("/TestASCII.txt"), 1024, 65536,
+				                                             new LeastRecentlyUsedCache(4));
+		assertEquals("segment size is a whole number of windows", 65536, reader.getSegmentSize());
+		assertEquals("Mapped windows are returned", MappedWindow.class, reader.getWindow(5000).getClass());
+	}
+
+	@Test
+	public void testSegmentSizeRoundedToWindows() throws IOException {
+		final MappedFileReader reader = new MappedFileReader(getFile("/TestASCII.txt"), 1000, 70500);
+		assertEquals("segment size rounded down", 70000, reader.getSegmentSize());
+	}
+
+	@Test
+	public void testSmallSegmentSizeRoundedUp() throws IOException {
+		assertEquals("one byte segment rounded up", 65536,
+				     new MappedFileReader(getFile("/TestASCII.txt"), 1, 1).getSegmentSize());
+		assertEquals("segment size rounded up to windows", 66000,
+				     new MappedFileReader(getFile("/TestASCII.txt"), 1000, 4500).getSegmentSize());
+		assertEquals("window larger than minimum", 100000,
+				     new MappedFileReader(getFile("/TestASCII.txt"), 100000, 100000).getSegmentSize());
+	}
+
+	@Test
+	public void testWindowArraysCachedByDefault() throws IOException {
+		final MappedFileReader reader = new MappedFileReader(getFile("/TestASCII.txt"));
+		assertSame("window array is reused", reader.getWindow(5000).getArray(), reader.getWindow(5000).getArray());
+	}
+
+	@Test
+	public void testCloseBeforeReading() throws Exception {
+		final MappedFileReader reader = new MappedFileReader(getFile("/TestASCII.zip"));
+		reader.close();
+		try {
+			reader.getWindow(0);
+			fail("Expected IOException");
+		} catch (IOException expected) {}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCreateNullFile() throws FileNotFoundException {
+		new MappedFileReader((File) null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCreateNullPath() throws FileNotFoundException {
+		new MappedFileReader((String) null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSegmentSmallerThanWindow() throws FileNotFoundException {
+		new MappedFileReader(getFile("/TestASCII.txt"), 4096, 1024);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullCache() throws FileNotFoundException {
+		new MappedFileReader(getFile("/TestASCII.txt"), 4096, 8192, null);
+	}
+
+	private void testReadAllBytes(final String resourceName) throws IOException {
+		final File file = getFile(resourceName);
+		final byte[] fileBytes = IOUtils.readEntireFile(file);
+		for (final int windowSize : WINDOW_SIZES) {
+			for (final int segmentMultiple : SEGMENT_MULTS) {
+				final MappedFileReader reader = new MappedFileReader(file, windowSize, windowSize * segmentMultiple);
+				long totalLength = 0;
+				for (final Window window : reader) {
+					final byte[] array = window.getArray();
+					final long windowPosition = window.getWindowPosition();
+					for (int offset = 0; offset < window.length(); offset++) {
+						final int filePosition = (int) (windowPosition + offset);
+						assertEquals("Window byte at " + filePosition, fileBytes[filePosition], window.getByte(offset));
+						assertEquals("Array byte at " + filePosition, fileBytes[filePosition], array[offset]);
+						assertEquals("Read byte at " + filePosition, fileBytes[filePosition], (byte) reader.readByte(filePosition));
+					}
+					totalLength += window.length();
+				}
+				assertEquals("Sum of window lengths " + reader, fileBytes.length, totalLength);
+				reader.close();
+			}
+		}
+	}
+
+	private File getFile(final String resourceName) {
+		return new File(this.getClass().getResource(resourceName).getPath());
+	}
+
+}
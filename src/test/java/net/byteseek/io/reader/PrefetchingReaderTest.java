@@ -0,0 +1,200 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import net.byteseek.io.IOUtils;
+import net.byteseek.io.reader.windows.Window;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PrefetchingReaderTest {
+
+	private ExecutorService executor;
+	private byte[] fileBytes;
+	private RecordingReader recorder;
+
+	@Before
+	public void setUp() throws IOException {
+		executor = Executors.newFixedThreadPool(2);
+		final File file = new File(getClass().getResource("/TestASCII.txt").getPath());
+		fileBytes = IOUtils.readEntireFile(file);
+		recorder = new RecordingReader(new ConcurrentFileReader(file, 1000, 16));
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullReader() {
+		new PrefetchingReader(null, executor);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullExecutor() {
+		new PrefetchingReader(recorder, null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroPrefetchWindows() {
+		new PrefetchingReader(recorder, executor, 0);
+	}
+
+	@Test
+	public void testIterateForwards() throws IOException {
+		final PrefetchingReader reader = new PrefetchingReader(recorder, executor, 3);
+		long totalLength = 0;
+		for (final Window window : reader) {
+			assertWindowBytes(window);
+			totalLength += window.length();
+		}
+		assertEquals(fileBytes.length, totalLength);
+		assertEquals(fileBytes.length, reader.length());
+		assertEquals(-1, reader.readByte(fileBytes.length));
+		assertNull(reader.getWindow(-1));
+		reader.close();
+	}
+
+	@Test
+	public void testReadsAheadForwards() throws Exception {
+		final PrefetchingReader reader = new PrefetchingReader(recorder, executor, 3);
+		assertWindowBytes(reader.getWindow(0));
+		assertWindowBytes(reader.getWindow(1500));
+		awaitBackgroundReads();
+		for (long windowStart = 2000; windowStart <= 4000; windowStart += 1000) {
+			assertTrue("Window read ahead at " + windowStart, recorder.backgroundReads.contains(windowStart));
+		}
+		assertFalse(recorder.backgroundReads.contains(5000L));
+	}
+
+	@Test
+	public void testReadsAheadBackwards() throws Exception {
+		final PrefetchingReader reader = new PrefetchingReader(recorder, executor, 3);
+		long position = fileBytes.length - 1;
+		while (position >= 0) {
+			final Window window = reader.getWindow(position);
+			assertWindowBytes(window);
+			assertEquals(fileBytes[(int) position] & 0xFF, reader.readByte(position));
+			position = window.getWindowPosition() - 1;
+		}
+		awaitBackgroundReads();
+		assertTrue(recorder.backgroundReads.contains(0L));
+		assertFalse(recorder.backgroundReads.contains((long) fileBytes.length - fileBytes.length % 1000));
+	}
+
+	@Test
+	public void testRandomReads() throws Exception {
+		final PrefetchingReader reader = new PrefetchingReader(recorder, executor);
+		final Random random = new Random(19);
+		for (int i = 0; i < 5000; i++) {
+			final int position = random.nextInt(fileBytes.length);
+			assertEquals(fileBytes[position] & 0xFF, reader.readByte(position));
+		}
+		awaitBackgroundReads();
+		reader.close();
+	}
+
+	private void awaitBackgroundReads() throws InterruptedException {
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+	}
+
+	private void assertWindowBytes(final Window window) throws IOException {
+		final long windowPosition = window.getWindowPosition();
+		for (int offset = 0; offset < window.length(); offset++) {
+			assertEquals(fileBytes[(int) (windowPosition + offset)], window.getByte(offset));
+		}
+	}
+
+	/*
+	 * Records the windows requested from threads other than the one running the test.
+	 */
+	private static final class RecordingReader implements WindowReader {
+
+		private final WindowReader reader;
+		private final Thread testThread = Thread.currentThread();
+		private final Set<Long> backgroundReads = Collections.synchronizedSet(new HashSet<Long>());
+
+		private RecordingReader(final WindowReader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		public int readByte(final long position) throws IOException {
+			return reader.readByte(position);
+		}
+
+		@Override
+		public Window getWindow(final long position) throws IOException {
+			if (Thread.currentThread() != testThread) {
+				backgroundReads.add(position);
+			}
+			return reader.getWindow(position);
+		}
+
+		@Override
+		public int getWindowOffset(final long position) {
+			return reader.getWindowOffset(position);
+		}
+
+		@Override
+		public long length() throws IOException {
+			return reader.length();
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+
+		@Override
+		public Iterator<Window> iterator() {
+			return reader.iterator();
+		}
+	}
+
+}
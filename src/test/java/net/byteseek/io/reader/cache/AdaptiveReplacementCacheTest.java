@@ -0,0 +1,143 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import net.byteseek.io.reader.windows.HardWindow;
+import net.byteseek.io.reader.windows.Window;
+
+import org.junit.Test;
+
+public class AdaptiveReplacementCacheTest {
+
+    private static final byte[] ARRAY = new byte[16];
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeCapacity() {
+        new AdaptiveReplacementCache(-1);
+    }
+
+    @Test
+    public void testZeroCapacityFreesEachWindow() throws IOException {
+        final WindowCache cache = new AdaptiveReplacementCache(0);
+        final WindowTracker tracker = new WindowTracker();
+        cache.subscribe(tracker);
+        cache.addWindow(tracker.add(0));
+        assertNull(cache.getWindow(0));
+        assertTrue(tracker.windows.isEmpty());
+    }
+
+    @Test
+    public void testFrequentWindowsSurviveScan() throws IOException {
+        final WindowCache cache = new AdaptiveReplacementCache(8);
+        final WindowCache lruCache = new LeastRecentlyUsedArrayCache(8);
+        final WindowTracker tracker = new WindowTracker();
+        cache.subscribe(tracker);
+
+        // Use a header and trailer window twice each:
+        for (final long position : new long[] {0, 1000}) {
+            final Window window = tracker.add(position);
+            cache.addWindow(window);
+            lruCache.addWindow(window);
+            assertSame(window, cache.getWindow(position));
+            assertSame(window, lruCache.getWindow(position));
+        }
+
+        // Scan through many other windows once each:
+        for (long position = 1; position < 1000; position++) {
+            final Window window = tracker.add(position);
+            cache.addWindow(window);
+            lruCache.addWindow(window);
+        }
+
+        assertNotNull(cache.getWindow(0));
+        assertNotNull(cache.getWindow(1000));
+        assertNull(lruCache.getWindow(0));
+        assertNull(lruCache.getWindow(1000));
+    }
+
+    @Test
+    public void testCachesOnlyAddedWindowsAndFreesEvictedWindows() throws IOException {
+        final Random random = new Random(16);
+        for (final int capacity : new int[] {1, 2, 5, 16, 64}) {
+            final WindowCache cache = new AdaptiveReplacementCache(capacity);
+            final WindowTracker tracker = new WindowTracker();
+            cache.subscribe(tracker);
+            int hits = 0;
+            for (int operation = 0; operation < 20000; operation++) {
+                // Mix a small hot set with a wider range of colder positions:
+                final long position = random.nextBoolean()? random.nextInt(capacity) : random.nextInt(capacity * 8);
+                final Window window = cache.getWindow(position);
+                if (window == null) {
+                    assertNull(tracker.windows.get(position));
+                    cache.addWindow(tracker.add(position));
+                } else {
+                    assertSame(tracker.windows.get(position), window);
+                    hits++;
+                }
+                assertTrue(tracker.windows.size() <= capacity);
+            }
+            assertTrue(hits > 0);
+            cache.clear();
+            tracker.windows.clear();
+            for (long position = 0; position < capacity * 8; position++) {
+                assertNull(cache.getWindow(position));
+            }
+        }
+    }
+
+    /*
+     * Keeps track of the windows which should be in the cache, checking each freed window was cached.
+     */
+    private static final class WindowTracker implements WindowCache.WindowObserver {
+
+        private final Map<Long, Window> windows = new HashMap<Long, Window>();
+
+        private Window add(final long position) {
+            final Window window = new HardWindow(ARRAY, position, ARRAY.length);
+            windows.put(position, window);
+            return window;
+        }
+
+        @Override
+        public void windowFree(final Window window, final WindowCache fromCache) {
+            assertSame(window, windows.remove(window.getWindowPosition()));
+        }
+    }
+
+}
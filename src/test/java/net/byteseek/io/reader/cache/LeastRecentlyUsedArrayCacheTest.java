@@ -0,0 +1,122 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.io.reader.windows.HardWindow;
+import net.byteseek.io.reader.windows.Window;
+
+import org.junit.Test;
+
+public class LeastRecentlyUsedArrayCacheTest {
+
+    private static final byte[] ARRAY = new byte[16];
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeCapacity() {
+        new LeastRecentlyUsedArrayCache(-1);
+    }
+
+    @Test
+    public void testZeroCapacityFreesEachWindow() throws IOException {
+        final WindowCache cache = new LeastRecentlyUsedArrayCache(0);
+        final FreedWindows freed = new FreedWindows();
+        cache.subscribe(freed);
+        final Window window = new HardWindow(ARRAY, 0, ARRAY.length);
+        cache.addWindow(window);
+        assertNull(cache.getWindow(0));
+        assertEquals(1, freed.windows.size());
+        assertSame(window, freed.windows.get(0));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws IOException {
+        final WindowCache cache = new LeastRecentlyUsedArrayCache(2);
+        final FreedWindows freed = new FreedWindows();
+        cache.subscribe(freed);
+        final Window first = new HardWindow(ARRAY, 0, ARRAY.length);
+        final Window second = new HardWindow(ARRAY, 16, ARRAY.length);
+        cache.addWindow(first);
+        cache.addWindow(second);
+        assertSame(first, cache.getWindow(0));
+        cache.addWindow(new HardWindow(ARRAY, 32, ARRAY.length));
+        assertSame(second, freed.windows.get(0));
+        assertSame(first, cache.getWindow(0));
+        assertNull(cache.getWindow(16));
+    }
+
+    @Test
+    public void testSameAsLeastRecentlyUsedCache() throws IOException {
+        final Random random = new Random(15);
+        for (final int capacity : new int[] {1, 2, 3, 7, 32, 100}) {
+            final WindowCache expected = new LeastRecentlyUsedCache(capacity);
+            final WindowCache cache = new LeastRecentlyUsedArrayCache(capacity);
+            final FreedWindows expectedFreed = new FreedWindows();
+            final FreedWindows freed = new FreedWindows();
+            expected.subscribe(expectedFreed);
+            cache.subscribe(freed);
+            final int positions = capacity * 3;
+            for (int operation = 0; operation < 20000; operation++) {
+                final long position = random.nextInt(positions) * 4096L;
+                final int choice = random.nextInt(100);
+                if (choice < 50) {
+                    assertSame(expected.getWindow(position), cache.getWindow(position));
+                } else if (choice < 99) {
+                    final Window window = new HardWindow(ARRAY, position, ARRAY.length);
+                    expected.addWindow(window);
+                    cache.addWindow(window);
+                } else {
+                    expected.clear();
+                    cache.clear();
+                }
+                assertEquals(expectedFreed.windows, freed.windows);
+            }
+        }
+    }
+
+    private static final class FreedWindows implements WindowCache.WindowObserver {
+
+        private final List<Window> windows = new ArrayList<Window>();
+
+        @Override
+        public void windowFree(final Window window, final WindowCache fromCache) {
+            windows.add(window);
+        }
+    }
+
+}
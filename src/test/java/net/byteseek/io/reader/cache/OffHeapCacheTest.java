@@ -0,0 +1,178 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+import static org.junit.Assert.*;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.byteseek.io.IOUtils;
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.windows.HardWindow;
+import net.byteseek.io.reader.windows.Window;
+
+import org.junit.Test;
+
+public class OffHeapCacheTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroMaxBytes() {
+        new OffHeapCache(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSlabLargerThanMaxBytes() {
+        new OffHeapCache(1024, 2048);
+    }
+
+    @Test
+    public void testStoresWindowBytes() throws IOException {
+        final OffHeapCache cache = new OffHeapCache(1024, 256);
+        final Window window = createWindow(100, 50);
+        cache.addWindow(window);
+        assertNull(cache.getWindow(101));
+        final Window cached = cache.getWindow(100);
+        assertEquals(100, cached.getWindowPosition());
+        assertEquals(50, cached.length());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(window.getByte(i), cached.getByte(i));
+        }
+        assertArrayEquals(window.getArray(), cached.getArray());
+        assertEquals(256, cache.getAllocatedBytes());
+    }
+
+    @Test
+    public void testDropsOldestSlabWithinMaxBytes() throws IOException {
+        final OffHeapCache cache = new OffHeapCache(1024, 256);
+        final List<Window> freed = new ArrayList<Window>();
+        cache.subscribe(new WindowCache.WindowObserver() {
+            @Override
+            public void windowFree(final Window window, final WindowCache fromCache) {
+                freed.add(window);
+            }
+        });
+
+        // Four windows fit in each slab, and four slabs fit in the maximum bytes:
+        for (int i = 0; i < 16; i++) {
+            cache.addWindow(createWindow(i * 64, 64));
+        }
+        assertEquals(1024, cache.getAllocatedBytes());
+        assertTrue(freed.isEmpty());
+
+        // The next window drops the first slab:
+        final Window before = cache.getWindow(0);
+        cache.addWindow(createWindow(16 * 64, 64));
+        assertEquals(1024, cache.getAllocatedBytes());
+        assertEquals(4, freed.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i * 64, freed.get(i).getWindowPosition());
+            assertNull(cache.getWindow(i * 64));
+            assertArrayEquals(createWindow(i * 64, 64).getArray(), freed.get(i).getArray());
+        }
+        for (int i = 4; i <= 16; i++) {
+            assertNotNull(cache.getWindow(i * 64));
+        }
+
+        // A window obtained before its slab was dropped is still valid:
+        assertArrayEquals(createWindow(0, 64).getArray(), before.getArray());
+    }
+
+    @Test
+    public void testLargeWindows() throws IOException {
+        final OffHeapCache cache = new OffHeapCache(1024, 256);
+        final List<Window> freed = new ArrayList<Window>();
+        cache.subscribe(new WindowCache.WindowObserver() {
+            @Override
+            public void windowFree(final Window window, final WindowCache fromCache) {
+                freed.add(window);
+            }
+        });
+
+        // A window larger than a slab gets a slab of its own:
+        final Window large = createWindow(0, 600);
+        cache.addWindow(large);
+        assertEquals(600, cache.getAllocatedBytes());
+        assertArrayEquals(large.getArray(), cache.getWindow(0).getArray());
+
+        // A window larger than the maximum bytes is not cached:
+        final Window tooLarge = createWindow(600, 2000);
+        cache.addWindow(tooLarge);
+        assertNull(cache.getWindow(600));
+        assertSame(tooLarge, freed.get(0));
+    }
+
+    @Test
+    public void testClear() throws IOException {
+        final OffHeapCache cache = new OffHeapCache(1024, 256);
+        cache.addWindow(createWindow(0, 64));
+        cache.clear();
+        assertNull(cache.getWindow(0));
+        assertEquals(0, cache.getAllocatedBytes());
+        cache.addWindow(createWindow(0, 64));
+        assertNotNull(cache.getWindow(0));
+    }
+
+    @Test
+    public void testSecondaryCacheForStream() throws IOException {
+        final String path = OffHeapCacheTest.class.getResource("/TestASCII.txt").getPath();
+        final InputStreamReader reader = new InputStreamReader(new FileInputStream(path), 1024,
+                TwoLevelCache.create(new LeastRecentlyUsedArrayCache(4), new OffHeapCache(1 << 20, 16384)));
+        final RandomAccessFile raf = new RandomAccessFile(path, "r");
+        try {
+            assertEquals(raf.length(), reader.length());
+            for (long position = 0; position < raf.length(); position += 1024) {
+                final Window window = reader.getWindow(position);
+                final byte[] expected = new byte[window.length()];
+                IOUtils.readBytes(raf, expected, position);
+                for (int i = 0; i < expected.length; i++) {
+                    assertEquals(expected[i], window.getByte(i));
+                }
+            }
+        } finally {
+            raf.close();
+            reader.close();
+        }
+    }
+
+    private static Window createWindow(final long position, final int length) {
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (position + i * 31);
+        }
+        return new HardWindow(bytes, position, length);
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.cache;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import net.byteseek.io.IOUtils;
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.windows.HardWindow;
+import net.byteseek.io.reader.windows.MappedWindow;
+import net.byteseek.io.reader.windows.SoftWindow;
+import net.byteseek.io.reader.windows.Window;
+
+import org.junit.Test;
+
+public class TempFileCacheTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroSegmentSize() {
+        new TempFileCache(null, 0);
+    }
+
+    @Test
+    public void testUnwrittenWindowsAreReturnedDirectly() throws IOException {
+        final TempFileCache cache = new TempFileCache();
+        final Window window = createWindow(0, 100);
+        cache.addWindow(window);
+        assertNotNull(cache.getTempFile());
+        assertSame(window, cache.getWindow(0));
+        assertNull(cache.getWindow(1));
+        cache.clear();
+        assertNull(cache.getTempFile());
+        assertNull(cache.getWindow(0));
+    }
+
+    @Test
+    public void testWrittenWindowsAreMappedOrRead() throws IOException {
+        final TempFileCache cache = new TempFileCache(null, 1000);
+        // Windows of 300 bytes: every fourth window crosses a segment boundary.
+        for (int i = 0; i < 64; i++) {
+            cache.addWindow(createWindow(i * 300, 300));
+        }
+        int mapped = 0;
+        int read = 0;
+        for (int i = 0; i < 64; i++) {
+            final Window window = cache.getWindow(i * 300);
+            assertWindow(createWindow(i * 300, 300), window);
+            if (window instanceof MappedWindow) {
+                mapped++;
+            } else if (window instanceof SoftWindow) {
+                assertArrayEquals(window.getArray(), cache.reloadWindowBytes(window));
+                read++;
+            }
+        }
+        assertTrue(mapped > 0);
+        assertTrue(read > 0);
+        final File tempFile = cache.getTempFile();
+        cache.clear();
+        assertFalse(tempFile.exists());
+    }
+
+    @Test
+    public void testSecondaryCacheForStream() throws IOException {
+        final File file = new File(getClass().getResource("/TestASCII.txt").getPath());
+        final byte[] fileBytes = IOUtils.readEntireFile(file);
+        final TempFileCache tempFileCache = new TempFileCache(null, 8192);
+        final InputStreamReader reader = new InputStreamReader(new FileInputStream(file), 1000,
+                TwoLevelCache.create(new LeastRecentlyUsedArrayCache(2), tempFileCache));
+        try {
+            assertEquals(fileBytes.length, reader.length());
+            final Random random = new Random(20);
+            for (int i = 0; i < 2000; i++) {
+                final int position = random.nextInt(fileBytes.length);
+                assertEquals(fileBytes[position] & 0xFF, reader.readByte(position));
+            }
+        } finally {
+            reader.close();
+        }
+        assertNull(tempFileCache.getTempFile());
+    }
+
+    private static void assertWindow(final Window expected, final Window actual) throws IOException {
+        assertEquals(expected.getWindowPosition(), actual.getWindowPosition());
+        assertEquals(expected.length(), actual.length());
+        for (int i = 0; i < expected.length(); i++) {
+            assertEquals(expected.getByte(i), actual.getByte(i));
+        }
+    }
+
+    private static Window createWindow(final long position, final int length) {
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (position + i * 31);
+        }
+        return new HardWindow(bytes, position, length);
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.io.reader.windows;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class WindowBufferPoolTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroBuffersPerSize() {
+        new WindowBufferPool(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReleaseNull() {
+        new WindowBufferPool().release(null);
+    }
+
+    @Test
+    public void testBorrowFromEmptyPoolAllocates() {
+        final WindowBufferPool pool = new WindowBufferPool();
+        final byte[] array = pool.borrow(4096);
+        assertEquals(4096, array.length);
+        assertEquals(0, pool.available(4096));
+    }
+
+    @Test
+    public void testReleasedArrayIsReused() {
+        final WindowBufferPool pool = new WindowBufferPool();
+        final byte[] array = pool.borrow(4096);
+        assertTrue(pool.release(array));
+        assertEquals(1, pool.available(4096));
+        assertSame(array, pool.borrow(4096));
+        assertEquals(0, pool.available(4096));
+    }
+
+    @Test
+    public void testArraysAreBucketedByLength() {
+        final WindowBufferPool pool = new WindowBufferPool();
+        final byte[] small = new byte[1024];
+        final byte[] large = new byte[4096];
+        pool.release(small);
+        pool.release(large);
+        assertEquals(1, pool.available(1024));
+        assertEquals(1, pool.available(4096));
+        assertEquals(0, pool.available(2048));
+        assertNotSame(small, pool.borrow(2048));
+        assertSame(large, pool.borrow(4096));
+        assertSame(small, pool.borrow(1024));
+    }
+
+    @Test
+    public void testFullBucketDiscardsArrays() {
+        final WindowBufferPool pool = new WindowBufferPool(2);
+        assertTrue(pool.release(new byte[16]));
+        assertTrue(pool.release(new byte[16]));
+        assertFalse(pool.release(new byte[16]));
+        assertEquals(2, pool.available(16));
+        assertTrue(pool.release(new byte[32]));
+    }
+
+    @Test
+    public void testClear() {
+        final WindowBufferPool pool = new WindowBufferPool();
+        pool.release(new byte[16]);
+        pool.clear();
+        assertEquals(0, pool.available(16));
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.matcher.automata;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.automata.Automata;
+import net.byteseek.automata.MutableAutomata;
+import net.byteseek.automata.deterministic.DfaBuilder;
+import net.byteseek.automata.deterministic.DfaTable;
+import net.byteseek.compiler.regex.RegexCompiler;
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.MatchResult;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class DfaTableMatcherTest {
+
+	private Automata<String> nfa;
+	private Automata<String> dfa;
+
+	@Before
+	public void setUp() throws Exception {
+		nfa = new RegexCompiler<String>().compile(Arrays.asList("'AB'", "'A' 'C'* 'D'", "'ABC'", "01 02 03"));
+		dfa = new MutableAutomata<String>(new DfaBuilder<String>().build(nfa.getInitialState()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullAutomata() {
+		new DfaTableMatcher<String>((Automata<String>) null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullTable() {
+		new DfaTableMatcher<String>((DfaTable<String>) null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNonDeterministicAutomata() {
+		new DfaTable<String>(nfa);
+	}
+
+	@Test
+	public void testTable() {
+		final DfaTable<String> table = new DfaTable<String>(dfa);
+		assertTrue(table.getNumberOfStates() > 1);
+		int state = table.getNextState(DfaTable.INITIAL_STATE, (byte) 'A');
+		assertFalse(table.isFinal(state));
+		state = table.getNextState(state, (byte) 'B');
+		assertTrue(table.isFinal(state));
+		assertEquals(new ArrayList<String>(dfa.getInitialState().getNextState((byte) 'A').getNextState((byte) 'B').getAssociations()),
+				     new ArrayList<String>(table.getAssociations(state)));
+		assertEquals(DfaTable.NO_STATE, table.getNextState(DfaTable.INITIAL_STATE, (byte) 'Z'));
+	}
+
+	@Test
+	public void testMatchesAtEndOfData() throws IOException {
+		final DfaTableMatcher<String> matcher = new DfaTableMatcher<String>(dfa);
+		final DfaMatcher<String> dfaMatcher = new DfaMatcher<String>(dfa);
+		final byte[] bytes = "xxAB".getBytes();
+		assertTrue(matcher.matches(bytes, 2));
+		assertTrue(dfaMatcher.matches(bytes, 2));
+		assertTrue(matcher.matches(reader(bytes, 3), 2));
+		assertTrue(dfaMatcher.matches(reader(bytes, 3), 2));
+		assertFalse(matcher.matches(bytes, 3));
+		assertFalse(matcher.matches(bytes, 4));
+		assertFalse(matcher.matches(bytes, -1));
+		assertEquals(2, matcher.firstMatch(bytes, 2).getMatchLength());
+		assertEquals(2, dfaMatcher.firstMatch(reader(bytes, 3), 2).getMatchLength());
+	}
+
+	@Test
+	public void testSameAsDfaMatcher() throws IOException {
+		final DfaTableMatcher<String> matcher = new DfaTableMatcher<String>(dfa);
+		final DfaMatcher<String> dfaMatcher = new DfaMatcher<String>(dfa);
+		final byte[] alphabet = {'A', 'B', 'C', 'D', 1, 2, 3};
+		final Random random = new Random(6);
+		for (int test = 0; test < 200; test++) {
+			final byte[] bytes = new byte[random.nextInt(32) + 1];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = alphabet[random.nextInt(alphabet.length)];
+			}
+			final int windowSize = random.nextInt(7) + 1;
+			for (int position = 0; position <= bytes.length; position++) {
+				assertEquals(dfaMatcher.matches(bytes, position), matcher.matches(bytes, position));
+				assertEquals(dfaMatcher.matches(reader(bytes, windowSize), position),
+						     matcher.matches(reader(bytes, windowSize), position));
+				assertSameResults(dfaMatcher.allMatches(bytes, position), matcher.allMatches(bytes, position));
+				assertSameResults(dfaMatcher.allMatches(reader(bytes, windowSize), position),
+						          matcher.allMatches(reader(bytes, windowSize), position));
+				assertSameResults(dfaMatcher.allMatches(bytes, position),
+						          matcher.allMatches(reader(bytes, windowSize), position));
+			}
+		}
+	}
+
+	private static WindowReader reader(final byte[] bytes, final int windowSize) {
+		return new InputStreamReader(new ByteArrayInputStream(bytes), windowSize);
+	}
+
+	private static void assertSameResults(final Collection<MatchResult<String>> expected,
+										  final Collection<MatchResult<String>> actual) {
+		assertEquals(describe(expected), describe(actual));
+	}
+
+	private static List<String> describe(final Collection<MatchResult<String>> results) {
+		final List<String> descriptions = new ArrayList<String>();
+		for (final MatchResult<String> result : results) {
+			descriptions.add(result.getMatchPosition() + ":" + result.getMatchLength() + ":" + result.getMatchingObjects());
+		}
+		return descriptions;
+	}
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.matcher.automata;
+
+import static net.byteseek.io.Utilities.randomBytes;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.automata.Automata;
+import net.byteseek.automata.MutableAutomata;
+import net.byteseek.automata.deterministic.DfaBuilder;
+import net.byteseek.compiler.regex.RegexCompiler;
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.MatchResult;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LazyDfaMatcherTest {
+
+	private static final byte[] ALPHABET = {'A', 'B', 'C', 'D'};
+
+	private Automata<String> nfa;
+	private Automata<String> dfa;
+
+	@Before
+	public void setUp() throws Exception {
+		nfa = new RegexCompiler<String>().compile(Arrays.asList(
+				"('A'|'B')* 'A' ('A'|'B') ('A'|'B') ('A'|'B')", "'AB'", "'A' 'C'* 'D'", "'ABC'"));
+		dfa = new MutableAutomata<String>(new DfaBuilder<String>().build(nfa.getInitialState()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullAutomata() {
+		new LazyDfaMatcher<String>(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCacheTooSmall() {
+		new LazyDfaMatcher<String>(nfa, LazyDfaMatcher.MIN_CACHED_STATES - 1);
+	}
+
+	@Test
+	public void testMatchesAtEndOfData() throws IOException {
+		final LazyDfaMatcher<String> matcher = new LazyDfaMatcher<String>(nfa);
+		final NfaMatcher<String> nfaMatcher = new NfaMatcher<String>(nfa);
+		final byte[] bytes = "xxAB".getBytes();
+		assertTrue(matcher.matches(bytes, 2));
+		assertTrue(nfaMatcher.matches(bytes, 2));
+		assertTrue(matcher.matches(reader(bytes, 3), 2));
+		assertTrue(nfaMatcher.matches(reader(bytes, 3), 2));
+		assertFalse(matcher.matches(bytes, 3));
+		assertFalse(matcher.matches(bytes, 4));
+		assertFalse(matcher.matches(bytes, -1));
+		assertEquals(2, matcher.firstMatch(bytes, 2).getMatchLength());
+	}
+
+	@Test
+	public void testSameAsDfaMatcher() throws IOException {
+		final LazyDfaMatcher<String> matcher = new LazyDfaMatcher<String>(nfa);
+		assertSameAsDfaMatcher(matcher, new Random(7));
+		assertEquals(0, matcher.getFlushCount());
+		assertTrue(matcher.getNumberOfCachedStates() > 1);
+	}
+
+	@Test
+	public void testSameAsDfaMatcherWhenFlushing() throws IOException {
+		final LazyDfaMatcher<String> matcher = new LazyDfaMatcher<String>(nfa, LazyDfaMatcher.MIN_CACHED_STATES);
+		assertSameAsDfaMatcher(matcher, new Random(7));
+		assertTrue(matcher.getFlushCount() > 0);
+		assertTrue(matcher.getNumberOfCachedStates() <= LazyDfaMatcher.MIN_CACHED_STATES);
+	}
+
+	@Test
+	public void testMultipleThreads() throws Exception {
+		final LazyDfaMatcher<String> matcher = new LazyDfaMatcher<String>(nfa, 4);
+		final DfaMatcher<String> dfaMatcher = new DfaMatcher<String>(dfa);
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		final List<Thread> threads = new ArrayList<Thread>();
+		for (int threadNum = 0; threadNum < 4; threadNum++) {
+			final Random random = new Random(threadNum);
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int test = 0; test < 500; test++) {
+							final byte[] bytes = randomBytes(random, random.nextInt(32) + 1, ALPHABET);
+							for (int position = 0; position < bytes.length; position++) {
+								assertEquals(dfaMatcher.matches(bytes, position), matcher.matches(bytes, position));
+							}
+						}
+					} catch (Throwable error) {
+						synchronized (errors) {
+							errors.add(error);
+						}
+					}
+				}
+			});
+		}
+		for (final Thread thread : threads) {
+			thread.start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(errors.toString(), errors.isEmpty());
+	}
+
+	private void assertSameAsDfaMatcher(final LazyDfaMatcher<String> matcher, final Random random) throws IOException {
+		final DfaMatcher<String> dfaMatcher = new DfaMatcher<String>(dfa);
+		final NfaMatcher<String> nfaMatcher = new NfaMatcher<String>(nfa);
+		for (int test = 0; test < 200; test++) {
+			final byte[] bytes = randomBytes(random, random.nextInt(32) + 1, ALPHABET);
+			final int windowSize = random.nextInt(7) + 1;
+			for (int position = 0; position <= bytes.length; position++) {
+				final boolean expected = dfaMatcher.matches(bytes, position);
+				assertEquals(expected, matcher.matches(bytes, position));
+				assertEquals(expected, nfaMatcher.matches(bytes, position));
+				assertEquals(expected, matcher.matches(reader(bytes, windowSize), position));
+				assertSameResults(dfaMatcher.allMatches(bytes, position), matcher.allMatches(bytes, position));
+				assertSameResults(dfaMatcher.allMatches(bytes, position),
+						          matcher.allMatches(reader(bytes, windowSize), position));
+			}
+		}
+	}
+
+	private static WindowReader reader(final byte[] bytes, final int windowSize) {
+		return new InputStreamReader(new ByteArrayInputStream(bytes), windowSize);
+	}
+
+	private static void assertSameResults(final Collection<MatchResult<String>> expected,
+										  final Collection<MatchResult<String>> actual) {
+		assertEquals(describe(expected), describe(actual));
+	}
+
+	private static List<String> describe(final Collection<MatchResult<String>> results) {
+		final List<String> descriptions = new ArrayList<String>();
+		for (final MatchResult<String> result : results) {
+			descriptions.add(result.getMatchPosition() + ":" + result.getMatchLength());
+		}
+		return descriptions;
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.matcher.automata;
+
+import static net.byteseek.io.Utilities.randomBytes;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import net.byteseek.automata.Automata;
+import net.byteseek.automata.MutableAutomata;
+import net.byteseek.automata.State;
+import net.byteseek.automata.bitparallel.ShiftAndTable;
+import net.byteseek.automata.factory.MutableStateFactory;
+import net.byteseek.compiler.regex.RegexCompiler;
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.bytes.OneByteMatcher;
+
+import org.junit.Test;
+
+public class ShiftAndMatcherTest {
+
+	private static final byte[] ALPHABET = {'A', 'B', 'C', 'D'};
+
+	private static final String[] EXPRESSIONS = {
+		"'A' ['B'-'C'] . 'D'",
+		"'A' .{2,4} 'B'",
+		"('A'|'B')* 'A' ('A'|'B') ('A'|'B')",
+		"'AB' | 'C' 'D'+",
+		"'A' .{70} 'B'",
+		"('A' | 'B' .{60,70}) 'C'"
+	};
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullAutomata() {
+		new ShiftAndMatcher((Automata<String>) null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullTable() {
+		new ShiftAndMatcher((ShiftAndTable) null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testStateEnteredOnDifferentBytes() {
+		final MutableStateFactory<String> factory = new MutableStateFactory<String>();
+		final State<String> initial = factory.create(State.NON_FINAL);
+		final State<String> middle = factory.create(State.NON_FINAL);
+		final State<String> last = factory.create(State.FINAL);
+		initial.addTransition(new ByteMatcherTransition<String>(OneByteMatcher.valueOf((byte) 'A'), middle));
+		initial.addTransition(new ByteMatcherTransition<String>(OneByteMatcher.valueOf((byte) 'B'), last));
+		middle.addTransition(new ByteMatcherTransition<String>(OneByteMatcher.valueOf((byte) 'C'), last));
+		new ShiftAndMatcher(new MutableAutomata<String>(initial));
+	}
+
+	@Test
+	public void testTableSize() throws Exception {
+		assertEquals(1, new ShiftAndTable(compile("'A' .{61} 'B'")).getNumberOfWords());
+		assertEquals(2, new ShiftAndTable(compile("'A' .{62} 'B'")).getNumberOfWords());
+	}
+
+	@Test
+	public void testMatchesSameAsNfaMatcher() throws Exception {
+		final Random random = new Random(14);
+		for (final String expression : EXPRESSIONS) {
+			final Automata<String> nfa = compile(expression);
+			final NfaMatcher<String> expected = new NfaMatcher<String>(nfa);
+			final ShiftAndMatcher matcher = new ShiftAndMatcher(nfa);
+			for (int test = 0; test < 20; test++) {
+				final byte[] bytes = randomBytes(random, random.nextInt(200), ALPHABET);
+				final WindowReader reader = new InputStreamReader(new ByteArrayInputStream(bytes), 7);
+				for (int position = -1; position <= bytes.length; position++) {
+					final boolean expectedMatch = expected.matches(bytes, position);
+					assertEquals(expression + " at " + position, expectedMatch, matcher.matches(bytes, position));
+					assertEquals(expression + " at " + position, expectedMatch, matcher.matches(reader, position));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testMatchesEmpty() throws Exception {
+		final ShiftAndMatcher matcher = new ShiftAndMatcher(compile("'A'?"));
+		assertTrue(matcher.matches("B".getBytes(), 0));
+		assertFalse(matcher.matches("B".getBytes(), 1));
+	}
+
+	private static Automata<String> compile(final String expression) throws Exception {
+		return new RegexCompiler<String>().compile(Arrays.asList(expression));
+	}
+
+}
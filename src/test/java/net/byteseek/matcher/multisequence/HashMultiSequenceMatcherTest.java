@@ -0,0 +1,238 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.matcher.multisequence;
+
+import static net.byteseek.io.Utilities.randomBytes;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.bytes.ByteMatcher;
+import net.byteseek.matcher.bytes.ByteRangeMatcher;
+import net.byteseek.matcher.bytes.OneByteMatcher;
+import net.byteseek.matcher.bytes.TwoByteMatcher;
+import net.byteseek.matcher.sequence.ByteMatcherSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.multisequence.wu_manber.WuManberOneByteSearcher;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class HashMultiSequenceMatcherTest {
+
+    private static final byte[] ALPHABET = {'a', 'b', 'c'};
+
+    private Random random;
+    private byte[] data;
+
+    @Before
+    public void setUp() {
+        random = new Random(22);
+        data = randomBytes(random, 3000, ALPHABET);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullSequences() {
+        new HashMultiSequenceMatcher(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptySequences() {
+        new HashMultiSequenceMatcher(new ArrayList<SequenceMatcher>());
+    }
+
+    @Test
+    public void testMatchesShortSequences() throws IOException {
+        final List<SequenceMatcher> sequences = randomSequences(1, 12);
+        assertMatches(sequences);
+    }
+
+    @Test
+    public void testMatchesLongerSequences() throws IOException {
+        // With a minimum length of three, three bytes are hashed:
+        final List<SequenceMatcher> sequences = randomSequences(3, 12);
+        assertMatches(sequences);
+    }
+
+    @Test
+    public void testMatchesByteClasses() throws IOException {
+        final List<SequenceMatcher> sequences = randomSequences(2, 10);
+        sequences.add(new ByteMatcherSequenceMatcher(OneByteMatcher.valueOf((byte) 'a'),
+                                                     new TwoByteMatcher((byte) 'b', (byte) 'c'),
+                                                     OneByteMatcher.valueOf((byte) 'a')));
+        sequences.add(new ByteMatcherSequenceMatcher(new ByteMatcher[] {
+                new ByteRangeMatcher('a', 'b', false), OneByteMatcher.valueOf((byte) 'c')}));
+        assertMatches(sequences);
+    }
+
+    @Test
+    public void testSequencesAndLengths() {
+        final List<SequenceMatcher> sequences = randomSequences(2, 10);
+        final HashMultiSequenceMatcher matcher = new HashMultiSequenceMatcher(sequences);
+        assertEquals(sequences, matcher.getSequenceMatchers());
+        assertEquals(2, matcher.getMinimumLength());
+        assertEquals(10, matcher.getMaximumLength());
+        assertEquals(sequences.size(), matcher.reverse().getSequenceMatchers().size());
+        assertTrue(matcher.newInstance(sequences) instanceof HashMultiSequenceMatcher);
+    }
+
+    @Test
+    public void testWuManberSearch() {
+        // Wu-Manber finds matches in order of where they end, so the sequences have the same length:
+        final List<SequenceMatcher> sequences = randomSequences(6, 6);
+        final WuManberOneByteSearcher searcher = new WuManberOneByteSearcher(new HashMultiSequenceMatcher(sequences));
+        int searchPosition = 0;
+        while (searchPosition < data.length) {
+            int expected = searchPosition;
+            while (expected < data.length && !anyMatch(sequences, expected)) {
+                expected++;
+            }
+            final List<SearchResult<SequenceMatcher>> results =
+                    searcher.searchForwards(data, searchPosition, data.length - 1);
+            if (expected == data.length) {
+                assertTrue(results.isEmpty());
+                break;
+            }
+            assertFalse("Match expected at " + expected, results.isEmpty());
+            assertEquals(expected, results.get(0).getMatchPosition());
+            searchPosition = expected + 1;
+        }
+    }
+
+    private void assertMatches(final List<SequenceMatcher> sequences) throws IOException {
+        final HashMultiSequenceMatcher matcher = new HashMultiSequenceMatcher(sequences);
+        final WindowReader reader = new InputStreamReader(new ByteArrayInputStream(data), 7);
+        final ByteBuffer buffer = ByteBuffer.wrap(data);
+        for (int position = 0; position < data.length; position++) {
+            final Set<SequenceMatcher> forwards = new HashSet<SequenceMatcher>();
+            final Set<SequenceMatcher> backwards = new HashSet<SequenceMatcher>();
+            for (final SequenceMatcher sequence : sequences) {
+                if (sequence.matches(data, position)) {
+                    forwards.add(sequence);
+                }
+                if (matchesReading(sequence, position)) {
+                    backwards.add(sequence);
+                }
+            }
+            assertEquals("Array matches at " + position, forwards, toSet(matcher.allMatches(data, position)));
+            assertEquals("Buffer matches at " + position, forwards, toSet(matcher.allMatches(buffer, position)));
+            assertEquals("Reader matches at " + position, forwards, toSet(matcher.allMatches(reader, position)));
+            assertFirstMatch(forwards, matcher.firstMatch(data, position));
+            assertFirstMatch(forwards, matcher.firstMatch(buffer, position));
+            assertFirstMatch(forwards, matcher.firstMatch(reader, position));
+            assertEquals(!forwards.isEmpty(), matcher.matches(data, position));
+            assertEquals(!forwards.isEmpty(), matcher.matches(buffer, position));
+            assertEquals(!forwards.isEmpty(), matcher.matches(reader, position));
+
+            assertEquals("Array backwards at " + position, backwards,
+                         toSet(matcher.allMatchesBackwards(data, position)));
+            assertEquals("Buffer backwards at " + position, backwards,
+                         toSet(matcher.allMatchesBackwards(buffer, position)));
+            assertEquals("Reader backwards at " + position, backwards,
+                         toSet(matcher.allMatchesBackwards(reader, position)));
+            assertFirstMatch(backwards, matcher.firstMatchBackwards(data, position));
+            assertFirstMatch(backwards, matcher.firstMatchBackwards(buffer, position));
+            assertFirstMatch(backwards, matcher.firstMatchBackwards(reader, position));
+            assertEquals(!backwards.isEmpty(), matcher.matchesBackwards(data, position));
+            assertEquals(!backwards.isEmpty(), matcher.matchesBackwards(buffer, position));
+            assertEquals(!backwards.isEmpty(), matcher.matchesBackwards(reader, position));
+        }
+        assertTrue(matcher.allMatches(data, -1).isEmpty());
+        assertTrue(matcher.allMatches(data, data.length).isEmpty());
+        assertTrue(matcher.allMatchesBackwards(data, data.length).isEmpty());
+        reader.close();
+    }
+
+    private List<SequenceMatcher> randomSequences(final int minLength, final int maxLength) {
+        final List<SequenceMatcher> sequences = new ArrayList<SequenceMatcher>();
+        final Set<String> seen = new HashSet<String>();
+        while (sequences.size() < 200) {
+            final int length = minLength + random.nextInt(maxLength - minLength + 1);
+            final byte[] sequence = randomBytes(random, length, ALPHABET);
+            if (seen.add(new String(sequence))) {
+                sequences.add(new ByteSequenceMatcher(sequence));
+            }
+        }
+        return sequences;
+    }
+
+    private boolean anyMatch(final List<SequenceMatcher> sequences, final int position) {
+        for (final SequenceMatcher sequence : sequences) {
+            if (sequence.matches(data, position)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Backwards matching reads the bytes of the sequence from the match position towards the start.
+     */
+    private boolean matchesReading(final SequenceMatcher sequence, final int position) {
+        if (position - sequence.length() + 1 < 0) {
+            return false;
+        }
+        for (int index = 0; index < sequence.length(); index++) {
+            if (!sequence.getMatcherForPosition(index).matches(data[position - index])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void assertFirstMatch(final Set<SequenceMatcher> expected, final SequenceMatcher first) {
+        if (expected.isEmpty()) {
+            assertNull(first);
+        } else {
+            assertTrue(expected.contains(first));
+        }
+    }
+
+    private static Set<SequenceMatcher> toSet(final Collection<SequenceMatcher> matches) {
+        final Set<SequenceMatcher> set = new HashSet<SequenceMatcher>(matches);
+        assertEquals("No duplicate matches", matches.size(), set.size());
+        return set;
+    }
+
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.matcher.multisequence;
+
+import static net.byteseek.io.Utilities.randomBytes;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import net.byteseek.automata.trie.TrieTable;
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.automata.SequenceMatcherTrie;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TrieMultiSequenceMatcherTest {
+
+    private static final byte[] ALPHABET = {'a', 'b', 'c', 'd'};
+
+    private List<SequenceMatcher> sequences;
+    private byte[] data;
+
+    @Before
+    public void setUp() {
+        final Random random = new Random(21);
+        sequences = new ArrayList<SequenceMatcher>();
+        final Set<String> seen = new HashSet<String>();
+        while (sequences.size() < 200) {
+            final byte[] sequence = randomBytes(random, 1 + random.nextInt(6), ALPHABET);
+            if (seen.add(new String(sequence))) {
+                sequences.add(new ByteSequenceMatcher(sequence));
+            }
+        }
+        data = randomBytes(random, 2000, ALPHABET);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullTrie() {
+        new TrieTable<SequenceMatcher>((SequenceMatcherTrie) null);
+    }
+
+    @Test
+    public void testTableHasDenseAndSparseStates() {
+        final List<SequenceMatcher> wide = new ArrayList<SequenceMatcher>();
+        for (int value = 0; value < 256; value++) {
+            wide.add(new ByteSequenceMatcher(new byte[] {1, (byte) value}));
+        }
+        wide.add(new ByteSequenceMatcher(new byte[] {2, 3, 4}));
+        final TrieTable<SequenceMatcher> table = new TrieTable<SequenceMatcher>(new SequenceMatcherTrie(wide));
+
+        // The initial state and the state after 1 are dense, the states after 2 and 3 are sparse,
+        // and there is a final state for each of the 257 sequences:
+        assertEquals(261, table.getNumberOfStates());
+        assertEquals(256 + 256 + 1 + 1, table.getNumberOfEntries());
+        final int afterOne = table.getNextState(TrieTable.INITIAL_STATE, (byte) 1);
+        assertFalse(table.isFinal(afterOne));
+        for (int value = 0; value < 256; value++) {
+            final int state = table.getNextState(afterOne, (byte) value);
+            assertTrue(table.isFinal(state));
+            assertEquals(1, table.getAssociations(state).size());
+        }
+        final int afterTwo = table.getNextState(TrieTable.INITIAL_STATE, (byte) 2);
+        assertEquals(TrieTable.NO_STATE, table.getNextState(afterTwo, (byte) 4));
+        final int afterThree = table.getNextState(afterTwo, (byte) 3);
+        assertTrue(table.isFinal(table.getNextState(afterThree, (byte) 4)));
+        assertEquals(TrieTable.NO_STATE, table.getNextState(TrieTable.INITIAL_STATE, (byte) 3));
+    }
+
+    @Test
+    public void testMatchesForwards() throws IOException {
+        final TrieMultiSequenceMatcher matcher = new TrieMultiSequenceMatcher(sequences);
+        final WindowReader reader = new InputStreamReader(new ByteArrayInputStream(data), 7);
+        final ByteBuffer buffer = ByteBuffer.wrap(data);
+        for (int position = 0; position < data.length; position++) {
+            final Set<SequenceMatcher> expected = new HashSet<SequenceMatcher>();
+            for (final SequenceMatcher sequence : sequences) {
+                if (sequence.matches(data, position)) {
+                    expected.add(sequence);
+                }
+            }
+            assertEquals("Reader matches at " + position, expected, toSet(matcher.allMatches(reader, position)));
+            assertEquals("Buffer matches at " + position, expected, toSet(matcher.allMatches(buffer, position)));
+            assertEquals("Array matches at " + position, expected, toSet(matcher.allMatches(data, position)));
+            assertFirstMatch(expected, matcher.firstMatch(reader, position));
+            assertFirstMatch(expected, matcher.firstMatch(data, position));
+            assertFirstMatch(expected, matcher.firstMatch(buffer, position));
+            assertEquals(!expected.isEmpty(), matcher.matches(reader, position));
+        }
+        reader.close();
+    }
+
+    @Test
+    public void testMatchesBackwards() throws IOException {
+        final TrieMultiSequenceMatcher matcher = new TrieMultiSequenceMatcher(sequences);
+        final WindowReader reader = new InputStreamReader(new ByteArrayInputStream(data), 7);
+        final ByteBuffer buffer = ByteBuffer.wrap(data);
+        for (int position = data.length - 1; position >= 0; position--) {
+            final Set<SequenceMatcher> expected = new HashSet<SequenceMatcher>();
+            for (final SequenceMatcher sequence : sequences) {
+                if (matchesReading(sequence, position)) {
+                    expected.add(sequence);
+                }
+            }
+            assertEquals("Reader matches at " + position, expected,
+                         toSet(matcher.allMatchesBackwards(reader, position)));
+            if (position >= matcher.getMinimumLength() - 1) {
+                assertEquals("Buffer matches at " + position, expected,
+                             toSet(matcher.allMatchesBackwards(buffer, position)));
+            }
+            assertEquals("Array matches at " + position, expected,
+                         toSet(matcher.allMatchesBackwards(data, position)));
+            assertFirstMatch(expected, matcher.firstMatchBackwards(reader, position));
+            assertFirstMatch(expected, matcher.firstMatchBackwards(data, position));
+            assertFirstMatch(expected, matcher.firstMatchBackwards(buffer, position));
+            assertEquals(!expected.isEmpty(), matcher.matchesBackwards(reader, position));
+        }
+        reader.close();
+    }
+
+    @Test
+    public void testMatchesAtBoundaries() {
+        final SequenceMatcher abc  = new ByteSequenceMatcher("abc");
+        final SequenceMatcher abcd = new ByteSequenceMatcher("abcd");
+        final SequenceMatcher cba  = new ByteSequenceMatcher("cba");
+        final SequenceMatcher dcba = new ByteSequenceMatcher("dcba");
+        final List<SequenceMatcher> boundarySequences = new ArrayList<SequenceMatcher>();
+        boundarySequences.add(abc);
+        boundarySequences.add(abcd);
+        boundarySequences.add(cba);
+        boundarySequences.add(dcba);
+        final TrieMultiSequenceMatcher matcher = new TrieMultiSequenceMatcher(boundarySequences);
+        final byte[] bytes = "abcdxabc".getBytes();
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        final int lastPosition = bytes.length - 1;
+        final int lastFullPosition = bytes.length - matcher.getMinimumLength();
+
+        assertEquals(toSet(abc, abcd), toSet(matcher.allMatches(bytes, 0)));
+        assertEquals(toSet(abc), toSet(matcher.allMatches(bytes, lastFullPosition)));
+        assertEquals(toSet(), toSet(matcher.allMatches(bytes, lastFullPosition + 1)));
+        assertEquals(toSet(), toSet(matcher.allMatches(bytes, lastPosition)));
+        assertEquals(toSet(), toSet(matcher.allMatches(bytes, -1)));
+        for (int position = 0; position <= lastPosition; position++) {
+            assertEquals("Forwards at " + position, toSet(matcher.allMatches(buffer, position)),
+                                                    toSet(matcher.allMatches(bytes, position)));
+        }
+
+        assertEquals(toSet(), toSet(matcher.allMatchesBackwards(bytes, 0)));
+        assertEquals(toSet(cba), toSet(matcher.allMatchesBackwards(bytes, matcher.getMinimumLength() - 1)));
+        assertEquals(toSet(dcba), toSet(matcher.allMatchesBackwards(bytes, 3)));
+        assertEquals(toSet(cba), toSet(matcher.allMatchesBackwards(bytes, lastPosition)));
+        assertEquals(toSet(), toSet(matcher.allMatchesBackwards(bytes, lastPosition + 1)));
+        for (int position = 0; position <= lastPosition; position++) {
+            assertEquals("Backwards at " + position, toSet(matcher.allMatchesBackwards(buffer, position)),
+                                                     toSet(matcher.allMatchesBackwards(bytes, position)));
+        }
+    }
+
+    @Test
+    public void testSequencesAndLengths() {
+        final TrieMultiSequenceMatcher matcher = new TrieMultiSequenceMatcher(sequences);
+        assertEquals(new HashSet<SequenceMatcher>(sequences), new HashSet<SequenceMatcher>(matcher.getSequenceMatchers()));
+        assertEquals(1, matcher.getMinimumLength());
+        assertEquals(6, matcher.getMaximumLength());
+        assertEquals(sequences.size(), matcher.reverse().getSequenceMatchers().size());
+    }
+
+    /*
+     * Backwards matching reads the bytes of the sequence from the match position towards the start.
+     */
+    private boolean matchesReading(final SequenceMatcher sequence, final int position) {
+        if (position - sequence.length() + 1 < 0) {
+            return false;
+        }
+        for (int index = 0; index < sequence.length(); index++) {
+            if (!sequence.getMatcherForPosition(index).matches(data[position - index])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void assertFirstMatch(final Set<SequenceMatcher> expected, final SequenceMatcher first) {
+        if (expected.isEmpty()) {
+            assertNull(first);
+        } else {
+            assertTrue(expected.contains(first));
+        }
+    }
+
+    private static Set<SequenceMatcher> toSet(final SequenceMatcher... matches) {
+        return new HashSet<SequenceMatcher>(Arrays.asList(matches));
+    }
+
+    private static Set<SequenceMatcher> toSet(final Collection<SequenceMatcher> matches) {
+        final Set<SequenceMatcher> set = new HashSet<SequenceMatcher>(matches);
+        assertEquals("No duplicate matches", matches.size(), set.size());
+        return set;
+    }
+
+}
@@ -42,6 +42,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -409,6 +411,32 @@ public class ByteSequenceMatcherTest {
 		}
 	}
 
+	@Test
+	public void testMatchesSubsequencesOfEveryLength() throws IOException {
+		final byte[] source = new byte[64];
+		rand.nextBytes(source);
+		for (int start = 0; start < 9; start++) {
+			for (int end = start + 1; end <= 40; end++) {
+				final ByteSequenceMatcher matcher = new ByteSequenceMatcher(source, start, end);
+				final int length = end - start;
+				final byte[] data = new byte[length + 10];
+				System.arraycopy(source, start, data, 3, length);
+				assertTrue(matcher.matches(data, 3));
+				assertTrue(matcher.matches(ByteBuffer.wrap(data), 3));
+				assertTrue(matcher.matches(ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN), 3));
+				assertTrue(matcher.matches(new ByteArrayReader(data), 3));
+				for (int position = 0; position < length; position++) {
+					data[3 + position] ^= 0x80;
+					assertFalse("position " + position, matcher.matches(data, 3));
+					assertFalse("position " + position, matcher.matches(ByteBuffer.wrap(data), 3));
+					assertFalse("position " + position, matcher.matches(ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN), 3));
+					assertFalse("position " + position, matcher.matches(new ByteArrayReader(data), 3));
+					data[3 + position] ^= 0x80;
+				}
+			}
+		}
+	}
+
 	// ////////////////////////////////
 	// construction failure tests //
 	// ////////////////////////////////
@@ -37,6 +37,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
@@ -336,7 +337,8 @@ public class FixedGapMatcherTest {
 			FixedGapMatcher matcher = new FixedGapMatcher(i);
 			for (int j = -1; j < 12; j++) {
 				assertTrue("matcher always matches", matcher.matchesNoBoundsCheck(bytes, j));
-				assertTrue("matcher always matches", matcher.matchesNoBoundsCheck(null, j));
+				assertTrue("matcher always matches", matcher.matchesNoBoundsCheck((byte[]) null, j));
+				assertTrue("matcher always matches", matcher.matchesNoBoundsCheck((ByteBuffer) null, j));
 			}
 		}
 	}
@@ -0,0 +1,222 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher;
+
+import static net.byteseek.io.Utilities.randomBytes;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.matcher.multisequence.ListMultiSequenceMatcher;
+import net.byteseek.matcher.multisequence.MultiSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.multisequence.wu_manber.WuManberOneByteSearcher;
+import net.byteseek.searcher.multisequence.wu_manber.WuManberOneByteTunedSearcher;
+import net.byteseek.searcher.sequence.SequenceMatcherSearcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+import net.byteseek.searcher.sequence.horspool.HorspoolFinalFlagSearcher;
+import net.byteseek.searcher.sequence.bndm.BndmSearcher;
+import net.byteseek.searcher.sequence.packed.PackedStringSearcher;
+import net.byteseek.searcher.sequence.sunday.SundayQuickSearcher;
+
+import org.junit.Test;
+
+/**
+ * Tests that searching a ByteBuffer gives the same results as searching
+ * a byte array with the same content, for heap, direct, read-only and sliced buffers.
+ *
+ * @author Matt Palmer
+ */
+public class ByteBufferSearchTest {
+
+    private static final byte[] ALPHABET = {'a', 'b', 'c', 'd'};
+
+    private static final int DATA_LENGTH = 3000;
+    private static final int LARGE_DATA_LENGTH = 200000;
+
+    @Test
+    public void testBufferSearchesMatchArraySearches() {
+        final Random random = new Random(1);
+        final byte[] data = randomBytes(random, DATA_LENGTH, ALPHABET);
+        for (final Searcher<SequenceMatcher> searcher : getSearchers()) {
+            for (final ByteBuffer buffer : getBuffers(data)) {
+                for (int test = 0; test < 100; test++) {
+                    final int from = random.nextInt(DATA_LENGTH + 20) - 10;
+                    final int to   = random.nextInt(DATA_LENGTH + 20) - 10;
+                    final String description = searcher + " " + buffer + " from " + from + " to " + to;
+                    assertEquals("forwards " + description, positions(searcher.searchForwards(data, from, to)),
+                                                            positions(searcher.searchForwards(buffer, from, to)));
+                    assertEquals("backwards " + description, positions(searcher.searchBackwards(data, from, to)),
+                                                             positions(searcher.searchBackwards(buffer, from, to)));
+                    assertEquals("position unchanged", 0, buffer.position());
+                    assertEquals("limit unchanged", DATA_LENGTH, buffer.limit());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSearchStopsAtLimit() {
+        final byte[] data = randomBytes(new Random(2), DATA_LENGTH, ALPHABET);
+        final int limit = DATA_LENGTH / 2;
+        final byte[] firstHalf = Arrays.copyOf(data, limit);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(DATA_LENGTH);
+        buffer.put(data);
+        buffer.clear();
+        buffer.limit(limit);
+        for (final Searcher<SequenceMatcher> searcher : getSearchers()) {
+            assertEquals(searcher.toString(), positions(searcher.searchForwards(firstHalf)),
+                                              positions(searcher.searchForwards(buffer)));
+            assertEquals(searcher.toString(), positions(searcher.searchBackwards(firstHalf)),
+                                              positions(searcher.searchBackwards(buffer)));
+        }
+    }
+
+    @Test
+    public void testSparseMatchesInLargeDirectBuffer() {
+        final byte[] data = new byte[LARGE_DATA_LENGTH];
+        Arrays.fill(data, (byte) 'x');
+        final Random random = new Random(3);
+        for (int chunkBoundary = 256; chunkBoundary < LARGE_DATA_LENGTH; chunkBoundary = chunkBoundary * 2 + 256) {
+            plant(data, "abca", chunkBoundary - 2);
+            plant(data, "bbbbb", LARGE_DATA_LENGTH - chunkBoundary - 3);
+        }
+        for (int match = 0; match < 20; match++) {
+            plant(data, random.nextBoolean() ? "abca" : "ddc", random.nextInt(LARGE_DATA_LENGTH - 5));
+        }
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(LARGE_DATA_LENGTH);
+        buffer.put(data);
+        buffer.clear();
+        for (final Searcher<SequenceMatcher> searcher : getSearchers()) {
+            assertEquals("forwards " + searcher, allForwards(searcher, data), allForwards(searcher, buffer));
+            assertEquals("backwards " + searcher, allBackwards(searcher, data), allBackwards(searcher, buffer));
+            for (int test = 0; test < 20; test++) {
+                final int from = random.nextInt(LARGE_DATA_LENGTH);
+                final int to   = random.nextInt(LARGE_DATA_LENGTH);
+                final String description = searcher + " from " + from + " to " + to;
+                assertEquals("forwards " + description, positions(searcher.searchForwards(data, from, to)),
+                                                        positions(searcher.searchForwards(buffer, from, to)));
+                assertEquals("backwards " + description, positions(searcher.searchBackwards(data, from, to)),
+                                                         positions(searcher.searchBackwards(buffer, from, to)));
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyBuffer() {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(0);
+        for (final Searcher<SequenceMatcher> searcher : getSearchers()) {
+            assertEquals(0, searcher.searchForwards(buffer).size());
+            assertEquals(0, searcher.searchBackwards(buffer).size());
+        }
+    }
+
+    private static List<Searcher<SequenceMatcher>> getSearchers() {
+        final SequenceMatcher sequence = new ByteSequenceMatcher("abca");
+        final MultiSequenceMatcher sequences = new ListMultiSequenceMatcher(Arrays.<SequenceMatcher>asList(
+                new ByteSequenceMatcher("abca"), new ByteSequenceMatcher("ddc"), new ByteSequenceMatcher("bbbbb")));
+        final List<Searcher<SequenceMatcher>> searchers = new ArrayList<Searcher<SequenceMatcher>>();
+        searchers.add(new SequenceMatcherSearcher(sequence));
+        searchers.add(new BoyerMooreHorspoolSearcher(sequence));
+        searchers.add(new HorspoolFinalFlagSearcher(sequence));
+        searchers.add(new SundayQuickSearcher(sequence));
+        searchers.add(new BndmSearcher(sequence));
+        searchers.add(new PackedStringSearcher(sequence));
+        searchers.add(new WuManberOneByteSearcher(sequences));
+        searchers.add(new WuManberOneByteTunedSearcher(sequences));
+        return searchers;
+    }
+
+    private static List<ByteBuffer> getBuffers(final byte[] data) {
+        final List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+        buffers.add(ByteBuffer.wrap(data));
+        buffers.add(ByteBuffer.wrap(data).asReadOnlyBuffer());
+        final ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data);
+        direct.clear();
+        buffers.add(direct);
+        final byte[] larger = new byte[data.length + 10];
+        System.arraycopy(data, 0, larger, 5, data.length);
+        buffers.add(ByteBuffer.wrap(larger, 5, data.length).slice());
+        return buffers;
+    }
+
+    private static void plant(final byte[] data, final String sequence, final int position) {
+        for (int i = 0; i < sequence.length(); i++) {
+            data[position + i] = (byte) sequence.charAt(i);
+        }
+    }
+
+    private static List<Long> allForwards(final Searcher<SequenceMatcher> searcher, final Object data) {
+        final List<Long> positions = new ArrayList<Long>();
+        int searchPosition = 0;
+        while (true) {
+            final List<Long> found = positions(data instanceof byte[] ?
+                    searcher.searchForwards((byte[]) data, searchPosition) :
+                    searcher.searchForwards((ByteBuffer) data, searchPosition));
+            if (found.isEmpty()) {
+                return positions;
+            }
+            positions.addAll(found);
+            searchPosition = found.get(found.size() - 1).intValue() + 1;
+        }
+    }
+
+    private static List<Long> allBackwards(final Searcher<SequenceMatcher> searcher, final Object data) {
+        final List<Long> positions = new ArrayList<Long>();
+        int searchPosition = LARGE_DATA_LENGTH - 1;
+        while (true) {
+            final List<Long> found = positions(data instanceof byte[] ?
+                    searcher.searchBackwards((byte[]) data, searchPosition) :
+                    searcher.searchBackwards((ByteBuffer) data, searchPosition));
+            if (found.isEmpty()) {
+                return positions;
+            }
+            positions.addAll(found);
+            searchPosition = found.get(found.size() - 1).intValue() - 1;
+        }
+    }
+
+    private static List<Long> positions(final List<? extends SearchResult<?>> results) {
+        final List<Long> positions = new ArrayList<Long>();
+        for (final SearchResult<?> result : results) {
+            positions.add(result.getMatchPosition());
+        }
+        return positions;
+    }
+
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher;
+
+import static net.byteseek.io.Utilities.randomBytes;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.bytes.AnyByteMatcher;
+import net.byteseek.matcher.bytes.ByteMatcher;
+import net.byteseek.matcher.bytes.ByteRangeMatcher;
+import net.byteseek.matcher.bytes.OneByteMatcher;
+import net.byteseek.matcher.bytes.TwoByteMatcher;
+import net.byteseek.matcher.multisequence.ListMultiSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteMatcherSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.multisequence.MultiSequenceMatcherSearcher;
+import net.byteseek.searcher.multisequence.aho_corasick.AhoCorasickSearcher;
+import net.byteseek.searcher.sequence.SequenceMatcherSearcher;
+import net.byteseek.searcher.sequence.bndm.BndmSearcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+import net.byteseek.searcher.sequence.packed.PackedStringSearcher;
+import net.byteseek.searcher.sequence.sunday.SundayQuickSearcher;
+
+import org.junit.Test;
+
+public class OptimalSearcherFactoryTest {
+
+    private static final byte[] ALPHABET = {'a', 'b', 'c'};
+
+    private final SearcherFactory factory = new OptimalSearcherFactory();
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShiftCostTooSmall() {
+        new OptimalSearcherFactory(0.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullSequence() {
+        factory.create((SequenceMatcher) null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptySequences() {
+        factory.create(new ArrayList<SequenceMatcher>());
+    }
+
+    @Test
+    public void testSingleSequences() {
+        assertTrue(factory.create(new ByteSequenceMatcher("a")) instanceof SequenceMatcherSearcher);
+        assertTrue(factory.create(new ByteSequenceMatcher("abcdefgh")) instanceof PackedStringSearcher);
+        assertTrue(factory.create(new ByteSequenceMatcher("abcdefghi")) instanceof SundayQuickSearcher);
+        assertTrue(factory.create(new ByteSequenceMatcher("abcdefghijklmnopqrstuvwxyz012345"))
+                   instanceof BoyerMooreHorspoolSearcher);
+
+        // A narrow byte class can still shift, and BNDM matches it exactly:
+        final SequenceMatcher narrowClass = new ByteMatcherSequenceMatcher(Arrays.asList(
+                new TwoByteMatcher((byte) 'a', (byte) 'A'), new ByteSequenceMatcher("bcdefgh")));
+        assertTrue(factory.create(narrowClass) instanceof BndmSearcher);
+
+        // A wide byte class near the end of a sequence means it can hardly shift:
+        final SequenceMatcher wideEnd = new ByteMatcherSequenceMatcher(OneByteMatcher.valueOf((byte) 'a'),
+                OneByteMatcher.valueOf((byte) 'b'), AnyByteMatcher.ANY_BYTE_MATCHER, OneByteMatcher.valueOf((byte) 'c'));
+        assertTrue(factory.create(wideEnd) instanceof SequenceMatcherSearcher);
+        assertTrue(factory.create(Collections.singletonList(wideEnd)) instanceof SequenceMatcherSearcher);
+    }
+
+    @Test
+    public void testSequenceSets() {
+        final List<SequenceMatcher> literals = new ArrayList<SequenceMatcher>();
+        for (int sequence = 0; sequence < 500; sequence++) {
+            literals.add(new ByteSequenceMatcher(String.format("%08d", sequence * 7919)));
+        }
+        assertTrue(factory.create(literals) instanceof AhoCorasickSearcher);
+        assertTrue(factory.create(literals.subList(0, 16)) instanceof MultiSequenceMatcherSearcher);
+
+        final List<SequenceMatcher> wideStarts = new ArrayList<SequenceMatcher>();
+        for (int sequence = 0; sequence < 20; sequence++) {
+            wideStarts.add(new ByteMatcherSequenceMatcher(Arrays.asList(
+                    new ByteRangeMatcher(0x80, 0xFF, false), new ByteRangeMatcher(0x80, 0xFF, false),
+                    new ByteSequenceMatcher(String.format("%06d", sequence)))));
+        }
+        assertTrue(factory.create(wideStarts) instanceof AhoCorasickSearcher);
+        assertTrue(factory.create(wideStarts.subList(0, 2)) instanceof MultiSequenceMatcherSearcher);
+
+        final List<SequenceMatcher> wideEnds = new ArrayList<SequenceMatcher>(wideStarts.subList(0, 2));
+        wideEnds.add(new ByteMatcherSequenceMatcher(new ByteMatcher[] {OneByteMatcher.valueOf((byte) 'x'),
+                AnyByteMatcher.ANY_BYTE_MATCHER, AnyByteMatcher.ANY_BYTE_MATCHER}));
+        assertTrue(factory.create(new ListMultiSequenceMatcher(wideEnds)) instanceof MultiSequenceMatcherSearcher);
+    }
+
+    @Test
+    public void testCreatedSearchersFindMatches() {
+        final byte[] text = "xxxxabcdefghxxxx00000000xx00007919xxxxxxxxxxxxxxxxxxxxxx".getBytes();
+        final List<SequenceMatcher> literals = new ArrayList<SequenceMatcher>();
+        for (int sequence = 0; sequence < 500; sequence++) {
+            literals.add(new ByteSequenceMatcher(String.format("%08d", sequence * 7919)));
+        }
+        assertFirstMatch(4, factory.create(new ByteSequenceMatcher("abcdefgh")), text);
+        assertFirstMatch(16, factory.create(literals), text);
+        assertFirstMatch(26, factory.create(literals.subList(1, 2)), text);
+    }
+
+    @Test
+    public void testSetWithShortSequencesFindsAllMatches() throws IOException {
+        final List<SequenceMatcher> sequences = new ArrayList<SequenceMatcher>();
+        for (final String sequence : new String[] {"abbbcc", "cc", "cb", "bcba"}) {
+            sequences.add(new ByteSequenceMatcher(sequence));
+        }
+        final byte[] text = "bbabbbbbcaabbbaabbcaccbbcabbcbcbaa".getBytes();
+        assertSameResults("short sequences", new MultiSequenceMatcherSearcher(new ListMultiSequenceMatcher(sequences)),
+                          factory.create(sequences), text, 0, text.length);
+        assertTrue(positions(SearchUtils.searchAllForwards(factory.create(sequences), text)).contains(29L));
+    }
+
+    @Test
+    public void testCreatedSearchersSameAsMatcherSearchers() throws IOException {
+        final Random random = new Random(23);
+        final SearcherFactory[] factories = {factory, new OptimalSearcherFactory(1.0), new OptimalSearcherFactory(16.0)};
+        for (int test = 0; test < 300; test++) {
+            final List<SequenceMatcher> sequences = new ArrayList<SequenceMatcher>();
+            final int numSequences = test % 3 == 0? 1 : 1 + random.nextInt(40);
+            for (int sequence = 0; sequence < numSequences; sequence++) {
+                sequences.add(randomSequence(random, 1 + random.nextInt(test % 2 == 0? 6 : 20)));
+            }
+            final byte[] text = randomBytes(random, random.nextInt(200), ALPHABET);
+            final int from = random.nextInt(text.length + 1);
+            final int to = random.nextInt(text.length + 1);
+            final String description = sequences + " in " + new String(text) + " from " + from + " to " + to;
+            final Searcher<SequenceMatcher> expected = numSequences == 1?
+                    new SequenceMatcherSearcher(sequences.get(0)) :
+                    new MultiSequenceMatcherSearcher(new ListMultiSequenceMatcher(sequences));
+            for (final SearcherFactory searcherFactory : factories) {
+                final Searcher<SequenceMatcher> searcher = numSequences == 1? searcherFactory.create(sequences.get(0))
+                                                                            : searcherFactory.create(sequences);
+                assertSameResults(description + " using " + searcher, expected, searcher, text, from, to);
+            }
+        }
+    }
+
+    @Test
+    public void testCalibrate() {
+        final OptimalSearcherFactory calibrated = OptimalSearcherFactory.calibrate();
+        assertTrue(calibrated.getShiftCost() >= 1.0);
+        assertTrue(calibrated.getShiftCost() <= 16.0);
+        assertTrue(calibrated.create(new ByteSequenceMatcher("a")) instanceof SequenceMatcherSearcher);
+    }
+
+    private static void assertFirstMatch(final long expected, final Searcher<SequenceMatcher> searcher,
+                                         final byte[] text) {
+        final List<SearchResult<SequenceMatcher>> results = searcher.searchForwards(text);
+        assertFalse(results.isEmpty());
+        assertEquals(expected, results.get(0).getMatchPosition());
+    }
+
+    private static void assertSameResults(final String description, final Searcher<SequenceMatcher> expected,
+                                          final Searcher<SequenceMatcher> searcher, final byte[] text,
+                                          final int from, final int to) throws IOException {
+        assertEquals("forwards " + description, positions(SearchUtils.searchAllForwards(expected, text)),
+                     positions(SearchUtils.searchAllForwards(searcher, text)));
+        assertEquals("array forwards " + description, firstPosition(expected.searchForwards(text, from, to)),
+                     firstPosition(searcher.searchForwards(text, from, to)));
+        assertEquals("array backwards " + description, firstPosition(expected.searchBackwards(text, from, to)),
+                     firstPosition(searcher.searchBackwards(text, from, to)));
+        assertEquals("reader forwards " + description, firstPosition(expected.searchForwards(newReader(text), from, to)),
+                     firstPosition(searcher.searchForwards(newReader(text), from, to)));
+        assertEquals("reader backwards " + description, firstPosition(expected.searchBackwards(newReader(text), from, to)),
+                     firstPosition(searcher.searchBackwards(newReader(text), from, to)));
+    }
+
+    private static List<Long> positions(final List<SearchResult<SequenceMatcher>> results) {
+        final List<Long> positions = new ArrayList<Long>();
+        for (final SearchResult<SequenceMatcher> result : results) {
+            final long position = result.getMatchPosition();
+            if (positions.isEmpty() || positions.get(positions.size() - 1) != position) {
+                positions.add(position);
+            }
+        }
+        return positions;
+    }
+
+    private static long firstPosition(final List<SearchResult<SequenceMatcher>> results) {
+        return results.isEmpty()? -1 : results.get(0).getMatchPosition();
+    }
+
+    private static WindowReader newReader(final byte[] bytes) {
+        return new InputStreamReader(new ByteArrayInputStream(bytes), 7);
+    }
+
+    private static SequenceMatcher randomSequence(final Random random, final int length) {
+        if (random.nextBoolean()) {
+            return new ByteSequenceMatcher(randomBytes(random, length, ALPHABET));
+        }
+        final List<ByteMatcher> matchers = new ArrayList<ByteMatcher>();
+        for (int position = 0; position < length; position++) {
+            matchers.add(random.nextInt(4) == 0? new TwoByteMatcher(ALPHABET[0], ALPHABET[2]) :
+                                                 OneByteMatcher.valueOf(ALPHABET[random.nextInt(ALPHABET.length)]));
+        }
+        return new ByteMatcherSequenceMatcher(matchers);
+    }
+
+}
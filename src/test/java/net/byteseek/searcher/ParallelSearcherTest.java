@@ -0,0 +1,135 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import net.byteseek.io.IOUtils;
+import net.byteseek.io.reader.ConcurrentFileReader;
+import net.byteseek.matcher.multisequence.ListMultiSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.multisequence.wu_manber.WuManberOneByteSearcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that a ParallelSearcher finds the same results as searching on a single thread,
+ * using chunk sizes which place chunk boundaries inside matches.
+ *
+ * @author Matt Palmer
+ */
+public class ParallelSearcherTest {
+
+    private final static int[] CHUNK_SIZES = new int[] { 1, 3, 17, 4096, 100000, 1 << 20 };
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testSequenceSearchReader() throws IOException {
+        testSearcher(new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("the")));
+        testSearcher(new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("Midsommer")));
+    }
+
+    @Test
+    public void testMultiSequenceSearchReader() throws IOException {
+        testSearcher(new WuManberOneByteSearcher(new ListMultiSequenceMatcher(Arrays.<SequenceMatcher>asList(
+                new ByteSequenceMatcher("and"), new ByteSequenceMatcher("an"), new ByteSequenceMatcher("Dreame")))));
+    }
+
+    @Test
+    public void testEmptyArray() throws IOException {
+        final ParallelSearcher<SequenceMatcher> searcher = new ParallelSearcher<SequenceMatcher>(
+                new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("the")), executor);
+        assertEquals(0, searcher.searchAllForwards(new byte[0]).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroChunkSize() {
+        new ParallelSearcher<SequenceMatcher>(new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("the")), executor, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullExecutor() {
+        new ParallelSearcher<SequenceMatcher>(new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("the")), null);
+    }
+
+    private void testSearcher(final Searcher<SequenceMatcher> searcher) throws IOException {
+        final File file = getFile("/TestASCII.txt");
+        final byte[] bytes = IOUtils.readEntireFile(file);
+        final List<SearchResult<SequenceMatcher>> expected = SearchUtils.searchAllForwards(searcher, bytes);
+        for (final int chunkSize : CHUNK_SIZES) {
+            final ParallelSearcher<SequenceMatcher> parallel = new ParallelSearcher<SequenceMatcher>(searcher, executor, chunkSize);
+            final ConcurrentFileReader reader = new ConcurrentFileReader(file);
+            try {
+                assertResultsEqual("reader chunk size " + chunkSize, expected, parallel.searchAllForwards(reader));
+            } finally {
+                reader.close();
+            }
+            assertResultsEqual("array chunk size " + chunkSize, expected, parallel.searchAllForwards(bytes));
+        }
+    }
+
+    private void assertResultsEqual(final String description, final List<SearchResult<SequenceMatcher>> expected,
+                                    final List<SearchResult<SequenceMatcher>> actual) {
+        assertEquals(description + " number of results", expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(description + " position", expected.get(i).getMatchPosition(), actual.get(i).getMatchPosition());
+            assertEquals(description + " matcher", expected.get(i).getMatchingObject(), actual.get(i).getMatchingObject());
+        }
+    }
+
+    private File getFile(final String resourceName) {
+        return new File(this.getClass().getResource(resourceName).getPath());
+    }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher;
+
+import static net.byteseek.io.Utilities.randomBytes;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.bytes.TwoByteMatcher;
+import net.byteseek.matcher.multisequence.ListMultiSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.bytes.ByteMatcherSearcher;
+import net.byteseek.searcher.bytes.ByteSearcher;
+import net.byteseek.searcher.multisequence.aho_corasick.AhoCorasickSearcher;
+import net.byteseek.searcher.sequence.SequenceMatcherSearcher;
+import net.byteseek.searcher.sequence.bndm.BndmSearcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+import net.byteseek.searcher.sequence.horspool.HorspoolFinalFlagSearcher;
+import net.byteseek.searcher.sequence.packed.PackedStringSearcher;
+import net.byteseek.searcher.sequence.sunday.SundayQuickSearcher;
+
+import org.junit.Test;
+
+public class SearchListenerTest {
+
+    private static final byte[] ALPHABET = {0, 1, 2, 3};
+
+    @Test
+    public void testSequenceSearchersFindAllMatches() throws IOException {
+        final Random random = new Random(11);
+        for (int test = 0; test < 200; test++) {
+            final SequenceMatcher sequence = new ByteSequenceMatcher(randomBytes(random, random.nextInt(4) + 1, ALPHABET));
+            final byte[] bytes = randomBytes(random, random.nextInt(300), ALPHABET);
+            assertSameAsSearchAll(new SequenceMatcherSearcher(sequence), bytes);
+            assertSameAsSearchAll(new BoyerMooreHorspoolSearcher(sequence), bytes);
+            assertSameAsSearchAll(new HorspoolFinalFlagSearcher(sequence), bytes);
+            assertSameAsSearchAll(new SundayQuickSearcher(sequence), bytes);
+            assertSameAsSearchAll(new BndmSearcher(sequence), bytes);
+            assertSameAsSearchAll(new PackedStringSearcher(sequence), bytes);
+        }
+    }
+
+    @Test
+    public void testByteSearchersFindAllMatches() throws IOException {
+        final Random random = new Random(12);
+        for (int test = 0; test < 100; test++) {
+            final byte[] bytes = randomBytes(random, random.nextInt(300), ALPHABET);
+            final byte value = (byte) random.nextInt(4);
+            assertSameAsSearchAll(new ByteSearcher(value), bytes);
+            assertSameAsSearchAll(new ByteMatcherSearcher(new TwoByteMatcher(value, (byte) (value + 1))), bytes);
+        }
+    }
+
+    @Test
+    public void testDefaultImplementationFindsAllMatches() throws IOException {
+        final Random random = new Random(13);
+        for (int test = 0; test < 100; test++) {
+            final List<byte[]> sequences = new ArrayList<byte[]>();
+            for (int sequence = random.nextInt(5); sequence >= 0; sequence--) {
+                sequences.add(randomBytes(random, random.nextInt(4) + 1, ALPHABET));
+            }
+            final byte[] bytes = randomBytes(random, random.nextInt(300), ALPHABET);
+            assertSameAsSearchAll(new AhoCorasickSearcher(new ListMultiSequenceMatcher(sequences)), bytes);
+        }
+    }
+
+    @Test
+    public void testSearchBetweenPositions() {
+        final byte[] bytes = "abababab".getBytes();
+        final Searcher<SequenceMatcher> searcher = new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("ab"));
+        final ResultCollector<SequenceMatcher> collector = new ResultCollector<SequenceMatcher>();
+        assertTrue(searcher.searchForwards(bytes, 1, 4, collector));
+        assertEquals("[2, 4]", collector.positions.toString());
+    }
+
+    @Test
+    public void testListenerStopsSearch() throws IOException {
+        final byte[] bytes = "aaaaaaaaaaaaaaaaaaaa".getBytes();
+        final List<Searcher<SequenceMatcher>> searchers = new ArrayList<Searcher<SequenceMatcher>>();
+        final SequenceMatcher sequence = new ByteSequenceMatcher("aa");
+        searchers.add(new SequenceMatcherSearcher(sequence));
+        searchers.add(new BoyerMooreHorspoolSearcher(sequence));
+        searchers.add(new HorspoolFinalFlagSearcher(sequence));
+        searchers.add(new SundayQuickSearcher(sequence));
+        searchers.add(new BndmSearcher(sequence));
+        searchers.add(new PackedStringSearcher(sequence));
+        for (final Searcher<SequenceMatcher> searcher : searchers) {
+            final ResultCollector<SequenceMatcher> arrayCollector = new ResultCollector<SequenceMatcher>(3);
+            assertFalse(searcher.toString(), searcher.searchForwards(bytes, arrayCollector));
+            assertEquals(searcher.toString(), "[0, 1, 2]", arrayCollector.positions.toString());
+
+            final ResultCollector<SequenceMatcher> readerCollector = new ResultCollector<SequenceMatcher>(3);
+            assertFalse(searcher.toString(), searcher.searchForwards(newReader(bytes, 4), readerCollector));
+            assertEquals(searcher.toString(), "[0, 1, 2]", readerCollector.positions.toString());
+        }
+    }
+
+    private static <T> void assertSameAsSearchAll(final Searcher<T> searcher, final byte[] bytes) throws IOException {
+        final List<SearchResult<T>> expected = SearchUtils.searchAllForwards(searcher, bytes);
+
+        final ResultCollector<T> arrayCollector = new ResultCollector<T>();
+        assertTrue(searcher.searchForwards(bytes, arrayCollector));
+        assertResults(searcher, expected, arrayCollector);
+
+        final ResultCollector<T> readerCollector = new ResultCollector<T>();
+        assertTrue(searcher.searchForwards(newReader(bytes, 7), readerCollector));
+        assertResults(searcher, expected, readerCollector);
+    }
+
+    private static <T> void assertResults(final Searcher<T> searcher, final List<SearchResult<T>> expected,
+                                          final ResultCollector<T> collector) {
+        assertEquals(searcher.toString(), expected.size(), collector.positions.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(searcher.toString(), expected.get(i).getMatchPosition(), collector.positions.get(i).longValue());
+            assertSame(searcher.toString(), expected.get(i).getMatchingObject(), collector.objects.get(i));
+        }
+    }
+
+    private static WindowReader newReader(final byte[] bytes, final int windowSize) {
+        return new InputStreamReader(new ByteArrayInputStream(bytes), windowSize);
+    }
+
+    private static final class ResultCollector<T> implements SearchListener<T> {
+
+        private final List<Long> positions = new ArrayList<Long>();
+        private final List<T> objects = new ArrayList<T>();
+        private final int maxResults;
+
+        private ResultCollector() {
+            this(Integer.MAX_VALUE);
+        }
+
+        private ResultCollector(final int maxResults) {
+            this.maxResults = maxResults;
+        }
+
+        @Override
+        public boolean resultFound(final long matchPosition, final T matchingObject) {
+            positions.add(matchPosition);
+            objects.add(matchingObject);
+            return positions.size() < maxResults;
+        }
+    }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher;
+
+import static net.byteseek.io.Utilities.randomBytes;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.matcher.bytes.ByteRangeMatcher;
+import net.byteseek.matcher.multisequence.ListMultiSequenceMatcher;
+import net.byteseek.matcher.multisequence.MultiSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteMatcherSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.multisequence.set_horspool.SetHorspoolSearcher;
+import net.byteseek.searcher.multisequence.wu_manber.WuManberOneByteSearcher;
+import net.byteseek.searcher.multisequence.wu_manber.WuManberTwoByteSearcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+
+import org.junit.Test;
+
+public class SearchTablesTest {
+
+    private static final SequenceMatcher SEQUENCE = new ByteMatcherSequenceMatcher(Arrays.asList(
+            new ByteSequenceMatcher("ab"),
+            new ByteRangeMatcher(0x61, 0x64, false),
+            new ByteSequenceMatcher("a")));
+
+    private static final MultiSequenceMatcher SEQUENCES = new ListMultiSequenceMatcher(Arrays.asList(
+            new ByteSequenceMatcher("abca"), new ByteSequenceMatcher("dab"),
+            new ByteSequenceMatcher("cdcdc"), SEQUENCE));
+
+    private static final MultiSequenceMatcher OTHER_SEQUENCES = new ListMultiSequenceMatcher(Arrays.asList(
+            new ByteSequenceMatcher("abca"), new ByteSequenceMatcher("dab")));
+
+    private static final byte[] DATA = randomBytes(new Random(0x5EED), 8192, new byte[] {'a', 'b', 'c', 'd'});
+
+    @Test
+    public void testMappedFileRoundTrip() throws IOException {
+        final BoyerMooreHorspoolSearcher searcher = new BoyerMooreHorspoolSearcher(SEQUENCE);
+        final File file = File.createTempFile("searchtables", ".bsst");
+        file.deleteOnExit();
+        searcher.getSearchTables().write(file);
+
+        final SearchTables mapped = SearchTables.map(file);
+        assertEquals(BoyerMooreHorspoolSearcher.class.getName(), mapped.getSearcherType());
+        assertEquals(2, mapped.getNumberOfTables());
+        assertSameResults(searcher, new BoyerMooreHorspoolSearcher(SEQUENCE, mapped));
+    }
+
+    @Test
+    public void testStreamRoundTrip() throws IOException {
+        final List<Searcher<SequenceMatcher>> searchers = new ArrayList<Searcher<SequenceMatcher>>();
+        searchers.add(new SetHorspoolSearcher(SEQUENCES));
+        searchers.add(new WuManberOneByteSearcher(SEQUENCES));
+        searchers.add(new WuManberTwoByteSearcher(SEQUENCES));
+        for (final Searcher<SequenceMatcher> searcher : searchers) {
+            final SearchTables tables = roundTrip(((PrecompilableSearcher) searcher).getSearchTables());
+            final Searcher<SequenceMatcher> precompiled =
+                    searcher instanceof SetHorspoolSearcher?     new SetHorspoolSearcher(SEQUENCES, tables)
+                  : searcher instanceof WuManberOneByteSearcher? new WuManberOneByteSearcher(SEQUENCES, tables)
+                  :                                              new WuManberTwoByteSearcher(SEQUENCES, tables);
+            assertSameResults(searcher, precompiled);
+        }
+    }
+
+    @Test
+    public void testTablesAreCopied() {
+        final int[] table = new int[] {1, 2, 3};
+        final SearchTables tables = new SearchTables("type", 0, table);
+        table[0] = 99;
+        assertEquals(1, tables.getTable(0)[0]);
+        tables.getTable(0)[0] = 99;
+        assertEquals(1, tables.getTable(0)[0]);
+    }
+
+    @Test
+    public void testFingerprint() {
+        final long fingerprint = SearchTables.fingerprint(SEQUENCES.getSequenceMatchers());
+        assertEquals(fingerprint, SearchTables.fingerprint(SEQUENCES.getSequenceMatchers()));
+        assertFalse(fingerprint == SearchTables.fingerprint(SEQUENCES.getSequenceMatchers(), 2));
+        assertFalse(fingerprint == SearchTables.fingerprint(OTHER_SEQUENCES.getSequenceMatchers()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDifferentSequences() {
+        new SetHorspoolSearcher(OTHER_SEQUENCES, new SetHorspoolSearcher(SEQUENCES).getSearchTables());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDifferentSearcher() {
+        new WuManberTwoByteSearcher(SEQUENCES, new WuManberOneByteSearcher(SEQUENCES).getSearchTables());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHorspoolTableTooShort() {
+        final long fingerprint = new BoyerMooreHorspoolSearcher(SEQUENCE).getSearchTables().getFingerprint();
+        new BoyerMooreHorspoolSearcher(SEQUENCE, new SearchTables(BoyerMooreHorspoolSearcher.class.getName(),
+                                                                  fingerprint, new int[256], new int[16]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetHorspoolTableTooLong() {
+        final long fingerprint = new SetHorspoolSearcher(SEQUENCES).getSearchTables().getFingerprint();
+        new SetHorspoolSearcher(SEQUENCES, new SearchTables(SetHorspoolSearcher.class.getName(),
+                                                            fingerprint, new int[257], new int[256]));
+    }
+
+    @Test
+    public void testTableLength() {
+        final SearchTables tables = new SearchTables("type", 0, new int[3], new int[256]);
+        assertEquals(3, tables.getTableLength(0));
+        assertEquals(256, tables.getTableLength(1));
+    }
+
+    @Test
+    public void testInvalidData() throws IOException {
+        final byte[] valid = toBytes(new BoyerMooreHorspoolSearcher(SEQUENCE).getSearchTables());
+        assertInvalid(changeByte(valid, 0));                      // magic number
+        assertInvalid(changeByte(valid, 7));                      // format version
+        assertInvalid(changeByte(valid, valid.length - 100));     // checksum fails
+        assertInvalid(Arrays.copyOf(valid, valid.length - 5));    // truncated
+        assertInvalid(new byte[0]);
+    }
+
+    private static void assertInvalid(final byte[] data) {
+        try {
+            SearchTables.read(ByteBuffer.wrap(data));
+            fail("Expected an IOException reading invalid search tables");
+        } catch (final IOException expected) {
+        }
+    }
+
+    private static void assertSameResults(final Searcher<SequenceMatcher> expected,
+                                          final Searcher<SequenceMatcher> actual) {
+        for (int position = 0; position < DATA.length; position++) {
+            assertEquals("forwards from " + position,
+                         positions(expected.searchForwards(DATA, position, position)),
+                         positions(actual.searchForwards(DATA, position, position)));
+            assertEquals("backwards from " + position,
+                         positions(expected.searchBackwards(DATA, position, position)),
+                         positions(actual.searchBackwards(DATA, position, position)));
+        }
+    }
+
+    private static List<Long> positions(final List<SearchResult<SequenceMatcher>> results) {
+        final List<Long> positions = new ArrayList<Long>();
+        for (final SearchResult<SequenceMatcher> result : results) {
+            positions.add(result.getMatchPosition());
+        }
+        return positions;
+    }
+
+    private static SearchTables roundTrip(final SearchTables tables) throws IOException {
+        return SearchTables.read(new ByteArrayInputStream(toBytes(tables)));
+    }
+
+    private static byte[] toBytes(final SearchTables tables) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        tables.write(output);
+        return output.toByteArray();
+    }
+
+    private static byte[] changeByte(final byte[] bytes, final int position) {
+        final byte[] changed = bytes.clone();
+        changed[position] ^= 0x01;
+        return changed;
+    }
+
+}
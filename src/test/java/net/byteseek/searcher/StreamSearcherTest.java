@@ -0,0 +1,182 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher;
+
+import static net.byteseek.io.Utilities.randomBytes;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.matcher.multisequence.ListMultiSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.multisequence.aho_corasick.AhoCorasickSearcher;
+import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
+
+import org.junit.Test;
+
+public class StreamSearcherTest {
+
+    private static final byte[] ALPHABET = {'a', 'b', 'c'};
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullSearcher() {
+        new StreamSearcher<SequenceMatcher>(null, 1, new ResultCollector());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroLength() {
+        new StreamSearcher<SequenceMatcher>(new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("a")), 0, new ResultCollector());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullListener() {
+        new StreamSearcher<SequenceMatcher>(new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("a")), 1, null);
+    }
+
+    @Test(expected = IOException.class)
+    public void testWriteAfterClose() throws IOException {
+        final StreamSearcher<SequenceMatcher> stream =
+                new StreamSearcher<SequenceMatcher>(new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("a")), 1, new ResultCollector());
+        stream.close();
+        stream.write(1);
+    }
+
+    @Test
+    public void testSequenceInChunks() throws IOException {
+        final Random random = new Random(9);
+        for (int test = 0; test < 100; test++) {
+            final SequenceMatcher sequence = new ByteSequenceMatcher(randomBytes(random, random.nextInt(6) + 1, ALPHABET));
+            final Searcher<SequenceMatcher> searcher = new BoyerMooreHorspoolSearcher(sequence);
+            assertSameAsSearchAll(searcher, sequence.length(), randomBytes(random, random.nextInt(500), ALPHABET), random);
+        }
+    }
+
+    @Test
+    public void testMultiSequenceInChunks() throws IOException {
+        final Random random = new Random(10);
+        for (int test = 0; test < 100; test++) {
+            final List<byte[]> sequences = new ArrayList<byte[]>();
+            for (int sequence = random.nextInt(10); sequence >= 0; sequence--) {
+                sequences.add(randomBytes(random, random.nextInt(8) + 1, ALPHABET));
+            }
+            final ListMultiSequenceMatcher matcher = new ListMultiSequenceMatcher(sequences);
+            final Searcher<SequenceMatcher> searcher = new AhoCorasickSearcher(matcher);
+            assertSameAsSearchAll(searcher, matcher.getMaximumLength(), randomBytes(random, random.nextInt(500), ALPHABET), random);
+        }
+    }
+
+    @Test
+    public void testByteBuffersAndInputStreams() throws IOException {
+        final byte[] bytes = "abcabcabc".getBytes();
+        final Searcher<SequenceMatcher> searcher = new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("ca"));
+
+        final ResultCollector direct = new ResultCollector();
+        final StreamSearcher<SequenceMatcher> directStream = new StreamSearcher<SequenceMatcher>(searcher, 2, direct);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        directStream.write(buffer);
+        directStream.close();
+        assertEquals(0, buffer.remaining());
+        assertEquals("[2, 5]", direct.positions.toString());
+
+        final ResultCollector input = new ResultCollector();
+        final StreamSearcher<SequenceMatcher> inputStream = new StreamSearcher<SequenceMatcher>(searcher, 2, input);
+        inputStream.write(new ByteArrayInputStream(bytes));
+        inputStream.close();
+        assertEquals("[2, 5]", input.positions.toString());
+        assertEquals(bytes.length, inputStream.getStreamLength());
+    }
+
+    @Test
+    public void testListenerStopsSearch() throws IOException {
+        final ResultCollector collector = new ResultCollector(2);
+        final StreamSearcher<SequenceMatcher> stream = new StreamSearcher<SequenceMatcher>(
+                new BoyerMooreHorspoolSearcher(new ByteSequenceMatcher("a")), 1, collector);
+        stream.write("aaaa".getBytes());
+        stream.write("aaaa".getBytes());
+        stream.close();
+        assertTrue(stream.isStopped());
+        assertEquals("[0, 1]", collector.positions.toString());
+
+        stream.reset();
+        assertFalse(stream.isStopped());
+        assertEquals(0, stream.getStreamLength());
+    }
+
+    private static void assertSameAsSearchAll(final Searcher<SequenceMatcher> searcher, final int maxLength,
+                                              final byte[] bytes, final Random random) throws IOException {
+        final List<Long> expected = new ArrayList<Long>();
+        for (final SearchResult<SequenceMatcher> result : SearchUtils.searchAllForwards(searcher, bytes)) {
+            expected.add(result.getMatchPosition());
+        }
+        final ResultCollector collector = new ResultCollector();
+        final StreamSearcher<SequenceMatcher> stream = new StreamSearcher<SequenceMatcher>(searcher, maxLength, collector);
+        int position = 0;
+        while (position < bytes.length) {
+            final int chunkLength = Math.min(bytes.length - position, random.nextInt(12));
+            // Write the chunk from the middle of a bigger array, to check only the chunk is searched:
+            final byte[] array = randomBytes(random, chunkLength + 8, ALPHABET);
+            System.arraycopy(bytes, position, array, 4, chunkLength);
+            stream.write(array, 4, chunkLength);
+            position += chunkLength;
+        }
+        stream.close();
+        assertEquals(expected, collector.positions);
+    }
+
+    private static final class ResultCollector implements SearchListener<SequenceMatcher> {
+
+        private final List<Long> positions = new ArrayList<Long>();
+        private final int maxResults;
+
+        private ResultCollector() {
+            this(Integer.MAX_VALUE);
+        }
+
+        private ResultCollector(final int maxResults) {
+            this.maxResults = maxResults;
+        }
+
+        @Override
+        public boolean resultFound(final long matchPosition, final SequenceMatcher matchingObject) {
+            positions.add(matchPosition);
+            return positions.size() < maxResults;
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.automata;
+
+import static net.byteseek.io.Utilities.randomBytes;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.automata.Automata;
+import net.byteseek.compiler.regex.RegexCompiler;
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.Matcher;
+import net.byteseek.matcher.automata.NfaMatcher;
+import net.byteseek.searcher.MatcherSearcher;
+import net.byteseek.searcher.SearchResult;
+
+import org.junit.Test;
+
+public class ShiftAndSearcherTest {
+
+    private static final byte[] ALPHABET = {'A', 'B', 'C', 'D'};
+
+    private static final String[] EXPRESSIONS = {
+        "'A' ['B'-'C'] . 'D'",
+        "'A' .{2,4} 'B'",
+        "('A'|'B')* 'A' ('A'|'B') ('A'|'B')",
+        "'AB' | 'C' 'D'+",
+        "'A' 'D'* 'C'",
+        "'A' .{70} 'B'",
+        "('A' | 'B' .{60,70}) 'C'",
+        "'A'?"
+    };
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullMatcher() {
+        new ShiftAndSearcher((net.byteseek.matcher.automata.ShiftAndMatcher) null);
+    }
+
+    @Test
+    public void testLeftmostMatch() throws Exception {
+        final ShiftAndSearcher searcher = new ShiftAndSearcher(compile("'A' .* 'B' | 'C'"));
+        final List<SearchResult<Matcher>> results = searcher.searchForwards("xAxCxB".getBytes());
+        assertEquals(1, results.size());
+        assertEquals(1, results.get(0).getMatchPosition());
+    }
+
+    @Test
+    public void testSameAsMatcherSearcher() throws Exception {
+        final Random random = new Random(15);
+        for (final String expression : EXPRESSIONS) {
+            final Automata<String> nfa = compile(expression);
+            final MatcherSearcher expected = new MatcherSearcher(new NfaMatcher<String>(nfa));
+            final ShiftAndSearcher searcher = new ShiftAndSearcher(nfa);
+            for (int test = 0; test < 100; test++) {
+                final byte[] bytes = randomBytes(random, random.nextInt(300), ALPHABET);
+                final int from = random.nextInt(bytes.length + 2) - 1;
+                final int to = random.nextInt(bytes.length + 2) - 1;
+                final String description = expression + " from " + from + " to " + to;
+
+                assertSamePosition(description, expected.searchForwards(bytes, from, to),
+                                   searcher.searchForwards(bytes, from, to));
+                assertSamePosition(description, expected.searchForwards(newReader(bytes), from, to),
+                                   searcher.searchForwards(newReader(bytes), from, to));
+                assertSamePosition(description, expected.searchBackwards(bytes, from, to),
+                                   searcher.searchBackwards(bytes, from, to));
+                assertSamePosition(description, expected.searchBackwards(newReader(bytes), from, to),
+                                   searcher.searchBackwards(newReader(bytes), from, to));
+            }
+        }
+    }
+
+    private static void assertSamePosition(final String description, final List<SearchResult<Matcher>> expected,
+                                           final List<SearchResult<Matcher>> results) {
+        assertEquals(description, expected.size(), results.size());
+        if (!expected.isEmpty()) {
+            assertEquals(description, expected.get(0).getMatchPosition(), results.get(0).getMatchPosition());
+        }
+    }
+
+    private static WindowReader newReader(final byte[] bytes) {
+        return new InputStreamReader(new ByteArrayInputStream(bytes), 7);
+    }
+
+    private static Automata<String> compile(final String expression) throws Exception {
+        return new RegexCompiler<String>().compile(Arrays.asList(expression));
+    }
+
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.multisequence;
+
+import static net.byteseek.io.Utilities.randomBytes;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.automata.trie.Trie;
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.automata.SequenceMatcherTrie;
+import net.byteseek.matcher.bytes.AnyByteMatcher;
+import net.byteseek.matcher.bytes.ByteMatcher;
+import net.byteseek.matcher.bytes.ByteRangeMatcher;
+import net.byteseek.matcher.bytes.OneByteMatcher;
+import net.byteseek.matcher.multisequence.HashMultiSequenceMatcher;
+import net.byteseek.matcher.multisequence.ListMultiSequenceMatcher;
+import net.byteseek.matcher.multisequence.MultiSequenceMatcher;
+import net.byteseek.matcher.multisequence.TrieMultiSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteMatcherSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.multisequence.aho_corasick.AhoCorasickSearcher;
+import net.byteseek.searcher.multisequence.aho_corasick.AhoCorasickTable;
+
+import org.junit.Test;
+
+public class AhoCorasickSearcherTest {
+
+    private static final byte[] ALPHABET = {'a', 'b', 'c', 'd', 'e'};
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullSequences() {
+        new AhoCorasickSearcher(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullTrie() {
+        new AhoCorasickTable<SequenceMatcher>((Trie<SequenceMatcher>) null);
+    }
+
+    @Test
+    public void testTable() {
+        final List<SequenceMatcher> sequences = new ArrayList<SequenceMatcher>();
+        sequences.add(new ByteSequenceMatcher("he"));
+        sequences.add(new ByteSequenceMatcher("she"));
+        sequences.add(new ByteSequenceMatcher("hers"));
+        final AhoCorasickTable<SequenceMatcher> table =
+                new AhoCorasickTable<SequenceMatcher>(new SequenceMatcherTrie(sequences));
+        int state = AhoCorasickTable.INITIAL_STATE;
+        final int[] expectedLengths = {0, 0, 0, 3, 0};
+        final byte[] text = "usher".getBytes();
+        state = table.getNextState(state, text[0]);
+        for (int position = 1; position < text.length; position++) {
+            state = table.getNextState(state, text[position]);
+            assertEquals("position " + position, expectedLengths[position], table.getMatchLength(state));
+        }
+    }
+
+    @Test
+    public void testFailureLinksThroughByteClasses() throws IOException {
+        // The state after "z[ab]" needs a different failure link for 'a' and 'b':
+        final List<SequenceMatcher> sequences = new ArrayList<SequenceMatcher>();
+        sequences.add(new ByteMatcherSequenceMatcher(OneByteMatcher.valueOf((byte) 'z'),
+                                                     new ByteRangeMatcher('a', 'b', false),
+                                                     OneByteMatcher.valueOf((byte) 'q')));
+        sequences.add(new ByteSequenceMatcher("ac"));
+        final Searcher<SequenceMatcher> searcher = new AhoCorasickSearcher(new ListMultiSequenceMatcher(sequences));
+        assertFirstMatch(searcher, "xxzacxx", 3);
+        assertFirstMatch(searcher, "xxzbqxx", 2);
+        assertFirstMatch(searcher, "xxzbcxx", -1);
+    }
+
+    @Test
+    public void testWildcardHeavySequences() throws IOException {
+        // Alternating any byte with a fixed byte needs exponentially many copied states:
+        final ByteMatcher[] matchers = new ByteMatcher[28];
+        for (int position = 0; position < matchers.length; position += 2) {
+            matchers[position] = AnyByteMatcher.ANY_BYTE_MATCHER;
+            matchers[position + 1] = OneByteMatcher.valueOf((byte) 0x01);
+        }
+        final List<SequenceMatcher> sequences = new ArrayList<SequenceMatcher>();
+        sequences.add(new ByteMatcherSequenceMatcher(matchers));
+        sequences.add(new ByteSequenceMatcher(new byte[] {0x01, 0x01, 0x02}));
+        sequences.add(new ByteSequenceMatcher(new byte[] {0x02, 0x01, 0x01}));
+        try {
+            new AhoCorasickTable<SequenceMatcher>(new SequenceMatcherTrie(sequences), 1024);
+            fail("Expected the table to need too many copied states");
+        } catch (final IllegalArgumentException expected) {
+        }
+
+        final MultiSequenceMatcher matcher = new ListMultiSequenceMatcher(sequences);
+        final Searcher<SequenceMatcher> expected = new MultiSequenceMatcherSearcher(matcher);
+        final Searcher<SequenceMatcher> searcher = new AhoCorasickSearcher(matcher);
+        final Random random = new Random(28);
+        final byte[] bytes = new byte[256];
+        for (int position = 0; position < bytes.length; position++) {
+            bytes[position] = (byte) (random.nextInt(3) == 0 ? 0x02 : 0x01);
+        }
+        for (int from = 0; from < bytes.length; from += 7) {
+            assertEquals(describe(expected.searchForwards(bytes, from, bytes.length)),
+                         describe(searcher.searchForwards(bytes, from, bytes.length)));
+            assertEquals(describe(expected.searchForwards(bytes, from, bytes.length)),
+                         describe(searcher.searchForwards(reader(bytes, 16), from, bytes.length)));
+            assertEquals(describe(expected.searchBackwards(bytes, from, 0)),
+                         describe(searcher.searchBackwards(bytes, from, 0)));
+            assertEquals(describe(expected.searchBackwards(bytes, from, 0)),
+                         describe(searcher.searchBackwards(reader(bytes, 16), from, 0)));
+        }
+    }
+
+    @Test
+    public void testResultsWithEachMultiSequenceMatcher() throws IOException {
+        final List<SequenceMatcher> sequences = new ArrayList<SequenceMatcher>();
+        sequences.add(new ByteMatcherSequenceMatcher(new ByteRangeMatcher(0x00, 0x00, true),
+                                                     AnyByteMatcher.ANY_BYTE_MATCHER));
+        sequences.add(new ByteMatcherSequenceMatcher(new ByteRangeMatcher(0x01, 0x02, false),
+                                                     OneByteMatcher.valueOf((byte) 0x03)));
+        final List<MultiSequenceMatcher> matchers = new ArrayList<MultiSequenceMatcher>();
+        matchers.add(new TrieMultiSequenceMatcher(sequences));
+        matchers.add(new ListMultiSequenceMatcher(sequences));
+        matchers.add(new HashMultiSequenceMatcher(sequences));
+        final SequenceMatcher notZero = sequences.get(0);
+        final SequenceMatcher oneOrTwo = sequences.get(1);
+        final byte[] bytes = {0x02, 0x03, 0x00, 0x00, 0x01, 0x03};
+        for (final MultiSequenceMatcher matcher : matchers) {
+            final Searcher<SequenceMatcher> searcher = new AhoCorasickSearcher(matcher);
+            final String name = matcher.getClass().getSimpleName();
+            assertEquals(name, describe(0, notZero, oneOrTwo), describe(searcher.searchForwards(bytes)));
+            assertEquals(name, describe(0, notZero, oneOrTwo), describe(searcher.searchForwards(reader(bytes, 2))));
+            assertEquals(name, describe(1, notZero), describe(searcher.searchForwards(bytes, 1, 5)));
+            assertEquals(name, describe(4, notZero, oneOrTwo), describe(searcher.searchBackwards(bytes)));
+            assertEquals(name, describe(4, notZero, oneOrTwo), describe(searcher.searchBackwards(reader(bytes, 2))));
+            assertEquals(name, describe(1, notZero), describe(searcher.searchBackwards(bytes, 1, 1)));
+            assertEquals(name, describe(0, notZero, oneOrTwo), describe(searcher.searchBackwards(bytes, 0, 0)));
+        }
+    }
+
+    @Test
+    public void testSameAsMatcherSearcher() throws IOException {
+        final Random random = new Random(8);
+        for (int test = 0; test < 100; test++) {
+            final MultiSequenceMatcher sequences = new ListMultiSequenceMatcher(randomSequences(random));
+            final Searcher<SequenceMatcher> expected = new MultiSequenceMatcherSearcher(sequences);
+            final Searcher<SequenceMatcher> searcher = new AhoCorasickSearcher(sequences);
+            final byte[] bytes = randomBytes(random, random.nextInt(300) + 1, ALPHABET);
+            final int windowSize = random.nextInt(17) + 1;
+            assertEquals(describe(expected.searchForwards(bytes)), describe(searcher.searchForwards(bytes)));
+            for (int trial = 0; trial < 20; trial++) {
+                final int from = random.nextInt(bytes.length + 4) - 2;
+                final int to = random.nextInt(bytes.length + 4) - 2;
+                assertEquals(describe(expected.searchForwards(bytes, from, to)),
+                             describe(searcher.searchForwards(bytes, from, to)));
+                assertEquals(describe(expected.searchForwards(bytes, from, to)),
+                             describe(searcher.searchForwards(reader(bytes, windowSize), from, to)));
+                assertEquals(describe(expected.searchBackwards(bytes, from, to)),
+                             describe(searcher.searchBackwards(bytes, from, to)));
+                assertEquals(describe(expected.searchBackwards(bytes, from, to)),
+                             describe(searcher.searchBackwards(reader(bytes, windowSize), from, to)));
+            }
+        }
+    }
+
+    private static void assertFirstMatch(final Searcher<SequenceMatcher> searcher, final String text,
+                                         final long expectedPosition) throws IOException {
+        final byte[] bytes = text.getBytes();
+        final List<SearchResult<SequenceMatcher>> results = searcher.searchForwards(bytes);
+        final List<SearchResult<SequenceMatcher>> readerResults = searcher.searchForwards(reader(bytes, 2));
+        if (expectedPosition < 0) {
+            assertTrue(results.isEmpty());
+            assertTrue(readerResults.isEmpty());
+        } else {
+            assertEquals(expectedPosition, results.get(0).getMatchPosition());
+            assertEquals(expectedPosition, readerResults.get(0).getMatchPosition());
+        }
+    }
+
+    private static List<SequenceMatcher> randomSequences(final Random random) {
+        final List<SequenceMatcher> sequences = new ArrayList<SequenceMatcher>();
+        final int numSequences = random.nextInt(20) + 1;
+        for (int sequence = 0; sequence < numSequences; sequence++) {
+            final ByteMatcher[] matchers = new ByteMatcher[random.nextInt(6) + 1];
+            for (int position = 0; position < matchers.length; position++) {
+                final int value = 'a' + random.nextInt(4);
+                matchers[position] = random.nextInt(5) == 0 ? new ByteRangeMatcher(value, value + 1, false)
+                                                            : OneByteMatcher.valueOf((byte) value);
+            }
+            sequences.add(new ByteMatcherSequenceMatcher(matchers));
+        }
+        return sequences;
+    }
+
+    private static WindowReader reader(final byte[] bytes, final int windowSize) {
+        return new InputStreamReader(new ByteArrayInputStream(bytes), windowSize);
+    }
+
+    private static List<String> describe(final long position, final SequenceMatcher... sequences) {
+        final List<SearchResult<SequenceMatcher>> results = new ArrayList<SearchResult<SequenceMatcher>>();
+        for (final SequenceMatcher sequence : sequences) {
+            results.add(new SearchResult<SequenceMatcher>(position, sequence));
+        }
+        return describe(results);
+    }
+
+    private static List<String> describe(final List<SearchResult<SequenceMatcher>> results) {
+        final List<String> descriptions = new ArrayList<String>();
+        for (final SearchResult<SequenceMatcher> result : results) {
+            descriptions.add(result.getMatchPosition() + ":" + result.getMatchingObject().toRegularExpression(true));
+        }
+        Collections.sort(descriptions);
+        return descriptions;
+    }
+
+}
@@ -64,6 +64,7 @@ import net.byteseek.searcher.performance.SearcherProfiler.ProfileResults;
 import net.byteseek.searcher.sequence.SequenceMatcherSearcher;
 import net.byteseek.searcher.sequence.horspool.BoyerMooreHorspoolSearcher;
 import net.byteseek.searcher.sequence.horspool.HorspoolFinalFlagSearcher;
+import net.byteseek.searcher.sequence.bndm.BndmSearcher;
 import net.byteseek.searcher.sequence.sunday.SundayQuickSearcher;
 
 /**
@@ -142,6 +143,7 @@ public class SearcherPerformanceTests {
 		searchers.add(new BoyerMooreHorspoolSearcher(matcher));
 		searchers.add(new HorspoolFinalFlagSearcher(matcher));
 		searchers.add(new SundayQuickSearcher(matcher));
+		searchers.add(new BndmSearcher(matcher));
 		searchers.add(new ByteSearcher(matcher));
 		searchers.add(new ByteMatcherSearcher(matcher));
 		return searchers;
@@ -154,6 +156,7 @@ public class SearcherPerformanceTests {
 		searchers.add(new BoyerMooreHorspoolSearcher(sequence));
 		searchers.add(new HorspoolFinalFlagSearcher(sequence));
 		searchers.add(new SundayQuickSearcher(sequence));
+		searchers.add(new BndmSearcher(sequence));
 		return searchers;
 	}
 
@@ -0,0 +1,187 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.sequence;
+
+import static net.byteseek.io.Utilities.randomBytes;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.bytes.OneByteMatcher;
+import net.byteseek.matcher.bytes.OptimalByteMatcherFactory;
+import net.byteseek.matcher.sequence.ByteMatcherSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.Searcher;
+import net.byteseek.searcher.sequence.horspool.HorspoolFinalFlagSearcher;
+
+import org.junit.Test;
+
+public class AdaptiveSequenceSearcherTest {
+
+    private static final byte[] BASE64 =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes();
+
+    // Any base64 character just before the end means hardly any shifting over base64 text:
+    private static final SequenceMatcher SEQUENCE = new ByteMatcherSequenceMatcher(Arrays.asList(
+            new ByteSequenceMatcher("BEGINEND"),
+            OptimalByteMatcherFactory.FACTORY.create(toList(BASE64)),
+            OneByteMatcher.valueOf((byte) '!')));
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullSequence() {
+        new AdaptiveSequenceSearcher(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShiftCostTooSmall() {
+        new AdaptiveSequenceSearcher(SEQUENCE, 0.5, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoSampleWindows() {
+        new AdaptiveSequenceSearcher(SEQUENCE, 2.0, 0);
+    }
+
+    @Test
+    public void testKeepsShiftingOverBinaryData() throws IOException {
+        final byte[] data = withMatches(randomBytes(new Random(24), 20000));
+        final AdaptiveSequenceSearcher searcher = new AdaptiveSequenceSearcher(SEQUENCE);
+        assertSameResults(searcher, data);
+        assertTrue(searcher.getForwardSearcher() instanceof HorspoolFinalFlagSearcher);
+    }
+
+    @Test
+    public void testSwitchesToLinearOverBase64() throws IOException {
+        final byte[] data = withMatches(randomBytes(new Random(24), 20000, BASE64));
+        final AdaptiveSequenceSearcher searcher = new AdaptiveSequenceSearcher(SEQUENCE);
+        assertTrue(searcher.getForwardSearcher() instanceof HorspoolFinalFlagSearcher);
+        assertSameResults(searcher, data);
+        assertTrue(searcher.getForwardSearcher() instanceof SequenceMatcherSearcher);
+    }
+
+    @Test
+    public void testByteArraySearches() {
+        final byte[] data = withMatches(randomBytes(new Random(24), 20000, BASE64));
+        final AdaptiveSequenceSearcher searcher = new AdaptiveSequenceSearcher(SEQUENCE, 2.0, 1);
+        final Searcher<SequenceMatcher> expected = new SequenceMatcherSearcher(SEQUENCE);
+        assertEquals(positions(expected.searchForwards(data, 0)), positions(searcher.searchForwards(data, 0)));
+        assertTrue(searcher.getForwardSearcher() instanceof SequenceMatcherSearcher);
+        for (int position = 0; position < data.length; position += 1000) {
+            assertEquals(positions(expected.searchForwards(data, position)),
+                         positions(searcher.searchForwards(data, position)));
+            assertEquals(positions(expected.searchBackwards(data, position)),
+                         positions(searcher.searchBackwards(data, position)));
+        }
+    }
+
+    @Test
+    public void testOneByteSequenceIsLinear() {
+        final AdaptiveSequenceSearcher searcher = new AdaptiveSequenceSearcher(new ByteSequenceMatcher("x"));
+        assertTrue(searcher.getForwardSearcher() instanceof SequenceMatcherSearcher);
+        assertTrue(searcher.getBackwardSearcher() instanceof SequenceMatcherSearcher);
+        assertEquals(3, searcher.searchForwards("abcxyz".getBytes()).get(0).getMatchPosition());
+    }
+
+    /*
+     * Finds all the matches forwards and backwards through a reader with small windows,
+     * checking they are the same as those found by a linear searcher.
+     */
+    private static void assertSameResults(final AdaptiveSequenceSearcher searcher, final byte[] data)
+            throws IOException {
+        final WindowReader reader = new InputStreamReader(new ByteArrayInputStream(data), 512);
+        final Searcher<SequenceMatcher> expected = new SequenceMatcherSearcher(SEQUENCE);
+        final List<Long> expectedForwards = new ArrayList<Long>();
+        final List<Long> actualForwards = new ArrayList<Long>();
+        long position = 0;
+        List<SearchResult<SequenceMatcher>> results;
+        while (!(results = expected.searchForwards(reader, position)).isEmpty()) {
+            position = results.get(0).getMatchPosition();
+            expectedForwards.add(position++);
+        }
+        position = 0;
+        while (!(results = searcher.searchForwards(reader, position)).isEmpty()) {
+            position = results.get(0).getMatchPosition();
+            actualForwards.add(position++);
+        }
+        assertEquals(10, expectedForwards.size());
+        assertEquals(expectedForwards, actualForwards);
+
+        final List<Long> expectedBackwards = new ArrayList<Long>();
+        final List<Long> actualBackwards = new ArrayList<Long>();
+        position = data.length - 1;
+        while (position >= 0 && !(results = expected.searchBackwards(reader, position)).isEmpty()) {
+            position = results.get(0).getMatchPosition();
+            expectedBackwards.add(position--);
+        }
+        position = data.length - 1;
+        while (position >= 0 && !(results = searcher.searchBackwards(reader, position)).isEmpty()) {
+            position = results.get(0).getMatchPosition();
+            actualBackwards.add(position--);
+        }
+        assertEquals(expectedBackwards, actualBackwards);
+        reader.close();
+    }
+
+    private static byte[] withMatches(final byte[] data) {
+        final byte[] match = "BEGINENDx!".getBytes();
+        for (int position = 1000; position < data.length; position += 1999) {
+            System.arraycopy(match, 0, data, position, match.length);
+        }
+        return data;
+    }
+
+    private static List<Long> positions(final List<SearchResult<SequenceMatcher>> results) {
+        final List<Long> positions = new ArrayList<Long>();
+        for (final SearchResult<SequenceMatcher> result : results) {
+            positions.add(result.getMatchPosition());
+        }
+        return positions;
+    }
+
+    private static List<Byte> toList(final byte[] bytes) {
+        final List<Byte> list = new ArrayList<Byte>(bytes.length);
+        for (final byte value : bytes) {
+            list.add(value);
+        }
+        return list;
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.sequence.bndm;
+
+import static net.byteseek.io.Utilities.randomBytes;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.bytes.AnyByteMatcher;
+import net.byteseek.matcher.bytes.ByteMatcher;
+import net.byteseek.matcher.bytes.ByteRangeMatcher;
+import net.byteseek.matcher.bytes.OneByteMatcher;
+import net.byteseek.matcher.bytes.TwoByteMatcher;
+import net.byteseek.matcher.sequence.ByteMatcherSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.sequence.SequenceMatcherSearcher;
+
+import org.junit.Test;
+
+public class BndmSearcherTest {
+
+    private static final byte[] ALPHABET = {'A', 'B', 'C', 'D'};
+
+    private static final int[] SEQUENCE_LENGTHS = {1, 2, 3, 5, 8, 63, 64, 65, 100};
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullSequence() {
+        new BndmSearcher(null);
+    }
+
+    @Test
+    public void testSameAsSequenceMatcherSearcher() throws Exception {
+        final Random random = new Random(12);
+        for (final int sequenceLength : SEQUENCE_LENGTHS) {
+            for (int sequenceNum = 0; sequenceNum < 10; sequenceNum++) {
+                final SequenceMatcher sequence = randomSequence(random, sequenceLength);
+                final SequenceMatcherSearcher expected = new SequenceMatcherSearcher(sequence);
+                final BndmSearcher searcher = new BndmSearcher(sequence);
+                for (int test = 0; test < 20; test++) {
+                    final byte[] bytes = randomBytes(random, random.nextInt(400), ALPHABET);
+                    final int from = random.nextInt(bytes.length + 2) - 1;
+                    final int to = random.nextInt(bytes.length + 2) - 1;
+                    final String description = sequence + " from " + from + " to " + to;
+
+                    assertSamePosition(description, expected.searchForwards(bytes, from, to),
+                                       searcher.searchForwards(bytes, from, to));
+                    assertSamePosition(description, expected.searchForwards(newReader(bytes), from, to),
+                                       searcher.searchForwards(newReader(bytes), from, to));
+                    assertSamePosition(description, expected.searchBackwards(bytes, from, to),
+                                       searcher.searchBackwards(bytes, from, to));
+                    assertSamePosition(description, expected.searchBackwards(newReader(bytes), from, to),
+                                       searcher.searchBackwards(newReader(bytes), from, to));
+                }
+            }
+        }
+    }
+
+    private static void assertSamePosition(final String description, final List<SearchResult<SequenceMatcher>> expected,
+                                           final List<SearchResult<SequenceMatcher>> results) {
+        assertEquals(description, expected.size(), results.size());
+        if (!expected.isEmpty()) {
+            assertEquals(description, expected.get(0).getMatchPosition(), results.get(0).getMatchPosition());
+        }
+    }
+
+    private static WindowReader newReader(final byte[] bytes) {
+        return new InputStreamReader(new ByteArrayInputStream(bytes), 7);
+    }
+
+    private static SequenceMatcher randomSequence(final Random random, final int length) {
+        final ByteMatcher[] matchers = new ByteMatcher[length];
+        for (int i = 0; i < length; i++) {
+            switch (random.nextInt(8)) {
+                case 0:  matchers[i] = AnyByteMatcher.ANY_BYTE_MATCHER; break;
+                case 1:  matchers[i] = new ByteRangeMatcher('B', 'C', false); break;
+                case 2:  matchers[i] = new TwoByteMatcher((byte) 'A', (byte) 'D'); break;
+                default: matchers[i] = OneByteMatcher.valueOf(ALPHABET[random.nextInt(ALPHABET.length)]);
+            }
+        }
+        return new ByteMatcherSequenceMatcher(matchers);
+    }
+
+}
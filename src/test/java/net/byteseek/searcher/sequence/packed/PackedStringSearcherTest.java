@@ -0,0 +1,157 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.searcher.sequence.packed;
+
+import static net.byteseek.io.Utilities.randomBytes;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.byteseek.io.reader.InputStreamReader;
+import net.byteseek.io.reader.WindowReader;
+import net.byteseek.matcher.bytes.TwoByteMatcher;
+import net.byteseek.matcher.sequence.ByteMatcherSequenceMatcher;
+import net.byteseek.matcher.sequence.ByteSequenceMatcher;
+import net.byteseek.matcher.sequence.SequenceMatcher;
+import net.byteseek.searcher.SearchListener;
+import net.byteseek.searcher.SearchResult;
+import net.byteseek.searcher.SearchUtils;
+import net.byteseek.searcher.sequence.SequenceMatcherSearcher;
+
+import org.junit.Test;
+
+public class PackedStringSearcherTest {
+
+    private static final byte[] ALPHABET = {'A', 'B', 'C', (byte) 0x80};
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullSequence() {
+        new PackedStringSearcher(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testByteClassInSequence() {
+        new PackedStringSearcher(new ByteMatcherSequenceMatcher(new TwoByteMatcher((byte) 'A', (byte) 'B')));
+    }
+
+    @Test
+    public void testSameAsSequenceMatcherSearcher() throws Exception {
+        final Random random = new Random(14);
+        for (int sequenceLength = 1; sequenceLength <= 20; sequenceLength++) {
+            for (int sequenceNum = 0; sequenceNum < 10; sequenceNum++) {
+                final SequenceMatcher sequence = new ByteSequenceMatcher(randomBytes(random, sequenceLength, ALPHABET));
+                final SequenceMatcherSearcher expected = new SequenceMatcherSearcher(sequence);
+                final PackedStringSearcher searcher = new PackedStringSearcher(sequence);
+                for (int test = 0; test < 20; test++) {
+                    final byte[] bytes = randomBytes(random, random.nextInt(200), ALPHABET);
+                    final int from = random.nextInt(bytes.length + 2) - 1;
+                    final int to = random.nextInt(bytes.length + 2) - 1;
+                    final String description = sequence + " from " + from + " to " + to;
+
+                    assertSamePosition(description, expected.searchForwards(bytes, from, to),
+                                       searcher.searchForwards(bytes, from, to));
+                    assertSamePosition(description, expected.searchForwards(newReader(bytes), from, to),
+                                       searcher.searchForwards(newReader(bytes), from, to));
+                    assertSamePosition(description, expected.searchBackwards(bytes, from, to),
+                                       searcher.searchBackwards(bytes, from, to));
+                    assertSamePosition(description, expected.searchBackwards(newReader(bytes), from, to),
+                                       searcher.searchBackwards(newReader(bytes), from, to));
+                    assertEquals(description, positions(SearchUtils.searchAllForwards(expected, bytes)),
+                                 reportedPositions(searcher, bytes));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWindowScanSameAsSequenceMatcherSearcher() throws Exception {
+        final Random random = new Random(140);
+        for (final int windowSize : new int[] {7, 32}) {
+            for (int sequenceLength = 1; sequenceLength <= 12; sequenceLength++) {
+                final SequenceMatcher sequence = new ByteSequenceMatcher(randomBytes(random, sequenceLength, ALPHABET));
+                final SequenceMatcherSearcher expected = new SequenceMatcherSearcher(sequence);
+                final PackedStringSearcher searcher = new PackedStringSearcher(sequence);
+                for (int test = 0; test < 50; test++) {
+                    final byte[] bytes = randomBytes(random, random.nextInt(300), ALPHABET);
+                    final int from = random.nextInt(bytes.length + 2) - 1;
+                    final int to = random.nextInt(bytes.length + 2) - 1;
+                    final String description = sequence + " window " + windowSize + " from " + from + " to " + to;
+
+                    assertSamePosition(description, expected.searchForwards(newReader(bytes, windowSize), from, to),
+                                       searcher.doSearchForwards(newReader(bytes, windowSize), from, to));
+                    assertSamePosition(description, expected.searchBackwards(newReader(bytes, windowSize), from, to),
+                                       searcher.doSearchBackwards(newReader(bytes, windowSize), from, to));
+                }
+            }
+        }
+    }
+
+    private static void assertSamePosition(final String description, final List<SearchResult<SequenceMatcher>> expected,
+                                           final List<SearchResult<SequenceMatcher>> results) {
+        assertEquals(description, expected.size(), results.size());
+        if (!expected.isEmpty()) {
+            assertEquals(description, expected.get(0).getMatchPosition(), results.get(0).getMatchPosition());
+        }
+    }
+
+    private static List<Long> positions(final List<SearchResult<SequenceMatcher>> results) {
+        final List<Long> positions = new ArrayList<Long>();
+        for (final SearchResult<SequenceMatcher> result : results) {
+            positions.add(result.getMatchPosition());
+        }
+        return positions;
+    }
+
+    private static List<Long> reportedPositions(final PackedStringSearcher searcher, final byte[] bytes) {
+        final List<Long> positions = new ArrayList<Long>();
+        searcher.searchForwards(bytes, new SearchListener<SequenceMatcher>() {
+            @Override
+            public boolean resultFound(final long matchPosition, final SequenceMatcher matchingObject) {
+                positions.add(matchPosition);
+                return true;
+            }
+        });
+        return positions;
+    }
+
+    private static WindowReader newReader(final byte[] bytes) {
+        return newReader(bytes, 7);
+    }
+
+    private static WindowReader newReader(final byte[] bytes, final int windowSize) {
+        return new InputStreamReader(new ByteArrayInputStream(bytes), windowSize);
+    }
+
+}
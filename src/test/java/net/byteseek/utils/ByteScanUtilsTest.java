@@ -0,0 +1,74 @@
+/*
+ * Copyright Matt Palmer 2016, All rights reserved.
+ *
+ * This code is licensed under a standard 3-clause BSD license:
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * The names of its contributors may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.byteseek.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests packing bytes into words and testing all the bytes of a word at once.
+ *
+ * @author Matt Palmer
+ */
+public class ByteScanUtilsTest {
+
+    @Test
+    public void testBroadcast() {
+        assertEquals(0L, ByteScanUtils.broadcast((byte) 0));
+        assertEquals(0x4141414141414141L, ByteScanUtils.broadcast((byte) 'A'));
+        assertEquals(-1L, ByteScanUtils.broadcast((byte) 0xFF));
+    }
+
+    @Test
+    public void testMatchingBytesHasNoFalsePositives() {
+        for (int wordValue = 0; wordValue < 256; wordValue++) {
+            for (int searchValue = 0; searchValue < 256; searchValue++) {
+                final long word = ByteScanUtils.broadcast((byte) wordValue) ^ 0xFF00L;
+                final long matches = ByteScanUtils.matchingBytes(word, ByteScanUtils.broadcast((byte) searchValue));
+                for (int byteIndex = 0; byteIndex < 8; byteIndex++) {
+                    final boolean matched = (matches >>> (byteIndex * 8) & 0xFF) == 0x80;
+                    final int byteValue = (int) (word >>> (byteIndex * 8)) & 0xFF;
+                    assertEquals(byteValue == searchValue, matched);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testReadWordIsLittleEndian() {
+        final byte[] bytes = {0x00, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, (byte) 0x80, (byte) 0xFF};
+        assertEquals(0x0706050403020100L, ByteScanUtils.readWord(bytes, 0));
+        assertEquals(0xFF80070605040302L, ByteScanUtils.readWord(bytes, 2));
+    }
+
+}